@@ -166,7 +166,7 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
             return emptyBuf;
         }
         validate(initialCapacity, maxCapacity);
-        return newHeapBuffer(initialCapacity, maxCapacity);
+        return ByteBufAllocationProfiler.sample(newHeapBuffer(initialCapacity, maxCapacity));
     }
 
     @Override
@@ -185,7 +185,77 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
             return emptyBuf;
         }
         validate(initialCapacity, maxCapacity);
-        return newDirectBuffer(initialCapacity, maxCapacity);
+        return ByteBufAllocationProfiler.sample(newDirectBuffer(initialCapacity, maxCapacity));
+    }
+
+    /**
+     * Allocate a {@link ByteBuf} for each of the given initial capacities in one call. Whether direct or heap buffers
+     * are allocated depends on the actual implementation, like for {@link #buffer(int)}.
+     * <p>
+     * Each of the returned buffers is independent of the others and must be released on its own.
+     */
+    public ByteBuf[] buffers(int... initialCapacities) {
+        if (directByDefault) {
+            return directBuffers(initialCapacities);
+        }
+        return heapBuffers(initialCapacities);
+    }
+
+    /**
+     * Allocate a heap {@link ByteBuf} for each of the given initial capacities in one call.
+     *
+     * @see #buffers(int...)
+     */
+    public ByteBuf[] heapBuffers(int... initialCapacities) {
+        return newBuffers(false, initialCapacities);
+    }
+
+    /**
+     * Allocate a direct {@link ByteBuf} for each of the given initial capacities in one call.
+     *
+     * @see #buffers(int...)
+     */
+    public ByteBuf[] directBuffers(int... initialCapacities) {
+        return newBuffers(true, initialCapacities);
+    }
+
+    /**
+     * Allocate a single buffer which is large enough for all of the given capacities, and split it into one slice
+     * per capacity. Each slice is empty, can not grow beyond its capacity, and must be released on its own. The memory
+     * is returned once all of the slices are released.
+     *
+     * @see ByteBufUtil#slicedBuffers(ByteBufAllocator, int...)
+     */
+    public ByteBuf[] slicedBuffers(int... capacities) {
+        return ByteBufUtil.slice(buffer(ByteBufUtil.sumCapacities(capacities)), capacities);
+    }
+
+    private ByteBuf[] newBuffers(boolean direct, int[] initialCapacities) {
+        ByteBuf[] buffers = new ByteBuf[initialCapacities.length];
+        for (int initialCapacity : initialCapacities) {
+            validate(initialCapacity, DEFAULT_MAX_CAPACITY);
+        }
+        boolean success = false;
+        try {
+            if (direct) {
+                newDirectBuffers(initialCapacities, buffers);
+            } else {
+                newHeapBuffers(initialCapacities, buffers);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (ByteBuf buffer : buffers) {
+                    if (buffer != null) {
+                        buffer.release();
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBufAllocationProfiler.sample(buffers[i]);
+        }
+        return buffers;
     }
 
     @Override
@@ -243,6 +313,26 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
      */
     protected abstract ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity);
 
+    /**
+     * Create a heap {@link ByteBuf} with the default maxCapacity for each of the given initialCapacities and store
+     * it at the same index of {@code buffers}. Allocators can override this to reduce the cost per buffer.
+     */
+    protected void newHeapBuffers(int[] initialCapacities, ByteBuf[] buffers) {
+        for (int i = 0; i < initialCapacities.length; i++) {
+            buffers[i] = newHeapBuffer(initialCapacities[i], DEFAULT_MAX_CAPACITY);
+        }
+    }
+
+    /**
+     * Create a direct {@link ByteBuf} with the default maxCapacity for each of the given initialCapacities and store
+     * it at the same index of {@code buffers}. Allocators can override this to reduce the cost per buffer.
+     */
+    protected void newDirectBuffers(int[] initialCapacities, ByteBuf[] buffers) {
+        for (int i = 0; i < initialCapacities.length; i++) {
+            buffers[i] = newDirectBuffer(initialCapacities[i], DEFAULT_MAX_CAPACITY);
+        }
+    }
+
     @Override
     public String toString() {
         return StringUtil.simpleClassName(this) + "(directByDefault: " + directByDefault + ')';
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+/**
+ * A {@link ByteBufAllocator} that pools memory in large chunks which are shared by all threads, instead of keeping
+ * per-thread arenas and caches like the {@link PooledByteBufAllocator} does.
+ * <p>
+ * Buffers are carved out of the chunks with a simple bump-pointer, and the size of newly allocated chunks adapts to
+ * the sizes of the buffers that are actually requested. As no memory is pinned to a specific thread, this allocator
+ * tends to have a considerably smaller footprint than the {@link PooledByteBufAllocator} when there are many threads
+ * or many mostly idle connections.
+ */
+public final class AdaptiveByteBufAllocator extends AbstractByteBufAllocator
+        implements ByteBufAllocatorMetricProvider {
+
+    private final AdaptivePoolingAllocator direct;
+    private final AdaptivePoolingAllocator heap;
+    private final AdaptiveByteBufAllocatorMetric metric = new AdaptiveByteBufAllocatorMetric(this);
+
+    /**
+     * Create a new instance which prefers direct buffers if the platform supports them.
+     */
+    public AdaptiveByteBufAllocator() {
+        this(PlatformDependent.directBufferPreferred());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param preferDirect {@code true} if {@link #buffer(int)} should try to allocate a direct buffer rather than
+     *                     a heap buffer
+     */
+    public AdaptiveByteBufAllocator(boolean preferDirect) {
+        super(preferDirect);
+        direct = new AdaptivePoolingAllocator(new DirectChunkAllocator(this));
+        heap = new AdaptivePoolingAllocator(new HeapChunkAllocator(this));
+    }
+
+    @Override
+    protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+        return toLeakAwareBuffer(heap.allocate(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+        return toLeakAwareBuffer(direct.allocate(initialCapacity, maxCapacity));
+    }
+
+    @Override
+    public boolean isDirectBufferPooled() {
+        return true;
+    }
+
+    @Override
+    public AdaptiveByteBufAllocatorMetric metric() {
+        return metric;
+    }
+
+    long usedHeapMemory() {
+        return heap.usedMemory();
+    }
+
+    long usedDirectMemory() {
+        return direct.usedMemory();
+    }
+
+    int numMagazines() {
+        return direct.numMagazines();
+    }
+
+    int numCachedHeapChunks() {
+        return heap.numCachedChunks();
+    }
+
+    int numCachedDirectChunks() {
+        return direct.numCachedChunks();
+    }
+
+    private static final class HeapChunkAllocator implements AdaptivePoolingAllocator.ChunkAllocator {
+        private final ByteBufAllocator allocator;
+
+        HeapChunkAllocator(ByteBufAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        @Override
+        public AbstractByteBuf allocate(int initialCapacity, int maxCapacity) {
+            return PlatformDependent.hasUnsafe() ?
+                    new UnpooledUnsafeHeapByteBuf(allocator, initialCapacity, maxCapacity) :
+                    new UnpooledHeapByteBuf(allocator, initialCapacity, maxCapacity);
+        }
+    }
+
+    private static final class DirectChunkAllocator implements AdaptivePoolingAllocator.ChunkAllocator {
+        private final ByteBufAllocator allocator;
+
+        DirectChunkAllocator(ByteBufAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        @Override
+        public AbstractByteBuf allocate(int initialCapacity, int maxCapacity) {
+            return PlatformDependent.hasUnsafe() ?
+                    UnsafeByteBufUtil.newUnsafeDirectByteBuf(allocator, initialCapacity, maxCapacity) :
+                    new UnpooledDirectByteBuf(allocator, initialCapacity, maxCapacity);
+        }
+    }
+
+    /**
+     * Exposed metric for {@link AdaptiveByteBufAllocator}.
+     */
+    public static final class AdaptiveByteBufAllocatorMetric implements ByteBufAllocatorMetric {
+        private final AdaptiveByteBufAllocator allocator;
+
+        AdaptiveByteBufAllocatorMetric(AdaptiveByteBufAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        /**
+         * Return the number of magazines that heap and direct allocations are each spread over.
+         */
+        public int numMagazines() {
+            return allocator.numMagazines();
+        }
+
+        /**
+         * Return the number of empty heap chunks that are kept for reuse.
+         */
+        public int numCachedHeapChunks() {
+            return allocator.numCachedHeapChunks();
+        }
+
+        /**
+         * Return the number of empty direct chunks that are kept for reuse.
+         */
+        public int numCachedDirectChunks() {
+            return allocator.numCachedDirectChunks();
+        }
+
+        @Override
+        public long usedHeapMemory() {
+            return allocator.usedHeapMemory();
+        }
+
+        @Override
+        public long usedDirectMemory() {
+            return allocator.usedDirectMemory();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append(StringUtil.simpleClassName(this))
+                    .append("(usedHeapMemory: ").append(usedHeapMemory())
+                    .append("; usedDirectMemory: ").append(usedDirectMemory())
+                    .append("; numMagazines: ").append(numMagazines())
+                    .append("; numCachedHeapChunks: ").append(numCachedHeapChunks())
+                    .append("; numCachedDirectChunks: ").append(numCachedDirectChunks()).append(')');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,706 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.NettyRuntime;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.ObjectPool;
+import io.netty.util.internal.ObjectPool.Handle;
+import io.netty.util.internal.ObjectPool.ObjectCreator;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.util.Queue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * An auto-tuning pooling allocator that carves buffers out of large chunks with bump-pointer allocation.
+ * <p>
+ * The allocator is organized into a fixed number of {@link Magazine}s, roughly one per core. Each magazine owns the
+ * chunk it is currently allocating from and a lock guarding it. Threads are spread over the magazines by their id, and
+ * move on to the next magazine if the one assigned to them is contended.
+ * <p>
+ * Every buffer allocated from a chunk holds a reference to that chunk. Once all of them have been released, and the
+ * magazine has moved on to a different chunk, the chunk is handed to a small shared queue from where any magazine can
+ * pick it up again. If that queue is full the chunk memory is released, so an idle allocator does not keep more than a
+ * handful of chunks around.
+ * <p>
+ * Each magazine keeps a histogram of the sizes it has been asked for, and uses the 99th percentile of that histogram
+ * to decide how big the next chunk it allocates should be. Buffers bigger than the largest histogram bucket are not
+ * pooled, and get a dedicated chunk that is released together with the buffer.
+ */
+final class AdaptivePoolingAllocator {
+    private static final int HISTO_MIN_BUCKET_SHIFT = 13; // Smallest bucket is 1 << 13 = 8192 bytes in size.
+    private static final int HISTO_MAX_BUCKET_SHIFT = 20; // Biggest bucket is 1 << 20 = 1 MiB bytes in size.
+    private static final int HISTO_BUCKET_COUNT = 1 + HISTO_MAX_BUCKET_SHIFT - HISTO_MIN_BUCKET_SHIFT; // 8 buckets.
+    private static final int INIT_DATUM_TARGET = 64;
+    private static final int MAX_DATUM_TARGET = 65536;
+
+    /**
+     * The number of buffers of the preferred size we aim to fit into a single chunk.
+     */
+    private static final int BUFS_PER_CHUNK = 10;
+    private static final int MIN_CHUNK_SIZE = 128 * 1024;
+    private static final int MAX_POOLED_BUF_SIZE = 1 << HISTO_MAX_BUCKET_SHIFT;
+    private static final int MAX_CHUNK_SIZE = BUFS_PER_CHUNK * MAX_POOLED_BUF_SIZE; // 10 MiB.
+
+    private static final int MAGAZINE_COUNT;
+    private static final int CENTRAL_QUEUE_CAPACITY;
+
+    static {
+        MAGAZINE_COUNT = MathUtil.findNextPositivePowerOfTwo(Math.max(1, SystemPropertyUtil.getInt(
+                "io.netty.allocator.magazineCount", NettyRuntime.availableProcessors())));
+        // The MPMC queue needs room for at least two elements.
+        CENTRAL_QUEUE_CAPACITY = Math.max(2, SystemPropertyUtil.getInt(
+                "io.netty.allocator.centralQueueCapacity", NettyRuntime.availableProcessors()));
+    }
+
+    private final ChunkAllocator chunkAllocator;
+    private final Queue<Chunk> centralQueue;
+    private final Magazine[] magazines;
+    private final LongCounter usedMemory = PlatformDependent.newLongCounter();
+
+    AdaptivePoolingAllocator(ChunkAllocator chunkAllocator) {
+        this.chunkAllocator = checkNotNull(chunkAllocator, "chunkAllocator");
+        centralQueue = PlatformDependent.newFixedMpmcQueue(CENTRAL_QUEUE_CAPACITY);
+        magazines = new Magazine[MAGAZINE_COUNT];
+        for (int i = 0; i < magazines.length; i++) {
+            magazines[i] = new Magazine(this);
+        }
+    }
+
+    ByteBuf allocate(int initialCapacity, int maxCapacity) {
+        AdaptiveByteBuf buf = AdaptiveByteBuf.newInstance();
+        allocate(initialCapacity, maxCapacity, buf);
+        return buf;
+    }
+
+    private void allocate(int size, int maxCapacity, AdaptiveByteBuf into) {
+        if (size <= MAX_POOLED_BUF_SIZE) {
+            Magazine[] mags = magazines;
+            int mask = mags.length - 1;
+            int index = (int) Thread.currentThread().getId() & mask;
+            // Start with the magazine assigned to the current thread and look for one that is not contended.
+            for (int i = 0; i < mags.length; i++) {
+                if (mags[(index + i) & mask].tryAllocate(size, maxCapacity, into)) {
+                    return;
+                }
+            }
+            // All magazines are busy, so wait for the one assigned to the current thread.
+            mags[index].allocate(size, maxCapacity, into);
+        } else {
+            // Too big to pool, give the buffer a chunk of its own which is released together with the buffer.
+            Chunk chunk = newChunk(size, false);
+            chunk.readInitInto(into, size, maxCapacity);
+            chunk.release();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of memory held by all chunks of this allocator, including those that are only
+     * kept around for reuse.
+     */
+    long usedMemory() {
+        return usedMemory.value();
+    }
+
+    /**
+     * Returns the number of magazines used by this allocator.
+     */
+    int numMagazines() {
+        return magazines.length;
+    }
+
+    /**
+     * Returns the number of empty chunks that are currently kept for reuse.
+     */
+    int numCachedChunks() {
+        return centralQueue.size();
+    }
+
+    private Chunk newChunk(int capacity, boolean pooled) {
+        AbstractByteBuf delegate = chunkAllocator.allocate(capacity, capacity);
+        usedMemory.add(delegate.capacity());
+        return new Chunk(this, delegate, pooled);
+    }
+
+    private static int sizeBucket(int size) {
+        if (size <= 1 << HISTO_MIN_BUCKET_SHIFT) {
+            return 0;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return Math.min(shift - HISTO_MIN_BUCKET_SHIFT, HISTO_BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Allocates the memory that backs a chunk.
+     */
+    interface ChunkAllocator {
+        /**
+         * Allocate a buffer for a chunk. This can be any kind of {@link AbstractByteBuf} implementation.
+         * @param initialCapacity The initial capacity of the returned {@link AbstractByteBuf}.
+         * @param maxCapacity The maximum capacity of the returned {@link AbstractByteBuf}.
+         * @return The buffer that represents the chunk memory.
+         */
+        AbstractByteBuf allocate(int initialCapacity, int maxCapacity);
+    }
+
+    private static final class Magazine {
+        private final AdaptivePoolingAllocator parent;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[] histo = new int[HISTO_BUCKET_COUNT];
+        private Chunk current;
+        private int datumCount;
+        private int datumTarget = INIT_DATUM_TARGET;
+        private int preferredChunkSize = MIN_CHUNK_SIZE;
+
+        Magazine(AdaptivePoolingAllocator parent) {
+            this.parent = parent;
+        }
+
+        boolean tryAllocate(int size, int maxCapacity, AdaptiveByteBuf into) {
+            if (!lock.tryLock()) {
+                return false;
+            }
+            try {
+                allocate0(size, maxCapacity, into);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+        void allocate(int size, int maxCapacity, AdaptiveByteBuf into) {
+            lock.lock();
+            try {
+                allocate0(size, maxCapacity, into);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void allocate0(int size, int maxCapacity, AdaptiveByteBuf into) {
+            recordAllocationSize(size);
+            Chunk curr = current;
+            if (curr != null) {
+                if (curr.remainingCapacity() >= size) {
+                    curr.readInitInto(into, size, maxCapacity);
+                    return;
+                }
+                // Retire the current chunk, it will be reused once all buffers allocated from it are released.
+                current = null;
+                curr.release();
+            }
+
+            curr = parent.centralQueue.poll();
+            if (curr != null && curr.remainingCapacity() < size) {
+                // The reused chunk is too small for the requested size, free it and allocate a bigger one.
+                curr.releaseMemory();
+                curr = null;
+            }
+            if (curr == null) {
+                curr = parent.newChunk(Math.max(size, preferredChunkSize), true);
+            }
+            current = curr;
+            curr.readInitInto(into, size, maxCapacity);
+        }
+
+        private void recordAllocationSize(int size) {
+            histo[sizeBucket(size)]++;
+            if (++datumCount == datumTarget) {
+                updatePreferredChunkSize();
+            }
+        }
+
+        private void updatePreferredChunkSize() {
+            int total = 0;
+            for (int count : histo) {
+                total += count;
+            }
+            int targetPercentile = (int) (total * 0.99);
+            int bucket = 0;
+            for (; bucket < HISTO_BUCKET_COUNT - 1; bucket++) {
+                if (histo[bucket] > targetPercentile) {
+                    break;
+                }
+                targetPercentile -= histo[bucket];
+            }
+            int percentileSize = 1 << (bucket + HISTO_MIN_BUCKET_SHIFT);
+            int newPreferredChunkSize = Math.min(Math.max(percentileSize * BUFS_PER_CHUNK, MIN_CHUNK_SIZE),
+                    MAX_CHUNK_SIZE);
+
+            // Sample more often while the allocation pattern changes, and back off once it has settled.
+            if (newPreferredChunkSize == preferredChunkSize) {
+                datumTarget = Math.min(datumTarget << 1, MAX_DATUM_TARGET);
+            } else {
+                datumTarget = INIT_DATUM_TARGET;
+                preferredChunkSize = newPreferredChunkSize;
+            }
+            datumCount = 0;
+
+            // Decay the old samples so the histogram follows changes in the allocation pattern.
+            for (int i = 0; i < histo.length; i++) {
+                histo[i] >>>= 1;
+            }
+        }
+    }
+
+    private static final class Chunk extends AbstractReferenceCounted {
+        private final AdaptivePoolingAllocator parent;
+        private final AbstractByteBuf delegate;
+        private final int capacity;
+        private boolean pooled;
+        private int allocatedBytes;
+
+        Chunk(AdaptivePoolingAllocator parent, AbstractByteBuf delegate, boolean pooled) {
+            this.parent = parent;
+            this.delegate = delegate;
+            this.pooled = pooled;
+            capacity = delegate.capacity();
+        }
+
+        int remainingCapacity() {
+            return capacity - allocatedBytes;
+        }
+
+        void readInitInto(AdaptiveByteBuf buf, int size, int maxCapacity) {
+            int startIndex = allocatedBytes;
+            allocatedBytes = startIndex + size;
+            retain();
+            buf.init(delegate, this, startIndex, size, maxCapacity);
+        }
+
+        /**
+         * Release the chunk without offering it for reuse.
+         */
+        void releaseMemory() {
+            pooled = false;
+            release();
+        }
+
+        @Override
+        protected void deallocate() {
+            if (pooled) {
+                // Nothing references this chunk anymore, so it is safe to hand it out again from the start.
+                allocatedBytes = 0;
+                setRefCnt(1);
+                if (parent.centralQueue.offer(this)) {
+                    return;
+                }
+            }
+            parent.usedMemory.add(-capacity);
+            delegate.release();
+        }
+
+        @Override
+        public Chunk touch(Object hint) {
+            return this;
+        }
+    }
+
+    static final class AdaptiveByteBuf extends AbstractReferenceCountedByteBuf {
+        private static final ObjectPool<AdaptiveByteBuf> RECYCLER = ObjectPool.newPool(
+                new ObjectCreator<AdaptiveByteBuf>() {
+            @Override
+            public AdaptiveByteBuf newObject(Handle<AdaptiveByteBuf> handle) {
+                return new AdaptiveByteBuf(handle);
+            }
+        });
+
+        static AdaptiveByteBuf newInstance() {
+            AdaptiveByteBuf buf = RECYCLER.get();
+            buf.resetRefCnt();
+            buf.discardMarks();
+            return buf;
+        }
+
+        private final Handle<AdaptiveByteBuf> handle;
+
+        private AbstractByteBuf rootParent;
+        private Chunk chunk;
+        private int adjustment;
+        private int length;
+        private int maxFastCapacity;
+        private ByteBuffer tmpNioBuf;
+        private boolean direct;
+        private boolean hasArray;
+        private boolean hasMemoryAddress;
+
+        private AdaptiveByteBuf(Handle<AdaptiveByteBuf> recyclerHandle) {
+            super(0);
+            handle = recyclerHandle;
+        }
+
+        void init(AbstractByteBuf rootParent, Chunk chunk, int adjustment, int capacity, int maxCapacity) {
+            this.rootParent = rootParent;
+            this.chunk = chunk;
+            this.adjustment = adjustment;
+            length = capacity;
+            maxFastCapacity = capacity;
+            tmpNioBuf = null;
+            // Remember what kind of memory this is, as these must still be answered after the buffer was released.
+            direct = rootParent.isDirect();
+            hasArray = rootParent.hasArray();
+            hasMemoryAddress = rootParent.hasMemoryAddress();
+            maxCapacity(maxCapacity);
+            setIndex0(0, 0);
+        }
+
+        private AbstractByteBuf rootParent() {
+            AbstractByteBuf rootParent = this.rootParent;
+            if (rootParent != null) {
+                return rootParent;
+            }
+            throw new IllegalReferenceCountException();
+        }
+
+        @Override
+        public int capacity() {
+            return length;
+        }
+
+        @Override
+        public int maxFastWritableBytes() {
+            return Math.min(maxFastCapacity, maxCapacity()) - writerIndex;
+        }
+
+        @Override
+        public ByteBuf capacity(int newCapacity) {
+            if (newCapacity == length) {
+                ensureAccessible();
+                return this;
+            }
+            checkNewCapacity(newCapacity);
+            if (newCapacity <= maxFastCapacity) {
+                // The requested capacity fits into the memory we already reserved, so just update the length.
+                length = newCapacity;
+                trimIndicesToCapacity(newCapacity);
+                return this;
+            }
+
+            // Reallocation required.
+            Chunk oldChunk = chunk;
+            AdaptivePoolingAllocator allocator = oldChunk.parent;
+            int readerIndex = this.readerIndex;
+            int writerIndex = this.writerIndex;
+            int oldAdjustment = adjustment;
+            int oldCapacity = length;
+            AbstractByteBuf oldRoot = rootParent();
+            allocator.allocate(newCapacity, maxCapacity(), this);
+            oldRoot.getBytes(oldAdjustment, this, 0, oldCapacity);
+            oldChunk.release();
+            setIndex0(readerIndex, writerIndex);
+            return this;
+        }
+
+        @Override
+        public ByteBufAllocator alloc() {
+            return rootParent().alloc();
+        }
+
+        @Override
+        public ByteOrder order() {
+            return ByteOrder.BIG_ENDIAN;
+        }
+
+        @Override
+        public ByteBuf unwrap() {
+            return null;
+        }
+
+        @Override
+        public boolean isDirect() {
+            return direct;
+        }
+
+        @Override
+        public boolean isContiguous() {
+            return true;
+        }
+
+        @Override
+        public boolean hasArray() {
+            return hasArray;
+        }
+
+        @Override
+        public byte[] array() {
+            ensureAccessible();
+            return rootParent().array();
+        }
+
+        @Override
+        public int arrayOffset() {
+            return idx(rootParent().arrayOffset());
+        }
+
+        @Override
+        public boolean hasMemoryAddress() {
+            return hasMemoryAddress;
+        }
+
+        @Override
+        public long memoryAddress() {
+            ensureAccessible();
+            return rootParent().memoryAddress() + adjustment;
+        }
+
+        @Override
+        public int nioBufferCount() {
+            return 1;
+        }
+
+        @Override
+        public ByteBuffer nioBuffer(int index, int length) {
+            checkIndex(index, length);
+            return rootParent().nioBuffer(idx(index), length);
+        }
+
+        @Override
+        public ByteBuffer internalNioBuffer(int index, int length) {
+            checkIndex(index, length);
+            ByteBuffer tmpNioBuf = internalNioBuffer();
+            tmpNioBuf.limit(index + length).position(index);
+            return tmpNioBuf;
+        }
+
+        private ByteBuffer internalNioBuffer() {
+            ByteBuffer tmpNioBuf = this.tmpNioBuf;
+            if (tmpNioBuf == null) {
+                // The chunk's own internal buffer is shared with all other buffers carved from it, so use a
+                // dedicated view of the reserved region instead.
+                this.tmpNioBuf = tmpNioBuf = rootParent().nioBuffer(adjustment, maxFastCapacity);
+            } else {
+                tmpNioBuf.clear();
+            }
+            return tmpNioBuf;
+        }
+
+        @Override
+        public ByteBuffer[] nioBuffers(int index, int length) {
+            return new ByteBuffer[] { nioBuffer(index, length) };
+        }
+
+        @Override
+        public ByteBuf copy(int index, int length) {
+            checkIndex(index, length);
+            return rootParent().copy(idx(index), length);
+        }
+
+        @Override
+        protected byte _getByte(int index) {
+            return rootParent()._getByte(idx(index));
+        }
+
+        @Override
+        protected short _getShort(int index) {
+            return rootParent()._getShort(idx(index));
+        }
+
+        @Override
+        protected short _getShortLE(int index) {
+            return rootParent()._getShortLE(idx(index));
+        }
+
+        @Override
+        protected int _getUnsignedMedium(int index) {
+            return rootParent()._getUnsignedMedium(idx(index));
+        }
+
+        @Override
+        protected int _getUnsignedMediumLE(int index) {
+            return rootParent()._getUnsignedMediumLE(idx(index));
+        }
+
+        @Override
+        protected int _getInt(int index) {
+            return rootParent()._getInt(idx(index));
+        }
+
+        @Override
+        protected int _getIntLE(int index) {
+            return rootParent()._getIntLE(idx(index));
+        }
+
+        @Override
+        protected long _getLong(int index) {
+            return rootParent()._getLong(idx(index));
+        }
+
+        @Override
+        protected long _getLongLE(int index) {
+            return rootParent()._getLongLE(idx(index));
+        }
+
+        @Override
+        protected void _setByte(int index, int value) {
+            rootParent()._setByte(idx(index), value);
+        }
+
+        @Override
+        protected void _setShort(int index, int value) {
+            rootParent()._setShort(idx(index), value);
+        }
+
+        @Override
+        protected void _setShortLE(int index, int value) {
+            rootParent()._setShortLE(idx(index), value);
+        }
+
+        @Override
+        protected void _setMedium(int index, int value) {
+            rootParent()._setMedium(idx(index), value);
+        }
+
+        @Override
+        protected void _setMediumLE(int index, int value) {
+            rootParent()._setMediumLE(idx(index), value);
+        }
+
+        @Override
+        protected void _setInt(int index, int value) {
+            rootParent()._setInt(idx(index), value);
+        }
+
+        @Override
+        protected void _setIntLE(int index, int value) {
+            rootParent()._setIntLE(idx(index), value);
+        }
+
+        @Override
+        protected void _setLong(int index, long value) {
+            rootParent()._setLong(idx(index), value);
+        }
+
+        @Override
+        protected void _setLongLE(int index, long value) {
+            rootParent()._setLongLE(idx(index), value);
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+            checkIndex(index, length);
+            rootParent().getBytes(idx(index), dst, dstIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+            checkIndex(index, length);
+            rootParent().getBytes(idx(index), dst, dstIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, ByteBuffer dst) {
+            checkIndex(index, dst.remaining());
+            rootParent().getBytes(idx(index), dst);
+            return this;
+        }
+
+        @Override
+        public ByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+            checkIndex(index, length);
+            rootParent().getBytes(idx(index), out, length);
+            return this;
+        }
+
+        @Override
+        public int getBytes(int index, GatheringByteChannel out, int length) throws IOException {
+            return out.write(nioBuffer(index, length));
+        }
+
+        @Override
+        public int getBytes(int index, FileChannel out, long position, int length) throws IOException {
+            return out.write(nioBuffer(index, length), position);
+        }
+
+        @Override
+        public ByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+            checkIndex(index, length);
+            rootParent().setBytes(idx(index), src, srcIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+            checkIndex(index, length);
+            rootParent().setBytes(idx(index), src, srcIndex, length);
+            return this;
+        }
+
+        @Override
+        public ByteBuf setBytes(int index, ByteBuffer src) {
+            checkIndex(index, src.remaining());
+            rootParent().setBytes(idx(index), src);
+            return this;
+        }
+
+        @Override
+        public int setBytes(int index, InputStream in, int length) throws IOException {
+            checkIndex(index, length);
+            return rootParent().setBytes(idx(index), in, length);
+        }
+
+        @Override
+        public int setBytes(int index, ScatteringByteChannel in, int length) throws IOException {
+            try {
+                return in.read(internalNioBuffer(index, length));
+            } catch (ClosedChannelException ignored) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int setBytes(int index, FileChannel in, long position, int length) throws IOException {
+            try {
+                return in.read(internalNioBuffer(index, length), position);
+            } catch (ClosedChannelException ignored) {
+                return -1;
+            }
+        }
+
+        @Override
+        protected void deallocate() {
+            Chunk chunk = this.chunk;
+            this.chunk = null;
+            rootParent = null;
+            tmpNioBuf = null;
+            if (chunk != null) {
+                chunk.release();
+            }
+            handle.recycle(this);
+        }
+
+        private int idx(int index) {
+            return index + adjustment;
+        }
+    }
+}
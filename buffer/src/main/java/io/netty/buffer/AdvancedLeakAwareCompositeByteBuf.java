@@ -987,6 +987,12 @@ final class AdvancedLeakAwareCompositeByteBuf extends SimpleLeakAwareCompositeBy
         return super.consolidate(cIndex, numComponents);
     }
 
+    @Override
+    public CompositeByteBuf consolidateSmallComponents(int maxComponentSize, int maxConsolidatedSize) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.consolidateSmallComponents(maxComponentSize, maxConsolidatedSize);
+    }
+
     @Override
     public int getBytes(int index, FileChannel out, long position, int length) throws IOException {
         recordLeakNonRefCountingOperation(leak);
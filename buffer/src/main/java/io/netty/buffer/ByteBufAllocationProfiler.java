@@ -0,0 +1,414 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ResourceLeakTracker;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Samples the buffers that are allocated by {@link AbstractByteBufAllocator}s and aggregates how many bytes were
+ * allocated, and are still held, per allocation site.
+ * <p>
+ * Only a small fraction of the allocations is sampled, and the numbers reported for a site are scaled up
+ * accordingly, so they are estimates. Sampled buffers are wrapped so their release can be tracked, the same way as
+ * buffers tracked by the {@link io.netty.util.ResourceLeakDetector} are. Allocations that are not sampled only pay
+ * for a random number, so the profiler is cheap enough to stay enabled with a large sampling interval.
+ * <p>
+ * The profiler can be enabled at startup via the {@code io.netty.allocator.profiler.interval} and
+ * {@code io.netty.allocator.profiler.mode} system properties, or at runtime via {@link #enable(Mode, int)}.
+ * <p>
+ * At most {@code io.netty.allocator.profiler.maxSites} sites are recorded. The samples of any further sites are
+ * aggregated into a single site with an empty stack trace.
+ */
+@UnstableApi
+public final class ByteBufAllocationProfiler {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ByteBufAllocationProfiler.class);
+
+    private static final int MAX_STACK_DEPTH;
+    private static final int DEFAULT_MAX_SITES;
+
+    private static final ConcurrentMap<Site, SiteStats> SITES = PlatformDependent.newConcurrentHashMap();
+    // The samples of the sites that were not recorded as there were too many already.
+    private static volatile SiteStats otherSites = new SiteStats(new Site(new StackTraceElement[0]));
+
+    // null if disabled.
+    private static volatile Config config;
+
+    /**
+     * How the allocations to sample are chosen.
+     */
+    public enum Mode {
+        /**
+         * Sample one in {@code interval} allocations on average.
+         */
+        COUNT,
+        /**
+         * Sample one allocation per {@code interval} allocated bytes on average, so larger allocations are more
+         * likely to be sampled.
+         */
+        BYTES
+    }
+
+    static {
+        int interval = SystemPropertyUtil.getInt("io.netty.allocator.profiler.interval", 0);
+        String mode = SystemPropertyUtil.get("io.netty.allocator.profiler.mode", Mode.COUNT.name());
+        MAX_STACK_DEPTH = Math.max(1, SystemPropertyUtil.getInt("io.netty.allocator.profiler.maxStackDepth", 16));
+        DEFAULT_MAX_SITES = Math.max(1, SystemPropertyUtil.getInt("io.netty.allocator.profiler.maxSites", 1024));
+        if (interval > 0) {
+            try {
+                enable(Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)), interval);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown -Dio.netty.allocator.profiler.mode: {}, profiler is disabled", mode);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.allocator.profiler.interval: {}", interval);
+            logger.debug("-Dio.netty.allocator.profiler.mode: {}", mode);
+            logger.debug("-Dio.netty.allocator.profiler.maxStackDepth: {}", MAX_STACK_DEPTH);
+            logger.debug("-Dio.netty.allocator.profiler.maxSites: {}", DEFAULT_MAX_SITES);
+        }
+    }
+
+    private ByteBufAllocationProfiler() { }
+
+    /**
+     * Enable sampling of allocations, or change how they are sampled if it is already enabled.
+     *
+     * @param mode how the allocations to sample are chosen.
+     * @param interval the average number of allocations or bytes per sample, depending on {@code mode}.
+     */
+    public static void enable(Mode mode, int interval) {
+        enable(mode, interval, DEFAULT_MAX_SITES);
+    }
+
+    /**
+     * Enable sampling of allocations, or change how they are sampled if it is already enabled.
+     *
+     * @param mode how the allocations to sample are chosen.
+     * @param interval the average number of allocations or bytes per sample, depending on {@code mode}.
+     * @param maxSites the maximum number of sites to record, the samples of any further sites are aggregated into a
+     *                 single site with an empty stack trace.
+     */
+    public static void enable(Mode mode, int interval, int maxSites) {
+        config = new Config(ObjectUtil.checkNotNull(mode, "mode"), ObjectUtil.checkPositive(interval, "interval"),
+                ObjectUtil.checkPositive(maxSites, "maxSites"));
+    }
+
+    /**
+     * Stop sampling allocations. Already sampled buffers are still tracked until they are released.
+     */
+    public static void disable() {
+        config = null;
+    }
+
+    /**
+     * Returns {@code true} if allocations are sampled.
+     */
+    public static boolean isEnabled() {
+        return config != null;
+    }
+
+    /**
+     * Forget all sites that were recorded so far.
+     */
+    public static void reset() {
+        SITES.clear();
+        otherSites = new SiteStats(new Site(new StackTraceElement[0]));
+    }
+
+    /**
+     * Returns the allocation sites that were recorded so far, ordered by the estimated number of bytes that they
+     * still hold, and then by the estimated number of bytes that they allocated in total.
+     */
+    public static List<AllocationSite> snapshot() {
+        List<AllocationSite> sites = new ArrayList<AllocationSite>(SITES.size());
+        for (SiteStats stats : SITES.values()) {
+            sites.add(stats.snapshot());
+        }
+        AllocationSite other = otherSites.snapshot();
+        if (other.totalAllocations() > 0) {
+            sites.add(other);
+        }
+        Collections.sort(sites, AllocationSite.BY_LIVE_BYTES);
+        return sites;
+    }
+
+    /**
+     * Returns a human readable dump of the {@code maxSites} sites that hold the most bytes.
+     */
+    public static String dump(int maxSites) {
+        ObjectUtil.checkPositiveOrZero(maxSites, "maxSites");
+        List<AllocationSite> sites = snapshot();
+        StringBuilder buf = new StringBuilder(1024);
+        buf.append("Allocation sites (").append(sites.size()).append(" recorded):").append(StringUtil.NEWLINE);
+        for (int i = 0; i < sites.size() && i < maxSites; i++) {
+            sites.get(i).appendTo(buf);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Sample the given newly allocated buffer if needed. Returns either the buffer itself or a wrapper which tracks
+     * its release.
+     */
+    static ByteBuf sample(ByteBuf buf) {
+        Config config = ByteBufAllocationProfiler.config;
+        if (config == null) {
+            return buf;
+        }
+        int capacity = buf.capacity();
+        long bytes;
+        long count;
+        if (config.mode == Mode.COUNT) {
+            if (PlatformDependent.threadLocalRandom().nextInt(config.interval) != 0) {
+                return buf;
+            }
+            count = config.interval;
+            bytes = (long) capacity * config.interval;
+        } else {
+            // The probability to sample is capacity / interval, so each sample stands for interval bytes.
+            if (capacity < config.interval &&
+                    PlatformDependent.threadLocalRandom().nextInt(config.interval) >= capacity) {
+                return buf;
+            }
+            bytes = Math.max(capacity, config.interval);
+            count = Math.max(1, config.interval / Math.max(capacity, 1));
+        }
+        return new SimpleLeakAwareByteBuf(buf, new Sample(siteStats(config.maxSites), bytes, count));
+    }
+
+    private static SiteStats siteStats(int maxSites) {
+        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        // Skip the frames of the allocator itself.
+        int start = 0;
+        while (start < stackTrace.length - 1 && isAllocatorFrame(stackTrace[start])) {
+            start++;
+        }
+        int end = Math.min(stackTrace.length, start + MAX_STACK_DEPTH);
+        Site site = new Site(Arrays.copyOfRange(stackTrace, start, end));
+        SiteStats stats = SITES.get(site);
+        if (stats == null) {
+            // Concurrent samples of new sites may exceed the limit slightly, which is fine.
+            if (SITES.size() >= maxSites) {
+                return otherSites;
+            }
+            stats = new SiteStats(site);
+            SiteStats old = SITES.putIfAbsent(site, stats);
+            if (old != null) {
+                stats = old;
+            }
+        }
+        return stats;
+    }
+
+    private static boolean isAllocatorFrame(StackTraceElement element) {
+        String className = element.getClassName();
+        return className.startsWith("io.netty.") &&
+                (className.endsWith("Allocator") || className.equals(ByteBufAllocationProfiler.class.getName()));
+    }
+
+    private static final class Config {
+        final Mode mode;
+        final int interval;
+        final int maxSites;
+
+        Config(Mode mode, int interval, int maxSites) {
+            this.mode = mode;
+            this.interval = interval;
+            this.maxSites = maxSites;
+        }
+    }
+
+    private static final class Site {
+        final StackTraceElement[] stackTrace;
+        private final int hash;
+
+        Site(StackTraceElement[] stackTrace) {
+            this.stackTrace = stackTrace;
+            hash = Arrays.hashCode(stackTrace);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Site && Arrays.equals(stackTrace, ((Site) obj).stackTrace);
+        }
+    }
+
+    private static final class SiteStats {
+        final Site site;
+        final LongCounter totalBytes = PlatformDependent.newLongCounter();
+        final LongCounter totalAllocations = PlatformDependent.newLongCounter();
+        final LongCounter liveBytes = PlatformDependent.newLongCounter();
+        final LongCounter liveAllocations = PlatformDependent.newLongCounter();
+
+        SiteStats(Site site) {
+            this.site = site;
+        }
+
+        AllocationSite snapshot() {
+            return new AllocationSite(site.stackTrace, totalBytes.value(), totalAllocations.value(),
+                    liveBytes.value(), liveAllocations.value());
+        }
+    }
+
+    private static final class Sample implements ResourceLeakTracker<ByteBuf> {
+        private static final AtomicIntegerFieldUpdater<Sample> CLOSED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Sample.class, "closed");
+
+        private final SiteStats stats;
+        private final long bytes;
+        private final long count;
+        private volatile int closed;
+
+        Sample(SiteStats stats, long bytes, long count) {
+            this.stats = stats;
+            this.bytes = bytes;
+            this.count = count;
+            stats.totalBytes.add(bytes);
+            stats.totalAllocations.add(count);
+            stats.liveBytes.add(bytes);
+            stats.liveAllocations.add(count);
+        }
+
+        @Override
+        public void record() {
+            // NOOP
+        }
+
+        @Override
+        public void record(Object hint) {
+            // NOOP
+        }
+
+        @Override
+        public boolean close(ByteBuf trackedObject) {
+            if (CLOSED_UPDATER.compareAndSet(this, 0, 1)) {
+                stats.liveBytes.add(-bytes);
+                stats.liveAllocations.add(-count);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The estimated allocations of a single allocation site.
+     */
+    public static final class AllocationSite {
+        static final Comparator<AllocationSite> BY_LIVE_BYTES = new Comparator<AllocationSite>() {
+            @Override
+            public int compare(AllocationSite o1, AllocationSite o2) {
+                if (o1.liveBytes != o2.liveBytes) {
+                    return o1.liveBytes > o2.liveBytes ? -1 : 1;
+                }
+                if (o1.totalBytes != o2.totalBytes) {
+                    return o1.totalBytes > o2.totalBytes ? -1 : 1;
+                }
+                return 0;
+            }
+        };
+
+        private final StackTraceElement[] stackTrace;
+        private final long totalBytes;
+        private final long totalAllocations;
+        private final long liveBytes;
+        private final long liveAllocations;
+
+        AllocationSite(StackTraceElement[] stackTrace, long totalBytes, long totalAllocations,
+                       long liveBytes, long liveAllocations) {
+            this.stackTrace = stackTrace;
+            this.totalBytes = totalBytes;
+            this.totalAllocations = totalAllocations;
+            this.liveBytes = liveBytes;
+            this.liveAllocations = liveAllocations;
+        }
+
+        /**
+         * Returns the stack trace of the site, starting with the caller of the allocator. It is empty for the site
+         * that aggregates all the sites which were not recorded, as the maximum number of sites was reached.
+         */
+        public StackTraceElement[] stackTrace() {
+            return stackTrace.clone();
+        }
+
+        /**
+         * Returns the estimated number of bytes that were allocated at this site.
+         */
+        public long totalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * Returns the estimated number of buffers that were allocated at this site.
+         */
+        public long totalAllocations() {
+            return totalAllocations;
+        }
+
+        /**
+         * Returns the estimated number of bytes of the buffers allocated at this site that were not released yet.
+         */
+        public long liveBytes() {
+            return liveBytes;
+        }
+
+        /**
+         * Returns the estimated number of buffers allocated at this site that were not released yet.
+         */
+        public long liveAllocations() {
+            return liveAllocations;
+        }
+
+        void appendTo(StringBuilder buf) {
+            buf.append("liveBytes: ").append(liveBytes)
+               .append(", liveAllocations: ").append(liveAllocations)
+               .append(", totalBytes: ").append(totalBytes)
+               .append(", totalAllocations: ").append(totalAllocations)
+               .append(StringUtil.NEWLINE);
+            for (StackTraceElement element : stackTrace) {
+                buf.append("\tat ").append(element).append(StringUtil.NEWLINE);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder(256);
+            appendTo(buf);
+            return buf.toString();
+        }
+    }
+}
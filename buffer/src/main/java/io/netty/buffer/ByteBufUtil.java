@@ -35,13 +35,19 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 
 import static io.netty.util.internal.MathUtil.isOutOfBounds;
@@ -85,6 +91,9 @@ public final class ByteBufUtil {
         } else if ("pooled".equals(allocType)) {
             alloc = PooledByteBufAllocator.DEFAULT;
             logger.debug("-Dio.netty.allocator.type: {}", allocType);
+        } else if ("adaptive".equals(allocType)) {
+            alloc = new AdaptiveByteBufAllocator();
+            logger.debug("-Dio.netty.allocator.type: {}", allocType);
         } else {
             alloc = PooledByteBufAllocator.DEFAULT;
             logger.debug("-Dio.netty.allocator.type: pooled (unknown: {})", allocType);
@@ -262,10 +271,19 @@ public final class ByteBufUtil {
         int per = Math.max((int) suffixes, (int) prefixes);
         int memory;
         int length = Math.min(m - per, ell + 1);
+        // The byte of the needle that is compared first, as long as nothing is memorized from a previous shift.
+        final int first = ell + 1;
+        final byte firstByte = needle.getByte(first + aStartIndex);
 
         if (equals(needle, aStartIndex, needle, aStartIndex + per,  length)) {
             memory = -1;
             while (j <= n - m) {
+                if (memory == -1 && firstByte != haystack.getByte(first + j + bStartIndex)) {
+                    j = skipToFirstByte(haystack, bStartIndex, first, firstByte, j, n - m);
+                    if (j < 0) {
+                        return -1;
+                    }
+                }
                 i = Math.max(ell, memory) + 1;
                 while (i < m && needle.getByte(i + aStartIndex) == haystack.getByte(i + j + bStartIndex)) {
                     ++i;
@@ -291,6 +309,12 @@ public final class ByteBufUtil {
         } else {
             per = Math.max(ell + 1, m - ell - 1) + 1;
             while (j <= n - m) {
+                if (firstByte != haystack.getByte(first + j + bStartIndex)) {
+                    j = skipToFirstByte(haystack, bStartIndex, first, firstByte, j, n - m);
+                    if (j < 0) {
+                        return -1;
+                    }
+                }
                 i = ell + 1;
                 while (i < m && needle.getByte(i + aStartIndex) == haystack.getByte(i + j + bStartIndex)) {
                     ++i;
@@ -315,6 +339,17 @@ public final class ByteBufUtil {
         return -1;
     }
 
+    /**
+     * Returns the next shift after {@code j} (and up to {@code maxShift}) at which the first compared byte of the
+     * needle matches, or {@code -1} if there is none. The Two-Way loops would reject all the shifts in between one by
+     * one after a single comparison, so they are skipped at once using the SWAR based {@link ByteBuf#indexOf}.
+     */
+    private static int skipToFirstByte(ByteBuf haystack, int bStartIndex, int first, byte firstByte,
+                                       int j, int maxShift) {
+        int index = haystack.indexOf(first + j + 1 + bStartIndex, first + maxShift + 1 + bStartIndex, firstByte);
+        return index < 0? -1 : index - first - bStartIndex;
+    }
+
     private static long maxSuf(ByteBuf x, int m, int start, boolean isSuffix) {
         int p = 1;
         int ms = -1;
@@ -425,29 +460,24 @@ public final class ByteBufUtil {
         final int aLen = bufferA.readableBytes();
         final int bLen = bufferB.readableBytes();
         final int minLength = Math.min(aLen, bLen);
-        final int uintCount = minLength >>> 2;
-        final int byteCount = minLength & 3;
+        final int longCount = minLength >>> 3;
+        final int byteCount = minLength & 7;
         int aIndex = bufferA.readerIndex();
         int bIndex = bufferB.readerIndex();
 
-        if (uintCount > 0) {
-            boolean bufferAIsBigEndian = bufferA.order() == ByteOrder.BIG_ENDIAN;
-            final long res;
-            int uintCountIncrement = uintCount << 2;
-
-            if (bufferA.order() == bufferB.order()) {
-                res = bufferAIsBigEndian ? compareUintBigEndian(bufferA, bufferB, aIndex, bIndex, uintCountIncrement) :
-                        compareUintLittleEndian(bufferA, bufferB, aIndex, bIndex, uintCountIncrement);
-            } else {
-                res = bufferAIsBigEndian ? compareUintBigEndianA(bufferA, bufferB, aIndex, bIndex, uintCountIncrement) :
-                        compareUintBigEndianB(bufferA, bufferB, aIndex, bIndex, uintCountIncrement);
-            }
-            if (res != 0) {
-                // Ensure we not overflow when cast
-                return (int) Math.min(Integer.MAX_VALUE, Math.max(Integer.MIN_VALUE, res));
+        if (longCount > 0) {
+            final boolean aBigEndian = bufferA.order() == ByteOrder.BIG_ENDIAN;
+            final boolean bBigEndian = bufferB.order() == ByteOrder.BIG_ENDIAN;
+            for (int aEnd = aIndex + (longCount << 3); aIndex < aEnd; aIndex += Long.BYTES, bIndex += Long.BYTES) {
+                // Read big-endian words so that comparing them compares the bytes in order.
+                final long a = aBigEndian? bufferA.getLong(aIndex) : swapLong(bufferA.getLong(aIndex));
+                final long b = bBigEndian? bufferB.getLong(bIndex) : swapLong(bufferB.getLong(bIndex));
+                if (a != b) {
+                    // The first byte that differs is the most significant one that differs.
+                    final int shift = Long.SIZE - Byte.SIZE - (Long.numberOfLeadingZeros(a ^ b) & ~7);
+                    return (int) (a >>> shift & 0xFF) - (int) (b >>> shift & 0xFF);
+                }
             }
-            aIndex += uintCountIncrement;
-            bIndex += uintCountIncrement;
         }
 
         for (int aEnd = aIndex + byteCount; aIndex < aEnd; ++aIndex, ++bIndex) {
@@ -460,58 +490,6 @@ public final class ByteBufUtil {
         return aLen - bLen;
     }
 
-    private static long compareUintBigEndian(
-            ByteBuf bufferA, ByteBuf bufferB, int aIndex, int bIndex, int uintCountIncrement) {
-        for (int aEnd = aIndex + uintCountIncrement; aIndex < aEnd; aIndex += 4, bIndex += 4) {
-            long comp = bufferA.getUnsignedInt(aIndex) - bufferB.getUnsignedInt(bIndex);
-            if (comp != 0) {
-                return comp;
-            }
-        }
-        return 0;
-    }
-
-    private static long compareUintLittleEndian(
-            ByteBuf bufferA, ByteBuf bufferB, int aIndex, int bIndex, int uintCountIncrement) {
-        for (int aEnd = aIndex + uintCountIncrement; aIndex < aEnd; aIndex += 4, bIndex += 4) {
-            long comp = uintFromLE(bufferA.getUnsignedIntLE(aIndex)) - uintFromLE(bufferB.getUnsignedIntLE(bIndex));
-            if (comp != 0) {
-                return comp;
-            }
-        }
-        return 0;
-    }
-
-    private static long compareUintBigEndianA(
-            ByteBuf bufferA, ByteBuf bufferB, int aIndex, int bIndex, int uintCountIncrement) {
-        for (int aEnd = aIndex + uintCountIncrement; aIndex < aEnd; aIndex += 4, bIndex += 4) {
-            long a = bufferA.getUnsignedInt(aIndex);
-            long b = uintFromLE(bufferB.getUnsignedIntLE(bIndex));
-            long comp =  a - b;
-            if (comp != 0) {
-                return comp;
-            }
-        }
-        return 0;
-    }
-
-    private static long compareUintBigEndianB(
-            ByteBuf bufferA, ByteBuf bufferB, int aIndex, int bIndex, int uintCountIncrement) {
-        for (int aEnd = aIndex + uintCountIncrement; aIndex < aEnd; aIndex += 4, bIndex += 4) {
-            long a = uintFromLE(bufferA.getUnsignedIntLE(aIndex));
-            long b = bufferB.getUnsignedInt(bIndex);
-            long comp =  a - b;
-            if (comp != 0) {
-                return comp;
-            }
-        }
-        return 0;
-    }
-
-    private static long uintFromLE(long value) {
-        return Long.reverseBytes(value) >>> Integer.SIZE;
-    }
-
     private static final class SWARByteSearch {
 
         private static long compilePattern(byte byteToFind) {
@@ -519,12 +497,30 @@ public final class ByteBufUtil {
         }
 
         private static int firstAnyPattern(long word, long pattern, boolean leading) {
-            long input = word ^ pattern;
-            long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
-            tmp = ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+            final long tmp = anyPattern(word, pattern);
             final int binaryPosition = leading? Long.numberOfLeadingZeros(tmp) : Long.numberOfTrailingZeros(tmp);
             return binaryPosition >>> 3;
         }
+
+        /**
+         * Returns the index of the last byte of {@code word} which matches {@code pattern}, or {@code -1} if none
+         * matches.
+         */
+        private static int lastAnyPattern(long word, long pattern, boolean leading) {
+            final long tmp = anyPattern(word, pattern);
+            final int binaryPosition = leading? Long.numberOfTrailingZeros(tmp) : Long.numberOfLeadingZeros(tmp);
+            return Long.BYTES - 1 - (binaryPosition >>> 3);
+        }
+
+        /**
+         * Returns a word that has the highest bit set in each byte of {@code word} which matches {@code pattern}, and
+         * all other bits cleared.
+         */
+        private static long anyPattern(long word, long pattern) {
+            long input = word ^ pattern;
+            long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+            return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+        }
     }
 
     private static int unrolledFirstIndexOf(AbstractByteBuf buffer, int fromIndex, int byteCount, byte value) {
@@ -691,6 +687,77 @@ public final class ByteBufUtil {
                 buf.writeMedium(swapMedium(mediumValue));
     }
 
+    /**
+     * Transfers the readable bytes of all the given buffers to the specified channel with a single gathering write
+     * (like {@code writev}), without copying them into an intermediate buffer first. The reader index of each buffer
+     * is increased by the number of its bytes that were written.
+     *
+     * @return the number of bytes written to the channel, which may be less than the number of readable bytes
+     * @throws IOException if the specified channel threw an exception during I/O
+     */
+    public static long readBytes(GatheringByteChannel out, ByteBuf... buffers) throws IOException {
+        checkNotNull(out, "out");
+        checkNotNull(buffers, "buffers");
+        List<ByteBuffer> nioBuffers = new ArrayList<ByteBuffer>(buffers.length);
+        for (ByteBuf buffer : buffers) {
+            addNioBuffers(nioBuffers, buffer, buffer.readerIndex(), buffer.readableBytes());
+        }
+        if (nioBuffers.isEmpty()) {
+            return 0;
+        }
+        long written = out.write(nioBuffers.toArray(new ByteBuffer[0]));
+        long remaining = written;
+        for (int i = 0; i < buffers.length && remaining > 0; i++) {
+            ByteBuf buffer = buffers[i];
+            int localWritten = (int) Math.min(remaining, buffer.readableBytes());
+            buffer.skipBytes(localWritten);
+            remaining -= localWritten;
+        }
+        return written;
+    }
+
+    /**
+     * Transfers bytes from the specified channel into the writable bytes of all the given buffers with a single
+     * scattering read (like {@code readv}), without copying them from an intermediate buffer. The buffers are filled
+     * in order and the writer index of each is increased by the number of bytes that were read into it. The buffers
+     * are not expanded, and they must expose their memory via {@link ByteBuf#nioBuffers(int, int)} (which all heap
+     * and direct buffers do).
+     *
+     * @return the number of bytes read from the channel, or {@code -1} if the channel has reached end-of-stream
+     * @throws IOException if the specified channel threw an exception during I/O
+     */
+    public static long writeBytes(ScatteringByteChannel in, ByteBuf... buffers) throws IOException {
+        checkNotNull(in, "in");
+        checkNotNull(buffers, "buffers");
+        List<ByteBuffer> nioBuffers = new ArrayList<ByteBuffer>(buffers.length);
+        for (ByteBuf buffer : buffers) {
+            if (buffer.isReadOnly()) {
+                throw new ReadOnlyBufferException();
+            }
+            addNioBuffers(nioBuffers, buffer, buffer.writerIndex(), buffer.writableBytes());
+        }
+        long read = in.read(nioBuffers.toArray(new ByteBuffer[0]));
+        long remaining = read;
+        for (int i = 0; i < buffers.length && remaining > 0; i++) {
+            ByteBuf buffer = buffers[i];
+            int localRead = (int) Math.min(remaining, buffer.writableBytes());
+            buffer.writerIndex(buffer.writerIndex() + localRead);
+            remaining -= localRead;
+        }
+        return read;
+    }
+
+    private static void addNioBuffers(List<ByteBuffer> nioBuffers, ByteBuf buffer, int index, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (buffer.nioBufferCount() == 1) {
+            nioBuffers.add(buffer.nioBuffer(index, length));
+        } else {
+            Collections.addAll(nioBuffers, buffer.nioBuffers(index, length));
+        }
+    }
+
     /**
      * Read the given amount of bytes into a new {@link ByteBuf} that is allocated from the {@link ByteBufAllocator}.
      */
@@ -708,6 +775,77 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Allocate a {@link ByteBuf} for each of the given initial capacities from the {@link ByteBufAllocator}, like
+     * {@link ByteBufAllocator#buffer(int)} does. Allocators which extend {@link AbstractByteBufAllocator} allocate
+     * all of the buffers in one call, which is cheaper than allocating them one by one.
+     */
+    public static ByteBuf[] buffers(ByteBufAllocator alloc, int... initialCapacities) {
+        checkNotNull(initialCapacities, "initialCapacities");
+        if (alloc instanceof AbstractByteBufAllocator) {
+            return ((AbstractByteBufAllocator) alloc).buffers(initialCapacities);
+        }
+        ByteBuf[] buffers = new ByteBuf[initialCapacities.length];
+        boolean success = false;
+        try {
+            for (int i = 0; i < initialCapacities.length; i++) {
+                buffers[i] = alloc.buffer(initialCapacities[i]);
+            }
+            success = true;
+            return buffers;
+        } finally {
+            if (!success) {
+                for (ByteBuf buffer : buffers) {
+                    if (buffer != null) {
+                        buffer.release();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Allocate a single {@link ByteBuf} from the {@link ByteBufAllocator} which is large enough for all of the given
+     * capacities, and split it into one slice per capacity. Each slice is empty, can not grow beyond its capacity,
+     * and must be released on its own. The memory is returned once all of the slices are released.
+     */
+    public static ByteBuf[] slicedBuffers(ByteBufAllocator alloc, int... capacities) {
+        if (alloc instanceof AbstractByteBufAllocator) {
+            return ((AbstractByteBufAllocator) alloc).slicedBuffers(capacities);
+        }
+        return slice(alloc.buffer(sumCapacities(capacities)), capacities);
+    }
+
+    static int sumCapacities(int[] capacities) {
+        checkNotNull(capacities, "capacities");
+        long sum = 0;
+        for (int capacity : capacities) {
+            sum += checkPositiveOrZero(capacity, "capacity");
+        }
+        if (sum > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "sum of capacities: " + sum + " (expected: <= " + Integer.MAX_VALUE + ')');
+        }
+        return (int) sum;
+    }
+
+    /**
+     * Split the buffer into one retained slice per capacity and release it, so that only the slices hold on to it.
+     */
+    static ByteBuf[] slice(ByteBuf buffer, int[] capacities) {
+        ByteBuf[] slices = new ByteBuf[capacities.length];
+        try {
+            int offset = 0;
+            for (int i = 0; i < capacities.length; i++) {
+                slices[i] = buffer.retainedSlice(offset, capacities[i]).clear();
+                offset += capacities[i];
+            }
+        } finally {
+            buffer.release();
+        }
+        return slices;
+    }
+
     static int lastIndexOf(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
         assert fromIndex > toIndex;
         final int capacity = buffer.capacity();
@@ -715,13 +853,35 @@ public final class ByteBufUtil {
         if (fromIndex < 0 || capacity == 0) {
             return -1;
         }
-        buffer.checkIndex(toIndex, fromIndex - toIndex);
+        final int length = fromIndex - toIndex;
+        buffer.checkIndex(toIndex, length);
+        if (!PlatformDependent.isUnaligned()) {
+            return linearLastIndexOf(buffer, fromIndex, toIndex, value);
+        }
+        // Like firstIndexOf(...) but reading the words backwards, starting at the end of the range.
+        int offset = fromIndex;
+        final int longCount = length >>> 3;
+        final ByteOrder nativeOrder = ByteOrder.nativeOrder();
+        final boolean isNative = nativeOrder == buffer.order();
+        final boolean useLE = nativeOrder == ByteOrder.LITTLE_ENDIAN;
+        final long pattern = SWARByteSearch.compilePattern(value);
+        for (int i = 0; i < longCount; i++) {
+            offset -= Long.BYTES;
+            final long word = useLE? buffer._getLongLE(offset) : buffer._getLong(offset);
+            int index = SWARByteSearch.lastAnyPattern(word, pattern, isNative);
+            if (index >= 0) {
+                return offset + index;
+            }
+        }
+        return linearLastIndexOf(buffer, offset, toIndex, value);
+    }
+
+    private static int linearLastIndexOf(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
         for (int i = fromIndex - 1; i >= toIndex; i--) {
             if (buffer._getByte(i) == value) {
                 return i;
             }
         }
-
         return -1;
     }
 
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ScatteringByteChannel;
@@ -54,6 +55,9 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     private final ByteBufAllocator alloc;
     private final boolean direct;
     private final int maxNumComponents;
+    // If > 0 only runs of small components are consolidated once there are more than maxNumComponents.
+    private final int maxSmallComponentSize;
+    private final int maxConsolidatedSize;
 
     private int componentCount;
     private Component[] components; // resized when needed
@@ -61,6 +65,11 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
     private boolean freed;
 
     private CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents, int initSize) {
+        this(alloc, direct, maxNumComponents, initSize, 0, 0);
+    }
+
+    private CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents, int initSize,
+                             int maxSmallComponentSize, int maxConsolidatedSize) {
         super(AbstractByteBufAllocator.DEFAULT_MAX_CAPACITY);
 
         this.alloc = ObjectUtil.checkNotNull(alloc, "alloc");
@@ -71,6 +80,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
         this.direct = direct;
         this.maxNumComponents = maxNumComponents;
+        this.maxSmallComponentSize = maxSmallComponentSize;
+        this.maxConsolidatedSize = maxConsolidatedSize;
         components = newCompArray(initSize, maxNumComponents);
     }
 
@@ -78,6 +89,21 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this(alloc, direct, maxNumComponents, 0);
     }
 
+    /**
+     * Creates a new instance which, once more than {@code maxNumComponents} components were added, only consolidates
+     * runs of adjacent components that are smaller than {@code maxSmallComponentSize} bytes, into buffers of at most
+     * {@code maxConsolidatedSize} bytes allocated from {@code alloc}. Larger components are kept as they are, so they
+     * are never copied. If the number of components still exceeds {@code maxNumComponents} after that, all of them
+     * are consolidated as usual.
+     *
+     * @see #consolidateSmallComponents(int, int)
+     */
+    public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents,
+                            int maxSmallComponentSize, int maxConsolidatedSize) {
+        this(alloc, direct, maxNumComponents, 0, ObjectUtil.checkPositive(maxSmallComponentSize,
+                "maxSmallComponentSize"), ObjectUtil.checkPositive(maxConsolidatedSize, "maxConsolidatedSize"));
+    }
+
     public CompositeByteBuf(ByteBufAllocator alloc, boolean direct, int maxNumComponents, ByteBuf... buffers) {
         this(alloc, direct, maxNumComponents, buffers, 0);
     }
@@ -148,6 +174,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         this.alloc = alloc;
         direct = false;
         maxNumComponents = 0;
+        maxSmallComponentSize = 0;
+        maxConsolidatedSize = 0;
         components = null;
     }
 
@@ -568,6 +596,13 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         // operation.
         int size = componentCount;
         if (size > maxNumComponents) {
+            if (maxSmallComponentSize > 0) {
+                consolidateSmallComponents0(maxSmallComponentSize, maxConsolidatedSize);
+                size = componentCount;
+                if (size <= maxNumComponents) {
+                    return;
+                }
+            }
             consolidate0(0, size);
         }
     }
@@ -919,6 +954,21 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     private int toComponentIndex0(int offset) {
         int size = componentCount;
+        // Check the component of the last lookup and the one after it first, which makes sequential and
+        // local access independent of the number of components.
+        int cursor = componentCursor;
+        if (cursor < size) {
+            Component c = components[cursor];
+            if (offset >= c.offset) {
+                if (offset < c.endOffset) {
+                    return cursor;
+                }
+                if (++cursor < size && offset < components[cursor].endOffset) {
+                    componentCursor = cursor;
+                    return cursor;
+                }
+            }
+        }
         if (offset == 0) { // fast-path zero offset
             for (int i = 0; i < size; i++) {
                 if (components[i].endOffset > 0) {
@@ -937,6 +987,7 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
             } else if (offset < c.offset) {
                 high = mid - 1;
             } else {
+                componentCursor = mid;
                 return mid;
             }
         }
@@ -1442,6 +1493,14 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         }
 
         int i = toComponentIndex0(index);
+        if (canScatter(i, index + length)) {
+            // Read into all the components at once instead of one by one.
+            try {
+                return (int) in.read(nioBuffers(index, length));
+            } catch (ClosedChannelException ignored) {
+                return -1;
+            }
+        }
         int readBytes = 0;
         do {
             Component c = components[i];
@@ -1476,6 +1535,27 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return readBytes;
     }
 
+    /**
+     * Returns {@code true} if the range from the component at {@code cIndex} to {@code endOffset} spans multiple
+     * components, and the NIO buffers of all of them share their memory, so bytes can be read into them directly.
+     */
+    private boolean canScatter(int cIndex, int endOffset) {
+        Component c = components[cIndex];
+        if (c.endOffset >= endOffset) {
+            return false;
+        }
+        for (;;) {
+            ByteBuf buf = c.buf;
+            if (buf.isReadOnly() || buf.nioBufferCount() != 1 || !buf.hasArray() && !buf.isDirect()) {
+                return false;
+            }
+            if (c.endOffset >= endOffset) {
+                return true;
+            }
+            c = components[++cIndex];
+        }
+    }
+
     @Override
     public int setBytes(int index, FileChannel in, long position, int length) throws IOException {
         checkIndex(index, length);
@@ -1589,6 +1669,8 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
 
     // weak cache - check it first when looking for component
     private Component lastAccessed;
+    // weak cache - index of the component found by the last toComponentIndex0 lookup, validated before use
+    private int componentCursor;
 
     private Component findComponent(int offset) {
         Component la = lastAccessed;
@@ -1747,6 +1829,37 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return this;
     }
 
+    /**
+     * Consolidate runs of adjacent components that are smaller than {@code maxComponentSize} bytes each into buffers
+     * of at most {@code maxConsolidatedSize} bytes. Unlike {@link #consolidate()}, larger components are kept as
+     * they are, so they are never copied.
+     *
+     * @param maxComponentSize the size from which on components are never consolidated
+     * @param maxConsolidatedSize the maximum size of a buffer that is the result of consolidating components
+     */
+    public CompositeByteBuf consolidateSmallComponents(int maxComponentSize, int maxConsolidatedSize) {
+        ObjectUtil.checkPositive(maxComponentSize, "maxComponentSize");
+        ObjectUtil.checkPositive(maxConsolidatedSize, "maxConsolidatedSize");
+        ensureAccessible();
+        consolidateSmallComponents0(maxComponentSize, maxConsolidatedSize);
+        return this;
+    }
+
+    private void consolidateSmallComponents0(int maxComponentSize, int maxConsolidatedSize) {
+        for (int cIndex = 0; cIndex < componentCount - 1; cIndex++) {
+            int endCIndex = cIndex;
+            int bytes = 0;
+            for (int size = componentCount; endCIndex < size; endCIndex++) {
+                int length = components[endCIndex].length();
+                if (length >= maxComponentSize || bytes + length > maxConsolidatedSize) {
+                    break;
+                }
+                bytes += length;
+            }
+            consolidate0(cIndex, endCIndex - cIndex);
+        }
+    }
+
     private void consolidate0(int cIndex, int numComponents) {
         if (numComponents <= 1) {
             return;
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides the memory which backs the chunks of the direct arenas of a {@link PooledByteBufAllocator}.
+ * <p>
+ * This allows to back pooled direct memory by something else than the default direct {@link ByteBuffer}s, for
+ * example by memory-mapped regions that use huge pages.
+ */
+@UnstableApi
+public interface DirectMemoryProvider {
+
+    /**
+     * Allocate a direct {@link ByteBuffer} with a capacity of exactly {@code capacity} bytes.
+     *
+     * @return the buffer, or {@code null} if this provider can not serve the request. In this case the allocator
+     *         falls back to its default way of allocating direct memory.
+     */
+    ByteBuffer allocate(int capacity);
+
+    /**
+     * Release a {@link ByteBuffer} that was returned by {@link #allocate(int)} before. The buffer must not be used
+     * anymore once this method was called.
+     */
+    void free(ByteBuffer buffer);
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A {@link DirectMemoryProvider} which allocates memory segments of the Foreign Function &amp; Memory API
+ * ({@code java.lang.foreign}), which is available as of Java 22.
+ * <p>
+ * Each allocation gets its own shared {@code Arena}, which is closed when the memory is freed. This frees the memory
+ * deterministically, and does neither depend on {@code sun.misc.Unsafe} nor on the {@code Cleaner} of a
+ * {@link ByteBuffer}. As closing a shared arena is relatively expensive, this works best for memory that is long
+ * lived, like the chunks of a {@link PooledByteBufAllocator}.
+ */
+@UnstableApi
+public final class MemorySegmentDirectMemoryProvider implements DirectMemoryProvider {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(MemorySegmentDirectMemoryProvider.class);
+
+    private static final Method OF_SHARED;
+    private static final Method ALLOCATE;
+    private static final Method AS_BYTE_BUFFER;
+    private static final Method CLOSE;
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofShared = null;
+        Method allocate = null;
+        Method asByteBuffer = null;
+        Method close = null;
+        Throwable cause = null;
+        if (PlatformDependent.javaVersion() < 22) {
+            cause = new UnsupportedOperationException(
+                    "java.lang.foreign requires Java 22+ (current: " + PlatformDependent.javaVersion() + ')');
+        } else {
+            try {
+                Class<?> arenaClass = Class.forName("java.lang.foreign.Arena");
+                Class<?> segmentClass = Class.forName("java.lang.foreign.MemorySegment");
+                ofShared = arenaClass.getMethod("ofShared");
+                allocate = arenaClass.getMethod("allocate", long.class, long.class);
+                asByteBuffer = segmentClass.getMethod("asByteBuffer");
+                close = arenaClass.getMethod("close");
+
+                // Ensure that the methods can actually be used.
+                Object arena = ofShared.invoke(null);
+                try {
+                    asByteBuffer.invoke(allocate.invoke(arena, 8L, 8L));
+                } finally {
+                    close.invoke(arena);
+                }
+            } catch (Throwable t) {
+                cause = t;
+            }
+        }
+        if (cause == null) {
+            OF_SHARED = ofShared;
+            ALLOCATE = allocate;
+            AS_BYTE_BUFFER = asByteBuffer;
+            CLOSE = close;
+        } else {
+            OF_SHARED = null;
+            ALLOCATE = null;
+            AS_BYTE_BUFFER = null;
+            CLOSE = null;
+        }
+        UNAVAILABILITY_CAUSE = cause;
+        logger.debug("java.lang.foreign.Arena: {}", cause == null ? "available" : "unavailable", cause);
+    }
+
+    // Maps the buffers that were handed out to their arenas. ByteBuffer.equals() compares the content, so identity
+    // is used.
+    private final Map<ByteBuffer, Object> arenas =
+            Collections.synchronizedMap(new IdentityHashMap<ByteBuffer, Object>());
+    private final int alignment;
+
+    /**
+     * Create a new instance which aligns the memory to the size of a cache line.
+     */
+    public MemorySegmentDirectMemoryProvider() {
+        this(64);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param alignment the alignment of the allocated memory in bytes, which must be a power of two.
+     */
+    public MemorySegmentDirectMemoryProvider(int alignment) {
+        ObjectUtil.checkPositive(alignment, "alignment");
+        if ((alignment & alignment - 1) != 0) {
+            throw new IllegalArgumentException("alignment: " + alignment + " (expected: power of two)");
+        }
+        ensureAvailability();
+        this.alignment = alignment;
+    }
+
+    /**
+     * Returns {@code true} if the Foreign Function &amp; Memory API can be used.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensure that the Foreign Function &amp; Memory API can be used.
+     *
+     * @throws UnsupportedOperationException if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (UnsupportedOperationException) new UnsupportedOperationException(
+                    "java.lang.foreign is not available").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    @Override
+    public ByteBuffer allocate(int capacity) {
+        Object arena = invoke(OF_SHARED, null);
+        boolean success = false;
+        try {
+            ByteBuffer buffer = (ByteBuffer) invoke(AS_BYTE_BUFFER,
+                    invoke(ALLOCATE, arena, (long) capacity, (long) alignment));
+            arenas.put(buffer, arena);
+            success = true;
+            return buffer;
+        } catch (OutOfMemoryError e) {
+            // Let the allocator fall back to its default way of allocating direct memory.
+            return null;
+        } finally {
+            if (!success) {
+                invoke(CLOSE, arena);
+            }
+        }
+    }
+
+    @Override
+    public void free(ByteBuffer buffer) {
+        Object arena = arenas.remove(buffer);
+        if (arena == null) {
+            throw new IllegalArgumentException("buffer was not allocated by this provider");
+        }
+        invoke(CLOSE, arena);
+    }
+
+    private static Object invoke(Method method, Object obj, Object... args) {
+        try {
+            return method.invoke(obj, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The NUMA nodes of the system and the CPUs that belong to them, as discovered from {@code /sys} on Linux.
+ */
+final class NumaTopology {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(NumaTopology.class);
+
+    private static final String NODE_DIR = "/sys/devices/system/node";
+    private static final String THREAD_STAT = "/proc/thread-self/stat";
+    // The processor the thread last ran on is the 39th field of the stat file.
+    private static final int PROCESSOR_FIELD = 39;
+
+    private final int numNodes;
+    private final int[] cpuToNode;
+
+    NumaTopology(int numNodes, int[] cpuToNode) {
+        this.numNodes = numNodes;
+        this.cpuToNode = cpuToNode;
+    }
+
+    /**
+     * Discover the NUMA topology of the system.
+     *
+     * @return the topology, or {@code null} if it could not be discovered.
+     */
+    static NumaTopology detect() {
+        File[] nodeDirs = new File(NODE_DIR).listFiles();
+        if (nodeDirs == null || !new File(THREAD_STAT).canRead()) {
+            return null;
+        }
+        Arrays.sort(nodeDirs);
+        List<int[]> nodeCpus = new ArrayList<int[]>();
+        int maxCpu = -1;
+        try {
+            for (File dir : nodeDirs) {
+                if (!dir.getName().matches("node[0-9]+")) {
+                    continue;
+                }
+                int[] cpus = parseCpuList(readFirstLine(new File(dir, "cpulist")));
+                // Nodes without CPUs (like memory-only nodes) can not have any threads running on them.
+                if (cpus.length == 0) {
+                    continue;
+                }
+                nodeCpus.add(cpus);
+                maxCpu = Math.max(maxCpu, cpus[cpus.length - 1]);
+            }
+        } catch (Exception e) {
+            logger.debug("Failed to discover the NUMA topology", e);
+            return null;
+        }
+        if (nodeCpus.isEmpty()) {
+            return null;
+        }
+        int[] cpuToNode = new int[maxCpu + 1];
+        Arrays.fill(cpuToNode, -1);
+        for (int node = 0; node < nodeCpus.size(); node++) {
+            for (int cpu : nodeCpus.get(node)) {
+                cpuToNode[cpu] = node;
+            }
+        }
+        return new NumaTopology(nodeCpus.size(), cpuToNode);
+    }
+
+    /**
+     * Returns the number of NUMA nodes that have CPUs. Nodes are numbered from {@code 0} to {@code numNodes() - 1}.
+     */
+    int numNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Returns the node of the given CPU, or {@code -1} if unknown.
+     */
+    int node(int cpu) {
+        return cpu >= 0 && cpu < cpuToNode.length ? cpuToNode[cpu] : -1;
+    }
+
+    /**
+     * Returns the node of the CPU the calling thread currently runs on, or {@code -1} if unknown.
+     */
+    int currentNode() {
+        try {
+            return node(parseProcessor(readFirstLine(new File(THREAD_STAT))));
+        } catch (Exception e) {
+            logger.debug("Failed to determine the NUMA node of the current thread", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a list of CPUs like {@code 0-3,8,10-11} into a sorted array.
+     */
+    static int[] parseCpuList(String cpuList) {
+        cpuList = cpuList.trim();
+        if (cpuList.isEmpty()) {
+            return new int[0];
+        }
+        List<Integer> cpus = new ArrayList<Integer>();
+        for (String range : cpuList.split(",")) {
+            int idx = range.indexOf('-');
+            if (idx < 0) {
+                cpus.add(Integer.parseInt(range.trim()));
+            } else {
+                int end = Integer.parseInt(range.substring(idx + 1).trim());
+                for (int cpu = Integer.parseInt(range.substring(0, idx).trim()); cpu <= end; cpu++) {
+                    cpus.add(cpu);
+                }
+            }
+        }
+        int[] array = new int[cpus.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = cpus.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    /**
+     * Parses the processor the thread last ran on out of the content of a {@code /proc/[pid]/stat} file.
+     */
+    static int parseProcessor(String stat) {
+        // The second field is the command name in parentheses, which may contain spaces itself.
+        int idx = stat.lastIndexOf(')');
+        if (idx < 0) {
+            throw new IllegalArgumentException("Malformed stat: " + stat);
+        }
+        String[] fields = stat.substring(idx + 1).trim().split(" ");
+        // The fields after the command name start with the third one.
+        int field = PROCESSOR_FIELD - 3;
+        if (fields.length <= field) {
+            throw new IllegalArgumentException("Malformed stat: " + stat);
+        }
+        return Integer.parseInt(fields[field]);
+    }
+
+    private static String readFirstLine(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "US-ASCII"));
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Empty file: " + file);
+            }
+            return line;
+        } finally {
+            reader.close();
+        }
+    }
+}
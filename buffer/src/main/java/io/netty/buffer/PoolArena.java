@@ -59,12 +59,19 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
 
-    private long deallocationsSmall;
     private long deallocationsNormal;
 
     // We need to use the LongCounter here as this is not guarded via synchronized block.
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    // Allocations that were released by another thread and handed back to the thread cache they were allocated from.
+    private final LongCounter remoteFrees = PlatformDependent.newLongCounter();
+
+    // Metrics for chunks released by trimIdleChunks(long).
+    private final LongCounter reclaimedChunks = PlatformDependent.newLongCounter();
+    private final LongCounter reclaimedBytes = PlatformDependent.newLongCounter();
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
@@ -127,9 +134,30 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         return buf;
     }
 
+    /**
+     * Allocate a buffer for each of the given capacities and store it at the same index of {@code buffers}. The size
+     * class is only computed again if the capacity differs from the previous one.
+     */
+    void allocate(PoolThreadCache cache, int[] reqCapacities, int maxCapacity, ByteBuf[] buffers) {
+        int lastReqCapacity = -1;
+        int sizeIdx = 0;
+        for (int i = 0; i < reqCapacities.length; i++) {
+            int reqCapacity = reqCapacities[i];
+            if (reqCapacity != lastReqCapacity) {
+                sizeIdx = size2SizeIdx(reqCapacity);
+                lastReqCapacity = reqCapacity;
+            }
+            PooledByteBuf<T> buf = newByteBuf(maxCapacity);
+            allocate(cache, buf, reqCapacity, sizeIdx);
+            buffers[i] = buf;
+        }
+    }
+
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
-        final int sizeIdx = size2SizeIdx(reqCapacity);
+        allocate(cache, buf, reqCapacity, size2SizeIdx(reqCapacity));
+    }
 
+    private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity, final int sizeIdx) {
         if (sizeIdx <= smallMaxSizeIdx) {
             tcacheAllocateSmall(cache, buf, reqCapacity, sizeIdx);
         } else if (sizeIdx < nSizes) {
@@ -150,25 +178,35 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             return;
         }
 
-        /*
-         * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
-         * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
-         */
+        // First try to allocate from the first subpage of the pool without any locking. The subpage reserves the
+        // element with a CAS, so this may only fail if the subpage became full or unused concurrently.
         final PoolSubpage<T> head = smallSubpagePools[sizeIdx];
-        final boolean needsNormalAllocation;
-        synchronized (head) {
-            final PoolSubpage<T> s = head.next;
-            needsNormalAllocation = s == head;
-            if (!needsNormalAllocation) {
-                assert s.doNotDestroy && s.elemSize == sizeIdx2size(sizeIdx) : "doNotDestroy=" +
-                        s.doNotDestroy + ", elemSize=" + s.elemSize + ", sizeIdx=" + sizeIdx;
-                long handle = s.allocate();
-                assert handle >= 0;
-                s.chunk.initBufWithSubpage(buf, null, handle, reqCapacity, cache);
+        PoolSubpage<T> s = head.next;
+        long handle = s == head ? -1 : s.allocate();
+        if (handle < 0) {
+            /*
+             * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
+             * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
+             */
+            synchronized (head) {
+                for (s = head.next; s != head; s = s.next) {
+                    handle = s.allocate();
+                    if (handle >= 0) {
+                        s.removeIfFull();
+                        break;
+                    }
+                }
+            }
+        } else if (s.isFull()) {
+            synchronized (head) {
+                s.removeIfFull();
             }
         }
 
-        if (needsNormalAllocation) {
+        if (handle >= 0) {
+            assert s.elemSize == sizeIdx2size(sizeIdx) : "elemSize=" + s.elemSize + ", sizeIdx=" + sizeIdx;
+            s.chunk.initBufWithSubpage(buf, null, handle, reqCapacity, cache);
+        } else {
             synchronized (this) {
                 allocateNormal(buf, reqCapacity, sizeIdx, cache);
             }
@@ -229,32 +267,37 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
                 // cached so not free it.
                 return;
             }
+            if (cache != null && cache.addRemoteFree(this, chunk, nioBuffer, handle, normCapacity)) {
+                // released by another thread, the thread that allocated it will free it.
+                return;
+            }
 
             freeChunk(chunk, handle, normCapacity, sizeClass, nioBuffer, false);
         }
     }
 
-    private static SizeClass sizeClass(long handle) {
+    static SizeClass sizeClass(long handle) {
         return isSubpage(handle) ? SizeClass.Small : SizeClass.Normal;
     }
 
     void freeChunk(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass, ByteBuffer nioBuffer,
                    boolean finalizer) {
+        // We only call this if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
+        // may fail due lazy class-loading in for example tomcat.
+        if (sizeClass == SizeClass.Small) {
+            if (!finalizer) {
+                deallocationsSmall.increment();
+            }
+            // Most small allocations can be freed without locking, as long as the subpage stays in its pool and
+            // the usage of the chunk does not change.
+            if (chunk.freeSubpage(handle)) {
+                return;
+            }
+        }
         final boolean destroyChunk;
         synchronized (this) {
-            // We only call this if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
-            // may fail due lazy class-loading in for example tomcat.
-            if (!finalizer) {
-                switch (sizeClass) {
-                    case Normal:
-                        ++deallocationsNormal;
-                        break;
-                    case Small:
-                        ++deallocationsSmall;
-                        break;
-                    default:
-                        throw new Error();
-                }
+            if (!finalizer && sizeClass == SizeClass.Normal) {
+                ++deallocationsNormal;
             }
             destroyChunk = !chunk.parent.free(chunk, handle, normCapacity, nioBuffer);
         }
@@ -264,6 +307,65 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         }
     }
 
+    /**
+     * Same as {@link #freeChunk(PoolChunk, long, int, SizeClass, ByteBuffer, boolean)}, but must be called while
+     * holding the lock of this arena, so a batch of allocations can be freed with acquiring it only once. Returns
+     * {@code true} if the chunk is empty now, in which case the caller must pass it to {@link #destroyChunk(PoolChunk)}
+     * after it released the lock.
+     */
+    boolean freeChunkLocked(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass,
+                            ByteBuffer nioBuffer) {
+        assert Thread.holdsLock(this);
+        if (sizeClass == SizeClass.Small) {
+            deallocationsSmall.increment();
+            if (chunk.freeSubpage(handle)) {
+                return false;
+            }
+        } else {
+            ++deallocationsNormal;
+        }
+        return !chunk.parent.free(chunk, handle, normCapacity, nioBuffer);
+    }
+
+    /**
+     * Destroys all chunks which had no allocations for at least {@code idleNanos}, and returns the number of bytes
+     * that were released.
+     */
+    long trimIdleChunks(long idleNanos) {
+        List<PoolChunk<T>> idleChunks = new ArrayList<PoolChunk<T>>();
+        synchronized (this) {
+            // Chunks in all other lists are destroyed as soon as their last allocation is freed, so only qInit can
+            // contain chunks that are empty.
+            qInit.removeIdleChunks(System.nanoTime(), idleNanos, idleChunks);
+        }
+        if (idleChunks.isEmpty()) {
+            return 0;
+        }
+        long released = 0;
+        for (PoolChunk<T> chunk : idleChunks) {
+            released += chunk.chunkSize();
+            // destroyChunk not need to be called while holding the synchronized lock.
+            destroyChunk(chunk);
+        }
+        reclaimedChunks.add(idleChunks.size());
+        reclaimedBytes.add(released);
+        return released;
+    }
+
+    /**
+     * Return the number of chunks that were released because they had no allocations for too long.
+     */
+    long numReclaimedChunks() {
+        return reclaimedChunks.value();
+    }
+
+    /**
+     * Return the number of bytes that were released because chunks had no allocations for too long.
+     */
+    long numReclaimedBytes() {
+        return reclaimedBytes.value();
+    }
+
     PoolSubpage<T> findSubpagePoolHead(int sizeIdx) {
         return smallSubpagePools[sizeIdx];
     }
@@ -379,9 +481,9 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     public long numDeallocations() {
         final long deallocs;
         synchronized (this) {
-            deallocs = deallocationsSmall + deallocationsNormal;
+            deallocs = deallocationsNormal;
         }
-        return deallocs + deallocationsHuge.value();
+        return deallocs + deallocationsSmall.value() + deallocationsHuge.value();
     }
 
     @Override
@@ -390,8 +492,8 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     }
 
     @Override
-    public synchronized long numSmallDeallocations() {
-        return deallocationsSmall;
+    public long numSmallDeallocations() {
+        return deallocationsSmall.value();
     }
 
     @Override
@@ -399,6 +501,18 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         return deallocationsNormal;
     }
 
+    /**
+     * Return the number of allocations that were released by another thread than the one that allocated them, and
+     * were handed back to the thread cache of the allocating thread.
+     */
+    long numRemoteFrees() {
+        return remoteFrees.value();
+    }
+
+    void incRemoteFrees() {
+        remoteFrees.increment();
+    }
+
     @Override
     public long numHugeAllocations() {
         return allocationsHuge.value();
@@ -412,9 +526,9 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     @Override
     public  long numActiveAllocations() {
         long val = allocationsSmall.value() + allocationsHuge.value()
-                - deallocationsHuge.value();
+                - deallocationsHuge.value() - deallocationsSmall.value();
         synchronized (this) {
-            val += allocationsNormal - (deallocationsSmall + deallocationsNormal);
+            val += allocationsNormal - deallocationsNormal;
         }
         return max(val, 0);
     }
@@ -606,10 +720,18 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
+        private final DirectMemoryProvider memoryProvider;
+
         DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
                     int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, null);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                    int chunkSize, int directMemoryCacheAlignment, DirectMemoryProvider memoryProvider) {
             super(parent, pageSize, pageShifts, chunkSize,
                   directMemoryCacheAlignment);
+            this.memoryProvider = memoryProvider;
         }
 
         @Override
@@ -621,13 +743,13 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxPageIdx,
             int pageShifts, int chunkSize) {
             if (directMemoryCacheAlignment == 0) {
-                ByteBuffer memory = allocateDirect(chunkSize);
-                return new PoolChunk<ByteBuffer>(this, memory, memory, pageSize, pageShifts,
+                Object base = allocateDirect(chunkSize);
+                return new PoolChunk<ByteBuffer>(this, base, baseBuffer(base), pageSize, pageShifts,
                         chunkSize, maxPageIdx);
             }
 
-            final ByteBuffer base = allocateDirect(chunkSize + directMemoryCacheAlignment);
-            final ByteBuffer memory = PlatformDependent.alignDirectBuffer(base, directMemoryCacheAlignment);
+            final Object base = allocateDirect(chunkSize + directMemoryCacheAlignment);
+            final ByteBuffer memory = PlatformDependent.alignDirectBuffer(baseBuffer(base), directMemoryCacheAlignment);
             return new PoolChunk<ByteBuffer>(this, base, memory, pageSize,
                     pageShifts, chunkSize, maxPageIdx);
         }
@@ -635,29 +757,54 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         @Override
         protected PoolChunk<ByteBuffer> newUnpooledChunk(int capacity) {
             if (directMemoryCacheAlignment == 0) {
-                ByteBuffer memory = allocateDirect(capacity);
-                return new PoolChunk<ByteBuffer>(this, memory, memory, capacity);
+                Object base = allocateDirect(capacity);
+                return new PoolChunk<ByteBuffer>(this, base, baseBuffer(base), capacity);
             }
 
-            final ByteBuffer base = allocateDirect(capacity + directMemoryCacheAlignment);
-            final ByteBuffer memory = PlatformDependent.alignDirectBuffer(base, directMemoryCacheAlignment);
+            final Object base = allocateDirect(capacity + directMemoryCacheAlignment);
+            final ByteBuffer memory = PlatformDependent.alignDirectBuffer(baseBuffer(base), directMemoryCacheAlignment);
             return new PoolChunk<ByteBuffer>(this, base, memory, capacity);
         }
 
-        private static ByteBuffer allocateDirect(int capacity) {
+        /**
+         * Returns either the {@link ByteBuffer} itself or a {@link ProvidedMemory} if the memory was allocated by the
+         * {@link DirectMemoryProvider}, so {@link #destroyChunk(PoolChunk)} knows how it needs to be released.
+         */
+        private Object allocateDirect(int capacity) {
+            if (memoryProvider != null) {
+                ByteBuffer buffer = memoryProvider.allocate(capacity);
+                if (buffer != null) {
+                    assert buffer.isDirect() && buffer.capacity() == capacity;
+                    return new ProvidedMemory(buffer);
+                }
+            }
             return PlatformDependent.useDirectBufferNoCleaner() ?
                     PlatformDependent.allocateDirectNoCleaner(capacity) : ByteBuffer.allocateDirect(capacity);
         }
 
+        private static ByteBuffer baseBuffer(Object base) {
+            return base instanceof ProvidedMemory ? ((ProvidedMemory) base).buffer : (ByteBuffer) base;
+        }
+
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
-            if (PlatformDependent.useDirectBufferNoCleaner()) {
+            if (chunk.base instanceof ProvidedMemory) {
+                memoryProvider.free(((ProvidedMemory) chunk.base).buffer);
+            } else if (PlatformDependent.useDirectBufferNoCleaner()) {
                 PlatformDependent.freeDirectNoCleaner((ByteBuffer) chunk.base);
             } else {
                 PlatformDependent.freeDirectBuffer((ByteBuffer) chunk.base);
             }
         }
 
+        private static final class ProvidedMemory {
+            final ByteBuffer buffer;
+
+            ProvidedMemory(ByteBuffer buffer) {
+                this.buffer = buffer;
+            }
+        }
+
         @Override
         protected PooledByteBuf<ByteBuffer> newByteBuf(int maxCapacity) {
             if (HAS_UNSAFE) {
@@ -181,6 +181,9 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     int freeBytes;
 
+    // The System.nanoTime() at which the last allocation of this chunk was freed. Guarded by the arena lock.
+    long lastEmptyNanos;
+
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
     PoolChunk<T> next;
@@ -442,14 +445,32 @@ final class PoolChunk<T> implements PoolChunkMetric {
             assert subpages[runOffset] == null;
             int elemSize = arena.sizeIdx2size(sizeIdx);
 
-            PoolSubpage<T> subpage = new PoolSubpage<T>(head, this, pageShifts, runOffset,
+            PoolSubpage<T> subpage = new PoolSubpage<T>(this, pageShifts, runOffset,
                                runSize(pageShifts, runHandle), elemSize);
 
             subpages[runOffset] = subpage;
-            return subpage.allocate();
+            long handle = subpage.allocate();
+            // Only add it to the pool once it is stored in subpages, as the pool may be accessed without holding the
+            // lock of the head.
+            if (!subpage.isFull()) {
+                subpage.addToPool(head);
+            }
+            return handle;
         }
     }
 
+    /**
+     * Free a subpage allocation without holding any lock.
+     *
+     * @return {@code true} if the allocation was freed, {@code false} if {@link #free(long, int, ByteBuffer)} needs
+     *         to be called while holding the lock of the {@link PoolArena} to complete it.
+     */
+    boolean freeSubpage(long handle) {
+        PoolSubpage<T> subpage = subpages[runOffset(handle)];
+        assert subpage != null && subpage.doNotDestroy;
+        return subpage.free(bitmapIdx(handle));
+    }
+
     /**
      * Free a subpage or a run of pages When a subpage is freed from PoolSubpage, it might be added back to subpage pool
      * of the owning PoolArena. If the subpage pool in PoolArena has at least one other PoolSubpage of given elemSize,
@@ -468,9 +489,10 @@ final class PoolChunk<T> implements PoolChunkMetric {
             assert subpage != null && subpage.doNotDestroy;
 
             // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
-            // This is need as we may add it back and so alter the linked-list structure.
+            // This is need as we may add it back and so alter the linked-list structure. The element itself was
+            // already released by freeSubpage(long).
             synchronized (head) {
-                if (subpage.free(head, bitmapIdx(handle))) {
+                if (subpage.free(head)) {
                     //the subpage is still used, do not free it
                     return;
                 }
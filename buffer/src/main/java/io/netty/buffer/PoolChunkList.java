@@ -118,6 +118,9 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
 
     boolean free(PoolChunk<T> chunk, long handle, int normCapacity, ByteBuffer nioBuffer) {
         chunk.free(handle, normCapacity, nioBuffer);
+        if (chunk.freeBytes == chunk.chunkSize()) {
+            chunk.lastEmptyNanos = System.nanoTime();
+        }
         if (chunk.freeBytes > freeMaxThreshold) {
             remove(chunk);
             // Move the PoolChunk down the PoolChunkList linked-list.
@@ -126,6 +129,19 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return true;
     }
 
+    /**
+     * Removes all {@link PoolChunk}s that have no allocations and did not have any for at least {@code idleNanos},
+     * and adds them to {@code idleChunks}.
+     */
+    void removeIdleChunks(long nanoTime, long idleNanos, List<PoolChunk<T>> idleChunks) {
+        for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
+            if (cur.freeBytes == cur.chunkSize() && nanoTime - cur.lastEmptyNanos >= idleNanos) {
+                remove(cur);
+                idleChunks.add(cur);
+            }
+        }
+    }
+
     private boolean move(PoolChunk<T> chunk) {
         assert chunk.usage() < maxUsage;
 
@@ -22,23 +22,39 @@ import static io.netty.buffer.PoolChunk.IS_USED_SHIFT;
 import static io.netty.buffer.PoolChunk.IS_SUBPAGE_SHIFT;
 import static io.netty.buffer.SizeClasses.LOG2_QUANTUM;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 final class PoolSubpage<T> implements PoolSubpageMetric {
 
+    // numAvail of a subpage whose run was released back to its chunk.
+    private static final int DESTROYED = -1;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PoolSubpage> NUM_AVAIL_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PoolSubpage.class, "numAvail");
+
     final PoolChunk<T> chunk;
     final int elemSize;
     private final int pageShifts;
     private final int runOffset;
     private final int runSize;
-    private final long[] bitmap;
+    private final AtomicLongArray bitmap;
 
+    // Only modified while holding the lock of the head of the pool, but next is also read without holding it to
+    // allocate from the first subpage in the pool.
     PoolSubpage<T> prev;
-    PoolSubpage<T> next;
+    volatile PoolSubpage<T> next;
 
-    boolean doNotDestroy;
+    volatile boolean doNotDestroy;
     private int maxNumElems;
     private int bitmapLength;
+    // Only a hint for where to look first, so it does not need to be accurate.
     private int nextAvail;
-    private int numAvail;
+    // Elements are reserved by decrementing numAvail before their bit is set in the bitmap, and bits are cleared
+    // before numAvail is incremented again. So whenever numAvail was decremented successfully, there is a bit that
+    // can be set.
+    private volatile int numAvail;
 
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
@@ -53,94 +69,132 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         bitmap = null;
     }
 
-    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int pageShifts, int runOffset, int runSize, int elemSize) {
+    PoolSubpage(PoolChunk<T> chunk, int pageShifts, int runOffset, int runSize, int elemSize) {
         this.chunk = chunk;
         this.pageShifts = pageShifts;
         this.runOffset = runOffset;
         this.runSize = runSize;
         this.elemSize = elemSize;
-        bitmap = new long[runSize >>> 6 + LOG2_QUANTUM]; // runSize / 64 / QUANTUM
+        bitmap = new AtomicLongArray(runSize >>> 6 + LOG2_QUANTUM); // runSize / 64 / QUANTUM
 
         doNotDestroy = true;
         if (elemSize != 0) {
-            maxNumElems = numAvail = runSize / elemSize;
+            maxNumElems = runSize / elemSize;
             nextAvail = 0;
             bitmapLength = maxNumElems >>> 6;
             if ((maxNumElems & 63) != 0) {
                 bitmapLength ++;
+                // Mark the bits that are beyond maxNumElems as used, so they are never handed out.
+                bitmap.set(bitmapLength - 1, -1L << (maxNumElems & 63));
             }
-
-            for (int i = 0; i < bitmapLength; i ++) {
-                bitmap[i] = 0;
-            }
+            numAvail = maxNumElems;
         }
-        addToPool(head);
     }
 
     /**
-     * Returns the bitmap index of the subpage allocation.
+     * Returns the bitmap index of the subpage allocation, or {@code -1} if this subpage is full or was destroyed.
+     * <p>
+     * This method does not need to be called while holding the lock of the head, but if it returns a handle and
+     * {@link #isFull()} is {@code true} afterwards, {@link #removeIfFull()} must be called while holding it.
      */
     long allocate() {
-        if (numAvail == 0 || !doNotDestroy) {
-            return -1;
+        for (;;) {
+            int numAvail = this.numAvail;
+            if (numAvail <= 0) {
+                return -1;
+            }
+            if (NUM_AVAIL_UPDATER.compareAndSet(this, numAvail, numAvail - 1)) {
+                break;
+            }
         }
+        return toHandle(claimNextAvail());
+    }
 
-        final int bitmapIdx = getNextAvail();
-        int q = bitmapIdx >>> 6;
-        int r = bitmapIdx & 63;
-        assert (bitmap[q] >>> r & 1) == 0;
-        bitmap[q] |= 1L << r;
+    /**
+     * Returns {@code true} if all elements of this subpage are allocated.
+     */
+    boolean isFull() {
+        return numAvail == 0;
+    }
 
-        if (-- numAvail == 0) {
+    /**
+     * Remove this subpage from its pool if all of its elements are allocated. Must be called while holding the lock
+     * of the head.
+     */
+    void removeIfFull() {
+        if (numAvail == 0 && prev != null) {
             removeFromPool();
         }
-
-        return toHandle(bitmapIdx);
     }
 
     /**
-     * @return {@code true} if this subpage is in use.
-     *         {@code false} if this subpage is not used by its chunk and thus it's OK to be released.
+     * Free the element at the given index without holding any lock.
+     *
+     * @return {@code true} if the element was freed. {@code false} if freeing it requires to change the pool of this
+     *         subpage, in which case {@link #free(PoolSubpage)} must be called while holding the lock of the head.
      */
-    boolean free(PoolSubpage<T> head, int bitmapIdx) {
+    boolean free(int bitmapIdx) {
         if (elemSize == 0) {
             return true;
         }
         int q = bitmapIdx >>> 6;
-        int r = bitmapIdx & 63;
-        assert (bitmap[q] >>> r & 1) != 0;
-        bitmap[q] ^= 1L << r;
-
-        setNextAvail(bitmapIdx);
+        long mask = 1L << (bitmapIdx & 63);
+        for (;;) {
+            long bits = bitmap.get(q);
+            assert (bits & mask) != 0;
+            if (bitmap.compareAndSet(q, bits, bits ^ mask)) {
+                break;
+            }
+        }
+        nextAvail = bitmapIdx;
 
-        if (numAvail ++ == 0) {
-            addToPool(head);
-            /* When maxNumElems == 1, the maximum numAvail is also 1.
-             * Each of these PoolSubpages will go in here when they do free operation.
-             * If they return true directly from here, then the rest of the code will be unreachable
-             * and they will not actually be recycled. So return true only on maxNumElems > 1. */
-            if (maxNumElems > 1) {
+        for (;;) {
+            int numAvail = this.numAvail;
+            // Full subpages need to be added back to the pool, and unused ones may need to be removed from it.
+            if (numAvail == 0 || numAvail + 1 == maxNumElems) {
+                return false;
+            }
+            if (NUM_AVAIL_UPDATER.compareAndSet(this, numAvail, numAvail + 1)) {
                 return true;
             }
         }
+    }
 
-        if (numAvail != maxNumElems) {
+    /**
+     * Complete a {@link #free(int)} that returned {@code false}. Must be called while holding the lock of the head.
+     *
+     * @return {@code true} if this subpage is in use.
+     *         {@code false} if this subpage is not used by its chunk and thus it's OK to be released.
+     */
+    boolean free(PoolSubpage<T> head) {
+        if (elemSize == 0) {
             return true;
-        } else {
-            // Subpage not in use (numAvail == maxNumElems)
-            if (prev == next) {
-                // Do not remove if this subpage is the only one left in the pool.
-                return true;
-            }
+        }
+        final int numAvail = NUM_AVAIL_UPDATER.incrementAndGet(this);
+        if (prev == null) {
+            // It was full before, so add it back to the pool.
+            addToPool(head);
+        }
 
-            // Remove this subpage from the pool if there are other subpages left in the pool.
-            doNotDestroy = false;
-            removeFromPool();
-            return false;
+        if (numAvail != maxNumElems) {
+            return true;
+        }
+        // Subpage not in use (numAvail == maxNumElems)
+        if (prev == next) {
+            // Do not remove if this subpage is the only one left in the pool.
+            return true;
         }
+        // Remove this subpage from the pool if there are other subpages left in the pool, unless an element was
+        // allocated concurrently.
+        if (!NUM_AVAIL_UPDATER.compareAndSet(this, maxNumElems, DESTROYED)) {
+            return true;
+        }
+        doNotDestroy = false;
+        removeFromPool();
+        return false;
     }
 
-    private void addToPool(PoolSubpage<T> head) {
+    void addToPool(PoolSubpage<T> head) {
         assert prev == null && next == null;
         prev = head;
         next = head.next;
@@ -156,47 +210,33 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         prev = null;
     }
 
-    private void setNextAvail(int bitmapIdx) {
-        nextAvail = bitmapIdx;
-    }
-
-    private int getNextAvail() {
-        int nextAvail = this.nextAvail;
+    private int claimNextAvail() {
+        final int nextAvail = this.nextAvail;
         if (nextAvail >= 0) {
             this.nextAvail = -1;
-            return nextAvail;
-        }
-        return findNextAvail();
-    }
-
-    private int findNextAvail() {
-        final long[] bitmap = this.bitmap;
-        final int bitmapLength = this.bitmapLength;
-        for (int i = 0; i < bitmapLength; i ++) {
-            long bits = bitmap[i];
-            if (~bits != 0) {
-                return findNextAvail0(i, bits);
+            int q = nextAvail >>> 6;
+            long mask = 1L << (nextAvail & 63);
+            long bits = bitmap.get(q);
+            if ((bits & mask) == 0 && bitmap.compareAndSet(q, bits, bits | mask)) {
+                return nextAvail;
             }
         }
-        return -1;
-    }
-
-    private int findNextAvail0(int i, long bits) {
-        final int maxNumElems = this.maxNumElems;
-        final int baseVal = i << 6;
-
-        for (int j = 0; j < 64; j ++) {
-            if ((bits & 1) == 0) {
-                int val = baseVal | j;
-                if (val < maxNumElems) {
-                    return val;
-                } else {
-                    break;
+        // An element was reserved via numAvail, so there is a free bit even if we need to scan more than once
+        // because of concurrent allocations.
+        final AtomicLongArray bitmap = this.bitmap;
+        final int bitmapLength = this.bitmapLength;
+        for (;;) {
+            for (int i = 0; i < bitmapLength; i ++) {
+                long bits = bitmap.get(i);
+                while (~bits != 0) {
+                    long lowestFree = ~bits & bits + 1;
+                    if (bitmap.compareAndSet(i, bits, bits | lowestFree)) {
+                        return i << 6 | Long.numberOfTrailingZeros(lowestFree);
+                    }
+                    bits = bitmap.get(i);
                 }
             }
-            bits >>>= 1;
         }
-        return -1;
     }
 
     private long toHandle(int bitmapIdx) {
@@ -229,7 +269,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
                 } else {
                     doNotDestroy = true;
                     maxNumElems = this.maxNumElems;
-                    numAvail = this.numAvail;
+                    numAvail = numAvailable0();
                     elemSize = this.elemSize;
                 }
             }
@@ -262,9 +302,12 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return 0;
         }
 
-        synchronized (chunk.arena) {
-            return numAvail;
-        }
+        return numAvailable0();
+    }
+
+    private int numAvailable0() {
+        int numAvail = this.numAvail;
+        return numAvail == DESTROYED ? maxNumElems : numAvail;
     }
 
     @Override
@@ -20,6 +20,8 @@ package io.netty.buffer;
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 import io.netty.buffer.PoolArena.SizeClass;
+import io.netty.buffer.PoolThreadCache.MemoryRegionCache.Entry;
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.ObjectPool;
 import io.netty.util.internal.ObjectPool.Handle;
@@ -55,6 +57,15 @@ final class PoolThreadCache {
     private final MemoryRegionCache<byte[]>[] normalHeapCaches;
     private final MemoryRegionCache<ByteBuffer>[] normalDirectCaches;
 
+    // Buffers that were allocated via this cache but released by other threads, and did not fit into the caches
+    // above. These are freed in batches by the thread that owns this cache, so other threads do not contend on the
+    // arena. Can be drained by any thread once this cache was freed.
+    private final Queue<Entry<?>> remoteFrees;
+    private final LongCounter numRemoteFrees = PlatformDependent.newLongCounter();
+    private final Thread owner;
+    // Only used by the owner while draining remoteFrees.
+    private final List<Entry<?>> pendingFrees;
+
     private final int freeSweepAllocationThreshold;
     private final AtomicBoolean freed = new AtomicBoolean();
 
@@ -66,7 +77,15 @@ final class PoolThreadCache {
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
                     int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity,
                     int freeSweepAllocationThreshold) {
+        this(heapArena, directArena, smallCacheSize, normalCacheSize, maxCachedBufferCapacity,
+             freeSweepAllocationThreshold, 0);
+    }
+
+    PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
+                    int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity,
+                    int freeSweepAllocationThreshold, int remoteFreeQueueCapacity) {
         checkPositiveOrZero(maxCachedBufferCapacity, "maxCachedBufferCapacity");
+        checkPositiveOrZero(remoteFreeQueueCapacity, "remoteFreeQueueCapacity");
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
         this.heapArena = heapArena;
         this.directArena = directArena;
@@ -105,6 +124,16 @@ final class PoolThreadCache {
             throw new IllegalArgumentException("freeSweepAllocationThreshold: "
                     + freeSweepAllocationThreshold + " (expected: > 0)");
         }
+
+        if (remoteFreeQueueCapacity > 0) {
+            remoteFrees = PlatformDependent.newFixedMpmcQueue(remoteFreeQueueCapacity);
+            pendingFrees = new ArrayList<Entry<?>>();
+            owner = Thread.currentThread();
+        } else {
+            remoteFrees = null;
+            pendingFrees = null;
+            owner = null;
+        }
     }
 
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
@@ -161,10 +190,16 @@ final class PoolThreadCache {
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private boolean allocate(MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
         if (cache == null) {
+            // Give memory that was released by other threads back to the arena before allocating from it.
+            drainRemoteFrees();
             // no cache found so just return false here
             return false;
         }
         boolean allocated = cache.allocate(buf, reqCapacity, this);
+        if (!allocated && drainRemoteFrees()) {
+            // Some of the remote frees may have ended up in the cache.
+            allocated = cache.allocate(buf, reqCapacity, this);
+        }
         if (++ allocations >= freeSweepAllocationThreshold) {
             allocations = 0;
             trim();
@@ -184,7 +219,137 @@ final class PoolThreadCache {
         if (cache == null) {
             return false;
         }
-        return cache.add(chunk, nioBuffer, handle, normCapacity);
+        if (cache.add(chunk, nioBuffer, handle, normCapacity)) {
+            if (owner != null && Thread.currentThread() != owner) {
+                remoteFreed(area);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hand an allocation that did not fit into the cache back to the thread that owns this cache, if it is released
+     * by another thread. Returns {@code true} if the owner will free it, {@code false} otherwise.
+     */
+    @SuppressWarnings("rawtypes")
+    boolean addRemoteFree(PoolArena<?> area, PoolChunk chunk, ByteBuffer nioBuffer, long handle, int normCapacity) {
+        if (remoteFrees == null || Thread.currentThread() == owner || freed.get()) {
+            return false;
+        }
+        Entry<?> entry = MemoryRegionCache.newEntry(chunk, nioBuffer, handle, normCapacity);
+        if (!remoteFrees.offer(entry)) {
+            entry.recycle();
+            return false;
+        }
+        remoteFreed(area);
+        if (freed.get()) {
+            // The owner may not drain the queue anymore.
+            freeRemoteFrees(false);
+        }
+        return true;
+    }
+
+    private void remoteFreed(PoolArena<?> area) {
+        numRemoteFrees.increment();
+        area.incRemoteFrees();
+    }
+
+    /**
+     * Return the number of allocations of this cache that were released by other threads and handed back to it.
+     */
+    long numRemoteFrees() {
+        return numRemoteFrees.value();
+    }
+
+    /**
+     * Move the allocations that were released by other threads into the caches, or free them in batches if they do
+     * not fit. Must only be called by the owner of this cache. Returns {@code true} if anything was drained.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    boolean drainRemoteFrees() {
+        if (remoteFrees == null) {
+            return false;
+        }
+        Entry entry = remoteFrees.poll();
+        if (entry == null) {
+            return false;
+        }
+        assert Thread.currentThread() == owner;
+        do {
+            PoolChunk chunk = entry.chunk;
+            PoolArena<?> area = chunk.arena;
+            int sizeIdx = area.size2SizeIdx(entry.normCapacity);
+            MemoryRegionCache<?> cache = cache(area, sizeIdx, PoolArena.sizeClass(entry.handle));
+            if (cache != null && cache.add(chunk, entry.nioBuffer, entry.handle, entry.normCapacity)) {
+                entry.recycle();
+            } else {
+                pendingFrees.add(entry);
+            }
+            entry = remoteFrees.poll();
+        } while (entry != null);
+
+        if (!pendingFrees.isEmpty()) {
+            freePending(heapArena);
+            freePending(directArena);
+            assert pendingFrees.isEmpty();
+        }
+        return true;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void freePending(PoolArena<?> area) {
+        if (area == null) {
+            return;
+        }
+        List<PoolChunk> destroyChunks = null;
+        // Acquire the lock of the arena once for the whole batch.
+        synchronized (area) {
+            for (int i = pendingFrees.size() - 1; i >= 0; i--) {
+                Entry entry = pendingFrees.get(i);
+                if (entry.chunk.arena == area) {
+                    pendingFrees.remove(i);
+                    PoolChunk chunk = entry.chunk;
+                    long handle = entry.handle;
+                    if (area.freeChunkLocked(chunk, handle, entry.normCapacity, PoolArena.sizeClass(handle),
+                            entry.nioBuffer)) {
+                        if (destroyChunks == null) {
+                            destroyChunks = new ArrayList<PoolChunk>(2);
+                        }
+                        destroyChunks.add(chunk);
+                    }
+                    entry.recycle();
+                }
+            }
+        }
+        if (destroyChunks != null) {
+            // destroyChunk not need to be called while holding the synchronized lock.
+            for (PoolChunk chunk : destroyChunks) {
+                area.destroyChunk(chunk);
+            }
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private int freeRemoteFrees(boolean finalizer) {
+        if (remoteFrees == null) {
+            return 0;
+        }
+        int numFreed = 0;
+        for (;;) {
+            Entry entry = remoteFrees.poll();
+            if (entry == null) {
+                return numFreed;
+            }
+            PoolChunk chunk = entry.chunk;
+            long handle = entry.handle;
+            chunk.arena.freeChunk(chunk, handle, entry.normCapacity, PoolArena.sizeClass(handle),
+                    entry.nioBuffer, finalizer);
+            if (!finalizer) {
+                entry.recycle();
+            }
+            numFreed++;
+        }
     }
 
     private MemoryRegionCache<?> cache(PoolArena<?> area, int sizeIdx, SizeClass sizeClass) {
@@ -218,7 +383,8 @@ final class PoolThreadCache {
             int numFreed = free(smallSubPageDirectCaches, finalizer) +
                     free(normalDirectCaches, finalizer) +
                     free(smallSubPageHeapCaches, finalizer) +
-                    free(normalHeapCaches, finalizer);
+                    free(normalHeapCaches, finalizer) +
+                    freeRemoteFrees(finalizer);
 
             if (numFreed > 0 && logger.isDebugEnabled()) {
                 logger.debug("Freed {} thread-local buffer(s) from thread: {}", numFreed,
@@ -255,6 +421,9 @@ final class PoolThreadCache {
     }
 
     void trim() {
+        if (owner == Thread.currentThread()) {
+            drainRemoteFrees();
+        }
         trim(smallSubPageDirectCaches);
         trim(normalDirectCaches);
         trim(smallSubPageHeapCaches);
@@ -332,7 +501,7 @@ final class PoolThreadCache {
         }
     }
 
-    private abstract static class MemoryRegionCache<T> {
+    abstract static class MemoryRegionCache<T> {
         private final int size;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
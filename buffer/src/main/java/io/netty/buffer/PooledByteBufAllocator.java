@@ -48,9 +48,12 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
     private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    private static final long DEFAULT_CHUNK_IDLE_TIME_MILLIS;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
+    private static final boolean DEFAULT_NUMA_AWARE;
     private static final int DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT;
     static final int DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK;
+    private static final int DEFAULT_REMOTE_FREE_QUEUE_CAPACITY;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -64,6 +67,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         }
     };
 
+    private final Runnable idleChunkTrimTask = new Runnable() {
+        @Override
+        public void run() {
+            PooledByteBufAllocator.this.trimCurrentThreadIdleChunks();
+        }
+    };
+
     static {
         int defaultAlignment = SystemPropertyUtil.getInt(
                 "io.netty.allocator.directMemoryCacheAlignment", 0);
@@ -145,14 +155,27 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                     "io.netty.allocator.cacheTrimIntervalMillis", 0);
         }
 
+        // the time after which chunks without any allocations are released, 0 disables it
+        DEFAULT_CHUNK_IDLE_TIME_MILLIS = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkIdleTimeMillis", 0));
+
         DEFAULT_USE_CACHE_FOR_ALL_THREADS = SystemPropertyUtil.getBoolean(
                 "io.netty.allocator.useCacheForAllThreads", false);
 
+        // group the arenas by NUMA node and assign threads to arenas of the node they run on
+        DEFAULT_NUMA_AWARE = SystemPropertyUtil.getBoolean("io.netty.allocator.numaAware", false);
+
         // Use 1023 by default as we use an ArrayDeque as backing storage which will then allocate an internal array
         // of 1024 elements. Otherwise we would allocate 2048 and only use 1024 which is wasteful.
         DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK = SystemPropertyUtil.getInt(
                 "io.netty.allocator.maxCachedByteBuffersPerChunk", 1023);
 
+        // the number of buffers released by other threads that are queued until the allocating thread frees them,
+        // 0 disables it. This is opt-in, as the queued memory is only freed once the allocating thread allocates or
+        // trims its cache again, so a thread that became idle may hold on to it.
+        DEFAULT_REMOTE_FREE_QUEUE_CAPACITY = Math.max(0, SystemPropertyUtil.getInt(
+                "io.netty.allocator.remoteFreeQueueCapacity", 0));
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -172,9 +195,12 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
             logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+            logger.debug("-Dio.netty.allocator.chunkIdleTimeMillis: {}", DEFAULT_CHUNK_IDLE_TIME_MILLIS);
             logger.debug("-Dio.netty.allocator.useCacheForAllThreads: {}", DEFAULT_USE_CACHE_FOR_ALL_THREADS);
+            logger.debug("-Dio.netty.allocator.numaAware: {}", DEFAULT_NUMA_AWARE);
             logger.debug("-Dio.netty.allocator.maxCachedByteBuffersPerChunk: {}",
                     DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK);
+            logger.debug("-Dio.netty.allocator.remoteFreeQueueCapacity: {}", DEFAULT_REMOTE_FREE_QUEUE_CAPACITY);
         }
     }
 
@@ -185,10 +211,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private final PoolArena<ByteBuffer>[] directArenas;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final int remoteFreeQueueCapacity;
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
     private final int chunkSize;
+    // null if arenas are not grouped by NUMA node
+    private final NumaTopology numaTopology;
     private final PooledByteBufAllocatorMetric metric;
 
     public PooledByteBufAllocator() {
@@ -265,10 +294,36 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+             smallCacheSize, normalCacheSize,
+             useCacheForAllThreads, directMemoryCacheAlignment, null);
+    }
+
+    /**
+     * Create a new instance whose direct arenas obtain the memory for their chunks from the given
+     * {@link DirectMemoryProvider}. If the provider can not serve an allocation the default way of allocating direct
+     * memory is used instead.
+     *
+     * @param directMemoryProvider the {@link DirectMemoryProvider} to use, or {@code null} to always use the default.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  DirectMemoryProvider directMemoryProvider) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize, normalCacheSize,
+             useCacheForAllThreads, directMemoryCacheAlignment, directMemoryProvider,
+             DEFAULT_REMOTE_FREE_QUEUE_CAPACITY);
+    }
+
+    PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                           int smallCacheSize, int normalCacheSize,
+                           boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                           DirectMemoryProvider directMemoryProvider, int remoteFreeQueueCapacity) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
+        this.remoteFreeQueueCapacity = checkPositiveOrZero(remoteFreeQueueCapacity, "remoteFreeQueueCapacity");
 
         if (directMemoryCacheAlignment != 0) {
             if (!PlatformDependent.hasAlignDirectByteBuffer()) {
@@ -317,7 +372,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
                 PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment);
+                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, directMemoryProvider);
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -326,6 +381,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             directArenas = null;
             directArenaMetrics = Collections.emptyList();
         }
+        numaTopology = DEFAULT_NUMA_AWARE ? detectNumaTopology() : null;
         metric = new PooledByteBufAllocatorMetric(this);
     }
 
@@ -334,6 +390,15 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return new PoolArena[size];
     }
 
+    private static NumaTopology detectNumaTopology() {
+        NumaTopology topology = NumaTopology.detect();
+        if (topology == null || topology.numNodes() < 2) {
+            logger.debug("NUMA aware arena selection is not used as there is only a single NUMA node");
+            return null;
+        }
+        return topology;
+    }
+
     private static int validateAndCalculatePageShifts(int pageSize, int alignment) {
         if (pageSize < MIN_PAGE_SIZE) {
             throw new IllegalArgumentException("pageSize: " + pageSize + " (expected: " + MIN_PAGE_SIZE + ')');
@@ -403,6 +468,36 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return toLeakAwareBuffer(buf);
     }
 
+    @Override
+    protected void newHeapBuffers(int[] initialCapacities, ByteBuf[] buffers) {
+        PoolThreadCache cache = threadCache.get();
+        PoolArena<byte[]> heapArena = cache.heapArena;
+        if (heapArena == null) {
+            super.newHeapBuffers(initialCapacities, buffers);
+            return;
+        }
+        heapArena.allocate(cache, initialCapacities, DEFAULT_MAX_CAPACITY, buffers);
+        toLeakAwareBuffers(buffers);
+    }
+
+    @Override
+    protected void newDirectBuffers(int[] initialCapacities, ByteBuf[] buffers) {
+        PoolThreadCache cache = threadCache.get();
+        PoolArena<ByteBuffer> directArena = cache.directArena;
+        if (directArena == null) {
+            super.newDirectBuffers(initialCapacities, buffers);
+            return;
+        }
+        directArena.allocate(cache, initialCapacities, DEFAULT_MAX_CAPACITY, buffers);
+        toLeakAwareBuffers(buffers);
+    }
+
+    private static void toLeakAwareBuffers(ByteBuf[] buffers) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = toLeakAwareBuffer(buffers[i]);
+        }
+    }
+
     /**
      * Default number of heap arenas - System Property: io.netty.allocator.numHeapArenas - default 2 * cores
      */
@@ -431,6 +526,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return DEFAULT_MAX_ORDER;
     }
 
+    /**
+     * Default time after which chunks without any allocations are released by the {@link EventExecutor}s that
+     * allocate from them - System Property: io.netty.allocator.chunkIdleTimeMillis - default 0 (disabled)
+     */
+    public static long defaultChunkIdleTimeMillis() {
+        return DEFAULT_CHUNK_IDLE_TIME_MILLIS;
+    }
+
     /**
      * Default thread caching behavior - System Property: io.netty.allocator.useCacheForAllThreads - default false
      */
@@ -438,6 +541,21 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return DEFAULT_USE_CACHE_FOR_ALL_THREADS;
     }
 
+    /**
+     * Default number of buffers released by other threads that are queued until the allocating thread frees them -
+     * System Property: io.netty.allocator.remoteFreeQueueCapacity - default 0 (disabled)
+     */
+    public static int defaultRemoteFreeQueueCapacity() {
+        return DEFAULT_REMOTE_FREE_QUEUE_CAPACITY;
+    }
+
+    /**
+     * Default NUMA aware arena selection - System Property: io.netty.allocator.numaAware - default false
+     */
+    public static boolean defaultNumaAware() {
+        return DEFAULT_NUMA_AWARE;
+    }
+
     /**
      * Default prefer direct - System Property: io.netty.noPreferDirect - default false
      */
@@ -509,8 +627,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
         @Override
         protected synchronized PoolThreadCache initialValue() {
-            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
-            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
+            final int numaNode = numaTopology == null ? -1 : numaTopology.currentNode();
+            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas, numaTopology, numaNode);
+            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas, numaTopology, numaNode);
 
             final Thread current = Thread.currentThread();
             final EventExecutor executor = ThreadExecutorMap.currentExecutor();
@@ -523,7 +642,8 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                     executor != null) {
                 final PoolThreadCache cache = new PoolThreadCache(
                         heapArena, directArena, smallCacheSize, normalCacheSize,
-                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL,
+                        remoteFreeQueueCapacity);
 
                 if (DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0) {
                     if (executor != null) {
@@ -531,6 +651,12 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                                 DEFAULT_CACHE_TRIM_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
                     }
                 }
+                if (DEFAULT_CHUNK_IDLE_TIME_MILLIS > 0) {
+                    if (executor != null) {
+                        executor.scheduleAtFixedRate(idleChunkTrimTask, DEFAULT_CHUNK_IDLE_TIME_MILLIS,
+                                DEFAULT_CHUNK_IDLE_TIME_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                }
                 return cache;
             }
             // No caching so just use 0 as sizes.
@@ -541,27 +667,51 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         protected void onRemoval(PoolThreadCache threadCache) {
             threadCache.free(false);
         }
+    }
 
-        private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
-            if (arenas == null || arenas.length == 0) {
-                return null;
+    /**
+     * Returns the arena that is used by the least number of threads. If the arenas are grouped by NUMA node, only
+     * the arenas of the given node are considered, or the ones of node {@code 0} if the node is unknown or has no
+     * arenas, so that the memory of every arena is only used by threads of the same node.
+     */
+    static <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas, NumaTopology numaTopology, int numaNode) {
+        if (arenas == null || arenas.length == 0) {
+            return null;
+        }
+        if (numaTopology != null) {
+            if (numaNode < 0 || numaNode >= arenas.length) {
+                numaNode = 0;
             }
+            return leastUsedArenaOnNode(arenas, numaTopology.numNodes(), numaNode);
+        }
 
-            PoolArena<T> minArena = arenas[0];
-            //optimized
-            //If it is the first execution, directly return minarena and reduce the number of for loop comparisons below
-            if (minArena.numThreadCaches.get() == CACHE_NOT_USED) {
-                return minArena;
-            }
-            for (int i = 1; i < arenas.length; i++) {
-                PoolArena<T> arena = arenas[i];
-                if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
-                    minArena = arena;
-                }
+        PoolArena<T> minArena = arenas[0];
+        //optimized
+        //If it is the first execution, directly return minarena and reduce the number of for loop comparisons below
+        if (minArena.numThreadCaches.get() == CACHE_NOT_USED) {
+            return minArena;
+        }
+        for (int i = 1; i < arenas.length; i++) {
+            PoolArena<T> arena = arenas[i];
+            if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
+                minArena = arena;
             }
+        }
 
-            return minArena;
+        return minArena;
+    }
+
+    private static <T> PoolArena<T> leastUsedArenaOnNode(PoolArena<T>[] arenas, int numNodes, int numaNode) {
+        // Arenas are assigned to the NUMA nodes round-robin, so the memory of an arena is always first touched
+        // by threads that run on the same node.
+        PoolArena<T> minArena = arenas[numaNode];
+        for (int i = numaNode + numNodes; i < arenas.length; i += numNodes) {
+            PoolArena<T> arena = arenas[i];
+            if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
+                minArena = arena;
+            }
         }
+        return minArena;
     }
 
     @Override
@@ -677,6 +827,85 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return usedMemory(directArenas);
     }
 
+    final int numNumaNodes() {
+        return numaTopology == null ? 1 : numaTopology.numNodes();
+    }
+
+    final long usedHeapMemory(int numaNode) {
+        return usedMemory(heapArenas, numaNode);
+    }
+
+    final long usedDirectMemory(int numaNode) {
+        return usedMemory(directArenas, numaNode);
+    }
+
+    private long usedMemory(PoolArena<?>[] arenas, int numaNode) {
+        int numNodes = numNumaNodes();
+        if (numaNode < 0 || numaNode >= numNodes) {
+            throw new IllegalArgumentException("numaNode: " + numaNode + " (expected: 0-" + (numNodes - 1) + ')');
+        }
+        if (arenas == null) {
+            return -1;
+        }
+        long used = 0;
+        for (int i = numaNode; i < arenas.length; i += numNodes) {
+            used += arenas[i].numActiveBytes();
+            if (used < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return used;
+    }
+
+    final long reclaimedHeapMemory() {
+        return reclaimedMemory(heapArenas);
+    }
+
+    final long reclaimedDirectMemory() {
+        return reclaimedMemory(directArenas);
+    }
+
+    final long numRemoteFrees() {
+        return numRemoteFrees(heapArenas) + numRemoteFrees(directArenas);
+    }
+
+    private static long numRemoteFrees(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return 0;
+        }
+        long remoteFrees = 0;
+        for (PoolArena<?> arena : arenas) {
+            remoteFrees += arena.numRemoteFrees();
+        }
+        return remoteFrees;
+    }
+
+    final long numReclaimedChunks() {
+        return numReclaimedChunks(heapArenas) + numReclaimedChunks(directArenas);
+    }
+
+    private static long reclaimedMemory(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return 0;
+        }
+        long reclaimed = 0;
+        for (PoolArena<?> arena : arenas) {
+            reclaimed += arena.numReclaimedBytes();
+        }
+        return reclaimed;
+    }
+
+    private static long numReclaimedChunks(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return 0;
+        }
+        long reclaimed = 0;
+        for (PoolArena<?> arena : arenas) {
+            reclaimed += arena.numReclaimedChunks();
+        }
+        return reclaimed;
+    }
+
     private static long usedMemory(PoolArena<?>[] arenas) {
         if (arenas == null) {
             return -1;
@@ -746,6 +975,49 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return false;
     }
 
+    /**
+     * Release all chunks of this allocator that did not have any allocations for at least the given time, and so
+     * give their memory back to the system. Memory that is held by thread local caches keeps its chunk alive, use
+     * {@link #trimCurrentThreadCache()} to release it first.
+     *
+     * Returns the number of bytes that were released.
+     */
+    public long trimIdleChunks(long idleTime, TimeUnit unit) {
+        checkPositiveOrZero(idleTime, "idleTime");
+        long idleNanos = unit.toNanos(idleTime);
+        return trimIdleChunks(heapArenas, idleNanos) + trimIdleChunks(directArenas, idleNanos);
+    }
+
+    private static long trimIdleChunks(PoolArena<?>[] arenas, long idleNanos) {
+        if (arenas == null) {
+            return 0;
+        }
+        long released = 0;
+        for (PoolArena<?> arena : arenas) {
+            released += arena.trimIdleChunks(idleNanos);
+        }
+        return released;
+    }
+
+    /**
+     * Trims the thread local cache of the current {@link Thread} and releases the chunks of the arenas it is bound to
+     * that were idle for longer than {@code io.netty.allocator.chunkIdleTimeMillis}.
+     */
+    private void trimCurrentThreadIdleChunks() {
+        PoolThreadCache cache = threadCache.getIfExists();
+        if (cache == null) {
+            return;
+        }
+        cache.trim();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_CHUNK_IDLE_TIME_MILLIS);
+        if (cache.heapArena != null) {
+            cache.heapArena.trimIdleChunks(idleNanos);
+        }
+        if (cache.directArena != null) {
+            cache.directArena.trimIdleChunks(idleNanos);
+        }
+    }
+
     /**
      * Returns the status of the allocator (which contains all metrics) as string. Be aware this may be expensive
      * and so should not called too frequently.
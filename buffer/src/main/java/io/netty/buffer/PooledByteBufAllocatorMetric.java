@@ -90,6 +90,16 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.normalCacheSize();
     }
 
+    /**
+     * Return the number of buffers that were released by another thread than the one that allocated them, and were
+     * handed back to the thread cache of the allocating thread instead of being freed to the arena directly.
+     *
+     * @see PooledByteBufAllocator#defaultRemoteFreeQueueCapacity()
+     */
+    public long numRemoteFrees() {
+        return allocator.numRemoteFrees();
+    }
+
     /**
      * Return the chunk size for an arena.
      */
@@ -97,6 +107,58 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.chunkSize();
     }
 
+    /**
+     * Return the number of chunks that were released because they did not have any allocations for too long.
+     *
+     * @see PooledByteBufAllocator#trimIdleChunks(long, java.util.concurrent.TimeUnit)
+     */
+    public long numReclaimedChunks() {
+        return allocator.numReclaimedChunks();
+    }
+
+    /**
+     * Return the number of bytes of heap memory that were released because chunks did not have any allocations for
+     * too long.
+     */
+    public long reclaimedHeapMemory() {
+        return allocator.reclaimedHeapMemory();
+    }
+
+    /**
+     * Return the number of bytes of direct memory that were released because chunks did not have any allocations for
+     * too long.
+     */
+    public long reclaimedDirectMemory() {
+        return allocator.reclaimedDirectMemory();
+    }
+
+    /**
+     * Return the number of NUMA nodes the arenas are grouped by, which is {@code 1} if the arenas are not NUMA aware.
+     *
+     * @see PooledByteBufAllocator#defaultNumaAware()
+     */
+    public int numNumaNodes() {
+        return allocator.numNumaNodes();
+    }
+
+    /**
+     * Return the number of bytes of heap memory used by the arenas of the given NUMA node.
+     *
+     * @param numaNode the node, from {@code 0} to {@link #numNumaNodes()} - 1.
+     */
+    public long usedHeapMemory(int numaNode) {
+        return allocator.usedHeapMemory(numaNode);
+    }
+
+    /**
+     * Return the number of bytes of direct memory used by the arenas of the given NUMA node.
+     *
+     * @param numaNode the node, from {@code 0} to {@link #numNumaNodes()} - 1.
+     */
+    public long usedDirectMemory(int numaNode) {
+        return allocator.usedDirectMemory(numaNode);
+    }
+
     @Override
     public long usedHeapMemory() {
         return allocator.usedHeapMemory();
@@ -118,7 +180,11 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
                 .append("; smallCacheSize: ").append(smallCacheSize())
                 .append("; normalCacheSize: ").append(normalCacheSize())
                 .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
-                .append("; chunkSize: ").append(chunkSize()).append(')');
+                .append("; numRemoteFrees: ").append(numRemoteFrees())
+                .append("; chunkSize: ").append(chunkSize())
+                .append("; numNumaNodes: ").append(numNumaNodes())
+                .append("; reclaimedHeapMemory: ").append(reclaimedHeapMemory())
+                .append("; reclaimedDirectMemory: ").append(reclaimedDirectMemory()).append(')');
         return sb.toString();
     }
 }
@@ -16,6 +16,7 @@
 package io.netty.buffer;
 
 import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
@@ -29,6 +30,7 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator imp
     private final UnpooledByteBufAllocatorMetric metric = new UnpooledByteBufAllocatorMetric();
     private final boolean disableLeakDetector;
     private final boolean noCleaner;
+    private final DirectMemoryProvider directMemoryProvider;
 
     /**
      * Default instance which uses leak-detection for direct buffers.
@@ -75,6 +77,27 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator imp
         this.disableLeakDetector = disableLeakDetector;
         noCleaner = tryNoCleaner && PlatformDependent.hasUnsafe()
                 && PlatformDependent.hasDirectBufferNoCleanerConstructor();
+        directMemoryProvider = null;
+    }
+
+    /**
+     * Create a new instance whose direct buffers are backed by memory of the given {@link DirectMemoryProvider}.
+     * The memory is handed back to the provider as soon as a buffer is released, instead of depending on a
+     * {@code Cleaner} or on {@code sun.misc.Unsafe}. If the provider can not serve a request, the buffer falls back
+     * to a regular direct {@link ByteBuffer}.
+     *
+     * @param preferDirect {@code true} if {@link #buffer(int)} should try to allocate a direct buffer rather than
+     *                     a heap buffer
+     * @param disableLeakDetector {@code true} if the leak-detection should be disabled completely for this
+     *                            allocator.
+     * @param directMemoryProvider the provider of the memory of direct buffers.
+     */
+    public UnpooledByteBufAllocator(boolean preferDirect, boolean disableLeakDetector,
+                                    DirectMemoryProvider directMemoryProvider) {
+        super(preferDirect);
+        this.disableLeakDetector = disableLeakDetector;
+        noCleaner = false;
+        this.directMemoryProvider = ObjectUtil.checkNotNull(directMemoryProvider, "directMemoryProvider");
     }
 
     @Override
@@ -87,7 +110,9 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator imp
     @Override
     protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
         final ByteBuf buf;
-        if (PlatformDependent.hasUnsafe()) {
+        if (directMemoryProvider != null) {
+            buf = new InstrumentedProvidedUnpooledDirectByteBuf(this, initialCapacity, maxCapacity);
+        } else if (PlatformDependent.hasUnsafe()) {
             buf = noCleaner ? new InstrumentedUnpooledUnsafeNoCleanerDirectByteBuf(this, initialCapacity, maxCapacity) :
                     new InstrumentedUnpooledUnsafeDirectByteBuf(this, initialCapacity, maxCapacity);
         } else {
@@ -246,6 +271,49 @@ public final class UnpooledByteBufAllocator extends AbstractByteBufAllocator imp
         }
     }
 
+    private static final class InstrumentedProvidedUnpooledDirectByteBuf extends UnpooledDirectByteBuf {
+        // Whether the current and the most recently allocated buffer came from the DirectMemoryProvider. These are
+        // first assigned while the super constructor runs, so they must not have initializers.
+        private boolean provided;
+        private boolean allocatedProvided;
+
+        InstrumentedProvidedUnpooledDirectByteBuf(
+                UnpooledByteBufAllocator alloc, int initialCapacity, int maxCapacity) {
+            super(alloc, initialCapacity, maxCapacity);
+        }
+
+        @Override
+        protected ByteBuffer allocateDirect(int initialCapacity) {
+            UnpooledByteBufAllocator alloc = (UnpooledByteBufAllocator) alloc();
+            ByteBuffer buffer = alloc.directMemoryProvider.allocate(initialCapacity);
+            allocatedProvided = buffer != null;
+            if (buffer == null) {
+                buffer = super.allocateDirect(initialCapacity);
+            }
+            alloc.incrementDirect(buffer.capacity());
+            return buffer;
+        }
+
+        @Override
+        void setByteBuffer(ByteBuffer buffer, boolean tryFree) {
+            // Frees the current buffer, if requested.
+            super.setByteBuffer(buffer, tryFree);
+            provided = allocatedProvided;
+        }
+
+        @Override
+        protected void freeDirect(ByteBuffer buffer) {
+            UnpooledByteBufAllocator alloc = (UnpooledByteBufAllocator) alloc();
+            int capacity = buffer.capacity();
+            if (provided) {
+                alloc.directMemoryProvider.free(buffer);
+            } else {
+                super.freeDirect(buffer);
+            }
+            alloc.decrementDirect(capacity);
+        }
+    }
+
     private static final class UnpooledByteBufAllocatorMetric implements ByteBufAllocatorMetric {
         final LongCounter directCounter = PlatformDependent.newLongCounter();
         final LongCounter heapCounter = PlatformDependent.newLongCounter();
@@ -891,6 +891,12 @@ class WrappedCompositeByteBuf extends CompositeByteBuf {
         return this;
     }
 
+    @Override
+    public CompositeByteBuf consolidateSmallComponents(int maxComponentSize, int maxConsolidatedSize) {
+        wrapped.consolidateSmallComponents(maxComponentSize, maxConsolidatedSize);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf discardReadComponents() {
         wrapped.discardReadComponents();
@@ -19,6 +19,7 @@ import io.netty.util.internal.PlatformDependent;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -132,6 +133,77 @@ public abstract class AbstractByteBufAllocatorTest<T extends AbstractByteBufAllo
         assertEquals(expectedUsedMemoryAfterRelease(allocator, capacity), metric.usedHeapMemory());
     }
 
+    @Test
+    public void testBuffers() {
+        testBuffers(true);
+        testBuffers(false);
+    }
+
+    private void testBuffers(boolean direct) {
+        T allocator = newAllocator(direct);
+        int[] capacities = { 8, 8, 0, 1024, 8, 64 * 1024 };
+        ByteBuf[] buffers = direct ? allocator.directBuffers(capacities) : allocator.heapBuffers(capacities);
+        assertEquals(capacities.length, buffers.length);
+        for (int i = 0; i < buffers.length; i++) {
+            ByteBuf buffer = buffers[i];
+            assertEquals(direct, buffer.isDirect());
+            assertEquals(capacities[i], buffer.capacity());
+            assertEquals(defaultMaxCapacity(), buffer.maxCapacity());
+            assertEquals(1, buffer.refCnt());
+            buffer.writeZero(capacities[i] + 1);
+        }
+        for (ByteBuf buffer : buffers) {
+            assertTrue(buffer.release());
+        }
+    }
+
+    @Test
+    public void testSlicedBuffers() {
+        T allocator = newAllocator(false);
+        int[] capacities = { 8, 0, 16, 4 };
+        ByteBuf[] slices = allocator.slicedBuffers(capacities);
+        assertEquals(capacities.length, slices.length);
+        for (int i = 0; i < slices.length; i++) {
+            ByteBuf slice = slices[i];
+            assertEquals(capacities[i], slice.maxCapacity());
+            assertEquals(0, slice.readableBytes());
+            assertEquals(capacities[i], slice.writableBytes());
+            slice.writeZero(capacities[i]);
+            if (capacities[i] > 0) {
+                slice.setByte(0, i);
+            }
+        }
+        // The slices must not overlap.
+        assertEquals(0, slices[0].getByte(0));
+        assertEquals(2, slices[2].getByte(0));
+        assertEquals(3, slices[3].getByte(0));
+
+        slices[1].release();
+        slices[0].release();
+        slices[3].release();
+        assertEquals(2, slices[2].getByte(0));
+        assertTrue(slices[2].release());
+    }
+
+    @Test
+    public void testBuffersViaByteBufUtil() {
+        ByteBufAllocator allocator = newAllocator(false);
+        ByteBuf[] buffers = ByteBufUtil.buffers(allocator, 4, 8);
+        assertEquals(2, buffers.length);
+        assertEquals(4, buffers[0].capacity());
+        assertEquals(8, buffers[1].capacity());
+        ByteBuf[] slices = ByteBufUtil.slicedBuffers(allocator, 4, 8);
+        assertEquals(2, slices.length);
+        assertEquals(4, slices[0].maxCapacity());
+        assertEquals(8, slices[1].maxCapacity());
+        for (ByteBuf buffer : buffers) {
+            assertFalse(buffer.isDirect());
+            assertTrue(buffer.release());
+        }
+        slices[0].release();
+        assertTrue(slices[1].release());
+    }
+
     protected long expectedUsedMemory(T allocator, int capacity) {
         return capacity;
     }
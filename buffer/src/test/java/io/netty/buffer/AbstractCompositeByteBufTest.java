@@ -22,14 +22,19 @@ import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ScatteringByteChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 import static io.netty.buffer.Unpooled.buffer;
@@ -312,6 +317,171 @@ public abstract class AbstractCompositeByteBufTest extends AbstractByteBufTest {
         buf.release();
     }
 
+    @Test
+    public void testSmallComponentsConsolidation() {
+        CompositeByteBuf buf = compositeBuffer(Integer.MAX_VALUE);
+        buf.addComponent(wrappedBuffer(new byte[] { 1 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 2, 3 }));
+        byte[] large = { 4, 5, 6, 7, 8 };
+        buf.addComponent(wrappedBuffer(large));
+        buf.addComponent(wrappedBuffer(new byte[] { 9 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 10 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 11, 12 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 13, 14 }));
+        buf.consolidateSmallComponents(4, 4);
+
+        assertEquals(4, buf.numComponents());
+        assertEquals(wrappedBuffer(new byte[] { 1, 2, 3 }), buf.component(0));
+        // Large components are not copied.
+        assertSame(large, buf.component(1).array());
+        assertEquals(wrappedBuffer(new byte[] { 9, 10, 11, 12 }), buf.component(2));
+        assertEquals(wrappedBuffer(new byte[] { 13, 14 }), buf.component(3));
+        assertEquals(0, buf.toComponentIndex(2));
+        assertEquals(1, buf.toComponentIndex(3));
+        assertEquals(2, buf.toComponentIndex(8));
+        assertEquals(3, buf.toComponentIndex(12));
+
+        buf.release();
+    }
+
+    @Test
+    public void testSmallComponentsAutoConsolidation() {
+        CompositeByteBuf buf = new CompositeByteBuf(UnpooledByteBufAllocator.DEFAULT, false, 3, 4, 8);
+        byte[] large = { 4, 5, 6, 7, 8 };
+        buf.addComponent(wrappedBuffer(new byte[] { 1 }));
+        buf.addComponent(wrappedBuffer(new byte[] { 2, 3 }));
+        buf.addComponent(wrappedBuffer(large));
+        assertEquals(3, buf.numComponents());
+
+        buf.addComponent(wrappedBuffer(new byte[] { 9 }));
+        assertEquals(3, buf.numComponents());
+        assertEquals(wrappedBuffer(new byte[] { 1, 2, 3 }), buf.component(0));
+        assertSame(large, buf.component(1).array());
+        assertEquals(wrappedBuffer(new byte[] { 9 }), buf.component(2));
+
+        // If consolidating the small components is not enough everything is consolidated.
+        buf.addComponent(wrappedBuffer(new byte[] { 10, 11, 12, 13 }));
+        assertEquals(1, buf.numComponents());
+        assertEquals(wrappedBuffer(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13 }), buf.component(0));
+
+        buf.release();
+    }
+
+    @Test
+    public void testToComponentIndexSequentialAndRandom() {
+        CompositeByteBuf buf = compositeBuffer(Integer.MAX_VALUE);
+        int[] componentOfIndex = new int[64];
+        int index = 0;
+        for (int i = 0; i < 16; i++) {
+            int length = 1 + i % 7;
+            buf.addComponent(true, wrappedBuffer(new byte[length]));
+            for (int j = 0; j < length; j++) {
+                componentOfIndex[index++] = i;
+            }
+        }
+        for (int i = 0; i < index; i++) {
+            assertEquals(componentOfIndex[i], buf.toComponentIndex(i));
+        }
+        for (int i = index - 1; i >= 0; i--) {
+            assertEquals(componentOfIndex[i], buf.toComponentIndex(i));
+        }
+        Random random = new Random();
+        for (int i = 0; i < 1000; i++) {
+            int offset = random.nextInt(index);
+            assertEquals(componentOfIndex[offset], buf.toComponentIndex(offset));
+        }
+        // The cached component must not be used once the components changed.
+        buf.removeComponent(0);
+        assertEquals(componentOfIndex[1] - 1, buf.toComponentIndex(0));
+        buf.release();
+    }
+
+    @Test
+    public void testScatteringRead() throws IOException {
+        CompositeByteBuf buf = compositeBuffer();
+        buf.addComponent(buffer(4).writeZero(4));
+        buf.addComponent(directBuffer(4).writeZero(4));
+        buf.addComponent(buffer(4).writeZero(4));
+        final AtomicInteger scatteringReads = new AtomicInteger();
+        ScatteringByteChannel in = new ScatteringByteChannel() {
+            @Override
+            public long read(ByteBuffer[] dsts, int offset, int length) {
+                scatteringReads.incrementAndGet();
+                long read = 0;
+                byte value = 0;
+                for (int i = offset; i < offset + length; i++) {
+                    while (dsts[i].hasRemaining()) {
+                        dsts[i].put(value++);
+                        read++;
+                    }
+                }
+                return read;
+            }
+
+            @Override
+            public long read(ByteBuffer[] dsts) {
+                return read(dsts, 0, dsts.length);
+            }
+
+            @Override
+            public int read(ByteBuffer dst) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertEquals(10, buf.writerIndex(1).writeBytes(in, 10));
+        assertEquals(1, scatteringReads.get());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, buf.getByte(i + 1));
+        }
+        buf.release();
+    }
+
+    @Test
+    public void testScatteringReadClosedChannel() throws IOException {
+        CompositeByteBuf buf = compositeBuffer();
+        buf.addComponent(buffer(4).writeZero(4));
+        buf.addComponent(buffer(4).writeZero(4));
+        ScatteringByteChannel in = new ScatteringByteChannel() {
+            @Override
+            public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+                throw new ClosedChannelException();
+            }
+
+            @Override
+            public long read(ByteBuffer[] dsts) throws IOException {
+                throw new ClosedChannelException();
+            }
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                throw new ClosedChannelException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // Same as for every other ByteBuf a closed channel is treated as EOF.
+        assertEquals(-1, buf.setBytes(1, in, 6));
+        buf.release();
+    }
+
     @Test
     public void testCompositeWrappedBuffer() {
         ByteBuf header = buffer(12).order(order);
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.buffer.AdaptivePoolingAllocator.AdaptiveByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveByteBufAllocatorTest extends AbstractByteBufAllocatorTest<AdaptiveByteBufAllocator> {
+    private static final int MIN_CHUNK_SIZE = 128 * 1024;
+
+    @Override
+    protected AdaptiveByteBufAllocator newAllocator(boolean preferDirect) {
+        return new AdaptiveByteBufAllocator(preferDirect);
+    }
+
+    @Override
+    protected AdaptiveByteBufAllocator newUnpooledAllocator() {
+        return newAllocator(false);
+    }
+
+    @Override
+    protected long expectedUsedMemory(AdaptiveByteBufAllocator allocator, int capacity) {
+        return MIN_CHUNK_SIZE;
+    }
+
+    @Override
+    protected long expectedUsedMemoryAfterRelease(AdaptiveByteBufAllocator allocator, int capacity) {
+        // The magazine keeps allocating from its current chunk, so it is not released.
+        return MIN_CHUNK_SIZE;
+    }
+
+    @Override
+    @Test
+    public void testUnsafeHeapBufferAndUnsafeDirectBuffer() {
+        AdaptiveByteBufAllocator allocator = newUnpooledAllocator();
+        ByteBuf directBuffer = allocator.directBuffer();
+        assertInstanceOf(directBuffer, AdaptiveByteBuf.class);
+        assertTrue(directBuffer.isDirect());
+        directBuffer.release();
+
+        ByteBuf heapBuffer = allocator.heapBuffer();
+        assertInstanceOf(heapBuffer, AdaptiveByteBuf.class);
+        assertFalse(heapBuffer.isDirect());
+        heapBuffer.release();
+    }
+
+    @Test
+    public void testBuffersShareChunk() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        for (int i = 0; i < 64; i++) {
+            buffers.add(allocator.directBuffer(1024));
+        }
+        assertEquals(MIN_CHUNK_SIZE, allocator.metric().usedDirectMemory());
+        for (ByteBuf buffer : buffers) {
+            assertTrue(buffer.release());
+        }
+    }
+
+    @Test
+    public void testRetiredChunkIsReused() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        // Fill the first chunk and force the magazine to move on to a second one.
+        ByteBuf first = allocator.directBuffer(MIN_CHUNK_SIZE);
+        ByteBuf second = allocator.directBuffer(MIN_CHUNK_SIZE);
+        assertEquals(2 * MIN_CHUNK_SIZE, allocator.metric().usedDirectMemory());
+
+        // Releasing the only buffer of the retired chunk makes it available for reuse.
+        assertTrue(first.release());
+        assertEquals(1, allocator.metric().numCachedDirectChunks());
+        ByteBuf third = allocator.directBuffer(MIN_CHUNK_SIZE);
+        assertEquals(0, allocator.metric().numCachedDirectChunks());
+        assertEquals(2 * MIN_CHUNK_SIZE, allocator.metric().usedDirectMemory());
+
+        assertTrue(second.release());
+        assertTrue(third.release());
+    }
+
+    @Test
+    public void testHugeBufferIsNotPooled() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        int capacity = 4 * 1024 * 1024;
+        ByteBuf buffer = allocator.directBuffer(capacity);
+        assertEquals(capacity, allocator.metric().usedDirectMemory());
+        assertTrue(buffer.release());
+        assertEquals(0, allocator.metric().usedDirectMemory());
+    }
+
+    @Test
+    public void testCapacityIncreaseKeepsContent() {
+        AdaptiveByteBufAllocator allocator = newAllocator(true);
+        ByteBuf buffer = allocator.directBuffer(8, 1024);
+        buffer.writeLong(42);
+        buffer.readByte();
+        buffer.writeInt(7);
+        assertEquals(1, buffer.readerIndex());
+        assertEquals(12, buffer.writerIndex());
+        assertEquals(42, buffer.getLong(0));
+        assertEquals(7, buffer.getInt(8));
+        assertTrue(buffer.release());
+    }
+
+    @Test
+    public void testConcurrentAllocateAndRelease() throws Throwable {
+        final AdaptiveByteBufAllocator allocator = newAllocator(true);
+        final Queue<Throwable> errors = new ConcurrentLinkedQueue<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            final int id = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10000; j++) {
+                            ByteBuf buffer = allocator.directBuffer(64 + j % 4096);
+                            buffer.writeInt(id).writeInt(j);
+                            assertEquals(id, buffer.readInt());
+                            assertEquals(j, buffer.readInt());
+                            assertTrue(buffer.release());
+                        }
+                    } catch (Throwable cause) {
+                        errors.add(cause);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        if (!errors.isEmpty()) {
+            throw errors.poll();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ByteBufAllocationProfilerTest {
+
+    @AfterEach
+    public void tearDown() {
+        ByteBufAllocationProfiler.disable();
+        ByteBufAllocationProfiler.reset();
+    }
+
+    @Test
+    public void testDisabled() {
+        ByteBufAllocationProfiler.disable();
+        ByteBuf buf = UnpooledByteBufAllocator.DEFAULT.heapBuffer(16);
+        try {
+            assertFalse(buf instanceof SimpleLeakAwareByteBuf);
+            assertTrue(ByteBufAllocationProfiler.snapshot().isEmpty());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testLiveAndTotalBytes() {
+        ByteBufAllocationProfiler.enable(ByteBufAllocationProfiler.Mode.COUNT, 1);
+        ByteBuf heap = allocateHeap();
+        ByteBuf direct = UnpooledByteBufAllocator.DEFAULT.directBuffer(128);
+
+        List<ByteBufAllocationProfiler.AllocationSite> sites = ByteBufAllocationProfiler.snapshot();
+        assertEquals(2, sites.size());
+        // Ordered by live bytes.
+        assertEquals(128, sites.get(0).liveBytes());
+        assertEquals(1, sites.get(0).liveAllocations());
+        assertEquals(64, sites.get(1).liveBytes());
+        StackTraceElement top = sites.get(1).stackTrace()[0];
+        assertEquals(ByteBufAllocationProfilerTest.class.getName(), top.getClassName());
+        assertEquals("allocateHeap", top.getMethodName());
+
+        assertTrue(heap.release());
+        assertTrue(direct.release());
+        for (ByteBufAllocationProfiler.AllocationSite site : ByteBufAllocationProfiler.snapshot()) {
+            assertEquals(0, site.liveBytes());
+            assertEquals(0, site.liveAllocations());
+            assertEquals(1, site.totalAllocations());
+        }
+        assertTrue(ByteBufAllocationProfiler.dump(10).contains("allocateHeap"));
+    }
+
+    @Test
+    public void testSameSiteIsAggregated() {
+        ByteBufAllocationProfiler.enable(ByteBufAllocationProfiler.Mode.COUNT, 1);
+        for (int i = 0; i < 10; i++) {
+            allocateHeap().release();
+        }
+        List<ByteBufAllocationProfiler.AllocationSite> sites = ByteBufAllocationProfiler.snapshot();
+        assertEquals(1, sites.size());
+        assertEquals(640, sites.get(0).totalBytes());
+        assertEquals(10, sites.get(0).totalAllocations());
+        assertEquals(0, sites.get(0).liveBytes());
+    }
+
+    @Test
+    public void testMaxSites() {
+        ByteBufAllocationProfiler.enable(ByteBufAllocationProfiler.Mode.COUNT, 1, 2);
+        for (int i = 0; i < 2; i++) {
+            allocateHeap().release();
+        }
+        UnpooledByteBufAllocator.DEFAULT.heapBuffer(32).release();
+        // The sites that exceed the limit are aggregated into one site without a stack trace.
+        UnpooledByteBufAllocator.DEFAULT.heapBuffer(16).release();
+        UnpooledByteBufAllocator.DEFAULT.heapBuffer(8).release();
+
+        List<ByteBufAllocationProfiler.AllocationSite> sites = ByteBufAllocationProfiler.snapshot();
+        assertEquals(3, sites.size());
+        assertEquals(128, sites.get(0).totalBytes());
+        assertEquals(2, sites.get(0).totalAllocations());
+        assertEquals(32, sites.get(1).totalBytes());
+        assertEquals(24, sites.get(2).totalBytes());
+        assertEquals(2, sites.get(2).totalAllocations());
+        assertEquals(0, sites.get(2).stackTrace().length);
+
+        ByteBufAllocationProfiler.reset();
+        assertTrue(ByteBufAllocationProfiler.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testBytesMode() {
+        ByteBufAllocationProfiler.enable(ByteBufAllocationProfiler.Mode.BYTES, 32);
+        // Buffers that are larger than the interval are always sampled.
+        ByteBuf buf = allocateHeap();
+        try {
+            List<ByteBufAllocationProfiler.AllocationSite> sites = ByteBufAllocationProfiler.snapshot();
+            assertEquals(1, sites.size());
+            assertEquals(64, sites.get(0).liveBytes());
+            assertEquals(1, sites.get(0).liveAllocations());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testUnsampledBufferIsNotWrapped() {
+        ByteBuf buf = UnpooledByteBufAllocator.DEFAULT.heapBuffer(16);
+        assertSame(buf, ByteBufAllocationProfiler.sample(buf));
+        buf.release();
+    }
+
+    private static ByteBuf allocateHeap() {
+        return UnpooledByteBufAllocator.DEFAULT.heapBuffer(64);
+    }
+}
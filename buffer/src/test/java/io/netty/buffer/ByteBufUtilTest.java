@@ -17,12 +17,18 @@ package io.netty.buffer;
 
 import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
+import io.netty.util.internal.PlatformDependent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -153,6 +159,149 @@ public class ByteBufUtilTest {
         needle.release();
     }
 
+    @Test
+    public void testIndexOfRandom() {
+        Random rand = new Random();
+        for (int i = 0; i < 1000; i++) {
+            // Use a small alphabet so that there are many partial matches.
+            byte[] haystackBytes = randomBytes(rand, rand.nextInt(100), 3);
+            byte[] needleBytes = randomBytes(rand, 1 + rand.nextInt(6), 3);
+            int start = rand.nextInt(haystackBytes.length + 1);
+            ByteBuf haystack = Unpooled.wrappedBuffer(haystackBytes).readerIndex(start);
+            ByteBuf needle = Unpooled.wrappedBuffer(needleBytes);
+            assertEquals(naiveIndexOf(needleBytes, haystackBytes, start), ByteBufUtil.indexOf(needle, haystack),
+                    "needle: " + Arrays.toString(needleBytes) + ", haystack: " + Arrays.toString(haystackBytes) +
+                    ", start: " + start);
+        }
+    }
+
+    private static byte[] randomBytes(Random rand, int length, int alphabetSize) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + rand.nextInt(alphabetSize));
+        }
+        return bytes;
+    }
+
+    private static int naiveIndexOf(byte[] needle, byte[] haystack, int start) {
+        outer:
+        for (int i = start; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @ParameterizedTest(name = PARAMETERIZED_NAME)
+    @MethodSource("noUnsafe")
+    public void testLastIndexOf(BufferType bufferType) {
+        Random rand = new Random();
+        final int length = 67;
+        ByteBuf buffer = buffer(bufferType, length);
+        try {
+            for (int i = 0; i < length; i++) {
+                buffer.writeByte('a' + rand.nextInt(16));
+            }
+            for (int fromIndex = length; fromIndex > 0; fromIndex--) {
+                for (int toIndex = fromIndex - 1; toIndex >= 0; toIndex--) {
+                    byte value = (byte) ('a' + rand.nextInt(17));
+                    int expected = -1;
+                    for (int i = fromIndex - 1; i >= toIndex; i--) {
+                        if (buffer.getByte(i) == value) {
+                            expected = i;
+                            break;
+                        }
+                    }
+                    assertEquals(expected, buffer.indexOf(fromIndex, toIndex, value));
+                }
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testCompareRandom() {
+        Random rand = new Random();
+        for (int i = 0; i < 1000; i++) {
+            byte[] a = new byte[rand.nextInt(40)];
+            rand.nextBytes(a);
+            byte[] b = a.clone();
+            if (b.length > 0 && rand.nextBoolean()) {
+                b[rand.nextInt(b.length)] = (byte) rand.nextInt();
+            }
+            if (rand.nextBoolean()) {
+                b = Arrays.copyOf(b, rand.nextInt(b.length + 1));
+            }
+            int expected = Integer.signum(naiveCompare(a, b));
+            ByteBuf bufA = Unpooled.wrappedBuffer(a);
+            ByteBuf bufB = Unpooled.wrappedBuffer(b);
+            assertEquals(expected, Integer.signum(ByteBufUtil.compare(bufA, bufB)));
+            assertEquals(expected, Integer.signum(ByteBufUtil.compare(bufA.order(ByteOrder.LITTLE_ENDIAN), bufB)));
+            assertEquals(expected, Integer.signum(ByteBufUtil.compare(bufA, bufB.order(ByteOrder.LITTLE_ENDIAN))));
+            assertEquals(expected, Integer.signum(ByteBufUtil.compare(
+                    bufA.order(ByteOrder.LITTLE_ENDIAN), bufB.order(ByteOrder.LITTLE_ENDIAN))));
+        }
+    }
+
+    private static int naiveCompare(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int comp = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (comp != 0) {
+                return comp;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    @Test
+    public void testGatheringAndScatteringTransfer() throws IOException {
+        File file = PlatformDependent.createTempFile("netty-", ".tmp", null);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuf header = Unpooled.copiedBuffer("header", CharsetUtil.US_ASCII);
+            ByteBuf empty = Unpooled.buffer(0);
+            CompositeByteBuf body = Unpooled.compositeBuffer();
+            body.addComponent(true, Unpooled.copiedBuffer("body1", CharsetUtil.US_ASCII));
+            body.addComponent(true, Unpooled.directBuffer().writeBytes("body2".getBytes(CharsetUtil.US_ASCII)));
+
+            assertEquals(16, ByteBufUtil.readBytes(channel, header, empty, body));
+            assertFalse(header.isReadable());
+            assertFalse(body.isReadable());
+            header.release();
+            empty.release();
+            body.release();
+
+            channel.position(0);
+            ByteBuf first = Unpooled.buffer(6, 6);
+            ByteBuf second = Unpooled.directBuffer(16, 16);
+            assertEquals(16, ByteBufUtil.writeBytes(channel, first, second));
+            assertEquals("header", first.toString(CharsetUtil.US_ASCII));
+            assertEquals("body1body2", second.toString(CharsetUtil.US_ASCII));
+            assertEquals(-1, ByteBufUtil.writeBytes(channel, second));
+            first.release();
+            second.release();
+
+            final FileChannel in = channel;
+            final ByteBuf readOnly = Unpooled.buffer(8).asReadOnly();
+            assertThrows(ReadOnlyBufferException.class, new Executable() {
+                @Override
+                public void execute() throws Throwable {
+                    ByteBufUtil.writeBytes(in, readOnly);
+                }
+            });
+            readOnly.release();
+        } finally {
+            raf.close();
+            file.delete();
+        }
+    }
+
     @Test
     public void equalsBufferSubsections() {
         byte[] b1 = new byte[128];
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NumaTopologyTest {
+
+    @Test
+    public void testParseCpuList() {
+        assertArrayEquals(new int[0], NumaTopology.parseCpuList(""));
+        assertArrayEquals(new int[] { 3 }, NumaTopology.parseCpuList("3\n"));
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 8, 10, 11 }, NumaTopology.parseCpuList("0-3,8,10-11"));
+    }
+
+    @Test
+    public void testParseProcessor() {
+        String stat = "12177 (some (odd) name) R 12171 12177 12171 0 -1 4194304 85 0 0 0 0 0 0 0 20 0 1 0 " +
+                "326989 2703360 333 18446744073709551615 94140805025792 94140805045673 140732786464016 0 0 0 0 0 " +
+                "0 0 0 0 17 5 0 0 0 0 0 94140805061680 94140805063296 94140830904320 140732786472170 " +
+                "140732786472197 140732786472197 140732786474987 0";
+        assertEquals(5, NumaTopology.parseProcessor(stat));
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                NumaTopology.parseProcessor("12177 (cat) R 1 2 3");
+            }
+        });
+    }
+
+    @Test
+    public void testNode() {
+        NumaTopology topology = new NumaTopology(2, new int[] { 0, 0, 1, 1 });
+        assertEquals(2, topology.numNodes());
+        assertEquals(0, topology.node(1));
+        assertEquals(1, topology.node(2));
+        assertEquals(-1, topology.node(4));
+        assertEquals(-1, topology.node(-1));
+    }
+}
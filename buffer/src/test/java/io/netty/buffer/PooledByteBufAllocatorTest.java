@@ -25,12 +25,14 @@ import org.junit.jupiter.api.Test;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -44,7 +46,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<PooledByteBufAllocator> {
 
@@ -91,6 +95,172 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         assertTrue(allocator.trimCurrentThreadCache());
     }
 
+    @Test
+    public void testTrimIdleChunks() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 9, 0, 0, false);
+        int chunkSize = allocator.metric().chunkSize();
+
+        ByteBuf directBuffer = allocator.directBuffer(64 * 1024);
+        ByteBuf heapBuffer = allocator.heapBuffer(64 * 1024);
+
+        // Chunks that still have allocations must not be released.
+        assertEquals(0, allocator.trimIdleChunks(0, MILLISECONDS));
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+
+        assertTrue(directBuffer.release());
+        assertTrue(heapBuffer.release());
+
+        // The chunks did not become idle long enough ago.
+        assertEquals(0, allocator.trimIdleChunks(1, TimeUnit.HOURS));
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+        assertEquals(chunkSize, allocator.metric().usedHeapMemory());
+
+        assertEquals(2L * chunkSize, allocator.trimIdleChunks(0, MILLISECONDS));
+        assertEquals(0, allocator.metric().usedDirectMemory());
+        assertEquals(0, allocator.metric().usedHeapMemory());
+        assertEquals(2, allocator.metric().numReclaimedChunks());
+        assertEquals(chunkSize, allocator.metric().reclaimedDirectMemory());
+        assertEquals(chunkSize, allocator.metric().reclaimedHeapMemory());
+
+        // The allocator must still be usable after its chunks were released.
+        directBuffer = allocator.directBuffer(64 * 1024);
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+        assertTrue(directBuffer.release());
+    }
+
+    @Test
+    public void testRemoteFree() throws Exception {
+        // Remote frees are disabled by default.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 9, 256, 64, true, 0, null, 256);
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+
+        final ByteBuf small = allocator.directBuffer(1024);
+        // Larger than the maximum capacity that is cached.
+        final ByteBuf normal = allocator.directBuffer(64 * 1024);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                small.release();
+                normal.release();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // Both were handed back to the thread cache of this thread, so nothing was freed to the arena yet.
+        assertEquals(2, allocator.metric().numRemoteFrees());
+        assertEquals(0, arena.numDeallocations());
+
+        // The small allocation is served from the cache, and the normal one is freed once this thread allocates
+        // something that is not cached.
+        ByteBuf buf = allocator.directBuffer(1024);
+        assertEquals(1, arena.numSmallAllocations());
+        ByteBuf huge = allocator.directBuffer(128 * 1024);
+        assertEquals(1, arena.numNormalDeallocations());
+        assertTrue(buf.release());
+        assertTrue(huge.release());
+    }
+
+    @Test
+    public void testNumaAwareArenaSelection() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 5, 8192, 9, 0, 0, false);
+        List<PoolArenaMetric> metrics = allocator.metric().directArenas();
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer>[] arenas = metrics.toArray(new PoolArena[0]);
+        NumaTopology topology = new NumaTopology(2, new int[] { 0, 0, 1, 1 });
+
+        // The arenas are assigned to the nodes round-robin, and the threads of a node are spread over its arenas.
+        // Threads on an unknown node use the arenas of node 0.
+        int[] nodes = { 1, 0, -1, 1, 0, -1, 1 };
+        int[] expected = { 1, 0, 2, 3, 4, 0, 1 };
+        for (int i = 0; i < nodes.length; i++) {
+            PoolArena<ByteBuffer> arena = PooledByteBufAllocator.leastUsedArena(arenas, topology, nodes[i]);
+            assertSame(arenas[expected[i]], arena);
+            arena.numThreadCaches.incrementAndGet();
+        }
+
+        // With more nodes than arenas, the threads of the nodes without arenas use the ones of node 0.
+        NumaTopology largeTopology = new NumaTopology(8, new int[] { 0, 1, 2, 3, 4, 5, 6, 7 });
+        assertSame(arenas[0], PooledByteBufAllocator.leastUsedArena(
+                Arrays.copyOf(arenas, 2), largeTopology, 5));
+        assertSame(arenas[1], PooledByteBufAllocator.leastUsedArena(
+                Arrays.copyOf(arenas, 2), largeTopology, 1));
+    }
+
+    @Test
+    public void testUsedMemoryPerNumaNode() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 2, 2, 8192, 9, 0, 0, false);
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        assertTrue(metric.numNumaNodes() >= 1);
+
+        ByteBuf buffer = allocator.directBuffer(1024);
+        long used = 0;
+        for (int node = 0; node < metric.numNumaNodes(); node++) {
+            used += metric.usedDirectMemory(node);
+        }
+        assertEquals(metric.usedDirectMemory(), used);
+        assertTrue(buffer.release());
+
+        try {
+            metric.usedHeapMemory(metric.numNumaNodes());
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDirectMemoryProvider() {
+        final AtomicBoolean exhausted = new AtomicBoolean();
+        final List<ByteBuffer> allocated = new ArrayList<ByteBuffer>();
+        final List<ByteBuffer> freed = new ArrayList<ByteBuffer>();
+        DirectMemoryProvider provider = new DirectMemoryProvider() {
+            @Override
+            public ByteBuffer allocate(int capacity) {
+                if (exhausted.get()) {
+                    return null;
+                }
+                ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+                allocated.add(buffer);
+                return buffer;
+            }
+
+            @Override
+            public void free(ByteBuffer buffer) {
+                freed.add(buffer);
+            }
+        };
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 9, 0, 0, false, 0, provider);
+        int chunkSize = allocator.metric().chunkSize();
+
+        ByteBuf pooled = allocator.directBuffer(64 * 1024);
+        ByteBuf huge = allocator.directBuffer(chunkSize + 1);
+        assertEquals(2, allocated.size());
+
+        // Chunks that are allocated once the provider can not serve any requests anymore use the default path.
+        exhausted.set(true);
+        ByteBuf fallback = allocator.directBuffer(chunkSize);
+        assertEquals(2, allocated.size());
+
+        pooled.writeLong(1);
+        fallback.writeLong(2);
+        assertEquals(1, pooled.readLong());
+        assertEquals(2, fallback.readLong());
+
+        // Huge allocations are unpooled, so their memory is handed back to the provider on release.
+        assertTrue(huge.release());
+        assertEquals(1, freed.size());
+        assertTrue(freed.get(0) == allocated.get(1));
+
+        assertTrue(pooled.release());
+        assertTrue(fallback.release());
+        allocator.trimIdleChunks(0, MILLISECONDS);
+        assertEquals(2, freed.size());
+        assertTrue(freed.get(1) == allocated.get(0));
+    }
+
     @Test
     public void testPooledUnsafeHeapBufferAndUnsafeDirectBuffer() {
         PooledByteBufAllocator allocator = newAllocator(true);
@@ -554,6 +724,67 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         }
     }
 
+    @Test
+    @Timeout(value = 30000, unit = MILLISECONDS)
+    public void testConcurrentSmallAllocationsFreedByOtherThreads() throws Throwable {
+        // No caches so every allocation and release goes through the subpages of the single arena.
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false);
+        final Queue<ByteBuf> buffers = new ConcurrentLinkedQueue<ByteBuf>();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final int iterations = 100000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final int id = i;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < iterations; j++) {
+                            ByteBuf buf = allocator.directBuffer(16 << (j & 7));
+                            buf.writeInt(id).writeInt(j);
+                            buffers.offer(buf);
+
+                            // Release a buffer that was most likely allocated by another thread.
+                            ByteBuf other = buffers.poll();
+                            if (other != null) {
+                                int otherId = other.readInt();
+                                assertTrue(otherId >= 0 && otherId < 8);
+                                other.readInt();
+                                other.release();
+                            }
+                        }
+                    } catch (Throwable cause) {
+                        error.compareAndSet(null, cause);
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (;;) {
+            ByteBuf buf = buffers.poll();
+            if (buf == null) {
+                break;
+            }
+            buf.release();
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+        assertEquals(0, arena.numActiveSmallAllocations());
+        assertEquals(arena.numSmallAllocations(), arena.numSmallDeallocations());
+        // Only a single subpage per size is kept once all of its elements are freed.
+        for (PoolSubpageMetric subpage : arena.smallSubpages()) {
+            assertEquals(subpage.maxNumElements(), subpage.numAvailable());
+        }
+    }
+
     private static boolean isExpired(long start, long expireTime) {
         return System.nanoTime() - start > expireTime;
     }
@@ -15,6 +15,18 @@
  */
 package io.netty.buffer;
 
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
 public class UnpooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<UnpooledByteBufAllocator> {
 
     @Override
@@ -26,4 +38,71 @@ public class UnpooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<U
     protected UnpooledByteBufAllocator newUnpooledAllocator() {
         return new UnpooledByteBufAllocator(false);
     }
+
+    @Test
+    public void testDirectMemoryProvider() {
+        final AtomicBoolean exhausted = new AtomicBoolean();
+        final List<ByteBuffer> allocated = new ArrayList<ByteBuffer>();
+        final List<ByteBuffer> freed = new ArrayList<ByteBuffer>();
+        DirectMemoryProvider provider = new DirectMemoryProvider() {
+            @Override
+            public ByteBuffer allocate(int capacity) {
+                if (exhausted.get()) {
+                    return null;
+                }
+                ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+                allocated.add(buffer);
+                return buffer;
+            }
+
+            @Override
+            public void free(ByteBuffer buffer) {
+                freed.add(buffer);
+            }
+        };
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(true, true, provider);
+
+        ByteBuf buf = allocator.directBuffer(16);
+        assertEquals(1, allocated.size());
+        assertEquals(16, allocator.metric().usedDirectMemory());
+        buf.writeLong(1).writeLong(2);
+
+        // Growing the buffer allocates new memory from the provider and frees the old one.
+        buf.writeLong(3);
+        assertEquals(2, allocated.size());
+        assertEquals(1, freed.size());
+        assertSame(allocated.get(0), freed.get(0));
+        assertEquals(1, buf.readLong());
+
+        // Once the provider can not serve requests anymore, the buffer falls back to regular direct memory.
+        exhausted.set(true);
+        buf.capacity(1024);
+        assertEquals(2, freed.size());
+        assertSame(allocated.get(1), freed.get(1));
+        assertEquals(2, buf.readLong());
+        assertEquals(3, buf.readLong());
+
+        // Memory which does not come from the provider is not handed to it.
+        assertTrue(buf.release());
+        assertEquals(2, freed.size());
+        assertEquals(0, allocator.metric().usedDirectMemory());
+
+        exhausted.set(false);
+        buf = allocator.directBuffer(8);
+        assertTrue(buf.release());
+        assertEquals(3, freed.size());
+        assertSame(allocated.get(2), freed.get(2));
+    }
+
+    @Test
+    public void testMemorySegmentDirectMemoryProvider() {
+        assumeTrue(MemorySegmentDirectMemoryProvider.isAvailable());
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(
+                true, true, new MemorySegmentDirectMemoryProvider());
+        ByteBuf buf = allocator.directBuffer(8);
+        buf.writeLong(1).writeLong(2);
+        assertEquals(1, buf.readLong());
+        assertEquals(2, buf.readLong());
+        assertTrue(buf.release());
+    }
 }
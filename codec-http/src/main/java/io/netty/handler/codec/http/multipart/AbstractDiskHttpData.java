@@ -130,12 +130,10 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
             try {
                 accessFile.setLength(0);
                 FileChannel localfileChannel = accessFile.getChannel();
-                ByteBuffer byteBuffer = buffer.nioBuffer();
-                int written = 0;
-                while (written < size) {
-                    written += localfileChannel.write(byteBuffer);
+                // Use a gathering write, so the components of a composite buffer are not merged first.
+                while (buffer.isReadable()) {
+                    buffer.readBytes(localfileChannel, buffer.readableBytes());
                 }
-                buffer.readerIndex(buffer.readerIndex() + written);
                 localfileChannel.force(false);
             } finally {
                 accessFile.close();
@@ -167,18 +165,17 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                     fileChannel = accessFile.getChannel();
                 }
                 int remaining = localsize;
-                long position = fileChannel.position();
                 int index = buffer.readerIndex();
                 while (remaining > 0) {
-                    int written = buffer.getBytes(index, fileChannel, position, remaining);
+                    // Use a gathering write at the current position of the channel, so the components of a
+                    // composite buffer are written at once instead of one by one.
+                    int written = buffer.getBytes(index, fileChannel, remaining);
                     if (written < 0) {
                         break;
                     }
                     remaining -= written;
-                    position += written;
                     index += written;
                 }
-                fileChannel.position(position);
                 buffer.readerIndex(index);
                 size += localsize - remaining;
             } finally {
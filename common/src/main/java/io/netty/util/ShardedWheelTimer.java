@@ -0,0 +1,814 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static io.netty.util.internal.ObjectUtil.checkInRange;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.StringUtil.simpleClassName;
+
+/**
+ * A {@link Timer} optimized for approximated I/O timeout scheduling from many threads at once.
+ *
+ * <h3>Shards</h3>
+ *
+ * While {@link HashedWheelTimer} funnels every {@link Timeout} through a single queue and a single worker thread,
+ * {@link ShardedWheelTimer} spreads them over several independent shards, each with its own queue and its own
+ * wheels. A thread always schedules into the same shard, so the producers of different shards never contend with
+ * each other.
+ * <p>
+ * The shards are either driven by dedicated threads, one per shard, or by the {@link EventExecutor}s of an existing
+ * {@link EventExecutorGroup}. In the latter case no extra thread is created, the {@link TimerTask}s are executed by
+ * the {@link EventExecutor} of their shard, and an {@link EventExecutor} that schedules a {@link Timeout} uses its
+ * own shard.
+ *
+ * <h3>Hierarchical Wheels</h3>
+ *
+ * Each shard maintains a hierarchy of wheels: the buckets of the first wheel span one tick, the buckets of every
+ * following wheel span a whole revolution of the previous one. When a wheel completes a revolution, the next bucket
+ * of the wheel above is cascaded down. Unlike with a single hashed wheel, a tick only ever visits timeouts which are
+ * due or which need to be cascaded, no matter how far in the future the other timeouts are.
+ *
+ * <h3>Cancellation</h3>
+ *
+ * There is no queue of cancelled timeouts that needs to be drained by the shards. {@link Timeout#cancel()} unlinks
+ * the {@link Timeout} from its bucket right away if it is called by the thread of its shard, which is the common
+ * case for the {@link EventExecutor}s of an {@link EventExecutorGroup}. Otherwise it only changes the state of the
+ * {@link Timeout}, which is then skipped by the shard, and the shard compacts its buckets once the number of such
+ * cancelled timeouts is large compared to the number of timeouts in its buckets.
+ */
+@UnstableApi
+public final class ShardedWheelTimer implements Timer {
+
+    static final InternalLogger logger = InternalLoggerFactory.getInstance(ShardedWheelTimer.class);
+
+    private static final long MILLISECOND_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // The wheels together cover at least 2^32 ticks, timeouts that are further away are cascaded repeatedly.
+    private static final int MIN_TICK_BITS = 32;
+    // The minimum number of timeouts cancelled by other threads before a shard compacts its buckets.
+    private static final int MIN_COMPACT_THRESHOLD = 1024;
+
+    private static final AtomicIntegerFieldUpdater<ShardedWheelTimer> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ShardedWheelTimer.class, "state");
+    private static final AtomicIntegerFieldUpdater<ShardedWheelTimeout> TIMEOUT_STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ShardedWheelTimeout.class, "state");
+
+    private static final int ST_INIT = 0;
+    private static final int ST_STARTED = 1;
+    private static final int ST_SHUTDOWN = 2;
+    @SuppressWarnings({ "unused", "FieldMayBeFinal" })
+    private volatile int state;
+
+    private final Shard[] shards;
+    private final long tickDuration;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final int levels;
+    private final long maxTicks;
+    private final LongCounter pendingTimeouts = PlatformDependent.newLongCounter();
+    private final long maxPendingTimeouts;
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+
+    private volatile long startTime;
+
+    /**
+     * Creates a new timer with one shard and one thread per available processor, a tick duration of 10
+     * milliseconds, and 64 ticks per wheel.
+     */
+    public ShardedWheelTimer() {
+        this(NettyRuntime.availableProcessors(), 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new timer with a dedicated thread per shard and 64 ticks per wheel.
+     *
+     * @param shards        the number of shards and threads
+     * @param tickDuration  the duration between tick
+     * @param unit          the time unit of the {@code tickDuration}
+     * @throws NullPointerException     if {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code shards} and {@code tickDuration} is &lt;= 0
+     */
+    public ShardedWheelTimer(int shards, long tickDuration, TimeUnit unit) {
+        this(new DefaultThreadFactory(ShardedWheelTimer.class), shards, tickDuration, unit, 64, -1);
+    }
+
+    /**
+     * Creates a new timer with a dedicated thread per shard.
+     *
+     * @param threadFactory      a {@link ThreadFactory} that creates the background {@link Thread}s which are
+     *                           dedicated to {@link TimerTask} execution.
+     * @param shards             the number of shards and threads
+     * @param tickDuration       the duration between tick
+     * @param unit               the time unit of the {@code tickDuration}
+     * @param ticksPerWheel      the size of each wheel
+     * @param maxPendingTimeouts The maximum number of pending timeouts after which call to
+     *                           {@code newTimeout} will result in {@link RejectedExecutionException} being thrown.
+     *                           No maximum pending timeouts limit is assumed if this value is 0 or negative.
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code shards}, {@code tickDuration} and {@code ticksPerWheel}
+     *                                  is &lt;= 0
+     */
+    public ShardedWheelTimer(ThreadFactory threadFactory, int shards, long tickDuration, TimeUnit unit,
+                             int ticksPerWheel, long maxPendingTimeouts) {
+        this(checkNotNull(threadFactory, "threadFactory"), null, checkPositive(shards, "shards"),
+             tickDuration, unit, ticksPerWheel, maxPendingTimeouts);
+    }
+
+    /**
+     * Creates a new timer which ticks on the {@link EventExecutor}s of the given {@link EventExecutorGroup}, with
+     * one shard per {@link EventExecutor}, a tick duration of 10 milliseconds, and 64 ticks per wheel.
+     *
+     * @param group the {@link EventExecutorGroup} which drives the shards and executes the {@link TimerTask}s
+     * @throws NullPointerException if {@code group} is {@code null}
+     */
+    public ShardedWheelTimer(EventExecutorGroup group) {
+        this(group, 10, TimeUnit.MILLISECONDS, 64, -1);
+    }
+
+    /**
+     * Creates a new timer which ticks on the {@link EventExecutor}s of the given {@link EventExecutorGroup}, with
+     * one shard per {@link EventExecutor}. The caller is responsible to shutdown the {@link EventExecutorGroup}
+     * once it is not needed anymore.
+     *
+     * @param group              the {@link EventExecutorGroup} which drives the shards and executes the
+     *                           {@link TimerTask}s
+     * @param tickDuration       the duration between tick
+     * @param unit               the time unit of the {@code tickDuration}
+     * @param ticksPerWheel      the size of each wheel
+     * @param maxPendingTimeouts The maximum number of pending timeouts after which call to
+     *                           {@code newTimeout} will result in {@link RejectedExecutionException} being thrown.
+     *                           No maximum pending timeouts limit is assumed if this value is 0 or negative.
+     * @throws NullPointerException     if either of {@code group} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is &lt;= 0
+     */
+    public ShardedWheelTimer(EventExecutorGroup group, long tickDuration, TimeUnit unit,
+                             int ticksPerWheel, long maxPendingTimeouts) {
+        this(null, executors(group), 0, tickDuration, unit, ticksPerWheel, maxPendingTimeouts);
+    }
+
+    private ShardedWheelTimer(ThreadFactory threadFactory, List<EventExecutor> executors, int shards,
+                              long tickDuration, TimeUnit unit, int ticksPerWheel, long maxPendingTimeouts) {
+        checkNotNull(unit, "unit");
+        checkPositive(tickDuration, "tickDuration");
+        checkPositive(ticksPerWheel, "ticksPerWheel");
+        //ticksPerWheel may not be greater than 2^16
+        checkInRange(ticksPerWheel, 1, 65536, "ticksPerWheel");
+
+        int wheelSize = Math.max(2, MathUtil.findNextPositivePowerOfTwo(ticksPerWheel));
+        wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        wheelMask = wheelSize - 1;
+        levels = (MIN_TICK_BITS + wheelBits - 1) / wheelBits;
+        maxTicks = (1L << wheelBits * levels) - 1;
+
+        long duration = unit.toNanos(tickDuration);
+        if (duration < MILLISECOND_NANOS) {
+            logger.warn("Configured tickDuration {} smaller than {}, using 1ms.",
+                        tickDuration, MILLISECOND_NANOS);
+            this.tickDuration = MILLISECOND_NANOS;
+        } else {
+            this.tickDuration = duration;
+        }
+
+        this.maxPendingTimeouts = maxPendingTimeouts;
+
+        if (executors == null) {
+            this.shards = new Shard[shards];
+            for (int i = 0; i < shards; i++) {
+                this.shards[i] = new Shard(null, threadFactory);
+            }
+        } else {
+            this.shards = new Shard[executors.size()];
+            for (int i = 0; i < this.shards.length; i++) {
+                this.shards[i] = new Shard(executors.get(i), null);
+            }
+        }
+    }
+
+    private static List<EventExecutor> executors(EventExecutorGroup group) {
+        checkNotNull(group, "group");
+        List<EventExecutor> executors = new ArrayList<EventExecutor>();
+        for (EventExecutor executor : group) {
+            executors.add(executor);
+        }
+        if (executors.isEmpty()) {
+            throw new IllegalArgumentException("group contains no EventExecutor");
+        }
+        return executors;
+    }
+
+    /**
+     * Starts the shards explicitly.  The shards will start automatically on demand even if you did not call this
+     * method.
+     *
+     * @throws IllegalStateException if this timer has been {@linkplain #stop() stopped} already
+     */
+    public void start() {
+        switch (STATE_UPDATER.get(this)) {
+            case ST_INIT:
+                if (STATE_UPDATER.compareAndSet(this, ST_INIT, ST_STARTED)) {
+                    long now = System.nanoTime();
+                    // We use 0 as an indicator for the uninitialized value here, so make sure it's not 0.
+                    startTime = now == 0 ? 1 : now;
+                    startTimeInitialized.countDown();
+                    for (Shard shard : shards) {
+                        shard.start();
+                    }
+                }
+                break;
+            case ST_STARTED:
+                break;
+            case ST_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid state");
+        }
+
+        // Wait until the startTime is initialized by the thread which started the shards.
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // Ignore - it will be ready very soon.
+            }
+        }
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        Thread currentThread = Thread.currentThread();
+        for (Shard shard : shards) {
+            if (shard.tickingThread == currentThread) {
+                throw new IllegalStateException(
+                        ShardedWheelTimer.class.getSimpleName() +
+                                ".stop() cannot be called from " +
+                                TimerTask.class.getSimpleName());
+            }
+        }
+
+        if (!STATE_UPDATER.compareAndSet(this, ST_STARTED, ST_SHUTDOWN)) {
+            // state can be 0 or 2 at this moment - let it always be 2.
+            STATE_UPDATER.set(this, ST_SHUTDOWN);
+            return Collections.emptySet();
+        }
+
+        boolean interrupted = false;
+        Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+        for (Shard shard : shards) {
+            interrupted |= shard.stop();
+            shard.clearTimeouts(unprocessedTimeouts);
+        }
+        if (interrupted) {
+            currentThread.interrupt();
+        }
+        return Collections.unmodifiableSet(unprocessedTimeouts);
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        checkNotNull(task, "task");
+        checkNotNull(unit, "unit");
+
+        start();
+
+        pendingTimeouts.increment();
+        if (maxPendingTimeouts > 0) {
+            long pendingTimeoutsCount = pendingTimeouts.value();
+            if (pendingTimeoutsCount > maxPendingTimeouts) {
+                pendingTimeouts.decrement();
+                throw new RejectedExecutionException("Number of pending timeouts ("
+                        + pendingTimeoutsCount + ") is greater than or equal to maximum allowed pending "
+                        + "timeouts (" + maxPendingTimeouts + ")");
+            }
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+
+        // Guard against overflow.
+        if (delay > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        Shard shard = shard();
+        ShardedWheelTimeout timeout = new ShardedWheelTimeout(shard, task, deadline);
+        shard.timeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of pending timeouts of this {@link Timer}.
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.value();
+    }
+
+    /**
+     * Returns the number of shards of this {@link Timer}.
+     */
+    public int shards() {
+        return shards.length;
+    }
+
+    private Shard shard() {
+        Shard[] shards = this.shards;
+        if (shards[0].executor != null) {
+            for (Shard shard : shards) {
+                if (shard.executor.inEventLoop()) {
+                    return shard;
+                }
+            }
+        }
+        // Keep a thread on the same shard, so only threads which map to the same shard share a queue.
+        return shards[(int) (Thread.currentThread().getId() % shards.length)];
+    }
+
+    private final class Shard implements Runnable {
+        final Queue<ShardedWheelTimeout> timeouts = PlatformDependent.newMpscQueue();
+        // The number of timeouts which were cancelled by other threads since the last compaction.
+        final AtomicInteger cancelledByOtherThreads = new AtomicInteger();
+        final EventExecutor executor;
+        // wheels[0] is the innermost wheel, whose buckets span a single tick.
+        private final ShardedWheelBucket[][] wheels;
+        private final Thread workerThread;
+        volatile Thread tickingThread;
+        private ScheduledFuture<?> tickFuture;
+        // The next tick to process, only accessed while holding the lock of the shard.
+        private long tick;
+        // The number of timeouts in the buckets, only accessed while holding the lock of the shard.
+        private int size;
+
+        Shard(EventExecutor executor, ThreadFactory threadFactory) {
+            this.executor = executor;
+            workerThread = executor == null ? threadFactory.newThread(new Worker()) : null;
+            wheels = new ShardedWheelBucket[levels][wheelMask + 1];
+            for (ShardedWheelBucket[] wheel : wheels) {
+                for (int i = 0; i < wheel.length; i++) {
+                    wheel[i] = new ShardedWheelBucket();
+                }
+            }
+        }
+
+        void start() {
+            if (executor == null) {
+                workerThread.start();
+            } else {
+                tickFuture = executor.scheduleAtFixedRate(this, 0, tickDuration, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Stops ticking, and returns {@code true} if the calling thread was interrupted while waiting for the
+         * worker thread to terminate.
+         */
+        boolean stop() {
+            if (executor != null) {
+                tickFuture.cancel(false);
+                return false;
+            }
+            boolean interrupted = false;
+            while (workerThread.isAlive()) {
+                workerThread.interrupt();
+                try {
+                    workerThread.join(100);
+                } catch (InterruptedException ignored) {
+                    interrupted = true;
+                }
+            }
+            return interrupted;
+        }
+
+        @Override
+        public void run() {
+            advance(System.nanoTime() - startTime);
+        }
+
+        /**
+         * Processes all ticks which are due at the given time, relative to the start time of the timer.
+         */
+        synchronized void advance(long currentTime) {
+            if (STATE_UPDATER.get(ShardedWheelTimer.this) != ST_STARTED) {
+                return;
+            }
+            tickingThread = Thread.currentThread();
+            try {
+                transferTimeoutsToBuckets();
+                if (cancelledByOtherThreads.get() >= Math.max(MIN_COMPACT_THRESHOLD, size >>> 1)) {
+                    compact();
+                }
+                while (tick * tickDuration <= currentTime) {
+                    processTick();
+                    tick++;
+                }
+            } finally {
+                tickingThread = null;
+            }
+        }
+
+        long nextTickTime() {
+            return tick * tickDuration;
+        }
+
+        /**
+         * Returns {@code true} if the calling thread is the one which ticks this shard.
+         */
+        boolean inShardThread() {
+            return executor != null ? executor.inEventLoop() : Thread.currentThread() == workerThread;
+        }
+
+        /**
+         * Unlinks the given cancelled timeout from its bucket, must only be called by the thread of this shard.
+         */
+        synchronized void remove(ShardedWheelTimeout timeout) {
+            // The bucket is null if the timeout was not transferred yet, it is dropped then.
+            ShardedWheelBucket bucket = timeout.bucket;
+            if (bucket != null) {
+                bucket.remove(timeout);
+                size--;
+            }
+        }
+
+        /**
+         * Unlinks all the cancelled timeouts from the buckets. As this is only done once the number of timeouts
+         * cancelled by other threads is at least half of the timeouts in the buckets, the cost per cancelled timeout
+         * is constant.
+         */
+        private void compact() {
+            cancelledByOtherThreads.set(0);
+            for (ShardedWheelBucket[] wheel : wheels) {
+                for (ShardedWheelBucket bucket : wheel) {
+                    size -= bucket.removeCancelled();
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            // transfer only max. 100000 timeouts per tick to prevent a thread to stale the shard when it just
+            // adds new timeouts in a loop.
+            for (int i = 0; i < 100000; i++) {
+                ShardedWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                if (timeout.state() == ShardedWheelTimeout.ST_CANCELLED) {
+                    // Was cancelled in the meantime.
+                    continue;
+                }
+                addTimeout(timeout);
+            }
+        }
+
+        private void addTimeout(ShardedWheelTimeout timeout) {
+            long ticks = timeout.expireTick - tick;
+            long slotTick;
+            int level = 0;
+            if (ticks < 0) {
+                // Ensure we don't schedule for past.
+                slotTick = tick;
+            } else {
+                if (ticks > maxTicks) {
+                    // Too far away for the outermost wheel, it will be cascaded again once it reaches this slot.
+                    ticks = maxTicks;
+                    slotTick = tick + maxTicks;
+                } else {
+                    slotTick = timeout.expireTick;
+                }
+                while (level < levels - 1 && ticks >>> wheelBits * (level + 1) != 0) {
+                    level++;
+                }
+            }
+            wheels[level][(int) (slotTick >>> wheelBits * level) & wheelMask].addTimeout(timeout);
+            size++;
+        }
+
+        private void processTick() {
+            int idx = (int) tick & wheelMask;
+            if (idx == 0) {
+                // The innermost wheel completed a revolution, cascade the next bucket of the wheels above.
+                for (int level = 1; level < levels; level++) {
+                    int cascadeIdx = (int) (tick >>> wheelBits * level) & wheelMask;
+                    ShardedWheelBucket bucket = wheels[level][cascadeIdx];
+                    ShardedWheelTimeout timeout;
+                    while ((timeout = bucket.pollTimeout()) != null) {
+                        size--;
+                        if (!timeout.isCancelled()) {
+                            addTimeout(timeout);
+                        }
+                    }
+                    if (cascadeIdx != 0) {
+                        break;
+                    }
+                }
+            }
+
+            // Poll the timeouts one by one, as a TimerTask may cancel and so unlink one of the following timeouts.
+            ShardedWheelBucket bucket = wheels[0][idx];
+            ShardedWheelTimeout timeout;
+            while ((timeout = bucket.pollTimeout()) != null) {
+                size--;
+                timeout.expire();
+            }
+        }
+
+        synchronized void clearTimeouts(Set<Timeout> set) {
+            for (ShardedWheelBucket[] wheel : wheels) {
+                for (ShardedWheelBucket bucket : wheel) {
+                    ShardedWheelTimeout timeout;
+                    while ((timeout = bucket.pollTimeout()) != null) {
+                        if (timeout.state() == ShardedWheelTimeout.ST_INIT) {
+                            set.add(timeout);
+                        }
+                    }
+                }
+            }
+            size = 0;
+            for (;;) {
+                ShardedWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state() == ShardedWheelTimeout.ST_INIT) {
+                    set.add(timeout);
+                }
+            }
+            cancelledByOtherThreads.set(0);
+        }
+
+        private final class Worker implements Runnable {
+            @Override
+            public void run() {
+                do {
+                    final long currentTime = waitForNextTick();
+                    if (currentTime >= 0) {
+                        advance(currentTime);
+                    }
+                } while (STATE_UPDATER.get(ShardedWheelTimer.this) == ST_STARTED);
+            }
+
+            /**
+             * Wait until the next tick is due.
+             * @return -1 if received a shutdown request, the current time otherwise
+             */
+            private long waitForNextTick() {
+                final long deadline = nextTickTime();
+
+                for (;;) {
+                    final long currentTime = System.nanoTime() - startTime;
+                    long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+                    if (sleepTimeMs <= 0) {
+                        return Math.max(currentTime, 0);
+                    }
+
+                    // Check if we run on windows, as if thats the case we will need
+                    // to round the sleepTime as workaround for a bug that only affect
+                    // the JVM if it runs on windows.
+                    //
+                    // See https://github.com/netty/netty/issues/356
+                    if (PlatformDependent.isWindows()) {
+                        sleepTimeMs = sleepTimeMs / 10 * 10;
+                        if (sleepTimeMs == 0) {
+                            sleepTimeMs = 1;
+                        }
+                    }
+
+                    try {
+                        Thread.sleep(sleepTimeMs);
+                    } catch (InterruptedException ignored) {
+                        if (STATE_UPDATER.get(ShardedWheelTimer.this) == ST_SHUTDOWN) {
+                            return -1;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private final class ShardedWheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final Shard shard;
+        private final TimerTask task;
+        private final long deadline;
+        // The first tick at which the deadline has been reached.
+        final long expireTick;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+        volatile int state = ST_INIT;
+
+        // These will be used to chain timeouts in ShardedWheelBucket. As only the shard that owns the bucket will act
+        // on it there is no need for synchronization / volatile.
+        ShardedWheelTimeout next;
+        ShardedWheelTimeout prev;
+        // The bucket to which the timeout was added, null if it is not in any bucket.
+        ShardedWheelBucket bucket;
+
+        ShardedWheelTimeout(Shard shard, TimerTask task, long deadline) {
+            this.shard = shard;
+            this.task = task;
+            this.deadline = deadline;
+            expireTick = deadline <= 0 ? 0 : (deadline - 1) / tickDuration + 1;
+        }
+
+        @Override
+        public Timer timer() {
+            return ShardedWheelTimer.this;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!TIMEOUT_STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            pendingTimeouts.decrement();
+            if (shard.inShardThread()) {
+                shard.remove(this);
+            } else {
+                // Only the shard may touch its buckets, it skips the timeout or drops it once it compacts them.
+                shard.cancelledByOtherThreads.incrementAndGet();
+            }
+            return true;
+        }
+
+        void unlink() {
+            next = null;
+            prev = null;
+            bucket = null;
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state() == ST_EXPIRED;
+        }
+
+        void expire() {
+            if (!TIMEOUT_STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            pendingTimeouts.decrement();
+
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            final long currentTime = System.nanoTime();
+            long remaining = deadline - currentTime + startTime;
+
+            StringBuilder buf = new StringBuilder(192)
+               .append(simpleClassName(this))
+               .append('(')
+               .append("deadline: ");
+            if (remaining > 0) {
+                buf.append(remaining)
+                   .append(" ns later");
+            } else if (remaining < 0) {
+                buf.append(-remaining)
+                   .append(" ns ago");
+            } else {
+                buf.append("now");
+            }
+
+            if (isCancelled()) {
+                buf.append(", cancelled");
+            }
+
+            return buf.append(", task: ")
+                      .append(task())
+                      .append(')')
+                      .toString();
+        }
+    }
+
+    /**
+     * Bucket that stores ShardedWheelTimeouts in a doubly linked list, so cancelled timeouts can be unlinked
+     * directly. The timeouts act as the nodes themselves.
+     */
+    private static final class ShardedWheelBucket {
+        private ShardedWheelTimeout head;
+        private ShardedWheelTimeout tail;
+
+        void addTimeout(ShardedWheelTimeout timeout) {
+            assert timeout.bucket == null;
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(ShardedWheelTimeout timeout) {
+            ShardedWheelTimeout next = timeout.next;
+            // remove timeout that was either processed or cancelled by updating the linked-list
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                // if timeout is also the tail we need to adjust the entry too
+                if (timeout == tail) {
+                    tail = null;
+                    head = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                // if the timeout is the tail modify the tail to be the prev node.
+                tail = timeout.prev;
+            }
+            timeout.unlink();
+        }
+
+        /**
+         * Removes and returns the first timeout of this bucket, or {@code null} if it is empty.
+         */
+        ShardedWheelTimeout pollTimeout() {
+            ShardedWheelTimeout head = this.head;
+            if (head != null) {
+                remove(head);
+            }
+            return head;
+        }
+
+        /**
+         * Removes all the cancelled timeouts of this bucket and returns how many were removed.
+         */
+        int removeCancelled() {
+            int removed = 0;
+            ShardedWheelTimeout timeout = head;
+            while (timeout != null) {
+                ShardedWheelTimeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                    removed++;
+                }
+                timeout = next;
+            }
+            return removed;
+        }
+    }
+}
@@ -18,6 +18,9 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.DefaultPriorityQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PriorityQueue;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import static io.netty.util.concurrent.ScheduledFutureTask.deadlineNanos;
 
@@ -30,6 +33,16 @@ import java.util.concurrent.TimeUnit;
  * Abstract base class for {@link EventExecutor}s that want to support scheduling.
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(AbstractScheduledEventExecutor.class);
+
+    private static final boolean DEFAULT_SCHEDULED_TASK_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.scheduledTaskWheel", false);
+
+    static {
+        logger.debug("-Dio.netty.eventexecutor.scheduledTaskWheel: {}", DEFAULT_SCHEDULED_TASK_WHEEL);
+    }
+
     private static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
             new Comparator<ScheduledFutureTask<?>>() {
                 @Override
@@ -47,6 +60,8 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     long nextTaskId;
 
+    private volatile boolean scheduledTaskWheel = DEFAULT_SCHEDULED_TASK_WHEEL;
+
     protected AbstractScheduledEventExecutor() {
     }
 
@@ -77,15 +92,43 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     }
 
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue() {
+        PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        boolean scheduledTaskWheel = this.scheduledTaskWheel;
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
-                    SCHEDULED_FUTURE_TASK_COMPARATOR,
-                    // Use same initial capacity as java.util.PriorityQueue
-                    11);
+            scheduledTaskQueue = newScheduledTaskQueue(scheduledTaskWheel);
+            this.scheduledTaskQueue = scheduledTaskQueue;
+        } else if (scheduledTaskWheel != (scheduledTaskQueue instanceof ScheduledTaskWheel)) {
+            // The store was switched after tasks were scheduled, so move them over.
+            assert inEventLoop();
+            PriorityQueue<ScheduledFutureTask<?>> newScheduledTaskQueue = newScheduledTaskQueue(scheduledTaskWheel);
+            for (ScheduledFutureTask<?> task : scheduledTaskQueue.toArray(new ScheduledFutureTask<?>[0])) {
+                scheduledTaskQueue.removeTyped(task);
+                newScheduledTaskQueue.add(task);
+            }
+            scheduledTaskQueue = newScheduledTaskQueue;
+            this.scheduledTaskQueue = scheduledTaskQueue;
         }
         return scheduledTaskQueue;
     }
 
+    private static PriorityQueue<ScheduledFutureTask<?>> newScheduledTaskQueue(boolean scheduledTaskWheel) {
+        if (scheduledTaskWheel) {
+            return new ScheduledTaskWheel(SCHEDULED_FUTURE_TASK_COMPARATOR);
+        }
+        return new DefaultPriorityQueue<ScheduledFutureTask<?>>(
+                SCHEDULED_FUTURE_TASK_COMPARATOR,
+                // Use same initial capacity as java.util.PriorityQueue
+                11);
+    }
+
+    /**
+     * Selects whether scheduled tasks are stored in a {@link ScheduledTaskWheel} instead of a binary heap. Tasks that
+     * are already scheduled are moved over the next time a task is scheduled from the event loop.
+     */
+    final void setScheduledTaskWheel(boolean scheduledTaskWheel) {
+        this.scheduledTaskWheel = scheduledTaskWheel;
+    }
+
     private static boolean isNullOrEmpty(Queue<ScheduledFutureTask<?>> queue) {
         return queue == null || queue.isEmpty();
     }
@@ -126,7 +169,7 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     protected final Runnable pollScheduledTask(long nanoTime) {
         assert inEventLoop();
 
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
+        ScheduledFutureTask<?> scheduledTask = peekScheduledTask(nanoTime);
         if (scheduledTask == null || scheduledTask.deadlineNanos() - nanoTime > 0) {
             return null;
         }
@@ -139,8 +182,8 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      * Return the nanoseconds until the next scheduled task is ready to be run or {@code -1} if no task is scheduled.
      */
     protected final long nextScheduledTaskNano() {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        return scheduledTask != null ? scheduledTask.delayNanos() : -1;
+        long deadlineNanos = nextScheduledTaskDeadline();
+        return deadlineNanos != -1 ? deadlineToDelayNanos(deadlineNanos) : -1;
     }
 
     /**
@@ -148,7 +191,20 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      * if no task is scheduled.
      */
     protected final long nextScheduledTaskDeadlineNanos() {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
+        return nextScheduledTaskDeadline();
+    }
+
+    /**
+     * Returns the deadline of the next scheduled task or {@code -1} if no task is scheduled. If the tasks are stored
+     * in a {@link ScheduledTaskWheel} the deadline may be earlier than the actual one, as the wheel only knows the
+     * bucket of tasks which are not due yet. Waking up too early is harmless, as the next poll moves the wheel.
+     */
+    final long nextScheduledTaskDeadline() {
+        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        if (scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            return ((ScheduledTaskWheel) scheduledTaskQueue).nextDeadlineNanos();
+        }
+        ScheduledFutureTask<?> scheduledTask = scheduledTaskQueue != null ? scheduledTaskQueue.peek() : null;
         return scheduledTask != null ? scheduledTask.deadlineNanos() : -1;
     }
 
@@ -157,12 +213,25 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return scheduledTaskQueue != null ? scheduledTaskQueue.peek() : null;
     }
 
+    /**
+     * Returns the scheduled task with the earliest deadline if it is due at the given {@code nanoTime}. Otherwise a
+     * task which is not due yet or {@code null} is returned.
+     */
+    private ScheduledFutureTask<?> peekScheduledTask(long nanoTime) {
+        Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
+        if (scheduledTaskQueue instanceof ScheduledTaskWheel) {
+            return ((ScheduledTaskWheel) scheduledTaskQueue).peek(nanoTime);
+        }
+        return scheduledTaskQueue != null ? scheduledTaskQueue.peek() : null;
+    }
+
     /**
      * Returns {@code true} if a scheduled task is ready for processing.
      */
     protected final boolean hasScheduledTasks() {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        return scheduledTask != null && scheduledTask.deadlineNanos() <= nanoTime();
+        long nanoTime = nanoTime();
+        ScheduledFutureTask<?> scheduledTask = peekScheduledTask(nanoTime);
+        return scheduledTask != null && scheduledTask.deadlineNanos() <= nanoTime;
     }
 
     @Override
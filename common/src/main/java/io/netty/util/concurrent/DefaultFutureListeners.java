@@ -24,18 +24,23 @@ final class DefaultFutureListeners {
     private int progressiveSize; // the number of progressive listeners
 
     @SuppressWarnings("unchecked")
-    DefaultFutureListeners(
-            GenericFutureListener<? extends Future<?>> first, GenericFutureListener<? extends Future<?>> second) {
-        listeners = new GenericFutureListener[2];
+    DefaultFutureListeners(GenericFutureListener<? extends Future<?>> first,
+                           GenericFutureListener<? extends Future<?>> second,
+                           GenericFutureListener<? extends Future<?>> third) {
+        listeners = new GenericFutureListener[4];
         listeners[0] = first;
         listeners[1] = second;
-        size = 2;
+        listeners[2] = third;
+        size = 3;
         if (first instanceof GenericProgressiveFutureListener) {
             progressiveSize ++;
         }
         if (second instanceof GenericProgressiveFutureListener) {
             progressiveSize ++;
         }
+        if (third instanceof GenericProgressiveFutureListener) {
+            progressiveSize ++;
+        }
     }
 
     public void add(GenericFutureListener<? extends Future<?>> l) {
@@ -56,6 +56,13 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
      * Threading - synchronized(this). We must support adding listeners when there is no EventExecutor.
      */
     private Object listeners;
+    /**
+     * The second listener if {@link #listeners} is a single {@link GenericFutureListener}, so the common case of up
+     * to two listeners does not need to allocate a {@link DefaultFutureListeners}. Always {@code null} otherwise.
+     *
+     * Threading - synchronized(this).
+     */
+    private GenericFutureListener<?> listener2;
     /**
      * Threading - synchronized(this). We are required to hold the monitor to use Java's underlying wait()/notifyAll().
      */
@@ -536,6 +543,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
     private void notifyListenersNow() {
         Object listeners;
+        GenericFutureListener<?> listener2;
         synchronized (this) {
             // Only proceed if there are listeners to notify and we are not already notifying listeners.
             if (notifyingListeners || this.listeners == null) {
@@ -543,13 +551,18 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             }
             notifyingListeners = true;
             listeners = this.listeners;
+            listener2 = this.listener2;
             this.listeners = null;
+            this.listener2 = null;
         }
         for (;;) {
             if (listeners instanceof DefaultFutureListeners) {
                 notifyListeners0((DefaultFutureListeners) listeners);
             } else {
                 notifyListener0(this, (GenericFutureListener<?>) listeners);
+                if (listener2 != null) {
+                    notifyListener0(this, listener2);
+                }
             }
             synchronized (this) {
                 if (this.listeners == null) {
@@ -559,7 +572,9 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
                     return;
                 }
                 listeners = this.listeners;
+                listener2 = this.listener2;
                 this.listeners = null;
+                this.listener2 = null;
             }
         }
     }
@@ -588,8 +603,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             listeners = listener;
         } else if (listeners instanceof DefaultFutureListeners) {
             ((DefaultFutureListeners) listeners).add(listener);
+        } else if (listener2 == null) {
+            listener2 = listener;
         } else {
-            listeners = new DefaultFutureListeners((GenericFutureListener<?>) listeners, listener);
+            listeners = new DefaultFutureListeners((GenericFutureListener<?>) listeners, listener2, listener);
+            listener2 = null;
         }
     }
 
@@ -597,7 +615,10 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         if (listeners instanceof DefaultFutureListeners) {
             ((DefaultFutureListeners) listeners).remove(listener);
         } else if (listeners == listener) {
-            listeners = null;
+            listeners = listener2;
+            listener2 = null;
+        } else if (listener2 == listener) {
+            listener2 = null;
         }
     }
 
@@ -791,10 +812,20 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             }
 
             return copy;
-        } else if (listeners instanceof GenericProgressiveFutureListener) {
+        }
+
+        GenericFutureListener<?> listener2 = this.listener2;
+        if (listeners instanceof GenericProgressiveFutureListener) {
+            if (listener2 instanceof GenericProgressiveFutureListener) {
+                return new GenericProgressiveFutureListener[] {
+                        (GenericProgressiveFutureListener<?>) listeners, (GenericProgressiveFutureListener<?>) listener2
+                };
+            }
             return listeners;
+        } else if (listener2 instanceof GenericProgressiveFutureListener) {
+            return listener2;
         } else {
-            // Only one listener was added and it's not a progressive listener.
+            // Only one or two listeners were added and none of them is a progressive listener.
             return null;
         }
     }
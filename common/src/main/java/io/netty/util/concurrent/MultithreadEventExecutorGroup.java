@@ -15,6 +15,9 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 import static io.netty.util.internal.ObjectUtil.checkPositive;
 
 import java.util.Collections;
@@ -150,6 +153,38 @@ public abstract class MultithreadEventExecutorGroup extends AbstractEventExecuto
         return children.length;
     }
 
+    /**
+     * Selects how the child {@link EventExecutor}s store their scheduled tasks. By default a binary heap is used,
+     * which makes scheduling and cancelling a task {@code O(log n)}. If {@code enabled} is {@code true}, a
+     * hierarchical timing wheel is used instead, which makes both {@code O(1)} and is preferable if many tasks are
+     * scheduled and cancelled, like a timeout per request. The default can be changed with the
+     * {@code io.netty.eventexecutor.scheduledTaskWheel} system property.
+     * <p>
+     * Tasks which are already scheduled are moved over the next time a child schedules a task from its own thread.
+     */
+    public void setScheduledTaskWheel(boolean enabled) {
+        for (EventExecutor e: children) {
+            if (e instanceof AbstractScheduledEventExecutor) {
+                ((AbstractScheduledEventExecutor) e).setScheduledTaskWheel(enabled);
+            }
+        }
+    }
+
+    /**
+     * Sets how the child {@link EventExecutor}s wait for new tasks once they are idle.
+     *
+     * @see SingleThreadEventExecutor#setTaskWaitStrategy(TaskWaitStrategy)
+     */
+    @UnstableApi
+    public void setTaskWaitStrategy(TaskWaitStrategy taskWaitStrategy) {
+        checkNotNull(taskWaitStrategy, "taskWaitStrategy");
+        for (EventExecutor e: children) {
+            if (e instanceof SingleThreadEventExecutor) {
+                ((SingleThreadEventExecutor) e).setTaskWaitStrategy(taskWaitStrategy);
+            }
+        }
+    }
+
     /**
      * Create a new EventExecutor which will later then accessible via the {@link #next()}  method. This method will be
      * called for each thread that will serve this {@link MultithreadEventExecutorGroup}.
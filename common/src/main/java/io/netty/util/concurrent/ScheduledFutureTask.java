@@ -50,6 +50,13 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
 
     private int queueIndex = INDEX_NOT_IN_QUEUE;
 
+    static final int SLOT_NOT_IN_WHEEL = -1;
+
+    // Used by ScheduledTaskWheel to chain the tasks of a bucket via a double-linked-list.
+    int wheelSlot = SLOT_NOT_IN_WHEEL;
+    ScheduledFutureTask<?> wheelPrev;
+    ScheduledFutureTask<?> wheelNext;
+
     ScheduledFutureTask(AbstractScheduledEventExecutor executor,
             Runnable runnable, long nanoTime) {
 
@@ -123,8 +130,12 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     }
 
     public long delayNanos(long currentTimeNanos) {
+        return deadlineToDelayNanos(currentTimeNanos, deadlineNanos);
+    }
+
+    static long deadlineToDelayNanos(long currentTimeNanos, long deadlineNanos) {
         return deadlineNanos == 0L ? 0L
-                : Math.max(0L, deadlineNanos() - (currentTimeNanos - START_TIME));
+                : Math.max(0L, deadlineNanos - (currentTimeNanos - START_TIME));
     }
 
     @Override
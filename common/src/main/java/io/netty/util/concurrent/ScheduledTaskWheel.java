@@ -0,0 +1,310 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.DefaultPriorityQueue;
+import io.netty.util.internal.PriorityQueue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Stores the {@link ScheduledFutureTask}s of an {@link AbstractScheduledEventExecutor} in a hierarchical timing
+ * wheel, so that adding and cancelling a task is {@code O(1)} no matter how many tasks are scheduled.
+ * <p>
+ * The timeline is divided into ticks of roughly a millisecond. Every wheel has 64 buckets: the buckets of the
+ * innermost wheel span one tick, and the buckets of every following wheel span a whole revolution of the previous one.
+ * A task is placed in the wheel which corresponds to the most significant digit in which its tick differs from the
+ * current tick, and is cascaded down once the current tick reaches the start of its bucket.
+ * <p>
+ * Tasks whose tick has been reached are moved to a small {@link DefaultPriorityQueue}, which orders them exactly by
+ * their deadline and id. As all of them are due before any of the tasks that remain in the wheels, the head of this
+ * queue is the head of the whole store.
+ * <p>
+ * This class is not thread-safe and must only be used from the {@link EventExecutor} which owns it.
+ */
+final class ScheduledTaskWheel extends AbstractQueue<ScheduledFutureTask<?>>
+        implements PriorityQueue<ScheduledFutureTask<?>> {
+
+    // A tick is 2^20 nanoseconds, which is roughly a millisecond.
+    private static final int TICK_SHIFT = 20;
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // Enough wheels to cover every non-negative deadline.
+    private static final int LEVELS = (Long.SIZE - TICK_SHIFT + WHEEL_BITS - 1) / WHEEL_BITS;
+
+    private final PriorityQueue<ScheduledFutureTask<?>> dueTasks;
+    private final ScheduledFutureTask<?>[] buckets = new ScheduledFutureTask<?>[LEVELS * WHEEL_SIZE];
+    // One bit per bucket, which is set if the bucket is not empty.
+    private final long[] occupied = new long[LEVELS];
+    // All tasks in dueTasks have a tick <= currentTick, all tasks in the wheels have a tick > currentTick.
+    private long currentTick;
+    private int wheelSize;
+
+    ScheduledTaskWheel(Comparator<ScheduledFutureTask<?>> comparator) {
+        dueTasks = new DefaultPriorityQueue<ScheduledFutureTask<?>>(comparator, 11);
+    }
+
+    private static long tick(ScheduledFutureTask<?> task) {
+        return Math.max(0, task.deadlineNanos()) >>> TICK_SHIFT;
+    }
+
+    @Override
+    public int size() {
+        return dueTasks.size() + wheelSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return wheelSize == 0 && dueTasks.isEmpty();
+    }
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        if (task.wheelSlot != ScheduledFutureTask.SLOT_NOT_IN_WHEEL) {
+            throw new IllegalArgumentException("task is already in the wheel: " + task);
+        }
+        long tick = tick(task);
+        if (tick <= currentTick) {
+            return dueTasks.offer(task);
+        }
+        addToWheel(task, tick);
+        return true;
+    }
+
+    private void addToWheel(ScheduledFutureTask<?> task, long tick) {
+        assert tick > currentTick;
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(tick ^ currentTick)) / WHEEL_BITS;
+        int slot = (int) (tick >>> level * WHEEL_BITS) & WHEEL_MASK;
+        int index = level * WHEEL_SIZE + slot;
+        ScheduledFutureTask<?> head = buckets[index];
+        task.wheelSlot = index;
+        task.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = task;
+        }
+        buckets[index] = task;
+        occupied[level] |= 1L << slot;
+        wheelSize++;
+    }
+
+    private void removeFromWheel(ScheduledFutureTask<?> task) {
+        int index = task.wheelSlot;
+        ScheduledFutureTask<?> prev = task.wheelPrev;
+        ScheduledFutureTask<?> next = task.wheelNext;
+        if (prev == null) {
+            buckets[index] = next;
+            if (next == null) {
+                occupied[index / WHEEL_SIZE] &= ~(1L << (index & WHEEL_MASK));
+            }
+        } else {
+            prev.wheelNext = next;
+        }
+        if (next != null) {
+            next.wheelPrev = prev;
+        }
+        task.wheelSlot = ScheduledFutureTask.SLOT_NOT_IN_WHEEL;
+        task.wheelPrev = null;
+        task.wheelNext = null;
+        wheelSize--;
+    }
+
+    /**
+     * Returns the index of the bucket which contains the earliest tasks of the wheels, or {@code -1} if the wheels are
+     * empty. Every task in a wheel is due after all tasks in the wheels below, so this is the first bucket of the
+     * lowest wheel that is not empty.
+     */
+    private int firstBucket() {
+        if (wheelSize == 0) {
+            return -1;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            long bits = occupied[level];
+            if (bits != 0) {
+                return level * WHEEL_SIZE + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Returns the first tick which is covered by the given bucket.
+     */
+    private long bucketStart(int index) {
+        int shift = index / WHEEL_SIZE * WHEEL_BITS;
+        long slot = index & WHEEL_MASK;
+        return currentTick >>> shift + WHEEL_BITS << shift + WHEEL_BITS | slot << shift;
+    }
+
+    /**
+     * Moves the current tick forward to the given time, and moves all tasks whose tick has been reached to the queue
+     * of due tasks.
+     */
+    private void advance(long nanoTime) {
+        long targetTick = Math.max(0, nanoTime) >>> TICK_SHIFT;
+        while (currentTick < targetTick) {
+            int index = firstBucket();
+            if (index == -1) {
+                currentTick = targetTick;
+                break;
+            }
+            long start = bucketStart(index);
+            if (start > targetTick) {
+                // No bucket starts before the target, so all tasks are still placed correctly relative to it.
+                currentTick = targetTick;
+                break;
+            }
+            currentTick = start;
+            ScheduledFutureTask<?> task = buckets[index];
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                removeFromWheel(task);
+                long tick = tick(task);
+                if (tick <= currentTick) {
+                    dueTasks.offer(task);
+                } else {
+                    addToWheel(task, tick);
+                }
+                task = next;
+            }
+        }
+    }
+
+    /**
+     * Returns the task with the earliest deadline if it is due at the given time, and otherwise any task which is not
+     * due yet or {@code null}.
+     */
+    ScheduledFutureTask<?> peek(long nanoTime) {
+        advance(nanoTime);
+        return dueTasks.peek();
+    }
+
+    /**
+     * Returns a deadline which is not later than the deadline of any task in this wheel, or {@code -1} if it is
+     * empty. The deadline is exact if a task is already due, and otherwise the start of the bucket which contains the
+     * earliest task.
+     */
+    long nextDeadlineNanos() {
+        ScheduledFutureTask<?> task = dueTasks.peek();
+        if (task != null) {
+            return task.deadlineNanos();
+        }
+        int index = firstBucket();
+        return index == -1 ? -1 : bucketStart(index) << TICK_SHIFT;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        ScheduledFutureTask<?> task = dueTasks.peek();
+        if (task != null) {
+            return task;
+        }
+        int index = firstBucket();
+        if (index == -1) {
+            return null;
+        }
+        // The tasks of a bucket are not ordered, but this is only used outside of the hot path.
+        ScheduledFutureTask<?> earliest = buckets[index];
+        for (task = earliest.wheelNext; task != null; task = task.wheelNext) {
+            if (task.compareTo(earliest) < 0) {
+                earliest = task;
+            }
+        }
+        return earliest;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        ScheduledFutureTask<?> task = dueTasks.poll();
+        if (task != null || wheelSize == 0) {
+            return task;
+        }
+        task = peek();
+        removeFromWheel(task);
+        return task;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof ScheduledFutureTask && removeTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean removeTyped(ScheduledFutureTask<?> task) {
+        if (task.wheelSlot == ScheduledFutureTask.SLOT_NOT_IN_WHEEL) {
+            return dueTasks.removeTyped(task);
+        }
+        removeFromWheel(task);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof ScheduledFutureTask && containsTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean containsTyped(ScheduledFutureTask<?> task) {
+        if (task.wheelSlot == ScheduledFutureTask.SLOT_NOT_IN_WHEEL) {
+            return dueTasks.containsTyped(task);
+        }
+        for (ScheduledFutureTask<?> t = buckets[task.wheelSlot]; t != null; t = t.wheelNext) {
+            if (t == task) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void priorityChanged(ScheduledFutureTask<?> task) {
+        if (removeTyped(task)) {
+            offer(task);
+        }
+    }
+
+    @Override
+    public void clearIgnoringIndexes() {
+        dueTasks.clearIgnoringIndexes();
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        for (int i = 0; i < occupied.length; i++) {
+            occupied[i] = 0;
+        }
+        wheelSize = 0;
+    }
+
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        if (isEmpty()) {
+            return Collections.<ScheduledFutureTask<?>>emptyList().iterator();
+        }
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>(size());
+        tasks.addAll(dueTasks);
+        for (ScheduledFutureTask<?> head : buckets) {
+            for (ScheduledFutureTask<?> task = head; task != null; task = task.wheelNext) {
+                tasks.add(task);
+            }
+        }
+        return Collections.unmodifiableList(tasks).iterator();
+    }
+}
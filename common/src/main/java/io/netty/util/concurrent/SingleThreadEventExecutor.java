@@ -15,6 +15,7 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.NettyRuntime;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -29,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -56,6 +58,33 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
+    private static final TaskWaitStrategy DEFAULT_TASK_WAIT_STRATEGY;
+    private static final int MIN_SPINS = 64;
+    private static final int MAX_SPINS = Math.max(MIN_SPINS,
+            SystemPropertyUtil.getInt("io.netty.eventexecutor.maxSpins", 16384));
+    private static final int YIELDS = 4;
+    // Spinning and yielding can not pay off if there is no other processor which could submit a task meanwhile.
+    private static final boolean SPIN_YIELD_PARK_ENABLED = NettyRuntime.availableProcessors() > 1;
+    // How many times the task queue is polled while spinning between checks for due scheduled tasks and interrupts.
+    private static final int SPIN_CHECK_INTERVAL = 64;
+
+    static {
+        String waitStrategy = SystemPropertyUtil.get("io.netty.eventexecutor.waitStrategy", "block");
+        TaskWaitStrategy strategy;
+        try {
+            strategy = TaskWaitStrategy.valueOf(waitStrategy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown -Dio.netty.eventexecutor.waitStrategy: {}, using {}",
+                    waitStrategy, TaskWaitStrategy.BLOCK);
+            strategy = TaskWaitStrategy.BLOCK;
+        }
+        DEFAULT_TASK_WAIT_STRATEGY = strategy;
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.waitStrategy: {}", DEFAULT_TASK_WAIT_STRATEGY);
+            logger.debug("-Dio.netty.eventexecutor.maxSpins: {}", MAX_SPINS);
+        }
+    }
+
     private static final int ST_NOT_STARTED = 1;
     private static final int ST_STARTED = 2;
     private static final int ST_SHUTTING_DOWN = 3;
@@ -91,6 +120,13 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private long lastExecutionTime;
 
+    private volatile TaskWaitStrategy taskWaitStrategy = DEFAULT_TASK_WAIT_STRATEGY;
+    // The number of times the task queue is polled by SPIN_YIELD_PARK before yielding, only used by the event loop.
+    private int spinBudget = MIN_SPINS;
+    // Only written by the event loop, so there is no need for atomic updates.
+    private volatile long avoidedWakeups;
+    private volatile long blockingWaits;
+
     @SuppressWarnings({ "FieldMayBeFinal", "unused" })
     private volatile int state = ST_NOT_STARTED;
 
@@ -236,10 +272,19 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
 
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
+        TaskWaitStrategy strategy = taskWaitStrategy;
+        if (strategy == TaskWaitStrategy.BUSY_SPIN ||
+                (strategy == TaskWaitStrategy.SPIN_YIELD_PARK && SPIN_YIELD_PARK_ENABLED)) {
+            Runnable task = spinForTask(taskQueue, strategy);
+            if (task != null) {
+                return task == WAKEUP_TASK ? null : task;
+            }
+        }
         for (;;) {
-            ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-            if (scheduledTask == null) {
+            long deadlineNanos = nextScheduledTaskDeadline();
+            if (deadlineNanos == -1) {
                 Runnable task = null;
+                blockingWaits++;
                 try {
                     task = taskQueue.take();
                     if (task == WAKEUP_TASK) {
@@ -250,9 +295,10 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 }
                 return task;
             } else {
-                long delayNanos = scheduledTask.delayNanos();
+                long delayNanos = deadlineToDelayNanos(deadlineNanos);
                 Runnable task = null;
                 if (delayNanos > 0) {
+                    blockingWaits++;
                     try {
                         task = taskQueue.poll(delayNanos, TimeUnit.NANOSECONDS);
                     } catch (InterruptedException e) {
@@ -276,6 +322,63 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     }
 
+    /**
+     * Polls the task queue according to the given {@link TaskWaitStrategy} before {@link #takeTask()} blocks.
+     *
+     * @return the task, {@link #WAKEUP_TASK} if {@link #takeTask()} should return without a task, or {@code null} if
+     *         it should block.
+     */
+    private Runnable spinForTask(BlockingQueue<Runnable> taskQueue, TaskWaitStrategy strategy) {
+        Runnable task = taskQueue.poll();
+        if (task != null) {
+            // There was no need to wait at all.
+            return task;
+        }
+        long deadlineNanos = nextScheduledTaskDeadline();
+        boolean busySpin = strategy == TaskWaitStrategy.BUSY_SPIN;
+        int spins = spinBudget;
+        for (int i = 0; busySpin || i < spins; i += SPIN_CHECK_INTERVAL) {
+            for (int j = 0; j < SPIN_CHECK_INTERVAL; j++) {
+                task = taskQueue.poll();
+                if (task != null) {
+                    return spinSucceeded(task, spins);
+                }
+            }
+            if (deadlineNanos != -1 && deadlineToDelayNanos(deadlineNanos) <= 0) {
+                return pollScheduledTaskAfterSpin(taskQueue);
+            }
+            if (Thread.interrupted() || (busySpin && taskWaitStrategy != TaskWaitStrategy.BUSY_SPIN)) {
+                // Woken up like a blocking take() would be, or the strategy was changed.
+                return WAKEUP_TASK;
+            }
+        }
+        for (int i = 0; i < YIELDS; i++) {
+            Thread.yield();
+            task = taskQueue.poll();
+            if (task != null) {
+                return spinSucceeded(task, spins);
+            }
+        }
+        if (deadlineNanos != -1 && deadlineToDelayNanos(deadlineNanos) <= 0) {
+            return pollScheduledTaskAfterSpin(taskQueue);
+        }
+        // Spinning did not pay off this time, so spin less the next time.
+        spinBudget = Math.max(MIN_SPINS, spins >>> 1);
+        return null;
+    }
+
+    private Runnable spinSucceeded(Runnable task, int spins) {
+        avoidedWakeups++;
+        spinBudget = Math.max(MIN_SPINS, Math.min(MAX_SPINS, spins << 1));
+        return task;
+    }
+
+    private Runnable pollScheduledTaskAfterSpin(BlockingQueue<Runnable> taskQueue) {
+        fetchFromScheduledTaskQueue();
+        Runnable task = taskQueue.poll();
+        return task != null ? task : WAKEUP_TASK;
+    }
+
     private boolean fetchFromScheduledTaskQueue() {
         if (scheduledTaskQueue == null || scheduledTaskQueue.isEmpty()) {
             return true;
@@ -335,6 +438,41 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return taskQueue.size();
     }
 
+    /**
+     * Sets how the executor thread waits for new tasks in {@link #takeTask()}. This has no effect on executors which
+     * do not use {@link #takeTask()} to wait, like most {@code EventLoop}s which wait for I/O instead. The default can
+     * be changed with the {@code io.netty.eventexecutor.waitStrategy} system property.
+     */
+    @UnstableApi
+    public void setTaskWaitStrategy(TaskWaitStrategy taskWaitStrategy) {
+        this.taskWaitStrategy = ObjectUtil.checkNotNull(taskWaitStrategy, "taskWaitStrategy");
+    }
+
+    /**
+     * Returns the {@link TaskWaitStrategy} which is used by {@link #takeTask()}.
+     */
+    @UnstableApi
+    public TaskWaitStrategy taskWaitStrategy() {
+        return taskWaitStrategy;
+    }
+
+    /**
+     * Returns the number of times a task arrived while the executor thread was spinning in {@link #takeTask()}, and
+     * so the thread did not need to be woken up.
+     */
+    @UnstableApi
+    public long avoidedWakeups() {
+        return avoidedWakeups;
+    }
+
+    /**
+     * Returns the number of times the executor thread blocked in {@link #takeTask()} to wait for a task.
+     */
+    @UnstableApi
+    public long blockingWaits() {
+        return blockingWaits;
+    }
+
     /**
      * Add a task to the task queue, or throws a {@link RejectedExecutionException} if this instance was shutdown
      * before.
@@ -502,12 +640,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * Returns the amount of time left until the scheduled task with the closest dead line is executed.
      */
     protected long delayNanos(long currentTimeNanos) {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
+        long deadlineNanos = nextScheduledTaskDeadline();
+        if (deadlineNanos == -1) {
             return SCHEDULE_PURGE_INTERVAL;
         }
 
-        return scheduledTask.delayNanos(currentTimeNanos);
+        return ScheduledFutureTask.deadlineToDelayNanos(currentTimeNanos, deadlineNanos);
     }
 
     /**
@@ -516,11 +654,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      */
     @UnstableApi
     protected long deadlineNanos() {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
+        long deadlineNanos = nextScheduledTaskDeadline();
+        if (deadlineNanos == -1) {
             return nanoTime() + SCHEDULE_PURGE_INTERVAL;
         }
-        return scheduledTask.deadlineNanos();
+        return deadlineNanos;
     }
 
     /**
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * How a {@link SingleThreadEventExecutor} waits for new tasks in {@link SingleThreadEventExecutor#takeTask()} once
+ * its task queue is empty, like {@link DefaultEventExecutor} and {@code DefaultEventLoop} do.
+ * <p>
+ * Blocking on the task queue means that the thread which submits the next task has to unpark the executor thread,
+ * which takes tens of microseconds. Spinning for a while before blocking avoids this for tasks which arrive shortly
+ * after the queue became empty, at the cost of burning CPU while idle.
+ */
+@UnstableApi
+public enum TaskWaitStrategy {
+    /**
+     * Block on the task queue right away. This is the default.
+     */
+    BLOCK,
+    /**
+     * Poll the task queue until a task arrives or a scheduled task is due, without ever blocking. This gives the
+     * lowest latency but keeps a CPU core busy all the time, so should only be used if the executor has a dedicated
+     * core.
+     */
+    BUSY_SPIN,
+    /**
+     * Poll the task queue for a number of iterations, then yield the thread a few times, and finally block. The number
+     * of iterations adapts to the load: it grows whenever a task arrived while spinning and shrinks whenever the thread
+     * had to block anyway, so an executor which rarely gets a task shortly after becoming idle spends little CPU.
+     * <p>
+     * Behaves like {@link #BLOCK} if there is only one processor, as no task can arrive while the thread spins.
+     */
+    SPIN_YIELD_PARK
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EventExecutorGroup} which executes the tasks of every {@link EventExecutor} returned by {@link #next()} in
+ * order on a virtual thread, which makes it suitable for handlers that block, like handlers which access a database.
+ * <p>
+ * Every {@link EventExecutor} returned by {@link #next()} is an {@link OrderedEventExecutor} with its own task queue.
+ * Whenever it has tasks to execute, a new thread is started which executes them and terminates once the queue is
+ * empty, so there is no limit on the number of executors which can block at the same time and executors without
+ * tasks do not hold on to a thread. The threads are virtual threads by default, which are available since Java 21.
+ * <p>
+ * The tasks are executed as a {@link FastThreadLocalRunnable}, so all {@link FastThreadLocal}s of a thread are
+ * removed once it terminates. Be aware that this also applies to caches which are kept in {@link FastThreadLocal}s,
+ * like the thread caches of the {@code PooledByteBufAllocator}, which may therefore be better disabled for threads
+ * which are not {@link FastThreadLocalThread}s.
+ * <p>
+ * Scheduling tasks is not supported, and {@link #iterator()} returns no {@link EventExecutor}s as executors are
+ * created on demand.
+ */
+@UnstableApi
+public final class VirtualThreadEventExecutorGroup extends AbstractEventExecutorGroup {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(VirtualThreadEventExecutorGroup.class);
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY;
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        ThreadFactory factory = null;
+        Throwable cause = null;
+        if (PlatformDependent.javaVersion() >= 21) {
+            try {
+                // Thread.ofVirtual().name("virtualThreadEventExecutorGroup-", 0).factory()
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builder = builderClass.getMethod("name", String.class, long.class)
+                        .invoke(builder, "virtualThreadEventExecutorGroup-", 0L);
+                factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (Throwable t) {
+                cause = t;
+            }
+        } else {
+            cause = new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        VIRTUAL_THREAD_FACTORY = factory;
+        UNAVAILABILITY_CAUSE = cause;
+        if (cause == null) {
+            logger.debug("Virtual threads: available");
+        } else {
+            logger.debug("Virtual threads: unavailable", cause);
+        }
+    }
+
+    private final ThreadFactory threadFactory;
+    // The number of executors which have a thread that executes their tasks.
+    private final AtomicInteger activeExecutors = new AtomicInteger();
+    private final Promise<?> terminationFuture = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new instance which executes the tasks on virtual threads.
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    public VirtualThreadEventExecutorGroup() {
+        this(virtualThreadFactory());
+    }
+
+    /**
+     * Creates a new instance which executes the tasks on threads created by the given {@link ThreadFactory}. The
+     * {@link ThreadFactory} is called whenever an {@link EventExecutor} has tasks but no thread, and so should create
+     * cheap threads, like virtual threads.
+     */
+    public VirtualThreadEventExecutorGroup(ThreadFactory threadFactory) {
+        this.threadFactory = ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        if (VIRTUAL_THREAD_FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads are not available", UNAVAILABILITY_CAUSE);
+        }
+        return VIRTUAL_THREAD_FACTORY;
+    }
+
+    /**
+     * Returns {@code true} if virtual threads are available, and so {@link #VirtualThreadEventExecutorGroup()} can
+     * be used.
+     */
+    public static boolean isAvailable() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Returns the cause of unavailability of virtual threads, or {@code null} if they are available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    /**
+     * Returns a new {@link OrderedEventExecutor}. The same instance should be used for all tasks which must be
+     * executed in order, like the tasks of a channel.
+     */
+    @Override
+    public EventExecutor next() {
+        return new VirtualThreadOrderedEventExecutor(this);
+    }
+
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return Collections.<EventExecutor>emptyList().iterator();
+    }
+
+    /**
+     * Shuts down this group. New tasks are rejected right away, and the group is terminated once all tasks which were
+     * added before are executed. The quiet period and the timeout are ignored.
+     */
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        shutdown = true;
+        if (activeExecutors.get() == 0) {
+            terminationFuture.trySuccess(null);
+        }
+        return terminationFuture;
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        shutdownGracefully();
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminationFuture.isDone();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationFuture.await(timeout, unit);
+    }
+
+    private void startThread(VirtualThreadOrderedEventExecutor executor) {
+        activeExecutors.incrementAndGet();
+        boolean success = false;
+        try {
+            threadFactory.newThread(FastThreadLocalRunnable.wrap(executor)).start();
+            success = true;
+        } finally {
+            if (!success) {
+                executorDone();
+            }
+        }
+    }
+
+    private void executorDone() {
+        if (activeExecutors.decrementAndGet() == 0 && shutdown) {
+            terminationFuture.trySuccess(null);
+        }
+    }
+
+    private static final class VirtualThreadOrderedEventExecutor extends AbstractEventExecutor
+            implements Runnable, OrderedEventExecutor {
+        private final VirtualThreadEventExecutorGroup group;
+        private final Queue<Runnable> tasks = PlatformDependent.newMpscQueue();
+
+        private static final int NONE = 0;
+        private static final int SUBMITTED = 1;
+        private static final int RUNNING = 2;
+
+        private final AtomicInteger state = new AtomicInteger();
+        private volatile Thread thread;
+
+        VirtualThreadOrderedEventExecutor(VirtualThreadEventExecutorGroup group) {
+            super(group);
+            this.group = group;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(SUBMITTED, RUNNING)) {
+                return;
+            }
+            Thread currentThread = Thread.currentThread();
+            thread = currentThread;
+            try {
+                for (;;) {
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        safeExecute(task);
+                    }
+                    // The thread must be cleared before the state, as another thread may be started as soon as the
+                    // state changes.
+                    thread = null;
+                    state.set(NONE);
+                    // Look at the tasks queue one more time, as a producer may have added a task between the
+                    // tasks.poll() and state.set(NONE) above and did not see the state change.
+                    // See NonStickyEventExecutorGroup for the details.
+                    if (tasks.isEmpty() || !state.compareAndSet(NONE, RUNNING)) {
+                        return; // done
+                    }
+                    thread = currentThread;
+                }
+            } finally {
+                group.executorDone();
+            }
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return thread == this.thread;
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return group.isShuttingDown();
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return group.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return group.terminationFuture();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void shutdown() {
+            group.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return group.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return group.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return group.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            ObjectUtil.checkNotNull(command, "command");
+            if (group.isShutdown()) {
+                throw new RejectedExecutionException("event executor terminated");
+            }
+            if (!tasks.offer(command)) {
+                throw new RejectedExecutionException();
+            }
+            if (state.compareAndSet(NONE, SUBMITTED)) {
+                try {
+                    group.startThread(this);
+                } catch (Throwable cause) {
+                    // No thread will execute the tasks, so allow the next call to try again. The tasks stay in the
+                    // queue and are executed in order by the next thread.
+                    state.set(NONE);
+                    PlatformDependent.throwException(cause);
+                }
+            }
+        }
+    }
+}
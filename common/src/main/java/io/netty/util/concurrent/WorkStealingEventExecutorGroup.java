@@ -0,0 +1,384 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link EventExecutorGroup} which preserves the {@link Runnable} execution order of every {@link EventExecutor}
+ * returned by {@link #next()}, but lets idle threads steal the pending work of busy threads.
+ * <p>
+ * Like {@link NonStickyEventExecutorGroup}, every {@link EventExecutor} returned by {@link #next()} is a queue of
+ * tasks which is executed by at most one thread at a time, and which is handed to a thread only while it has tasks to
+ * execute. Every thread of this group keeps its own run queue of such executors, and an executor is always added to the
+ * run queue of the thread which executed it last. If this thread is busy, one of the idle threads is woken up, which
+ * then steals whole executors from the run queues of the other threads. This way a few busy channels can not overload
+ * a single thread while other threads are idle, which is the case with {@link DefaultEventExecutorGroup} as it pins
+ * every channel to a single thread.
+ * <p>
+ * The {@link EventExecutor}s returned by {@link #next()} do not support scheduling tasks. Scheduling a task on the
+ * group itself is supported.
+ */
+@UnstableApi
+public final class WorkStealingEventExecutorGroup extends MultithreadEventExecutorGroup {
+
+    private static final Runnable WAKEUP_TASK = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    private final Worker[] workers;
+    private final int maxTaskExecutePerRun;
+
+    /**
+     * @see #WorkStealingEventExecutorGroup(int, ThreadFactory, int)
+     */
+    public WorkStealingEventExecutorGroup(int nThreads) {
+        this(nThreads, null);
+    }
+
+    /**
+     * @see #WorkStealingEventExecutorGroup(int, ThreadFactory, int)
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, ThreadFactory threadFactory) {
+        this(nThreads, threadFactory, 1024);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads              the number of threads that will be used by this instance.
+     * @param threadFactory         the ThreadFactory to use, or {@code null} if the default should be used.
+     * @param maxTaskExecutePerRun  the maximum number of tasks of an {@link EventExecutor} which are executed before
+     *                              the thread moves on to the next {@link EventExecutor} of its run queue.
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, ThreadFactory threadFactory, int maxTaskExecutePerRun) {
+        super(nThreads, threadFactory);
+        this.maxTaskExecutePerRun = ObjectUtil.checkPositive(maxTaskExecutePerRun, "maxTaskExecutePerRun");
+        workers = new Worker[executorCount()];
+        int i = 0;
+        for (EventExecutor executor: this) {
+            Worker worker = (Worker) executor;
+            worker.index = i;
+            workers[i++] = worker;
+        }
+    }
+
+    @Override
+    protected EventExecutor newChild(Executor executor, Object... args) throws Exception {
+        return new Worker(this, executor);
+    }
+
+    /**
+     * Returns a new {@link OrderedEventExecutor} which executes its tasks in order on any of the threads of this
+     * group. The same instance should be used for all tasks which must be executed in order, like the tasks of a
+     * channel.
+     */
+    @Override
+    public EventExecutor next() {
+        return new WorkStealingOrderedEventExecutor(this, nextWorker());
+    }
+
+    private Worker nextWorker() {
+        return (Worker) super.next();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return nextWorker().schedule(command, delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return nextWorker().schedule(callable, delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return nextWorker().scheduleAtFixedRate(command, initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return nextWorker().scheduleWithFixedDelay(command, initialDelay, delay, unit);
+    }
+
+    /**
+     * Adds the given executor, which has tasks to execute, to the run queue of the thread which executed it last.
+     */
+    private void addToRunQueue(WorkStealingOrderedEventExecutor executor) {
+        Worker worker = executor.worker;
+        worker.runQueue.offer(executor);
+        if (worker.isShutdown() && worker.runQueue.remove(executor)) {
+            SingleThreadEventExecutor.reject();
+        }
+        if (!worker.signal()) {
+            // The worker is busy, so wake up an idle worker which will steal the executor.
+            for (int i = 1; i < workers.length; i++) {
+                if (workers[(worker.index + i) % workers.length].signal()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    static final class Worker extends SingleThreadEventExecutor {
+        private static final AtomicIntegerFieldUpdater<Worker> IDLE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(Worker.class, "idle");
+
+        final Queue<WorkStealingOrderedEventExecutor> runQueue =
+                new ConcurrentLinkedQueue<WorkStealingOrderedEventExecutor>();
+        private final WorkStealingEventExecutorGroup group;
+        int index;
+        // 1 if the worker is blocked waiting for tasks or was not started yet, and so needs to be woken up.
+        volatile int idle = 1;
+
+        Worker(WorkStealingEventExecutorGroup group, Executor executor) {
+            super(group, executor, true);
+            this.group = group;
+        }
+
+        /**
+         * Wakes up this worker if it is idle.
+         *
+         * @return {@code true} if this worker was idle.
+         */
+        boolean signal() {
+            if (idle == 1 && IDLE_UPDATER.compareAndSet(this, 1, 0)) {
+                try {
+                    execute(WAKEUP_TASK);
+                } catch (RejectedExecutionException ignore) {
+                    // The worker was shut down, nothing left to wake up.
+                    return false;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Takes the next executor from the run queue of this worker, or steals one from the run queue of another
+         * worker if it is empty.
+         */
+        private WorkStealingOrderedEventExecutor pollExecutor() {
+            WorkStealingOrderedEventExecutor executor = runQueue.poll();
+            if (executor != null) {
+                return executor;
+            }
+            Worker[] workers = group.workers;
+            for (int i = 1; i < workers.length; i++) {
+                executor = workers[(index + i) % workers.length].runQueue.poll();
+                if (executor != null) {
+                    return executor;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        protected void run() {
+            for (;;) {
+                WorkStealingOrderedEventExecutor executor = pollExecutor();
+                if (executor != null) {
+                    executor.run(this);
+                    updateLastExecutionTime();
+                }
+                // Also run the tasks which were submitted to this worker directly, like scheduled tasks.
+                if (!runAllTasks() && executor == null) {
+                    idle = 1;
+                    // Check again after announcing that this worker is idle, as an executor which was added before
+                    // may not have woken it up.
+                    executor = pollExecutor();
+                    if (executor != null) {
+                        idle = 0;
+                        executor.run(this);
+                    } else if (!isShuttingDown()) {
+                        // The wakeup of a shutdown may have been consumed by runAllTasks() already, so only block if
+                        // there is none yet.
+                        Runnable task = takeTask();
+                        idle = 0;
+                        if (task != null) {
+                            runTask(task);
+                        }
+                    } else {
+                        idle = 0;
+                    }
+                    updateLastExecutionTime();
+                }
+
+                if (confirmShutdown()) {
+                    break;
+                }
+            }
+            // Executors which were added during the shutdown, but were not stolen by another worker.
+            for (;;) {
+                WorkStealingOrderedEventExecutor executor = runQueue.poll();
+                if (executor == null) {
+                    break;
+                }
+                executor.run(this);
+            }
+        }
+    }
+
+    private static final class WorkStealingOrderedEventExecutor extends AbstractEventExecutor
+            implements OrderedEventExecutor {
+        private final WorkStealingEventExecutorGroup group;
+        private final Queue<Runnable> tasks = PlatformDependent.newMpscQueue();
+
+        private static final int NONE = 0;
+        private static final int SUBMITTED = 1;
+        private static final int RUNNING = 2;
+
+        private final AtomicInteger state = new AtomicInteger();
+        // The worker which executed this executor last. Only written by this worker, so it is fine to see a stale
+        // value while it is running, which at worst adds this executor to the run queue of another worker.
+        Worker worker;
+        private volatile Thread thread;
+
+        WorkStealingOrderedEventExecutor(WorkStealingEventExecutorGroup group, Worker worker) {
+            super(group);
+            this.group = group;
+            this.worker = worker;
+        }
+
+        void run(Worker worker) {
+            if (!state.compareAndSet(SUBMITTED, RUNNING)) {
+                return;
+            }
+            this.worker = worker;
+            Thread currentThread = Thread.currentThread();
+            thread = currentThread;
+            int maxTaskExecutePerRun = group.maxTaskExecutePerRun;
+            for (;;) {
+                int i = 0;
+                try {
+                    for (; i < maxTaskExecutePerRun; i++) {
+                        Runnable task = tasks.poll();
+                        if (task == null) {
+                            break;
+                        }
+                        safeExecute(task);
+                    }
+                } finally {
+                    // The thread must be cleared before the state, as this executor may be run by another thread as
+                    // soon as its state changes.
+                    thread = null;
+                    if (i == maxTaskExecutePerRun) {
+                        try {
+                            state.set(SUBMITTED);
+                            // Go to the back of the run queue, so the other executors get their turn.
+                            group.addToRunQueue(this);
+                            return; // done
+                        } catch (Throwable ignore) {
+                            // Reset the state back to running as we will keep on executing tasks.
+                            state.set(RUNNING);
+                            thread = currentThread;
+                        }
+                    } else {
+                        state.set(NONE);
+                        // Look at the tasks queue one more time, as a producer may have added a task between the
+                        // tasks.poll() and state.set(NONE) above and did not see the state change.
+                        // See NonStickyEventExecutorGroup for the details.
+                        if (tasks.isEmpty() || !state.compareAndSet(NONE, RUNNING)) {
+                            return; // done
+                        }
+                        thread = currentThread;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return thread == this.thread;
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return group.isShuttingDown();
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return group.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return group.terminationFuture();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void shutdown() {
+            group.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return group.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return group.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return group.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (isShutdown()) {
+                SingleThreadEventExecutor.reject();
+            }
+            if (!tasks.offer(command)) {
+                throw new RejectedExecutionException();
+            }
+            if (state.compareAndSet(NONE, SUBMITTED)) {
+                try {
+                    group.addToRunQueue(this);
+                } catch (Throwable e) {
+                    // The worker was shut down concurrently, so it will never run this executor. As long as the state
+                    // is SUBMITTED and this executor is not in a run queue we are the only consumer of the tasks, so
+                    // drop them, which includes the rejected one, before giving up the ownership again.
+                    while (tasks.poll() != null) {
+                        // NOOP
+                    }
+                    state.set(NONE);
+                    PlatformDependent.throwException(e);
+                }
+            }
+        }
+    }
+}
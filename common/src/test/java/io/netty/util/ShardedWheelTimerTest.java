@@ -0,0 +1,328 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ShardedWheelTimerTest {
+
+    @Test
+    public void testScheduleTimeoutShouldRunAfterDelay() throws InterruptedException {
+        final ShardedWheelTimer timer = new ShardedWheelTimer(2, 10, TimeUnit.MILLISECONDS);
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        final AtomicInteger early = new AtomicInteger();
+        final Timeout timeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500)) {
+                    early.incrementAndGet();
+                }
+                barrier.countDown();
+            }
+        }, 500, TimeUnit.MILLISECONDS);
+        assertTrue(barrier.await(3, TimeUnit.SECONDS));
+        assertTrue(timeout.isExpired(), "timer should expire");
+        assertEquals(0, early.get());
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testExecutionOnTimeFromManyThreads() throws InterruptedException {
+        // Small wheels make most of the timeouts cascade through several levels.
+        final ShardedWheelTimer timer = new ShardedWheelTimer(
+                Executors.defaultThreadFactory(), 4, 1, TimeUnit.MILLISECONDS, 4, -1);
+        final int threads = 8;
+        final int timeoutsPerThread = 200;
+        final CountDownLatch latch = new CountDownLatch(threads * timeoutsPerThread);
+        final AtomicInteger early = new AtomicInteger();
+        Thread[] producers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int seed = i;
+            producers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < timeoutsPerThread; j++) {
+                        final long delay = (seed * 31 + j * 17) % 1500;
+                        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                        timer.newTimeout(new TimerTask() {
+                            @Override
+                            public void run(Timeout timeout) {
+                                if (System.nanoTime() < deadline) {
+                                    early.incrementAndGet();
+                                }
+                                latch.countDown();
+                            }
+                        }, delay, TimeUnit.MILLISECONDS);
+                    }
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        latch.await();
+        assertEquals(0, early.get());
+        assertEquals(0, timer.pendingTimeouts());
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testCancelledTimeoutShouldNotRun() throws InterruptedException {
+        final ShardedWheelTimer timer = new ShardedWheelTimer(1, 10, TimeUnit.MILLISECONDS);
+        final CountDownLatch ran = new CountDownLatch(1);
+        final CountDownLatch barrier = new CountDownLatch(1);
+        Timeout cancelled = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                ran.countDown();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                barrier.countDown();
+            }
+        }, 200, TimeUnit.MILLISECONDS);
+        assertEquals(2, timer.pendingTimeouts());
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(1, timer.pendingTimeouts());
+
+        assertTrue(barrier.await(3, TimeUnit.SECONDS));
+        assertFalse(ran.await(0, TimeUnit.MILLISECONDS));
+        assertFalse(cancelled.isExpired());
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 15000, unit = TimeUnit.MILLISECONDS)
+    public void testCancelledTimeoutIsRemovedFromBucketByShardThread() throws Exception {
+        EventExecutorGroup group = new DefaultEventExecutorGroup(1);
+        try {
+            final ShardedWheelTimer timer = new ShardedWheelTimer(group, 10, TimeUnit.MILLISECONDS, 512, -1);
+            final EventExecutor executor = group.next();
+            final AtomicReference<Timeout> timeoutRef = new AtomicReference<Timeout>();
+            WeakReference<TimerTask> taskRef = executor.submit(new Callable<WeakReference<TimerTask>>() {
+                @Override
+                public WeakReference<TimerTask> call() {
+                    TimerTask task = new ThrowingTask();
+                    timeoutRef.set(timer.newTimeout(task, 1, TimeUnit.HOURS));
+                    return new WeakReference<TimerTask>(task);
+                }
+            }).get();
+            // Let the shard transfer the timeout into its bucket before it is cancelled.
+            Thread.sleep(100);
+            assertTrue(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    // The shard thread unlinks the timeout from its bucket right away.
+                    return timeoutRef.getAndSet(null).cancel();
+                }
+            }).get());
+
+            awaitCollected(taskRef);
+            assertEquals(0, timer.pendingTimeouts());
+            assertTrue(timer.stop().isEmpty());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 15000, unit = TimeUnit.MILLISECONDS)
+    public void testCancelledTimeoutsAreRemovedFromBucketsByCompaction() throws InterruptedException {
+        final ShardedWheelTimer timer = new ShardedWheelTimer(1, 10, TimeUnit.MILLISECONDS);
+        try {
+            TimerTask task = new ThrowingTask();
+            WeakReference<TimerTask> taskRef = new WeakReference<TimerTask>(task);
+            List<Timeout> timeouts = new ArrayList<Timeout>();
+            timeouts.add(timer.newTimeout(task, 1, TimeUnit.HOURS));
+            task = null;
+            for (int i = 1; i < 1024; i++) {
+                timeouts.add(timer.newTimeout(new ThrowingTask(), 1, TimeUnit.HOURS));
+            }
+            // Let the shard transfer the timeouts into its buckets before they are cancelled.
+            Thread.sleep(100);
+            // Cancelling from a thread other than the one of the shard only marks the timeouts, the shard drops them
+            // on the next tick as they are at least half of the timeouts in its buckets.
+            for (Timeout timeout : timeouts) {
+                assertTrue(timeout.cancel());
+            }
+            timeouts.clear();
+
+            awaitCollected(taskRef);
+            assertEquals(0, timer.pendingTimeouts());
+        } finally {
+            assertTrue(timer.stop().isEmpty());
+        }
+    }
+
+    private static void awaitCollected(WeakReference<?> ref) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ref.get() != null && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(ref.get());
+    }
+
+    @Test
+    public void testStopTimerShouldReturnUnprocessedTimeouts() {
+        final ShardedWheelTimer timer = new ShardedWheelTimer(2, 10, TimeUnit.MILLISECONDS);
+        Timeout timeout1 = timer.newTimeout(new NoopTask(), 10, TimeUnit.SECONDS);
+        Timeout timeout2 = timer.newTimeout(new NoopTask(), 1, TimeUnit.DAYS);
+        Timeout timeout3 = timer.newTimeout(new NoopTask(), 10, TimeUnit.SECONDS);
+        timeout3.cancel();
+
+        Set<Timeout> unprocessed = timer.stop();
+        assertEquals(2, unprocessed.size());
+        assertTrue(unprocessed.contains(timeout1));
+        assertTrue(unprocessed.contains(timeout2));
+        assertEquals(Collections.emptySet(), timer.stop());
+
+        try {
+            timer.newTimeout(new NoopTask(), 1, TimeUnit.SECONDS);
+            fail("Expected exception didn't occur.");
+        } catch (IllegalStateException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRejectedExecutionExceptionWhenTooManyTimeoutsAreAddedBackToBack() {
+        ShardedWheelTimer timer = new ShardedWheelTimer(
+                Executors.defaultThreadFactory(), 2, 100, TimeUnit.MILLISECONDS, 32, 2);
+        timer.newTimeout(new NoopTask(), 5, TimeUnit.SECONDS);
+        Timeout timeout = timer.newTimeout(new NoopTask(), 5, TimeUnit.SECONDS);
+        try {
+            timer.newTimeout(new NoopTask(), 1, TimeUnit.MILLISECONDS);
+            fail("Timer allowed adding 3 timeouts when maxPendingTimeouts was 2");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+        timeout.cancel();
+        timer.newTimeout(new NoopTask(), 5, TimeUnit.SECONDS);
+        assertEquals(2, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testTickOnEventExecutors() throws Exception {
+        EventExecutorGroup group = new DefaultEventExecutorGroup(2);
+        try {
+            final ShardedWheelTimer timer = new ShardedWheelTimer(group, 5, TimeUnit.MILLISECONDS, 16, -1);
+            assertEquals(2, timer.shards());
+            final EventExecutor executor = group.next();
+            final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    timer.newTimeout(new TimerTask() {
+                        @Override
+                        public void run(Timeout timeout) {
+                            // A timeout which is scheduled by an EventExecutor expires on the same EventExecutor.
+                            queue.add(executor.inEventLoop());
+                            try {
+                                timer.stop();
+                                queue.add("stop() should not be allowed from a TimerTask");
+                            } catch (IllegalStateException expected) {
+                                queue.add(expected);
+                            }
+                        }
+                    }, 50, TimeUnit.MILLISECONDS);
+                }
+            });
+            assertSame(Boolean.TRUE, queue.take());
+            assertTrue(queue.take() instanceof IllegalStateException);
+
+            final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    thread.set(Thread.currentThread());
+                    latch.countDown();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            latch.await();
+            assertFalse(thread.get() == Thread.currentThread());
+            assertTrue(timer.stop().isEmpty());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testOverflow() throws InterruptedException {
+        final ShardedWheelTimer timer = new ShardedWheelTimer(1, 10, TimeUnit.MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Timeout timeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                latch.countDown();
+            }
+        }, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+        assertTrue(timer.stop().contains(timeout));
+    }
+
+    private static final class ThrowingTask implements TimerTask {
+        @Override
+        public void run(Timeout timeout) {
+            fail("This should not have run");
+        }
+    }
+
+    private static final class NoopTask implements TimerTask {
+        @Override
+        public void run(Timeout timeout) {
+            // NOOP
+        }
+    }
+}
@@ -24,7 +24,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.function.Executable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -296,6 +300,76 @@ public class DefaultPromiseTest {
         }
     }
 
+    @Test
+    public void testAddAndRemoveListeners() {
+        // Covers the listeners which are stored inline as well as the ones which are stored in an array.
+        for (int count = 1; count <= 5; count++) {
+            for (int removed = -1; removed < count; removed++) {
+                final List<Integer> notified = new ArrayList<Integer>();
+                List<FutureListener<Void>> listeners = new ArrayList<FutureListener<Void>>();
+                Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+                for (int i = 0; i < count; i++) {
+                    final int index = i;
+                    FutureListener<Void> listener = new FutureListener<Void>() {
+                        @Override
+                        public void operationComplete(Future<Void> future) {
+                            notified.add(index);
+                        }
+                    };
+                    listeners.add(listener);
+                    promise.addListener(listener);
+                }
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int i = 0; i < count; i++) {
+                    if (i == removed) {
+                        promise.removeListener(listeners.get(i));
+                    } else {
+                        expected.add(i);
+                    }
+                }
+                promise.setSuccess(null);
+                assertEquals(expected, notified, "count = " + count + ", removed = " + removed);
+            }
+        }
+    }
+
+    @Test
+    public void testProgressiveListenersWithInlineListeners() {
+        final List<Long> progress = new ArrayList<Long>();
+        GenericProgressiveFutureListener<ProgressiveFuture<Void>> progressiveListener =
+                new GenericProgressiveFutureListener<ProgressiveFuture<Void>>() {
+                    @Override
+                    public void operationProgressed(ProgressiveFuture<Void> future, long current, long total) {
+                        progress.add(current);
+                    }
+
+                    @Override
+                    public void operationComplete(ProgressiveFuture<Void> future) {
+                        // NOOP
+                    }
+                };
+        FutureListener<Void> listener = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+                // NOOP
+            }
+        };
+
+        ProgressivePromise<Void> promise = new DefaultProgressivePromise<Void>(ImmediateEventExecutor.INSTANCE);
+        promise.addListener(listener);
+        promise.addListener(progressiveListener);
+        promise.setProgress(1, 10);
+        assertEquals(Collections.singletonList(1L), progress);
+
+        promise.addListener(progressiveListener);
+        promise.setProgress(2, 10);
+        assertEquals(Arrays.asList(1L, 2L, 2L), progress);
+
+        promise.removeListener(listener);
+        promise.setProgress(3, 10);
+        assertEquals(Arrays.asList(1L, 2L, 2L, 3L, 3L), progress);
+    }
+
     @Test
     public void testListenerNotifyLater() throws Exception {
         // Testing first execution path in DefaultPromise
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.DefaultPriorityQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScheduledTaskWheelTest {
+    private static final Comparator<ScheduledFutureTask<?>> COMPARATOR = new Comparator<ScheduledFutureTask<?>>() {
+        @Override
+        public int compare(ScheduledFutureTask<?> o1, ScheduledFutureTask<?> o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    @Test
+    public void testMatchesPriorityQueue() {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        // The RNG algorithm is specified and stable, so this will cause the same exact dataset
+        // to be used in every run and every JVM implementation.
+        Random rnd = new Random(0);
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(COMPARATOR);
+        // Reference queue which implementation we trust to be correct, will mirror all operations.
+        DefaultPriorityQueue<ScheduledFutureTask<?>> queue =
+                new DefaultPriorityQueue<ScheduledFutureTask<?>>(COMPARATOR, 11);
+        // Maps the tasks of the wheel to their copies in the reference queue, as a task can only be in one queue.
+        Map<ScheduledFutureTask<?>, ScheduledFutureTask<?>> mirrored =
+                new IdentityHashMap<ScheduledFutureTask<?>, ScheduledFutureTask<?>>();
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        long now = ScheduledFutureTask.nanoTime();
+        long id = 0;
+
+        for (int i = 0; i < 200000; i++) {
+            int op = rnd.nextInt(10);
+            if (op < 5) {
+                long delay;
+                switch (rnd.nextInt(4)) {
+                    case 0:
+                        // Lands in the same tick or the queue of due tasks.
+                        delay = rnd.nextInt(1 << 20);
+                        break;
+                    case 1:
+                        delay = TimeUnit.MILLISECONDS.toNanos(rnd.nextInt(100));
+                        break;
+                    case 2:
+                        delay = TimeUnit.SECONDS.toNanos(rnd.nextInt(100));
+                        break;
+                    default:
+                        delay = TimeUnit.HOURS.toNanos(rnd.nextInt(100000));
+                        break;
+                }
+                ScheduledFutureTask<Void> task = new ScheduledFutureTask<Void>(executor, NOOP, now + delay);
+                ScheduledFutureTask<Void> copy = new ScheduledFutureTask<Void>(executor, NOOP, now + delay);
+                task.setId(++id);
+                copy.setId(id);
+                assertTrue(wheel.offer(task));
+                assertTrue(queue.offer(copy));
+                mirrored.put(task, copy);
+                tasks.add(task);
+            } else if (op < 7 && !tasks.isEmpty()) {
+                int index = rnd.nextInt(tasks.size());
+                ScheduledFutureTask<?> task = tasks.get(index);
+                tasks.set(index, tasks.get(tasks.size() - 1));
+                tasks.remove(tasks.size() - 1);
+                ScheduledFutureTask<?> copy = mirrored.remove(task);
+                if (copy == null) {
+                    // Already polled.
+                    assertFalse(wheel.containsTyped(task));
+                    continue;
+                }
+                assertTrue(wheel.containsTyped(task));
+                assertTrue(wheel.removeTyped(task));
+                assertFalse(wheel.containsTyped(task));
+                assertTrue(queue.removeTyped(copy));
+            } else {
+                now += rnd.nextBoolean() ? rnd.nextInt(1 << 22) : TimeUnit.SECONDS.toNanos(rnd.nextInt(10));
+                for (;;) {
+                    ScheduledFutureTask<?> expected = queue.peek();
+                    ScheduledFutureTask<?> actual = wheel.peek(now);
+                    if (expected == null || expected.deadlineNanos() > now) {
+                        assertTrue(actual == null || actual.deadlineNanos() > now);
+                        break;
+                    }
+                    assertSame(expected, mirrored.remove(actual));
+                    assertSame(actual, wheel.remove());
+                    queue.remove();
+                }
+            }
+            assertEquals(queue.size(), wheel.size());
+            long nextDeadline = wheel.nextDeadlineNanos();
+            if (queue.isEmpty()) {
+                assertEquals(-1, nextDeadline);
+            } else {
+                assertTrue(nextDeadline <= queue.peek().deadlineNanos());
+            }
+        }
+
+        // Finally drain the wheel in order.
+        while (!queue.isEmpty()) {
+            assertSame(queue.poll(), mirrored.get(wheel.poll()));
+        }
+        assertTrue(wheel.isEmpty());
+        assertNull(wheel.poll());
+    }
+
+    @Test
+    public void testIteratorAndClear() {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(COMPARATOR);
+        long now = ScheduledFutureTask.nanoTime();
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (int i = 0; i < 100; i++) {
+            ScheduledFutureTask<Void> task = new ScheduledFutureTask<Void>(
+                    executor, NOOP, now + TimeUnit.MILLISECONDS.toNanos(i * i));
+            task.setId(i + 1);
+            wheel.add(task);
+            tasks.add(task);
+        }
+        List<ScheduledFutureTask<?>> iterated = new ArrayList<ScheduledFutureTask<?>>(wheel);
+        Collections.sort(iterated, COMPARATOR);
+        assertEquals(tasks, iterated);
+        assertSame(tasks.get(0), wheel.peek());
+
+        wheel.clearIgnoringIndexes();
+        assertTrue(wheel.isEmpty());
+        assertEquals(-1, wheel.nextDeadlineNanos());
+    }
+
+    @Test
+    public void testScheduledTasksRunInOrder() throws Exception {
+        DefaultEventExecutorGroup group = new DefaultEventExecutorGroup(1);
+        try {
+            group.setScheduledTaskWheel(true);
+            final EventExecutor executor = group.next();
+            final BlockingQueue<Integer> order = new LinkedBlockingQueue<Integer>();
+            final int[] delays = { 30, 10, 50, 10, 0, 250, 20 };
+            final long start = System.nanoTime();
+            final List<Long> runTimes = Collections.synchronizedList(new ArrayList<Long>());
+            final List<ScheduledFutureTask<?>> futures = new ArrayList<ScheduledFutureTask<?>>();
+            for (int i = 0; i < delays.length; i++) {
+                final int index = i;
+                ScheduledFuture<?> future = executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        runTimes.add(System.nanoTime() - start);
+                        order.add(index);
+                    }
+                }, delays[i], TimeUnit.MILLISECONDS);
+                futures.add((ScheduledFutureTask<?>) future);
+            }
+            ScheduledFuture<?> cancelled = executor.schedule(NOOP, 20, TimeUnit.MILLISECONDS);
+            assertTrue(cancelled.cancel(false));
+
+            // The tasks are scheduled one after another, so the order of the deadlines does not only depend on
+            // the delays.
+            List<ScheduledFutureTask<?>> expectedOrder = new ArrayList<ScheduledFutureTask<?>>(futures);
+            Collections.sort(expectedOrder, COMPARATOR);
+            for (int i = 0; i < expectedOrder.size(); i++) {
+                int index = order.take();
+                assertSame(expectedOrder.get(i), futures.get(index));
+                assertTrue(runTimes.get(i) >= TimeUnit.MILLISECONDS.toNanos(delays[index]));
+            }
+            assertTrue(cancelled.isCancelled());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testSwitchWithScheduledTasks() throws Exception {
+        DefaultEventExecutorGroup group = new DefaultEventExecutorGroup(1);
+        try {
+            final EventExecutor executor = group.next();
+            final BlockingQueue<Integer> order = new LinkedBlockingQueue<Integer>();
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(1);
+                }
+            }, 100, TimeUnit.MILLISECONDS);
+            executor.submit(NOOP).sync();
+
+            group.setScheduledTaskWheel(true);
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(0);
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(2);
+                }
+            }, 150, TimeUnit.MILLISECONDS);
+
+            assertEquals(0, (int) order.take());
+            assertEquals(1, (int) order.take());
+            assertEquals(2, (int) order.take());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+}
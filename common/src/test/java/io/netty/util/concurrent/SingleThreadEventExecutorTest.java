@@ -20,6 +20,8 @@ import org.junit.jupiter.api.Test;
 import io.netty.util.concurrent.AbstractEventExecutor.LazyRunnable;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 import java.util.Collections;
 import java.util.Set;
@@ -411,6 +413,63 @@ public class SingleThreadEventExecutorTest {
         assertThat(t.ran.get(), is(true));
     }
 
+    @ParameterizedTest
+    @EnumSource(TaskWaitStrategy.class)
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testTakeTaskWithWaitStrategy(TaskWaitStrategy strategy) throws Exception {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        executor.setTaskWaitStrategy(strategy);
+        try {
+            TestRunnable beforeTask = new TestRunnable();
+            executor.submit(beforeTask).sync();
+
+            TestRunnable scheduledTask = new TestRunnable();
+            ScheduledFuture<?> f = executor.schedule(scheduledTask, 100, TimeUnit.MILLISECONDS);
+
+            TestRunnable afterTask = new TestRunnable();
+            executor.submit(afterTask).sync();
+            f.sync();
+
+            assertTrue(beforeTask.ran.get());
+            assertTrue(scheduledTask.ran.get());
+            assertTrue(afterTask.ran.get());
+        } finally {
+            // Must also wake up an executor which is spinning.
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).sync();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testBusySpinAvoidsWakeups() throws Exception {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        executor.setTaskWaitStrategy(TaskWaitStrategy.BUSY_SPIN);
+        try {
+            while (executor.avoidedWakeups() == 0) {
+                executor.submit(new TestRunnable()).sync();
+            }
+            assertEquals(0, executor.blockingWaits());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).sync();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testBlockDoesNotSpin() throws Exception {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        assertEquals(TaskWaitStrategy.BLOCK, executor.taskWaitStrategy());
+        try {
+            for (int i = 0; i < 10; i++) {
+                executor.submit(new TestRunnable()).sync();
+            }
+            assertEquals(0, executor.avoidedWakeups());
+            assertTrue(executor.blockingWaits() > 0);
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).sync();
+        }
+    }
+
     private static final class TestRunnable implements Runnable {
         final AtomicBoolean ran = new AtomicBoolean();
 
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.PlatformDependent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadEventExecutorGroupTest {
+
+    @Test
+    public void testAvailability() {
+        assertEquals(PlatformDependent.javaVersion() >= 21, VirtualThreadEventExecutorGroup.isAvailable());
+        if (VirtualThreadEventExecutorGroup.isAvailable()) {
+            assertNull(VirtualThreadEventExecutorGroup.unavailabilityCause());
+        } else {
+            assertThrows(UnsupportedOperationException.class, new Executable() {
+                @Override
+                public void execute() {
+                    new VirtualThreadEventExecutorGroup();
+                }
+            });
+        }
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testOrderingOnVirtualThreads() throws Throwable {
+        assumeTrue(VirtualThreadEventExecutorGroup.isAvailable());
+        testOrdering(new VirtualThreadEventExecutorGroup());
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testOrdering() throws Throwable {
+        testOrdering(new VirtualThreadEventExecutorGroup(Executors.defaultThreadFactory()));
+    }
+
+    private static void testOrdering(final VirtualThreadEventExecutorGroup group) throws Throwable {
+        try {
+            final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+            List<Thread> threadList = new ArrayList<Thread>();
+            for (int i = 0 ; i < 8; i++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            execute(group.next());
+                        } catch (Throwable cause) {
+                            error.compareAndSet(null, cause);
+                        }
+                    }
+                });
+                threadList.add(thread);
+                thread.start();
+            }
+            for (Thread t: threadList) {
+                t.join();
+            }
+            Throwable cause = error.get();
+            if (cause != null) {
+                throw cause;
+            }
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testBlockingExecutorsDoNotBlockEachOther() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(Executors.defaultThreadFactory());
+        try {
+            int executors = 100;
+            final CountDownLatch blocked = new CountDownLatch(executors);
+            final CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < executors; i++) {
+                group.next().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        blocked.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            // All executors block at the same time.
+            blocked.await();
+            release.countDown();
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testInEventLoopAndFastThreadLocal() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(Executors.defaultThreadFactory());
+        try {
+            final CountDownLatch removed = new CountDownLatch(1);
+            final FastThreadLocal<String> threadLocal = new FastThreadLocal<String>() {
+                @Override
+                protected void onRemoval(String value) {
+                    removed.countDown();
+                }
+            };
+            final EventExecutor executor = group.next();
+            assertTrue(executor instanceof OrderedEventExecutor);
+            assertFalse(executor.inEventLoop());
+            final BlockingQueue<Boolean> queue = new LinkedBlockingQueue<Boolean>();
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    queue.add(executor.inEventLoop());
+                    threadLocal.set("value");
+                }
+            }).sync();
+            assertSame(Boolean.TRUE, queue.take());
+            assertFalse(executor.inEventLoop());
+            // The FastThreadLocals are removed once the thread has no more tasks to execute.
+            assertTrue(removed.await(3, TimeUnit.SECONDS));
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testShutdown() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(Executors.defaultThreadFactory());
+        final EventExecutor executor = group.next();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executed = new AtomicInteger();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                executed.incrementAndGet();
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                executed.incrementAndGet();
+            }
+        });
+
+        Future<?> terminationFuture = group.shutdownGracefully();
+        assertTrue(group.isShutdown());
+        assertFalse(group.isTerminated());
+        assertThrows(RejectedExecutionException.class, new Executable() {
+            @Override
+            public void execute() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP
+                    }
+                });
+            }
+        });
+
+        // The tasks which were added before the shutdown are still executed.
+        release.countDown();
+        terminationFuture.sync();
+        assertTrue(group.isTerminated());
+        assertEquals(2, executed.get());
+    }
+
+    private static void execute(EventExecutor executor) throws Throwable {
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        final AtomicInteger last = new AtomicInteger();
+        int tasks = 10000;
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+        for (int i = 1 ; i <= tasks; i++) {
+            final int id = i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (cause.get() == null) {
+                        int lastId = last.get();
+                        if (lastId >= id) {
+                            cause.compareAndSet(null, new AssertionError(
+                                    "Out of order execution id(" + id + ") >= lastId(" + lastId + ')'));
+                        }
+                        if (!last.compareAndSet(lastId, id)) {
+                            cause.compareAndSet(null, new AssertionError("Concurrent execution of tasks"));
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future: futures) {
+            future.syncUninterruptibly();
+        }
+        Throwable error = cause.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+}
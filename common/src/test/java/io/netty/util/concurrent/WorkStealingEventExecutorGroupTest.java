@@ -0,0 +1,267 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.NettyRuntime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorkStealingEventExecutorGroupTest {
+
+    @ParameterizedTest(name = "{index}: maxTaskExecutePerRun = {0}")
+    @ValueSource(ints = { 1, 64, 1024, Integer.MAX_VALUE })
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testOrdering(int maxTaskExecutePerRun) throws Throwable {
+        final int threads = NettyRuntime.availableProcessors() * 2;
+        final WorkStealingEventExecutorGroup group =
+                new WorkStealingEventExecutorGroup(Math.max(2, threads / 2), null, maxTaskExecutePerRun);
+        try {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+            List<Thread> threadList = new ArrayList<Thread>(threads);
+            for (int i = 0 ; i < threads; i++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            execute(group.next(), startLatch);
+                        } catch (Throwable cause) {
+                            error.compareAndSet(null, cause);
+                        }
+                    }
+                });
+                threadList.add(thread);
+                thread.start();
+            }
+            startLatch.countDown();
+            for (Thread t: threadList) {
+                t.join();
+            }
+            Throwable cause = error.get();
+            if (cause != null) {
+                throw cause;
+            }
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testIdleThreadStealsFromBusyThread() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            // The executors are assigned to the threads in a round-robin fashion, so the first and the third
+            // executor start on the same thread.
+            EventExecutor busy = group.next();
+            group.next();
+            EventExecutor stolen = group.next();
+
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            busy.execute(new Runnable() {
+                @Override
+                public void run() {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            blocked.await();
+
+            final CountDownLatch ran = new CountDownLatch(1);
+            stolen.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ran.countDown();
+                }
+            });
+            // Must be executed by the other thread while the first one is still busy.
+            assertTrue(ran.await(3, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testInEventLoop() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            final EventExecutor executor = group.next();
+            assertTrue(executor instanceof OrderedEventExecutor);
+            assertFalse(executor.inEventLoop());
+            final BlockingQueue<Boolean> queue = new LinkedBlockingQueue<Boolean>();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    queue.add(executor.inEventLoop());
+                }
+            });
+            assertSame(Boolean.TRUE, queue.take());
+            assertFalse(executor.inEventLoop());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testScheduleOnGroup() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            final AtomicInteger counter = new AtomicInteger();
+            ScheduledFuture<Integer> future = group.schedule(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return counter.incrementAndGet();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            assertEquals(1, (int) future.sync().getNow());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testExecuteAfterShutdownIsRejected() {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        final EventExecutor executor = group.next();
+        group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+
+        // Every attempt must be rejected, the first one must not leave the executor in the submitted state.
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RejectedExecutionException.class, new Executable() {
+                @Override
+                public void execute() {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            // NOOP
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testExecuteRejectedByShutdownWorker() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            // The executors are assigned to the workers round-robin, so one of them uses the worker which is shut
+            // down while the group itself is not shut down yet. This is the same as a shutdown which races with
+            // execute(...) after its up-front check.
+            EventExecutor worker = group.iterator().next();
+            worker.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+            assertFalse(group.isShutdown());
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            };
+            int rejected = 0;
+            for (int i = 0; i < 2; i++) {
+                final EventExecutor executor = group.next();
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException expected) {
+                    rejected++;
+                    // The executor must not stay submitted, so it is rejected again instead of queueing the task.
+                    assertThrows(RejectedExecutionException.class, new Executable() {
+                        @Override
+                        public void execute() {
+                            executor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    // NOOP
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+            assertEquals(1, rejected);
+            // The other executor is still working.
+            latch.await();
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
+    private static void execute(EventExecutor executor, CountDownLatch startLatch) throws Throwable {
+        final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+        final AtomicInteger last = new AtomicInteger();
+        int tasks = 10000;
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+        startLatch.await();
+
+        for (int i = 1 ; i <= tasks; i++) {
+            final int id = i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (cause.get() == null) {
+                        int lastId = last.get();
+                        if (lastId >= id) {
+                            cause.compareAndSet(null, new AssertionError(
+                                    "Out of order execution id(" + id + ") >= lastId(" + lastId + ')'));
+                        }
+                        if (!last.compareAndSet(lastId, id)) {
+                            cause.compareAndSet(null, new AssertionError("Concurrent execution of tasks"));
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future: futures) {
+            future.syncUninterruptibly();
+        }
+        Throwable error = cause.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.channel.KernelTlsChannel;
+import io.netty.util.CharsetUtil;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.util.Arrays;
+
+/**
+ * The keys of an established TLS 1.2 connection which uses AES-GCM, which are needed to offload the record
+ * protection to the kernel via {@link KernelTlsChannel}.
+ * <p>
+ * The keys are derived from the master secret as described in
+ * <a href="https://tools.ietf.org/html/rfc5246#section-6.3">rfc5246</a>. As AEAD ciphers do not use MAC keys, the
+ * key block only consists of the client and server write keys followed by the 4 bytes client and server write IVs.
+ */
+final class KernelTlsKeys {
+
+    /**
+     * The sequence number of the first record after the handshake, as the only record which was protected by the
+     * new keys is the {@code Finished} message of each peer.
+     */
+    static final long FIRST_RECORD_SEQUENCE = 1;
+
+    private static final byte[] KEY_EXPANSION = "key expansion".getBytes(CharsetUtil.US_ASCII);
+    private static final int SALT_LENGTH = 4;
+
+    final byte[] writeKey;
+    final byte[] writeSalt;
+    final byte[] readKey;
+    final byte[] readSalt;
+
+    private KernelTlsKeys(byte[] writeKey, byte[] writeSalt, byte[] readKey, byte[] readSalt) {
+        this.writeKey = writeKey;
+        this.writeSalt = writeSalt;
+        this.readKey = readKey;
+        this.readSalt = readSalt;
+    }
+
+    /**
+     * Returns the keys of the connection of the given {@link SSLEngine} or {@code null} if these can not be offloaded.
+     */
+    static KernelTlsKeys of(SSLEngine engine) {
+        if (!(engine instanceof ReferenceCountedOpenSslEngine)) {
+            // Only OpenSSL allows to access the master secret without reflection.
+            return null;
+        }
+        SSLSession session = engine.getSession();
+        if (!SslProtocols.TLS_v1_2.equals(session.getProtocol())) {
+            return null;
+        }
+        ReferenceCountedOpenSslEngine openSslEngine = (ReferenceCountedOpenSslEngine) engine;
+        SecretKeySpec masterKey = openSslEngine.masterKey();
+        byte[] clientRandom = openSslEngine.clientRandom();
+        byte[] serverRandom = openSslEngine.serverRandom();
+        if (masterKey == null || clientRandom == null || serverRandom == null) {
+            // The engine was destroyed in the meantime.
+            return null;
+        }
+        byte[] masterSecret = masterKey.getEncoded();
+        try {
+            return of(engine.getUseClientMode(), session.getCipherSuite(), masterSecret, clientRandom, serverRandom);
+        } finally {
+            Arrays.fill(masterSecret, (byte) 0);
+        }
+    }
+
+    /**
+     * Derives the keys for the given cipher suite or returns {@code null} if the cipher suite is not supported.
+     */
+    static KernelTlsKeys of(boolean client, String cipherSuite, byte[] masterSecret,
+                            byte[] clientRandom, byte[] serverRandom) {
+        final int keyLength;
+        final String algo;
+        if (cipherSuite.endsWith("_WITH_AES_128_GCM_SHA256")) {
+            keyLength = 16;
+            algo = "HmacSHA256";
+        } else if (cipherSuite.endsWith("_WITH_AES_256_GCM_SHA384")) {
+            keyLength = 32;
+            algo = "HmacSHA384";
+        } else {
+            return null;
+        }
+
+        byte[] seed = Arrays.copyOf(serverRandom, serverRandom.length + clientRandom.length);
+        System.arraycopy(clientRandom, 0, seed, serverRandom.length, clientRandom.length);
+        byte[] keyBlock = PseudoRandomFunction.hash(
+                masterSecret, KEY_EXPANSION, seed, 2 * (keyLength + SALT_LENGTH), algo);
+
+        int offset = 0;
+        byte[] clientKey = Arrays.copyOfRange(keyBlock, offset, offset += keyLength);
+        byte[] serverKey = Arrays.copyOfRange(keyBlock, offset, offset += keyLength);
+        byte[] clientSalt = Arrays.copyOfRange(keyBlock, offset, offset += SALT_LENGTH);
+        byte[] serverSalt = Arrays.copyOfRange(keyBlock, offset, offset + SALT_LENGTH);
+        Arrays.fill(keyBlock, (byte) 0);
+        return client ? new KernelTlsKeys(clientKey, clientSalt, serverKey, serverSalt) :
+                new KernelTlsKeys(serverKey, serverSalt, clientKey, clientSalt);
+    }
+
+    /**
+     * Overwrites the keys, which must be called once these were installed or are not needed anymore.
+     */
+    void destroy() {
+        Arrays.fill(writeKey, (byte) 0);
+        Arrays.fill(writeSalt, (byte) 0);
+        Arrays.fill(readKey, (byte) 0);
+        Arrays.fill(readSalt, (byte) 0);
+    }
+}
@@ -33,6 +33,7 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.KernelTlsChannel;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.UnsupportedMessageTypeException;
@@ -190,6 +191,19 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      */
     private static final int STATE_FIRE_CHANNEL_READ = 1 << 8;
     private static final int STATE_UNWRAP_REENTRY = 1 << 9;
+    /**
+     * Set while the handshake data is written before the kernel takes over the encryption, writes are not wrapped
+     * until it is cleared.
+     */
+    private static final int STATE_KERNEL_TLS_PENDING = 1 << 10;
+    /**
+     * Set once the kernel encrypts the records which are written, writes are passed through as is.
+     */
+    private static final int STATE_KERNEL_TLS_TX = 1 << 11;
+    /**
+     * Set once the kernel decrypts the records which are read, reads are passed through as is.
+     */
+    private static final int STATE_KERNEL_TLS_RX = 1 << 12;
 
     /**
      * <a href="https://tools.ietf.org/html/rfc5246#section-6.2">2^14</a> which is the maximum sized plaintext chunk
@@ -404,6 +418,7 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
     private volatile long handshakeTimeoutMillis = 10000;
     private volatile long closeNotifyFlushTimeoutMillis = 3000;
     private volatile long closeNotifyReadTimeoutMillis;
+    private volatile boolean kernelTlsOffload;
     volatile int wrapDataSize = MAX_PLAINTEXT_LENGTH;
 
     /**
@@ -493,6 +508,34 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         this.wrapDataSize = wrapDataSize;
     }
 
+    /**
+     * Sets if the record protection should be offloaded to the kernel once the handshake is complete. This is only
+     * done if the {@link Channel} is a {@link KernelTlsChannel}, the {@link SSLEngine} is provided by
+     * {@link SslProvider#OPENSSL} or {@link SslProvider#OPENSSL_REFCNT} and the negotiated protocol is TLSv1.2 with an
+     * AES-GCM cipher suite. Otherwise, or if the kernel does not support it, the records are protected by the
+     * {@link SSLEngine} as usual.
+     * <p>
+     * Once the kernel encrypts the written records, this handler writes everything as is, which allows to write
+     * {@link io.netty.channel.FileRegion}s via {@code sendfile}. It removes itself from the {@link ChannelPipeline}
+     * once the kernel also decrypts the read records, which is only possible if the remote peer did not send any
+     * application data before the handshake was complete. Renegotiation is not supported after the offload and no
+     * {@code close_notify} is sent on close, as the {@link SSLEngine} does not know the state of the kernel.
+     */
+    @UnstableApi
+    public void setKernelTlsOffload(boolean kernelTlsOffload) {
+        this.kernelTlsOffload = kernelTlsOffload;
+    }
+
+    /**
+     * Returns {@code true} if the record protection should be offloaded to the kernel once the handshake is complete.
+     *
+     * @see #setKernelTlsOffload(boolean)
+     */
+    @UnstableApi
+    public boolean isKernelTlsOffload() {
+        return kernelTlsOffload;
+    }
+
     /**
      * @deprecated use {@link #getCloseNotifyFlushTimeoutMillis()}
      */
@@ -691,7 +734,9 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                     ctx.fireUserEventTriggered(new SslHandshakeCompletionEvent(cause));
                 }
             }
-            if (!sslClosePromise.isDone()) {
+            // If the kernel took over the record protection, the promise is notified once the channel is closed.
+            if (!sslClosePromise.isDone() &&
+                    !(isStateSet(STATE_KERNEL_TLS_TX) && isStateSet(STATE_KERNEL_TLS_RX))) {
                 if (cause == null) {
                     cause = new SSLException("SslHandler removed before SSLEngine was closed");
                 }
@@ -745,7 +790,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     @Override
     public void write(final ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-        if (!(msg instanceof ByteBuf)) {
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            // The kernel encrypts the records.
+            ctx.write(msg, promise);
+        } else if (!(msg instanceof ByteBuf)) {
             UnsupportedMessageTypeException exception = new UnsupportedMessageTypeException(msg, ByteBuf.class);
             ReferenceCountUtil.safeRelease(msg);
             promise.setFailure(exception);
@@ -759,6 +807,15 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            ctx.flush();
+            return;
+        }
+        if (isStateSet(STATE_KERNEL_TLS_PENDING)) {
+            // The pending writes are flushed once the kernel took over the encryption.
+            return;
+        }
+
         // Do not encrypt the first write request if this handler is
         // created with startTLS flag turned on.
         if (startTls && !isStateSet(STATE_SENT_FIRST_MESSAGE)) {
@@ -805,6 +862,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     // This method will not call setHandshakeFailure(...) !
     private void wrap(ChannelHandlerContext ctx, boolean inUnwrap) throws SSLException {
+        if (isStateSet(STATE_KERNEL_TLS_PENDING) || isStateSet(STATE_KERNEL_TLS_TX)) {
+            // The application data must not be encrypted by the SSLEngine anymore.
+            return;
+        }
         ByteBuf out = null;
         ByteBufAllocator alloc = ctx.alloc();
         try {
@@ -1287,6 +1348,17 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         }
     }
 
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (isStateSet(STATE_KERNEL_TLS_RX)) {
+            // The kernel decrypted the records already.
+            setState(STATE_FIRE_CHANNEL_READ);
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
         channelReadComplete0(ctx);
@@ -1824,6 +1896,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         // Our control flow may invoke this method multiple times for a single FINISHED event. For example
         // wrapNonAppData may drain pendingUnencryptedWrites in wrap which transitions to handshake from FINISHED to
         // NOT_HANDSHAKING which invokes setHandshakeSuccess, and then wrapNonAppData also directly invokes this method.
+        if (kernelTlsOffload && !handshakePromise.isDone()) {
+            // Must be done before the handshake promise is notified, as the listeners may write application data.
+            startKernelTlsOffload(ctx);
+        }
         final boolean notified;
         if (notified = !handshakePromise.isDone() && handshakePromise.trySuccess(ctx.channel())) {
             if (logger.isDebugEnabled()) {
@@ -1845,6 +1921,88 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         return notified;
     }
 
+    private void startKernelTlsOffload(final ChannelHandlerContext ctx) {
+        final Channel channel = ctx.channel();
+        if (!(channel instanceof KernelTlsChannel)) {
+            return;
+        }
+        final KernelTlsKeys keys = KernelTlsKeys.of(engine);
+        if (keys == null) {
+            logger.debug("{} Protocol or cipher suite of {} not supported by kernel TLS", channel, engine);
+            return;
+        }
+        final KernelTlsChannel kernelTlsChannel = (KernelTlsChannel) channel;
+
+        // The kernel decrypts the records as soon as the keys are installed. This is only possible if we did not
+        // receive any record after the Finished message of the remote peer yet.
+        if (!isStateSet(STATE_UNWRAP_REENTRY) && !internalBuffer().isReadable()) {
+            try {
+                kernelTlsChannel.setKernelTls(false, keys.readKey, keys.readSalt, KernelTlsKeys.FIRST_RECORD_SEQUENCE);
+                setState(STATE_KERNEL_TLS_RX);
+            } catch (IOException e) {
+                logger.debug("{} Failed to offload the decryption to the kernel", channel, e);
+                keys.destroy();
+                return;
+            }
+        }
+
+        // The kernel encrypts everything which is written after the keys are installed, so all the handshake data
+        // needs to be written before.
+        setState(STATE_KERNEL_TLS_PENDING);
+        ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                try {
+                    finishKernelTlsOffload(ctx, kernelTlsChannel, keys, future.isSuccess());
+                } finally {
+                    // The keys were either installed or will never be.
+                    keys.destroy();
+                }
+            }
+        });
+    }
+
+    private void finishKernelTlsOffload(ChannelHandlerContext ctx, KernelTlsChannel channel, KernelTlsKeys keys,
+                                        boolean handshakeWritten) {
+        clearState(STATE_KERNEL_TLS_PENDING);
+        if (ctx.isRemoved()) {
+            return;
+        }
+        // If the channel was closed in the meantime the close_notify is still pending and must be encrypted by the
+        // SSLEngine.
+        if (handshakeWritten && !isStateSet(STATE_OUTBOUND_CLOSED)) {
+            try {
+                channel.setKernelTls(true, keys.writeKey, keys.writeSalt, KernelTlsKeys.FIRST_RECORD_SEQUENCE);
+                setState(STATE_KERNEL_TLS_TX);
+            } catch (IOException e) {
+                logger.debug("{} Failed to offload the encryption to the kernel", channel, e);
+            }
+        }
+
+        if (!isStateSet(STATE_KERNEL_TLS_TX)) {
+            // Continue to encrypt the pending writes with the SSLEngine.
+            try {
+                wrapAndFlush(ctx);
+            } catch (Throwable cause) {
+                setHandshakeFailure(ctx, cause);
+            }
+            return;
+        }
+        pendingUnencryptedWrites.writeAndRemoveAll(ctx);
+        ctx.flush();
+        if (isStateSet(STATE_KERNEL_TLS_RX)) {
+            // The kernel takes care of everything, so we are not needed anymore. As the inbound of the SSLEngine will
+            // never be closed, consider it to be closed together with the channel.
+            channel.closeFuture().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    sslClosePromise.trySuccess(future.channel());
+                }
+            });
+            ctx.pipeline().remove(this);
+        }
+    }
+
     /**
      * Notify all the handshake futures about the failure during the handshake.
      */
@@ -1926,6 +2084,16 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         setState(STATE_OUTBOUND_CLOSED);
         engine.closeOutbound();
 
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            // The SSLEngine can not produce the close_notify anymore, as the kernel encrypts the records.
+            if (disconnect) {
+                ctx.disconnect(promise);
+            } else {
+                ctx.close(promise);
+            }
+            return;
+        }
+
         if (!ctx.channel().isActive()) {
             if (disconnect) {
                 ctx.disconnect(promise);
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class KernelTlsKeysTest {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testAes128() {
+        testKeys("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256", 16, "HmacSHA256");
+    }
+
+    @Test
+    public void testAes256() {
+        testKeys("TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384", 32, "HmacSHA384");
+    }
+
+    @Test
+    public void testUnsupportedCipherSuite() {
+        byte[] masterSecret = randomBytes(48);
+        byte[] clientRandom = randomBytes(32);
+        byte[] serverRandom = randomBytes(32);
+        assertNull(KernelTlsKeys.of(true, "TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA",
+                masterSecret, clientRandom, serverRandom));
+        assertNull(KernelTlsKeys.of(true, "TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256",
+                masterSecret, clientRandom, serverRandom));
+        assertNull(KernelTlsKeys.of(true, "TLS_AES_128_GCM_SHA256",
+                masterSecret, clientRandom, serverRandom));
+    }
+
+    private static void testKeys(String cipherSuite, int keyLength, String algo) {
+        byte[] masterSecret = randomBytes(48);
+        byte[] clientRandom = randomBytes(32);
+        byte[] serverRandom = randomBytes(32);
+
+        KernelTlsKeys client = KernelTlsKeys.of(true, cipherSuite, masterSecret, clientRandom, serverRandom);
+        KernelTlsKeys server = KernelTlsKeys.of(false, cipherSuite, masterSecret, clientRandom, serverRandom);
+
+        assertEquals(keyLength, client.writeKey.length);
+        assertEquals(keyLength, client.readKey.length);
+        assertEquals(4, client.writeSalt.length);
+        assertEquals(4, client.readSalt.length);
+
+        // What is written by one peer must be read by the other one.
+        assertArrayEquals(client.writeKey, server.readKey);
+        assertArrayEquals(client.writeSalt, server.readSalt);
+        assertArrayEquals(client.readKey, server.writeKey);
+        assertArrayEquals(client.readSalt, server.writeSalt);
+        assertFalse(Arrays.equals(client.writeKey, client.readKey));
+
+        // key_block = PRF(master_secret, "key expansion", server_random + client_random)
+        byte[] seed = new byte[serverRandom.length + clientRandom.length];
+        System.arraycopy(serverRandom, 0, seed, 0, serverRandom.length);
+        System.arraycopy(clientRandom, 0, seed, serverRandom.length, clientRandom.length);
+        byte[] keyBlock = PseudoRandomFunction.hash(masterSecret, "key expansion".getBytes(CharsetUtil.US_ASCII),
+                seed, 2 * (keyLength + 4), algo);
+        assertArrayEquals(Arrays.copyOfRange(keyBlock, 0, keyLength), client.writeKey);
+        assertArrayEquals(Arrays.copyOfRange(keyBlock, keyLength, 2 * keyLength), server.writeKey);
+        assertArrayEquals(Arrays.copyOfRange(keyBlock, 2 * keyLength, 2 * keyLength + 4), client.writeSalt);
+        assertArrayEquals(Arrays.copyOfRange(keyBlock, 2 * keyLength + 4, keyBlock.length), server.writeSalt);
+
+        client.destroy();
+        assertArrayEquals(new byte[keyLength], client.writeKey);
+        assertArrayEquals(new byte[keyLength], client.readKey);
+        assertArrayEquals(new byte[4], client.writeSalt);
+        assertArrayEquals(new byte[4], client.readSalt);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares allocating a batch of small buffers one by one with the bulk allocation methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ByteBufAllocatorBulkBenchmark extends AbstractMicrobenchmark {
+
+    private final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true);
+
+    @Param({ "4", "8", "16" })
+    public int batchSize;
+
+    @Param({ "9", "64" })
+    public int capacity;
+
+    private int[] capacities;
+    private ByteBuf[] buffers;
+
+    @Setup
+    public void setUp() {
+        capacities = new int[batchSize];
+        Arrays.fill(capacities, capacity);
+        buffers = new ByteBuf[batchSize];
+    }
+
+    @Benchmark
+    public ByteBuf[] oneByOne() {
+        ByteBuf[] buffers = this.buffers;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(capacities[i]);
+        }
+        return release(buffers);
+    }
+
+    @Benchmark
+    public ByteBuf[] bulk() {
+        return release(allocator.directBuffers(capacities));
+    }
+
+    @Benchmark
+    public ByteBuf[] sliced() {
+        return release(allocator.slicedBuffers(capacities));
+    }
+
+    private static ByteBuf[] release(ByteBuf[] buffers) {
+        for (ByteBuf buffer : buffers) {
+            buffer.release();
+        }
+        return buffers;
+    }
+}
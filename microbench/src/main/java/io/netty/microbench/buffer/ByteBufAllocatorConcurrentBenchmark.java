@@ -16,6 +16,7 @@
 package io.netty.microbench.buffer;
 
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -33,6 +34,10 @@ import org.openjdk.jmh.annotations.Warmup;
 public class ByteBufAllocatorConcurrentBenchmark  extends AbstractMicrobenchmark {
 
     private static final ByteBufAllocator unpooledAllocator = new UnpooledByteBufAllocator(true, true);
+    // No thread caches and a single arena, so all threads contend on the subpage pools of the same arena like
+    // threads that are not event loops would do.
+    private static final ByteBufAllocator pooledAllocatorWithoutCache =
+            new PooledByteBufAllocator(true, 0, 1, 8192, 9, 0, 0, false);
 
     @Param({ "00064", "00256", "01024", "04096" })
     public int size;
@@ -41,4 +46,9 @@ public class ByteBufAllocatorConcurrentBenchmark  extends AbstractMicrobenchmark
     public boolean allocateRelease() {
         return unpooledAllocator.directBuffer(size).release();
     }
+
+    @Benchmark
+    public boolean pooledAllocateReleaseWithoutCache() {
+        return pooledAllocatorWithoutCache.directBuffer(size).release();
+    }
 }
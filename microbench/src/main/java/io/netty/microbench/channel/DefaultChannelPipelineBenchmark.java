@@ -18,9 +18,13 @@ package io.netty.microbench.channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
@@ -56,6 +60,27 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
         }
     };
 
+    private static final ChannelHandler CONSUMING_OUTBOUND_HANDLER = new ChannelOutboundHandlerAdapter() {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            promise.setSuccess();
+        }
+
+        @Override
+        public boolean isSharable() {
+            return true;
+        }
+    };
+
+    private static final FutureListener<Void> NOOP_LISTENER = new FutureListener<Void>() {
+        @Override
+        public void operationComplete(Future<Void> future) {
+            // NOOP
+        }
+    };
+
+    private static final Object MESSAGE = new Object();
+
     @Param({ "4" })
     public int extraHandlers;
 
@@ -68,6 +93,7 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
             pipeline.addLast(NOOP_HANDLER);
         }
         pipeline.addLast(CONSUMING_HANDLER);
+        pipeline.addFirst(CONSUMING_OUTBOUND_HANDLER);
     }
 
     @TearDown
@@ -81,4 +107,25 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
             hole.consume(pipeline.fireChannelReadComplete());
         }
     }
+
+    @State(Scope.Thread)
+    public static class WriteState {
+        @Param({ "0", "1", "2", "3" })
+        public int listeners;
+    }
+
+    /**
+     * Writes with a promise which has the given number of listeners, like a write whose completion is observed by a
+     * handler and by the application. Run with {@code -prof gc} to compare the garbage per write.
+     */
+    @Benchmark
+    public void writeWithListeners(WriteState state, Blackhole hole) {
+        for (int i = 0; i < 100; i++) {
+            ChannelPromise promise = pipeline.newPromise();
+            for (int j = 0; j < state.listeners; j++) {
+                promise.addListener(NOOP_LISTENER);
+            }
+            hole.consume(pipeline.write(MESSAGE, promise));
+        }
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.DatagramPacketBatch;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends {@link #datagrams} datagrams of {@link #datagramSize} bytes over the loopback interface and waits until all
+ * of these were received, either with one {@link DatagramPacket} per datagram or with one
+ * {@link DatagramPacketBatch} per {@code sendmmsg} / {@code recvmmsg} call.
+ */
+public class EpollDatagramBatchBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "false", "true" })
+    public boolean batch;
+
+    @Param({ "64", "1024" })
+    public int datagramSize;
+
+    @Param({ "32" })
+    public int datagrams;
+
+    private EpollEventLoopGroup group;
+    private Channel serverChan;
+    private Channel chan;
+    private InetSocketAddress recipient;
+    private ByteBuf data;
+    private CountingHandler counter;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new EpollEventLoopGroup(1);
+        counter = new CountingHandler();
+        serverChan = new Bootstrap()
+                .channel(EpollDatagramChannel.class)
+                .group(group)
+                .option(ChannelOption.SO_RCVBUF, 4 * 1024 * 1024)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(datagramSize * datagrams))
+                .option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, datagramSize)
+                .option(EpollChannelOption.DATAGRAM_BATCH_READ, batch)
+                .handler(counter)
+                .bind(NetUtil.LOCALHOST, 0)
+                .sync()
+                .channel();
+        chan = new Bootstrap()
+                .channel(EpollDatagramChannel.class)
+                .group(group)
+                .handler(new ChannelInboundHandlerAdapter())
+                .bind(NetUtil.LOCALHOST, 0)
+                .sync()
+                .channel();
+        recipient = (InetSocketAddress) serverChan.localAddress();
+        data = chan.alloc().directBuffer(datagramSize).writeZero(datagramSize);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        chan.close().sync();
+        serverChan.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        data.release();
+    }
+
+    @Benchmark
+    public Object sendAndReceive() throws Exception {
+        Promise<Void> received = counter.expect(datagrams);
+        if (batch) {
+            DatagramPacketBatch packets = new DatagramPacketBatch(
+                    chan.alloc().directBuffer(datagramSize * datagrams), datagrams);
+            for (int i = 0; i < datagrams; i++) {
+                packets.add(data, recipient);
+            }
+            chan.writeAndFlush(packets, chan.voidPromise());
+        } else {
+            for (int i = 0; i < datagrams; i++) {
+                chan.write(new DatagramPacket(data.retainedDuplicate(), recipient), chan.voidPromise());
+            }
+            chan.flush();
+        }
+        return received.sync();
+    }
+
+    private final class CountingHandler extends ChannelInboundHandlerAdapter {
+        private volatile Promise<Void> promise;
+        private int remaining;
+
+        Promise<Void> expect(final int datagrams) throws Exception {
+            final Promise<Void> promise = group.next().newPromise();
+            // Reset the state from the EventLoop, as this is where the datagrams are counted.
+            serverChan.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    remaining = datagrams;
+                    CountingHandler.this.promise = promise;
+                }
+            }).sync();
+            return promise;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            try {
+                remaining -= msg instanceof DatagramPacketBatch ? ((DatagramPacketBatch) msg).count() : 1;
+                if (remaining <= 0) {
+                    promise.trySuccess(null);
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import io.netty.channel.kqueue.KQueueEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.TaskWaitStrategy;
 import io.netty.util.internal.PlatformDependent;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -168,6 +169,8 @@ public class BurstCostExecutorsBenchmark extends AbstractMicrobenchmark {
     private enum ExecutorType {
         spinning,
         defaultEventExecutor,
+        spinYieldParkDefaultEventExecutor,
+        busySpinDefaultEventExecutor,
         juc,
         nioEventLoop,
         epollEventLoop,
@@ -176,7 +179,8 @@ public class BurstCostExecutorsBenchmark extends AbstractMicrobenchmark {
 
     @Param({ "1", "10" })
     private int burstLength;
-    @Param({ "spinning", "epollEventLoop", "nioEventLoop", "defaultEventExecutor", "juc", "kqueueEventLoop" })
+    @Param({ "spinning", "epollEventLoop", "nioEventLoop", "defaultEventExecutor", "spinYieldParkDefaultEventExecutor",
+            "busySpinDefaultEventExecutor", "juc", "kqueueEventLoop" })
     private String executorType;
     @Param({ "0", "10" })
     private int work;
@@ -200,6 +204,18 @@ public class BurstCostExecutorsBenchmark extends AbstractMicrobenchmark {
             executor = new DefaultEventExecutor();
             executorToShutdown = executor;
             break;
+        case spinYieldParkDefaultEventExecutor:
+            DefaultEventExecutor spinYieldParkExecutor = new DefaultEventExecutor();
+            spinYieldParkExecutor.setTaskWaitStrategy(TaskWaitStrategy.SPIN_YIELD_PARK);
+            executor = spinYieldParkExecutor;
+            executorToShutdown = executor;
+            break;
+        case busySpinDefaultEventExecutor:
+            DefaultEventExecutor busySpinExecutor = new DefaultEventExecutor();
+            busySpinExecutor.setTaskWaitStrategy(TaskWaitStrategy.BUSY_SPIN);
+            executor = busySpinExecutor;
+            executorToShutdown = executor;
+            break;
         case juc:
             executor = Executors.newSingleThreadScheduledExecutor();
             executorToShutdown = executor;
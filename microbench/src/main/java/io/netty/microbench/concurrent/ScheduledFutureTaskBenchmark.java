@@ -15,7 +15,7 @@
  */
 package io.netty.microbench.concurrent;
 
-import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.DefaultEventLoopGroup;
 import io.netty.channel.EventLoop;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import io.netty.util.concurrent.Future;
@@ -36,7 +36,18 @@ import java.util.concurrent.TimeUnit;
 @State(Scope.Benchmark)
 public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
 
-    static final EventLoop executor = new DefaultEventLoop();
+    @Param({ "false", "true" })
+    boolean scheduledTaskWheel;
+
+    DefaultEventLoopGroup group;
+    EventLoop executor;
+
+    @Setup(Level.Trial)
+    public void start() {
+        group = new DefaultEventLoopGroup(1);
+        group.setScheduledTaskWheel(scheduledTaskWheel);
+        executor = group.next();
+    }
 
     @State(Scope.Thread)
     public static class FuturesHolder {
@@ -54,7 +65,8 @@ public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
         final List<ScheduledFuture<Void>> futures = new ArrayList<ScheduledFuture<Void>>();
 
         @Setup(Level.Invocation)
-        public void reset() {
+        public void reset(ScheduledFutureTaskBenchmark benchmark) {
+            final EventLoop executor = benchmark.executor;
             futures.clear();
             executor.submit(new Runnable() {
                 @Override
@@ -69,7 +81,7 @@ public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
 
     @TearDown(Level.Trial)
     public void stop() throws Exception {
-        executor.shutdownGracefully().syncUninterruptibly();
+        group.shutdownGracefully().syncUninterruptibly();
     }
 
     @Benchmark
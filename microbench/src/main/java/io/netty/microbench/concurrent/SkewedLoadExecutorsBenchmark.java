@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.WorkStealingEventExecutorGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes bursts of CPU-bound tasks on many ordered executors ("channels") whose load follows a Zipf distribution,
+ * so a few channels receive most of the tasks. The sampled time is the time until the whole burst is done, which is
+ * dominated by the most loaded thread: {@link DefaultEventExecutorGroup} pins every channel to one thread, while
+ * {@link WorkStealingEventExecutorGroup} lets idle threads take over the channels of busy threads. Compare the
+ * percentiles reported by JMH, like p0.99, of both.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SkewedLoadExecutorsBenchmark extends AbstractMicrobenchmark {
+
+    public enum ExecutorType {
+        DEFAULT,
+        WORK_STEALING
+    }
+
+    @Param
+    public ExecutorType executorType;
+
+    @Param({ "4" })
+    public int threads;
+
+    @Param({ "64" })
+    public int channels;
+
+    @Param({ "256" })
+    public int burstSize;
+
+    @Param({ "1000" })
+    public int workTokens;
+
+    private EventExecutorGroup group;
+    private EventExecutor[] executors;
+    // The channel of every task of a burst.
+    private int[] burst;
+
+    @Setup
+    public void setup() {
+        switch (executorType) {
+            case DEFAULT:
+                group = new DefaultEventExecutorGroup(threads);
+                break;
+            case WORK_STEALING:
+                group = new WorkStealingEventExecutorGroup(threads);
+                break;
+            default:
+                throw new Error();
+        }
+        executors = new EventExecutor[channels];
+        for (int i = 0; i < channels; i++) {
+            executors[i] = group.next();
+        }
+
+        // Channel i receives a share of the tasks which is proportional to 1 / (i + 1).
+        double[] cumulative = new double[channels];
+        double sum = 0;
+        for (int i = 0; i < channels; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(42);
+        burst = new int[burstSize];
+        for (int i = 0; i < burstSize; i++) {
+            double value = random.nextDouble() * sum;
+            int channel = 0;
+            while (cumulative[channel] < value) {
+                channel++;
+            }
+            burst[i] = channel;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void skewedBurst() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(burst.length);
+        final int workTokens = this.workTokens;
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                Blackhole.consumeCPU(workTokens);
+                done.countDown();
+            }
+        };
+        for (int channel : burst) {
+            executors[channel].execute(task);
+        }
+        done.await();
+    }
+}
@@ -16,6 +16,9 @@ package io.netty.microbenchmark.common;
 
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap.PrimitiveEntry;
+import io.netty.util.collection.IntObjectRobinHoodHashMap;
+import io.netty.util.collection.IntObjectVisitor;
 import org.agrona.collections.Int2ObjectHashMap;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -34,7 +37,8 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
 
     public enum MapType {
         AGRONA,
-        NETTY
+        NETTY,
+        NETTY_ROBIN_HOOD
     }
 
     public enum KeyDistribution {
@@ -64,6 +68,10 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
                 environment = new NettyEnvironment();
                 break;
             }
+            case NETTY_ROBIN_HOOD: {
+                environment = new NettyRobinHoodEnvironment();
+                break;
+            }
             default: {
                 throw new IllegalStateException("Invalid mapType: " + mapType);
             }
@@ -88,6 +96,12 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
         environment.remove(bh);
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void iterate(Blackhole bh) {
+        environment.iterate(bh);
+    }
+
     private abstract class Environment {
         final int[] keys;
         Environment() {
@@ -120,6 +134,7 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
         abstract void put(Blackhole bh);
         abstract void lookup(Blackhole bh);
         abstract void remove(Blackhole bh);
+        abstract void iterate(Blackhole bh);
     }
 
     private class AgronaEnvironment extends Environment {
@@ -154,6 +169,13 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
                 bh.consume(copy.remove(key));
             }
         }
+
+        @Override
+        void iterate(Blackhole bh) {
+            for (Long value : map.values()) {
+                bh.consume(value);
+            }
+        }
     }
 
     private class NettyEnvironment extends Environment {
@@ -188,5 +210,63 @@ public class IntObjectHashMapBenchmark extends AbstractMicrobenchmark {
                 bh.consume(copy.remove(key));
             }
         }
+
+        @Override
+        void iterate(Blackhole bh) {
+            for (PrimitiveEntry<Long> entry : map.entries()) {
+                bh.consume(entry.value());
+            }
+        }
+    }
+
+    private class NettyRobinHoodEnvironment extends Environment {
+        private final IntObjectRobinHoodHashMap<Long> map = new IntObjectRobinHoodHashMap<Long>();
+        private final ConsumingVisitor visitor = new ConsumingVisitor();
+
+        NettyRobinHoodEnvironment() {
+            for (int key : keys) {
+                map.put(key, VALUE);
+            }
+        }
+
+        @Override
+        void put(Blackhole bh) {
+            IntObjectRobinHoodHashMap<Long> map = new IntObjectRobinHoodHashMap<Long>();
+            for (int key : keys) {
+                bh.consume(map.put(key, VALUE));
+            }
+        }
+
+        @Override
+        void lookup(Blackhole bh) {
+            for (int key : keys) {
+                bh.consume(map.get(key));
+            }
+        }
+
+        @Override
+        void remove(Blackhole bh) {
+            IntObjectRobinHoodHashMap<Long> copy = new IntObjectRobinHoodHashMap<Long>();
+            copy.putAll(map);
+            for (int key : keys) {
+                bh.consume(copy.remove(key));
+            }
+        }
+
+        @Override
+        void iterate(Blackhole bh) {
+            visitor.bh = bh;
+            map.forEach(visitor);
+        }
+    }
+
+    private static final class ConsumingVisitor implements IntObjectVisitor<Long> {
+        Blackhole bh;
+
+        @Override
+        public boolean visit(int key, Long value) {
+            bh.consume(value);
+            return true;
+        }
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the schedule, cancel and expire throughput of {@link HashedWheelTimer} and {@link ShardedWheelTimer}
+ * when used by several threads at once.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TimerBenchmark extends AbstractMicrobenchmark {
+
+    public enum TimerType {
+        HASHED,
+        SHARDED
+    }
+
+    private static final TimerTask NO_OP = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+            // NOOP
+        }
+    };
+
+    @Param
+    public TimerType timerType;
+
+    private Timer timer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory("timer", true);
+        switch (timerType) {
+            case HASHED:
+                timer = new HashedWheelTimer(threadFactory, 1, TimeUnit.MILLISECONDS, 512, false);
+                break;
+            case SHARDED:
+                timer = new ShardedWheelTimer(threadFactory, 4, 1, TimeUnit.MILLISECONDS, 64, -1);
+                break;
+            default:
+                throw new Error();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class ExpireState {
+        // Bounds the number of timeouts each thread has in flight, so the throughput of the expiration is measured
+        // instead of an ever growing number of pending timeouts.
+        final Semaphore inFlight = new Semaphore(10000);
+        final TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                inFlight.release();
+            }
+        };
+
+        @TearDown(Level.Iteration)
+        public void drain() {
+            inFlight.acquireUninterruptibly(10000);
+            inFlight.release(10000);
+        }
+    }
+
+    /**
+     * Schedules a timeout which expires long after the benchmark, and cancels it right away, like an
+     * {@code IdleStateHandler} which is reset on every read.
+     */
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return timer.newTimeout(NO_OP, 1, TimeUnit.HOURS).cancel();
+    }
+
+    /**
+     * Schedules timeouts which expire after a millisecond.
+     */
+    @Benchmark
+    public Timeout scheduleAndExpire(ExpireState state) {
+        state.inFlight.acquireUninterruptibly();
+        return timer.newTimeout(state.task, 1, TimeUnit.MILLISECONDS);
+    }
+}
@@ -50,11 +50,16 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
         @Param({ "100000" })
         int num;
 
+        @Param({ "false", "true" })
+        boolean scheduledTaskWheel;
+
         AbstractScheduledEventExecutor eventLoop;
 
         @Setup(Level.Trial)
         public void reset() {
-            eventLoop = (AbstractScheduledEventExecutor) new NioEventLoopGroup(1).next();
+            NioEventLoopGroup group = new NioEventLoopGroup(1);
+            group.setScheduledTaskWheel(scheduledTaskWheel);
+            eventLoop = (AbstractScheduledEventExecutor) group.next();
         }
 
         @Setup(Level.Invocation)
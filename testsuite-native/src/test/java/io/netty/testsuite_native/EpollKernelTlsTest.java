@@ -0,0 +1,250 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.testsuite_native;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.NetUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@EnabledOnOs(OS.LINUX)
+public class EpollKernelTlsTest {
+
+    private static final String CIPHER_SUITE = "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256";
+    private static final Random random = new Random();
+    private static final byte[] data = new byte[256 * 1024];
+
+    static {
+        random.nextBytes(data);
+    }
+
+    private static EventLoopGroup group;
+
+    @BeforeAll
+    public static void setUp() {
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testEchoEdgeTriggered() throws Throwable {
+        testEcho(EpollMode.EDGE_TRIGGERED);
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testEchoLevelTriggered() throws Throwable {
+        testEcho(EpollMode.LEVEL_TRIGGERED);
+    }
+
+    private static void testEcho(EpollMode mode) throws Throwable {
+        assumeTrue(OpenSsl.isAvailable(), "OpenSSL is not available");
+        assumeTrue(isKernelTlsSupported(), "Kernel TLS is not supported");
+
+        SelfSignedCertificate cert = new SelfSignedCertificate();
+        final SslContext serverContext = SslContextBuilder.forServer(cert.certificate(), cert.privateKey())
+                .sslProvider(SslProvider.OPENSSL)
+                .protocols("TLSv1.2")
+                .ciphers(Collections.singletonList(CIPHER_SUITE))
+                .build();
+        final SslContext clientContext = SslContextBuilder.forClient()
+                .sslProvider(SslProvider.OPENSSL)
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .protocols("TLSv1.2")
+                .ciphers(Collections.singletonList(CIPHER_SUITE))
+                .build();
+
+        File file = File.createTempFile("netty-", ".tmp");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+
+        final ReceiveHandler handler = new ReceiveHandler();
+        Channel sc = new ServerBootstrap()
+                .group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(EpollChannelOption.EPOLL_MODE, mode)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        SslHandler sslHandler = serverContext.newHandler(ch.alloc());
+                        sslHandler.setKernelTlsOffload(true);
+                        ch.pipeline().addLast(sslHandler, new EchoHandler());
+                    }
+                })
+                .bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+        final SslHandler clientSslHandler = clientContext.newHandler(UnpooledByteBufAllocator.DEFAULT);
+        clientSslHandler.setKernelTlsOffload(true);
+        final Channel cc = new Bootstrap()
+                .group(group)
+                .channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.EPOLL_MODE, mode)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(clientSslHandler, handler);
+                    }
+                })
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        try {
+            clientSslHandler.handshakeFuture().syncUninterruptibly();
+
+            // The second write uses sendfile, which is only possible as the kernel encrypts the records.
+            cc.writeAndFlush(Unpooled.wrappedBuffer(data));
+            cc.writeAndFlush(new DefaultFileRegion(file, 0, data.length)).syncUninterruptibly();
+
+            handler.await(2 * data.length);
+            byte[] received = handler.received();
+            byte[] expected = new byte[2 * data.length];
+            System.arraycopy(data, 0, expected, 0, data.length);
+            System.arraycopy(data, 0, expected, data.length, data.length);
+            assertArrayEquals(expected, received);
+
+            // The kernel takes care of both directions, so the SslHandler is not needed anymore.
+            assertNull(cc.eventLoop().submit(new Callable<SslHandler>() {
+                @Override
+                public SslHandler call() {
+                    return cc.pipeline().get(SslHandler.class);
+                }
+            }).syncUninterruptibly().getNow());
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+            handler.release();
+            cert.delete();
+            file.delete();
+        }
+    }
+
+    private static boolean isKernelTlsSupported() throws Exception {
+        Channel sc = new ServerBootstrap()
+                .group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter())
+                .bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+        final EpollSocketChannel cc = (EpollSocketChannel) new Bootstrap()
+                .group(group)
+                .channel(EpollSocketChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        try {
+            return cc.eventLoop().submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    try {
+                        // Installing keys on a plain connection only fails if the kernel does not support TLS.
+                        cc.setKernelTls(true, new byte[16], new byte[4], 0);
+                        return true;
+                    } catch (IOException e) {
+                        return false;
+                    }
+                }
+            }).syncUninterruptibly().getNow();
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+        }
+    }
+
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    private static final class ReceiveHandler extends ChannelInboundHandlerAdapter {
+        private final ByteBuf received = Unpooled.buffer(2 * data.length);
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            synchronized (this) {
+                received.writeBytes(buf);
+                notifyAll();
+            }
+            buf.release();
+        }
+
+        synchronized void await(int length) throws InterruptedException {
+            while (received.readableBytes() < length) {
+                wait();
+            }
+        }
+
+        synchronized byte[] received() {
+            byte[] bytes = new byte[received.readableBytes()];
+            received.getBytes(received.readerIndex(), bytes);
+            return bytes;
+        }
+
+        synchronized void release() {
+            received.release();
+        }
+    }
+}
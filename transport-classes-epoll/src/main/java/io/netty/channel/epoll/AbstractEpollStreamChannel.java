@@ -31,12 +31,15 @@ import io.netty.channel.FileRegion;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.internal.ChannelUtils;
 import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.Errors;
 import io.netty.channel.unix.FileDescriptor;
 import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.SocketWritableByteChannel;
 import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -48,6 +51,7 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.WritableByteChannel;
 import java.util.Queue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import static io.netty.channel.internal.ChannelUtils.MAX_BYTES_PER_GATHERING_WRITE_ATTEMPTED_LOW_THRESHOLD;
 import static io.netty.channel.internal.ChannelUtils.WRITE_STATUS_SNDBUF_FULL;
@@ -61,6 +65,8 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ", " +
                     StringUtil.simpleClassName(DefaultFileRegion.class) + ')';
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractEpollStreamChannel.class);
+    private static final long ZERO_COPY_CLOSE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            SystemPropertyUtil.getLong("io.netty.channel.epoll.zeroCopyCloseTimeoutMillis", 30000));
 
     private final Runnable flushTask = new Runnable() {
         @Override
@@ -78,6 +84,9 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     private WritableByteChannel byteChannel;
 
+    // Lazy init this if we need to send with MSG_ZEROCOPY.
+    private volatile ZeroCopyTracker zeroCopyTracker;
+
     protected AbstractEpollStreamChannel(Channel parent, int fd) {
         this(parent, new LinuxSocket(fd));
     }
@@ -256,6 +265,10 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return 0;
         }
 
+        if (zeroCopyThreshold() >= 0) {
+            // Use the IovArray so the write may be sent with MSG_ZEROCOPY.
+            return doWriteMultiple(in);
+        }
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
             return doWriteBytes(in, buf);
         } else {
@@ -299,15 +312,77 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         final int cnt = array.count();
         assert cnt != 0;
 
+        final int zeroCopyThreshold = zeroCopyThreshold();
+        ZeroCopyTracker tracker = null;
+        if (zeroCopyThreshold >= 0) {
+            tracker = zeroCopyTracker();
+            if (expectedWrittenBytes >= zeroCopyThreshold) {
+                final long localWrittenBytes = socket.sendmsgZeroCopy(array.memoryAddress(0), cnt);
+                if (localWrittenBytes > 0) {
+                    adjustMaxBytesPerGatheringWrite(expectedWrittenBytes, localWrittenBytes, array.maxBytes());
+                    // Retain the written buffers until the kernel is done with them.
+                    tracker.sent(in, localWrittenBytes);
+                    in.removeBytes(localWrittenBytes);
+                    return 1;
+                }
+                if (localWrittenBytes == 0) {
+                    return WRITE_STATUS_SNDBUF_FULL;
+                }
+                // The kernel can not track more zero copy sends at the moment, copy the data instead.
+            }
+        }
+
         final long localWrittenBytes = socket.writevAddresses(array.memoryAddress(0), cnt);
         if (localWrittenBytes > 0) {
             adjustMaxBytesPerGatheringWrite(expectedWrittenBytes, localWrittenBytes, array.maxBytes());
+            if (tracker != null) {
+                tracker.copied(localWrittenBytes);
+            }
             in.removeBytes(localWrittenBytes);
             return 1;
         }
         return WRITE_STATUS_SNDBUF_FULL;
     }
 
+    /**
+     * Returns the minimum number of bytes a write must have to be sent with {@code MSG_ZEROCOPY} or {@code -1} if
+     * {@code MSG_ZEROCOPY} should not be used.
+     */
+    int zeroCopyThreshold() {
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if the kernel decrypts the TLS records which are read.
+     */
+    boolean isKernelTlsReceive() {
+        return false;
+    }
+
+    private ZeroCopyTracker zeroCopyTracker() {
+        ZeroCopyTracker tracker = zeroCopyTracker;
+        if (tracker == null) {
+            zeroCopyTracker = tracker = new ZeroCopyTracker();
+        }
+        return tracker;
+    }
+
+    /**
+     * Returns the number of bytes which were sent with {@code MSG_ZEROCOPY} without being copied by the kernel.
+     */
+    long zeroCopiedBytes() {
+        ZeroCopyTracker tracker = zeroCopyTracker;
+        return tracker == null ? 0 : tracker.zeroCopiedBytes();
+    }
+
+    /**
+     * Returns the number of bytes which were copied while {@code MSG_ZEROCOPY} was enabled.
+     */
+    long copiedBytes() {
+        ZeroCopyTracker tracker = zeroCopyTracker;
+        return tracker == null ? 0 : tracker.copiedBytes();
+    }
+
     /**
      * Write multiple bytes via {@link ByteBuffer} array.
      * @param in the collection which contains objects to write.
@@ -667,6 +742,14 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     protected void doClose() throws Exception {
+        ZeroCopyTracker tracker = zeroCopyTracker;
+        if (tracker != null && (!tracker.hasPending() || !isOpen())) {
+            tracker = null;
+        }
+        LinuxSocket zeroCopySocket = null;
+        if (tracker != null) {
+            zeroCopySocket = keepOpenForZeroCopySends();
+        }
         try {
             // Calling super.doClose() first so spliceTo(...) will fail on next call.
             super.doClose();
@@ -674,7 +757,39 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             safeClosePipe(pipeIn);
             safeClosePipe(pipeOut);
             clearSpliceQueue();
+            if (zeroCopySocket != null) {
+                tracker.closeWhenCompleted(zeroCopySocket, GlobalEventExecutor.INSTANCE, ZERO_COPY_CLOSE_TIMEOUT_NANOS);
+            } else if (tracker != null) {
+                // The connection was reset by the close, so the kernel dropped the data.
+                tracker.releaseAll();
+            }
+        }
+    }
+
+    /**
+     * Returns a duplicate of the socket which keeps it open after the channel was closed, so the completions of the
+     * pending {@code MSG_ZEROCOPY} sends can still be received. If this is not possible, {@code SO_LINGER} is set to
+     * {@code 0} so the close resets the connection and the kernel drops the data, and {@code null} is returned.
+     */
+    private LinuxSocket keepOpenForZeroCopySends() {
+        try {
+            // Shutdown the output, so the remote peer sees the end of the stream once all the data was sent, like
+            // it would after the close.
+            socket.shutdown(false, true);
+        } catch (IOException ignore) {
+            // The connection is broken already, the kernel still notifies us once it dropped the data.
+        }
+        try {
+            return socket.dup();
+        } catch (IOException e) {
+            logger.debug("Failed to keep {} open until all MSG_ZEROCOPY sends completed, resetting it", this, e);
+        }
+        try {
+            socket.setSoLinger(0);
+        } catch (IOException ignore) {
+            // The connection is broken already.
         }
+        return null;
     }
 
     private void clearSpliceQueue() {
@@ -725,6 +840,13 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             }
             allocHandle.readComplete();
             pipeline.fireChannelReadComplete();
+            if (isKernelTlsReceive() && cause instanceof Errors.NativeIoException &&
+                    ((Errors.NativeIoException) cause).expectedErr() == Native.ERRNO_EIO_NEGATIVE) {
+                // The kernel fails the read once it receives a record which is not application data, like the
+                // close_notify alert. We can not process these records, so just treat it like the end of the stream.
+                shutdownInput(false);
+                return;
+            }
             pipeline.fireExceptionCaught(cause);
 
             // If oom will close the read event, release connection.
@@ -734,6 +856,22 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             }
         }
 
+        @Override
+        void epollOutReady() {
+            ZeroCopyTracker tracker = zeroCopyTracker;
+            if (tracker != null && tracker.hasPending()) {
+                // The completion notifications of MSG_ZEROCOPY sends are signaled via EPOLLERR.
+                try {
+                    tracker.processNotifications(socket);
+                } catch (IOException e) {
+                    pipeline().fireExceptionCaught(e);
+                    close(voidPromise());
+                    return;
+                }
+            }
+            super.epollOutReady();
+        }
+
         @Override
         EpollRecvByteAllocatorHandle newEpollHandle(RecvByteBufAllocator.ExtendedHandle handle) {
             return new EpollRecvByteAllocatorStreamingHandle(handle);
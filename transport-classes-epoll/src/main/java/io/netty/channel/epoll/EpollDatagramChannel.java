@@ -28,6 +28,7 @@ import io.netty.channel.DefaultAddressedEnvelope;
 import io.netty.channel.socket.DatagramChannel;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.socket.InternetProtocolFamily;
+import io.netty.channel.unix.DatagramPacketBatch;
 import io.netty.channel.unix.Errors;
 import io.netty.channel.unix.Errors.NativeIoException;
 import io.netty.channel.unix.Socket;
@@ -57,6 +58,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
     private static final ChannelMetadata METADATA = new ChannelMetadata(true);
     private static final String EXPECTED_TYPES =
             " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
+            StringUtil.simpleClassName(DatagramPacketBatch.class) + ", " +
             StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
             StringUtil.simpleClassName(ByteBuf.class) + ", " +
             StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
@@ -64,6 +66,11 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     private final EpollDatagramChannelConfig config;
     private volatile boolean connected;
+    // The index of the next datagram to write of the DatagramPacketBatch which is the current message of the
+    // ChannelOutboundBuffer.
+    private int batchWriteIndex;
+    // The cause of the first datagram of the current DatagramPacketBatch which could not be written.
+    private IOException batchWriteCause;
 
     /**
      * Returns {@code true} if {@link io.netty.channel.unix.SegmentedDatagramPacket} is supported natively.
@@ -306,6 +313,15 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
 
             try {
+                if (msg instanceof DatagramPacketBatch) {
+                    if (!doWriteBatch((DatagramPacketBatch) msg)) {
+                        // Did not write all datagrams.
+                        break;
+                    }
+                    in.remove();
+                    maxMessagesPerWrite --;
+                    continue;
+                }
                 // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
                 if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1 ||
                         // We only handle UDP_SEGMENT in sendmmsg.
@@ -346,6 +362,8 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                     break;
                 }
             } catch (IOException e) {
+                batchWriteIndex = 0;
+                batchWriteCause = null;
                 maxMessagesPerWrite --;
                 // Continue on write error as a DatagramChannel can write to multiple remote peers
                 //
@@ -363,6 +381,57 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         }
     }
 
+    /**
+     * Writes the remaining datagrams of the given {@link DatagramPacketBatch} and returns {@code true} if all of these
+     * were written. A datagram which can not be written is skipped, and the cause of the first one is thrown once all
+     * the others were written.
+     */
+    private boolean doWriteBatch(DatagramPacketBatch batch) throws IOException {
+        final int count = batch.count();
+        while (batchWriteIndex < count) {
+            if (batch.length(batchWriteIndex) == 0) {
+                // Empty datagrams are not written, like empty DatagramPackets.
+                batchWriteIndex++;
+                continue;
+            }
+            try {
+                if (Native.IS_SUPPORTING_SENDMMSG) {
+                    NativeDatagramPacketArray array = cleanDatagramPacketArray();
+                    int added = array.add(batch, batchWriteIndex);
+                    assert added > 0;
+
+                    int send = socket.sendmmsg(array.packets(), 0, added);
+                    if (send == 0) {
+                        return false;
+                    }
+                    batchWriteIndex += send;
+                } else {
+                    // Segmented datagrams are rejected by filterOutboundMessage(...) in this case.
+                    if (doWriteOrSendBytes(batch.content(batchWriteIndex), batch.recipient(batchWriteIndex),
+                            false) <= 0) {
+                        return false;
+                    }
+                    batchWriteIndex++;
+                }
+            } catch (IOException e) {
+                // Continue with the next datagram, as the datagrams may be sent to multiple remote peers.
+                //
+                // See https://github.com/netty/netty/issues/2665
+                if (batchWriteCause == null) {
+                    batchWriteCause = e;
+                }
+                batchWriteIndex++;
+            }
+        }
+        batchWriteIndex = 0;
+        IOException cause = batchWriteCause;
+        if (cause != null) {
+            batchWriteCause = null;
+            throw cause;
+        }
+        return true;
+    }
+
     private boolean doWriteMessage(Object msg) throws Exception {
         final ByteBuf data;
         final InetSocketAddress remoteAddress;
@@ -387,6 +456,22 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     @Override
     protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof DatagramPacketBatch) {
+            DatagramPacketBatch batch = (DatagramPacketBatch) msg;
+            if (!isSegmentedDatagramPacketSupported()) {
+                for (int i = 0; i < batch.count(); i++) {
+                    if (batch.segmentSize(i) > 0) {
+                        throw new UnsupportedOperationException(
+                                "unsupported message type: " + StringUtil.simpleClassName(msg) +
+                                " with segmented datagrams");
+                    }
+                }
+            }
+            ByteBuf content = batch.content();
+            // Copy everything up to the writerIndex so the indexes of the datagrams stay valid.
+            return UnixChannelUtil.isBufferCopyNeededForWrite(content) ?
+                    batch.replace(newDirectBuffer(batch, content.duplicate().readerIndex(0))) : msg;
+        }
         if (msg instanceof io.netty.channel.unix.SegmentedDatagramPacket) {
             if (!Native.IS_SUPPORTING_UDP_SEGMENT) {
                 throw new UnsupportedOperationException(
@@ -485,7 +570,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                                 datagramSize == 0 ? 1 : byteBuf.writableBytes() / datagramSize :
                                 0;
                         try {
-                            if (numDatagram <= 1) {
+                            if (config.isDatagramBatchRead()) {
+                                read = batchRead(allocHandle, cleanDatagramPacketArray(),
+                                        byteBuf, datagramSize, numDatagram);
+                            } else if (numDatagram <= 1) {
                                 if (!connected || config.isUdpGro()) {
                                     read = recvmsg(allocHandle, cleanDatagramPacketArray(), byteBuf);
                                 } else {
@@ -724,6 +812,67 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         }
     }
 
+    private boolean batchRead(EpollRecvByteAllocatorHandle allocHandle, NativeDatagramPacketArray array,
+                              ByteBuf byteBuf, int datagramSize, int numDatagram) throws IOException {
+        DatagramPacketBatch batch = null;
+        try {
+            final int writerIndex = byteBuf.writerIndex();
+            final int slotSize;
+            final int received;
+            NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
+            if (numDatagram <= 1) {
+                // Either recvmmsg(...) is not supported or no maximum datagram size is configured, so read one
+                // datagram into all the writable bytes.
+                slotSize = byteBuf.writableBytes();
+                boolean added = array.addWritable(byteBuf, writerIndex, slotSize);
+                assert added;
+                allocHandle.attemptedBytesRead(slotSize);
+
+                received = socket.recvmsg(packets[0]) == 0 ? 0 : 1;
+            } else {
+                slotSize = datagramSize;
+                int offset = writerIndex;
+                for (int i = 0; i < numDatagram;  i++, offset += datagramSize) {
+                    if (!array.addWritable(byteBuf, offset, datagramSize)) {
+                        break;
+                    }
+                }
+                allocHandle.attemptedBytesRead(offset - writerIndex);
+
+                received = socket.recvmmsg(packets, 0, array.count());
+            }
+            if (received == 0) {
+                allocHandle.lastBytesRead(-1);
+                return false;
+            }
+
+            // Its important that we process all received data out of the NativeDatagramPacketArray
+            // before we call fireChannelRead(...). This is because the user may call flush()
+            // in a channelRead(...) method and so may re-use the NativeDatagramPacketArray again.
+            batch = new DatagramPacketBatch(byteBuf, received);
+            byteBuf = null;
+            InetSocketAddress local = localAddress();
+            int index = writerIndex;
+            int lastReceived = 0;
+            for (int i = 0; i < received; i++, index += slotSize) {
+                lastReceived = packets[i].addTo(batch, index, local);
+            }
+            batch.content().writerIndex(index - slotSize + lastReceived);
+
+            allocHandle.lastBytesRead(numDatagram <= 1 ? lastReceived : received * datagramSize);
+            allocHandle.incMessagesRead(batch.count());
+            pipeline().fireChannelRead(batch);
+            batch = null;
+            return true;
+        } finally {
+            if (batch != null) {
+                batch.release();
+            } else if (byteBuf != null) {
+                byteBuf.release();
+            }
+        }
+    }
+
     private NativeDatagramPacketArray cleanDatagramPacketArray() {
         return ((EpollEventLoop) eventLoop()).cleanDatagramPacketArray();
     }
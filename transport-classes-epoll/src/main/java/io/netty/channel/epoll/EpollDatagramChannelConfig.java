@@ -25,6 +25,7 @@ import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -35,6 +36,7 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private boolean activeOnOpen;
     private volatile int maxDatagramSize;
+    private volatile boolean batchRead;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -52,7 +54,7 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
                 EpollChannelOption.SO_REUSEPORT, EpollChannelOption.IP_FREEBIND, EpollChannelOption.IP_TRANSPARENT,
                 EpollChannelOption.IP_RECVORIGDSTADDR, EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE,
-                EpollChannelOption.UDP_GRO);
+                EpollChannelOption.UDP_GRO, EpollChannelOption.DATAGRAM_BATCH_READ);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -106,6 +108,9 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         if (option == EpollChannelOption.UDP_GRO) {
             return (T) Boolean.valueOf(isUdpGro());
         }
+        if (option == EpollChannelOption.DATAGRAM_BATCH_READ) {
+            return (T) Boolean.valueOf(isDatagramBatchRead());
+        }
         return super.getOption(option);
     }
 
@@ -146,6 +151,8 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
             setMaxDatagramPayloadSize((Integer) value);
         } else if (option == EpollChannelOption.UDP_GRO) {
             setUdpGro((Boolean) value);
+        } else if (option == EpollChannelOption.DATAGRAM_BATCH_READ) {
+            setDatagramBatchRead((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -560,6 +567,33 @@ public final class EpollDatagramChannelConfig extends EpollChannelConfig impleme
         return gro;
     }
 
+    /**
+     * Enable / disable batched reads. If enabled, all the datagrams which are read with one {@code recvmmsg} call are
+     * passed through the {@link io.netty.channel.ChannelPipeline} as one
+     * {@link io.netty.channel.unix.DatagramPacketBatch}, which shares the {@link ByteBuf} returned by the used
+     * {@link RecvByteBufAllocator}, instead of one {@link io.netty.channel.socket.DatagramPacket} per datagram.
+     * <p>
+     * The number of datagrams per batch is determined by {@link #setMaxDatagramPayloadSize(int)}. Datagrams which
+     * were coalesced by {@code UDP_GRO} are split into their segments.
+     *
+     * @param batchRead {@code true} if batched reads should be enabled, {@code false} otherwise.
+     * @return this.
+     */
+    @UnstableApi
+    public EpollDatagramChannelConfig setDatagramBatchRead(boolean batchRead) {
+        this.batchRead = batchRead;
+        return this;
+    }
+
+    /**
+     * Returns if batched reads are enabled.
+     * @return {@code true} if enabled, {@code false} otherwise.
+     */
+    @UnstableApi
+    public boolean isDatagramBatchRead() {
+        return batchRead;
+    }
+
     @Override
     public EpollDatagramChannelConfig setMaxMessagesPerWrite(int maxMessagesPerWrite) {
         super.setMaxMessagesPerWrite(maxMessagesPerWrite);
@@ -79,6 +79,10 @@ public final class EpollServerSocketChannel extends AbstractEpollServerChannel i
             socket.setTcpFastOpen(tcpFastopen);
         }
         socket.listen(config.getBacklog());
+        if (config.isReusePortCpuSteering()) {
+            // Only attach once listening, as this is when the socket joins the SO_REUSEPORT group.
+            socket.setReusePortCpuSteering(true);
+        }
         active = true;
     }
 
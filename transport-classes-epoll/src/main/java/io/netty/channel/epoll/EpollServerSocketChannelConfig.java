@@ -22,6 +22,7 @@ import io.netty.channel.MessageSizeEstimator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.ServerSocketChannelConfig;
+import io.netty.util.internal.UnstableApi;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -30,6 +31,8 @@ import java.util.Map;
 public final class EpollServerSocketChannelConfig extends EpollServerChannelConfig
         implements ServerSocketChannelConfig {
 
+    private volatile boolean reusePortCpuSteering;
+
     EpollServerSocketChannelConfig(EpollServerSocketChannel channel) {
         super(channel);
 
@@ -42,7 +45,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
         return getOptions(super.getOptions(), EpollChannelOption.SO_REUSEPORT, EpollChannelOption.IP_FREEBIND,
-            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT);
+            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT,
+            EpollChannelOption.REUSEPORT_CPU_STEERING);
     }
 
     @SuppressWarnings("unchecked")
@@ -60,6 +64,9 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
         if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             return (T) Integer.valueOf(getTcpDeferAccept());
         }
+        if (option == EpollChannelOption.REUSEPORT_CPU_STEERING) {
+            return (T) Boolean.valueOf(isReusePortCpuSteering());
+        }
         return super.getOption(option);
     }
 
@@ -79,6 +86,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
             setTcpMd5Sig(m);
         } else if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             setTcpDeferAccept((Integer) value);
+        } else if (option == EpollChannelOption.REUSEPORT_CPU_STEERING) {
+            setReusePortCpuSteering((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -285,4 +294,38 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
             throw new ChannelException(e);
         }
     }
+
+    /**
+     * Returns {@code true} if connections are steered to the listener of the {@code SO_REUSEPORT} group which
+     * matches the CPU that received them.
+     */
+    @UnstableApi
+    public boolean isReusePortCpuSteering() {
+        return reusePortCpuSteering;
+    }
+
+    /**
+     * If {@code true} is used a classic BPF program is attached to the {@code SO_REUSEPORT} group of the socket
+     * ({@code SO_ATTACH_REUSEPORT_CBPF}), which hands a new connection to the n-th listener of the group if it was
+     * received on CPU n. If there is no such listener the kernel falls back to the hash based selection.
+     * {@code false} detaches the program again. Default is disabled.
+     *
+     * The program is shared by the whole group, so it is enough to set this on one of the listeners. It is attached
+     * once the channel is bound, which also requires {@link #setReusePort(boolean)}. Combine it with
+     * {@link io.netty.bootstrap.ServerBootstrap#bindPerChildEventLoop()} and pin the {@link io.netty.channel.EventLoop}
+     * threads to the CPUs in the same order to keep each connection on the CPU which processes its packets.
+     */
+    @UnstableApi
+    public EpollServerSocketChannelConfig setReusePortCpuSteering(boolean reusePortCpuSteering) {
+        EpollServerSocketChannel ch = (EpollServerSocketChannel) channel;
+        if (ch.isActive() && this.reusePortCpuSteering != reusePortCpuSteering) {
+            try {
+                ch.socket.setReusePortCpuSteering(reusePortCpuSteering);
+            } catch (IOException e) {
+                throw new ChannelException(e);
+            }
+        }
+        this.reusePortCpuSteering = reusePortCpuSteering;
+        return this;
+    }
 }
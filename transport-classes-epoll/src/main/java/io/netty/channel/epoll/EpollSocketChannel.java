@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
 import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.KernelTlsChannel;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
@@ -40,12 +41,16 @@ import static io.netty.channel.epoll.Native.IS_SUPPORTING_TCP_FASTOPEN_CLIENT;
  * {@link SocketChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
  * maximal performance.
  */
-public final class EpollSocketChannel extends AbstractEpollStreamChannel implements SocketChannel {
+public final class EpollSocketChannel extends AbstractEpollStreamChannel implements SocketChannel, KernelTlsChannel {
 
     private final EpollSocketChannelConfig config;
 
     private volatile Collection<InetAddress> tcpMd5SigAddresses = Collections.emptyList();
 
+    // Only accessed from the EventLoop.
+    private boolean tlsUlp;
+    private boolean kernelTlsReceive;
+
     public EpollSocketChannel() {
         super(newSocketStream(), false);
         config = new EpollSocketChannelConfig(this);
@@ -96,6 +101,55 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         }
     }
 
+    /**
+     * Returns the number of bytes which were sent with {@code MSG_ZEROCOPY} and for which the kernel signaled that it
+     * did not copy them. See {@link EpollSocketChannelConfig#setZeroCopy(boolean)}.
+     */
+    @Override
+    public long zeroCopiedBytes() {
+        return super.zeroCopiedBytes();
+    }
+
+    /**
+     * Returns the number of bytes which were copied into the kernel while {@link EpollSocketChannelConfig#isZeroCopy()}
+     * was enabled, either because the write was smaller than {@link EpollSocketChannelConfig#getZeroCopyThreshold()}
+     * or because the kernel decided to copy the data anyway. The latter is always the case for loopback connections.
+     */
+    @Override
+    public long copiedBytes() {
+        return super.copiedBytes();
+    }
+
+    @Override
+    int zeroCopyThreshold() {
+        return config.zeroCopyThreshold();
+    }
+
+    @Override
+    public void setKernelTls(boolean transmit, byte[] key, byte[] salt, long recordSequence) throws IOException {
+        assert eventLoop().inEventLoop();
+        if (key.length != 16 && key.length != 32) {
+            throw new IllegalArgumentException("key length: " + key.length + " (expected: 16 or 32)");
+        }
+        if (salt.length != 4) {
+            throw new IllegalArgumentException("salt length: " + salt.length + " (expected: 4)");
+        }
+        if (!tlsUlp) {
+            // The TLS upper layer protocol can only be attached once.
+            socket.setTcpUlpTls();
+            tlsUlp = true;
+        }
+        socket.setKernelTls(transmit, key, salt, recordSequence);
+        if (!transmit) {
+            kernelTlsReceive = true;
+        }
+    }
+
+    @Override
+    boolean isKernelTlsReceive() {
+        return kernelTlsReceive;
+    }
+
     @Override
     public InetSocketAddress remoteAddress() {
         return (InetSocketAddress) super.remoteAddress();
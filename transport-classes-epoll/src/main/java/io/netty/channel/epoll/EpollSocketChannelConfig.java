@@ -22,6 +22,7 @@ import io.netty.channel.MessageSizeEstimator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannelConfig;
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 
 import java.io.IOException;
@@ -40,6 +41,8 @@ import static io.netty.channel.ChannelOption.TCP_NODELAY;
 public final class EpollSocketChannelConfig extends EpollChannelConfig implements SocketChannelConfig {
     private volatile boolean allowHalfClosure;
     private volatile boolean tcpFastopen;
+    private volatile boolean zeroCopy;
+    private volatile int zeroCopyThreshold = 10 * 1024;
 
     /**
      * Creates a new instance.
@@ -61,7 +64,8 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
                 EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.IP_TRANSPARENT,
-                ChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL);
+                ChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL, EpollChannelOption.SO_ZEROCOPY,
+                EpollChannelOption.ZEROCOPY_THRESHOLD);
     }
 
     @SuppressWarnings("unchecked")
@@ -121,6 +125,12 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.SO_BUSY_POLL) {
             return (T) Integer.valueOf(getSoBusyPoll());
         }
+        if (option == EpollChannelOption.SO_ZEROCOPY) {
+            return (T) Boolean.valueOf(isZeroCopy());
+        }
+        if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
         return super.getOption(option);
     }
 
@@ -168,6 +178,10 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             setTcpFastOpenConnect((Boolean) value);
         } else if (option == EpollChannelOption.SO_BUSY_POLL) {
             setSoBusyPoll((Integer) value);
+        } else if (option == EpollChannelOption.SO_ZEROCOPY) {
+            setZeroCopy((Boolean) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -569,6 +583,57 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         return tcpFastopen;
     }
 
+    /**
+     * Enables sending with {@code MSG_ZEROCOPY} by setting the {@code SO_ZEROCOPY} option on the socket. See
+     * <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">MSG_ZEROCOPY</a> for more details.
+     * <p>
+     * Writes of at least {@link #getZeroCopyThreshold()} bytes are then sent without copying them into the kernel. The
+     * written buffers are not released before the kernel signals that it is done with them, which may take until the
+     * data was acknowledged by the remote peer. A close does not wait for this, but the socket is kept open in the
+     * background until then. If it takes longer than {@code io.netty.channel.epoll.zeroCopyCloseTimeoutMillis}, the
+     * connection is reset before the buffers are released. Default is disabled.
+     */
+    public EpollSocketChannelConfig setZeroCopy(boolean zeroCopy) {
+        try {
+            ((EpollSocketChannel) channel).socket.setSoZeroCopy(zeroCopy);
+            this.zeroCopy = zeroCopy;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if sending with {@code MSG_ZEROCOPY} is enabled, {@code false} otherwise.
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Set the minimum number of bytes a write must have to be sent with {@code MSG_ZEROCOPY} if
+     * {@link #setZeroCopy(boolean)} is enabled. Smaller writes are copied, as pinning the buffers and processing the
+     * completion notification costs more than copying them. Default is {@code 10240}.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        this.zeroCopyThreshold = ObjectUtil.checkPositiveOrZero(zeroCopyThreshold, "zeroCopyThreshold");
+        return this;
+    }
+
+    /**
+     * Returns the minimum number of bytes a write must have to be sent with {@code MSG_ZEROCOPY}.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
+    /**
+     * Returns the threshold for writes to be sent with {@code MSG_ZEROCOPY} or {@code -1} if disabled.
+     */
+    int zeroCopyThreshold() {
+        return zeroCopy ? zeroCopyThreshold : -1;
+    }
+
     @Override
     public boolean isAllowHalfClosure() {
         return allowHalfClosure;
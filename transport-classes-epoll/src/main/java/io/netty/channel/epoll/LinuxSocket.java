@@ -33,6 +33,7 @@ import java.net.UnknownHostException;
 import java.util.Enumeration;
 
 import static io.netty.channel.unix.Errors.ioResult;
+import static io.netty.channel.unix.Errors.newIOException;
 
 /**
  * A socket which provides access Linux native methods.
@@ -300,6 +301,70 @@ public final class LinuxSocket extends Socket {
         setUdpGro(intValue(), gro ? 1 : 0);
     }
 
+    boolean isSoZeroCopy() throws IOException {
+        return isSoZeroCopy(intValue()) != 0;
+    }
+
+    void setSoZeroCopy(boolean zeroCopy) throws IOException {
+        setSoZeroCopy(intValue(), zeroCopy ? 1 : 0);
+    }
+
+    /**
+     * Write the given {@code iovec}s with {@code MSG_ZEROCOPY}.
+     *
+     * @return the number of bytes written, {@code 0} if the socket is not writable or {@code -1} if the kernel can
+     * not track more zero copy sends at the moment and the data must be copied instead.
+     */
+    long sendmsgZeroCopy(long memoryAddress, int cnt) throws IOException {
+        long res = sendmsgZeroCopy(intValue(), memoryAddress, cnt);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == Native.ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("sendmsg", (int) res);
+    }
+
+    /**
+     * Read the next {@code MSG_ZEROCOPY} completion notification from the error queue into the given array, which
+     * will contain the first and the last id of the completed sends and {@code 1} if the kernel copied the data.
+     *
+     * @return {@code true} if a notification was read, {@code false} if there are no more notifications.
+     */
+    boolean recvZeroCopyNotification(int[] result) throws IOException {
+        int res = recvZeroCopyNotification(intValue(), result);
+        if (res > 0) {
+            return true;
+        }
+        ioResult("recvmsg", res);
+        return false;
+    }
+
+    /**
+     * Returns a new {@link LinuxSocket} for a duplicate of the file descriptor of this socket, which keeps the
+     * socket open until both are closed.
+     */
+    LinuxSocket dup() throws IOException {
+        int res = dup(intValue());
+        if (res < 0) {
+            throw newIOException("dup", res);
+        }
+        return new LinuxSocket(res);
+    }
+
+    void setTcpUlpTls() throws IOException {
+        setTcpUlpTls(intValue());
+    }
+
+    void setKernelTls(boolean transmit, byte[] key, byte[] salt, long recordSequence) throws IOException {
+        setKernelTls(intValue(), transmit, key, salt, recordSequence);
+    }
+
+    void setReusePortCpuSteering(boolean steering) throws IOException {
+        setReusePortCpuSteering(intValue(), steering ? 1 : 0);
+    }
+
     long sendFile(DefaultFileRegion src, long baseOffset, long offset, long length) throws IOException {
         // Open the file-region as it may be created via the lazy constructor. This is needed as we directly access
         // the FileChannel field via JNI.
@@ -417,4 +482,13 @@ public final class LinuxSocket extends Socket {
     private static native void setTimeToLive(int fd, int ttl) throws IOException;
     private static native int isUdpGro(int fd) throws IOException;
     private static native void setUdpGro(int fd, int gro) throws IOException;
+    private static native int isSoZeroCopy(int fd) throws IOException;
+    private static native void setSoZeroCopy(int fd, int zeroCopy) throws IOException;
+    private static native long sendmsgZeroCopy(int fd, long memoryAddress, int cnt);
+    private static native int recvZeroCopyNotification(int fd, int[] result);
+    private static native int dup(int fd);
+    private static native void setTcpUlpTls(int fd) throws IOException;
+    private static native void setKernelTls(int fd, boolean transmit, byte[] key, byte[] salt, long recordSequence)
+            throws IOException;
+    private static native void setReusePortCpuSteering(int fd, int steering) throws IOException;
 }
@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelOutboundBuffer.MessageProcessor;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.DatagramPacketBatch;
 import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.Limits;
 import io.netty.channel.unix.SegmentedDatagramPacket;
@@ -81,6 +82,35 @@ final class NativeDatagramPacketArray {
         return true;
     }
 
+    /**
+     * Adds the datagrams of the given {@link DatagramPacketBatch} starting at {@code index} until no more space is
+     * left or an empty datagram is reached, and returns the number of datagrams which were added. Each datagram is
+     * mapped to exactly one {@link NativeDatagramPacket}.
+     */
+    int add(DatagramPacketBatch batch, int index) {
+        ByteBuf content = batch.content();
+        int added = 0;
+        for (int i = index; i < batch.count() && count < packets.length; i++) {
+            int len = batch.length(i);
+            if (len == 0) {
+                // Empty datagrams are skipped by the caller.
+                break;
+            }
+            int offset = iovArray.count();
+            if (offset == Limits.IOV_MAX || !iovArray.add(content, batch.index(i), len)) {
+                // Not enough space to hold the whole content, we will try again later.
+                break;
+            }
+            int segmentSize = batch.segmentSize(i);
+            // We only need to tell the kernel that we want to use UDP_SEGMENT if there are multiple segments.
+            packets[count].init(iovArray.memoryAddress(offset), iovArray.count() - offset,
+                    len > segmentSize ? segmentSize : 0, batch.recipient(i));
+            count++;
+            added++;
+        }
+        return added;
+    }
+
     void add(ChannelOutboundBuffer buffer, boolean connected, int maxMessagesPerWrite) throws Exception {
         processor.connected = connected;
         processor.maxMessagesPerWrite = maxMessagesPerWrite;
@@ -209,6 +239,31 @@ final class NativeDatagramPacketArray {
             }
         }
 
+        /**
+         * Adds the received datagram, which was written to {@link DatagramPacketBatch#content()} at the given
+         * index, to the batch and returns the number of bytes received. Datagrams which were coalesced by
+         * {@code UDP_GRO} are added as separate datagrams.
+         */
+        int addTo(DatagramPacketBatch batch, int index, InetSocketAddress recipient) throws UnknownHostException {
+            InetSocketAddress sender = newAddress(senderAddr, senderAddrLen, senderPort, senderScopeId, ipv4Bytes);
+            if (recipientAddrLen != 0) {
+                recipient = newAddress(recipientAddr, recipientAddrLen, recipientPort, recipientScopeId, ipv4Bytes);
+            }
+            // Once received, count holds the number of bytes.
+            final int received = count;
+            if (segmentSize > 0) {
+                int end = index + received;
+                do {
+                    int length = Math.min(end - index, segmentSize);
+                    batch.add(index, length, 0, recipient, sender);
+                    index += length;
+                } while (index < end);
+            } else {
+                batch.add(index, received, 0, recipient, sender);
+            }
+            return received;
+        }
+
         DatagramPacket newDatagramPacket(ByteBuf buffer, InetSocketAddress recipient) throws UnknownHostException {
             InetSocketAddress sender = newAddress(senderAddr, senderAddrLen, senderPort, senderScopeId, ipv4Bytes);
             if (recipientAddrLen != 0) {
@@ -42,5 +42,7 @@ final class NativeStaticallyReferencedJniMethods {
     static native boolean isSupportingSendmmsg();
     static native boolean isSupportingRecvmmsg();
     static native int tcpFastopenMode();
+    static native int errnoENOBUFS();
+    static native int errnoEIO();
     static native String kernelVersion();
 }
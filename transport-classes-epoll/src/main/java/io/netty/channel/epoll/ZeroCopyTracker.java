@@ -0,0 +1,239 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the sends of a socket which were done with {@code MSG_ZEROCOPY}.
+ * <p>
+ * The kernel reads the data of such a send directly from the buffers until it notifies us via the error queue of
+ * the socket that it is done with it. Until then the written buffers are retained, even if they were already removed
+ * from the {@link ChannelOutboundBuffer}. Every send is identified by an id which starts at {@code 0} and is
+ * incremented by the kernel for every successful send.
+ * <p>
+ * This class is not thread-safe and must only be used from the {@link EpollEventLoop}, except for the counters, or
+ * by the {@link EventExecutor} which processes the remaining notifications once the channel was closed.
+ */
+final class ZeroCopyTracker {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ZeroCopyTracker.class);
+    private static final long CLOSE_POLL_INTERVAL_MILLIS = 10;
+
+    private final ArrayDeque<PendingSend> pending = new ArrayDeque<PendingSend>();
+    private final int[] notification = new int[3];
+    private final ChannelOutboundBuffer.MessageProcessor pinProcessor = new ChannelOutboundBuffer.MessageProcessor() {
+        @Override
+        public boolean processMessage(Object msg) {
+            if (!(msg instanceof ByteBuf)) {
+                return false;
+            }
+            ByteBuf buf = (ByteBuf) msg;
+            pinning.buffers.add(buf.retain());
+            pinningRemaining -= buf.readableBytes();
+            return pinningRemaining > 0;
+        }
+    };
+    private PendingSend pinning;
+    private long pinningRemaining;
+    private int nextId;
+
+    // Only modified by the EventLoop, but may be read by any thread.
+    private volatile long zeroCopiedBytes;
+    private volatile long copiedBytes;
+
+    /**
+     * Returns {@code true} if there are sends for which no completion notification was received yet.
+     */
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Must be called after {@code written} bytes of the flushed messages of the given {@link ChannelOutboundBuffer}
+     * were sent with {@code MSG_ZEROCOPY} and before these are removed from it.
+     */
+    void sent(ChannelOutboundBuffer in, long written) {
+        assert written > 0;
+        PendingSend send = new PendingSend(nextId++, written);
+        pinning = send;
+        pinningRemaining = written;
+        try {
+            in.forEachFlushedMessage(pinProcessor);
+        } catch (Exception e) {
+            // Not thrown by our MessageProcessor.
+            throw new IllegalStateException(e);
+        } finally {
+            pinning = null;
+        }
+        pending.add(send);
+    }
+
+    /**
+     * Must be called after {@code written} bytes were written by copying them.
+     */
+    void copied(long written) {
+        if (written > 0) {
+            copiedBytes += written;
+        }
+    }
+
+    /**
+     * Reads all the completion notifications from the error queue of the given socket and releases the buffers of
+     * the completed sends.
+     */
+    void processNotifications(LinuxSocket socket) throws IOException {
+        final int[] notification = this.notification;
+        while (socket.recvZeroCopyNotification(notification)) {
+            int lo = notification[0];
+            int hi = notification[1];
+            boolean copied = notification[2] != 0;
+
+            // The ids may wrap around, so compare the distances.
+            Iterator<PendingSend> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                PendingSend send = iterator.next();
+                if (send.id - hi > 0) {
+                    // Sends are ordered by id, so all the other sends are not completed yet.
+                    break;
+                }
+                if (send.id - lo >= 0) {
+                    iterator.remove();
+                    send.release();
+                    if (copied) {
+                        copiedBytes += send.bytes;
+                    } else {
+                        zeroCopiedBytes += send.bytes;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Must be called with a duplicate of the file descriptor of the socket before it is closed, if there are pending
+     * sends. The duplicate keeps the socket open, and its completion notifications are processed on the given
+     * {@link EventExecutor} until all sends completed, which is when it is closed. If they did not complete within
+     * the given timeout, the connection is reset first, which makes the kernel drop the data. So the buffers are
+     * always released, and never before the kernel is done with them.
+     */
+    void closeWhenCompleted(LinuxSocket socket, EventExecutor executor, long timeoutNanos) {
+        new CloseTask(socket, executor, System.nanoTime() + timeoutNanos).run();
+    }
+
+    /**
+     * Releases the buffers of all the pending sends. Must only be called once the connection was reset, which makes
+     * the kernel drop the data, as it may read from the buffers until then.
+     */
+    void releaseAll() {
+        for (;;) {
+            PendingSend send = pending.poll();
+            if (send == null) {
+                break;
+            }
+            send.release();
+        }
+    }
+
+    /**
+     * Returns the number of bytes which were sent without copying them.
+     */
+    long zeroCopiedBytes() {
+        return zeroCopiedBytes;
+    }
+
+    /**
+     * Returns the number of bytes which were copied, either because they were not sent with {@code MSG_ZEROCOPY} or
+     * because the kernel decided to copy them anyway.
+     */
+    long copiedBytes() {
+        return copiedBytes;
+    }
+
+    private final class CloseTask implements Runnable {
+        private final LinuxSocket socket;
+        private final EventExecutor executor;
+        private final long deadline;
+
+        CloseTask(LinuxSocket socket, EventExecutor executor, long deadline) {
+            this.socket = socket;
+            this.executor = executor;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            try {
+                processNotifications(socket);
+                if (pending.isEmpty()) {
+                    socket.close();
+                    return;
+                }
+                if (deadline - System.nanoTime() > 0) {
+                    // There is no way to get notified about the error queue of a closed channel, so just poll it.
+                    executor.schedule(this, CLOSE_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                logger.debug("MSG_ZEROCOPY sends did not complete in time, resetting the connection of {}", socket);
+            } catch (Throwable cause) {
+                logger.debug("Failed to await the MSG_ZEROCOPY completions of {}", socket, cause);
+            }
+            reset();
+        }
+
+        private void reset() {
+            try {
+                socket.setSoLinger(0);
+            } catch (IOException ignore) {
+                // The connection is broken already.
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close {}", socket, e);
+            }
+            releaseAll();
+        }
+    }
+
+    private static final class PendingSend {
+        final int id;
+        final long bytes;
+        final List<ByteBuf> buffers = new ArrayList<ByteBuf>(2);
+
+        PendingSend(int id, long bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+
+        void release() {
+            for (int i = 0; i < buffers.size(); i++) {
+                buffers.get(i).release();
+            }
+            buffers.clear();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The completion queue of a {@link RingBuffer}.
+ * <p>
+ * Must only be used from the event loop.
+ */
+final class CompletionQueue {
+    // Offsets of the fields of struct io_uring_cqe.
+    private static final int CQE_USER_DATA_FIELD = 0;
+    private static final int CQE_RES_FIELD = 8;
+    private static final int CQE_FLAGS_FIELD = 12;
+
+    /**
+     * Handles the completions of a {@link CompletionQueue}.
+     */
+    interface CompletionCallback {
+        /**
+         * Called for every completion.
+         *
+         * @param res the result of the request, which is the negative errno if it failed.
+         * @param flags the flags of the completion.
+         * @param userData the user data the request was added with.
+         */
+        void handle(int res, int flags, long userData);
+    }
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final int ringMask;
+    private final long cqesAddress;
+
+    // Our copy of the head, which is published to the kernel after every processed completion.
+    private int head;
+
+    CompletionQueue(long[] ring) {
+        kHeadAddress = ring[Native.RING_CQ_HEAD_ADDRESS];
+        kTailAddress = ring[Native.RING_CQ_TAIL_ADDRESS];
+        ringMask = (int) ring[Native.RING_CQ_RING_MASK];
+        cqesAddress = ring[Native.RING_CQES_ADDRESS];
+        head = PlatformDependent.getInt(kHeadAddress);
+    }
+
+    boolean hasCompletions() {
+        return head != PlatformDependent.getIntVolatile(kTailAddress);
+    }
+
+    /**
+     * Calls the {@link CompletionCallback} for all completions which are in the queue, and returns the number of
+     * processed completions.
+     */
+    int process(CompletionCallback callback) {
+        int processed = 0;
+        int tail = PlatformDependent.getIntVolatile(kTailAddress);
+        while (head != tail) {
+            long cqe = cqesAddress + (long) (head & ringMask) * Native.CQE_SIZE;
+            long userData = PlatformDependent.getLong(cqe + CQE_USER_DATA_FIELD);
+            int res = PlatformDependent.getInt(cqe + CQE_RES_FIELD);
+            int flags = PlatformDependent.getInt(cqe + CQE_FLAGS_FIELD);
+            // Release the entry before the callback is called, so the kernel can reuse it right away.
+            PlatformDependent.putIntOrdered(kHeadAddress, ++head);
+            processed++;
+            callback.handle(res, flags, userData);
+            if (head == tail) {
+                // Pick up completions which were added while we processed the others.
+                tail = PlatformDependent.getIntVolatile(kTailAddress);
+            }
+        }
+        return processed;
+    }
+}
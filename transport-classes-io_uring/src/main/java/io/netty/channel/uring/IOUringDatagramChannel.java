@@ -0,0 +1,427 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.DatagramSocketAddress;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.Errors.NativeIoException;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.UncheckedBooleanSupplier;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+
+/**
+ * {@link DatagramChannel} implementation that uses io_uring.
+ * <p>
+ * The channel waits for readiness with {@code IORING_OP_POLL_ADD} requests, and then reads and writes the datagrams
+ * with the usual syscalls, as every datagram needs its own address. Multicast is not supported.
+ */
+@UnstableApi
+public final class IOUringDatagramChannel extends AbstractIOUringChannel implements DatagramChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
+            StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
+            StringUtil.simpleClassName(ByteBuf.class) + ", " +
+            StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
+            StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    private final IOUringDatagramChannelConfig config;
+    private volatile boolean connected;
+
+    public IOUringDatagramChannel() {
+        super(null, Socket.newSocketDgram(), false);
+        config = new IOUringDatagramChannelConfig(this);
+    }
+
+    @Override
+    public IOUringDatagramChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public boolean isActive() {
+        return socket.isOpen() && (config.getActiveOnOpen() && isRegistered() || active);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringDatagramUnsafe();
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress) {
+        return joinGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return joinGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return joinGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source,
+            ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress) {
+        return leaveGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return leaveGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return leaveGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source,
+            ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress sourceToBlock) {
+        return block(multicastAddress, networkInterface, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress sourceToBlock,
+            ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock) {
+        return block(multicastAddress, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock, ChannelPromise promise) {
+        return multicastNotSupported(promise);
+    }
+
+    private static ChannelFuture multicastNotSupported(ChannelPromise promise) {
+        return promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        active = true;
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (super.doConnect(remoteAddress, localAddress)) {
+            connected = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        socket.disconnect();
+        connected = active = false;
+        resetCachedAddresses();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        super.doClose();
+        connected = false;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if (id == 0 || isInFlight(POLL_OUT)) {
+            // Not registered, or flush is called again once the socket is writable.
+            return;
+        }
+        int maxMessagesPerWrite = maxMessagesPerWrite();
+        while (maxMessagesPerWrite > 0) {
+            Object msg = in.current();
+            if (msg == null) {
+                // Wrote all messages.
+                break;
+            }
+
+            try {
+                if (doWriteMessage(msg)) {
+                    in.remove();
+                    maxMessagesPerWrite--;
+                } else {
+                    // The socket buffer is full, continue once the socket is writable.
+                    ((AbstractIOUringUnsafe) unsafe()).pollOut();
+                    break;
+                }
+            } catch (IOException e) {
+                maxMessagesPerWrite--;
+                // Continue on write error as a DatagramChannel can write to multiple remote peers
+                //
+                // See https://github.com/netty/netty/issues/2665
+                in.remove(e);
+            }
+        }
+    }
+
+    private boolean doWriteMessage(Object msg) throws IOException {
+        final ByteBuf data;
+        final InetSocketAddress remoteAddress;
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<ByteBuf, InetSocketAddress> envelope =
+                    (AddressedEnvelope<ByteBuf, InetSocketAddress>) msg;
+            data = envelope.content();
+            remoteAddress = envelope.recipient();
+        } else {
+            data = (ByteBuf) msg;
+            remoteAddress = null;
+        }
+
+        if (!data.isReadable()) {
+            return true;
+        }
+        // filterOutboundMessage(...) ensures that the buffer has a memory address.
+        long memoryAddress = data.memoryAddress();
+        final int written;
+        if (remoteAddress == null) {
+            written = socket.writeAddress(memoryAddress, data.readerIndex(), data.writerIndex());
+        } else {
+            written = socket.sendToAddress(memoryAddress, data.readerIndex(), data.writerIndex(),
+                    remoteAddress.getAddress(), remoteAddress.getPort());
+        }
+        return written > 0;
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return needsCopy(content) ?
+                    new DatagramPacket(newDirectBuffer(packet, content), packet.recipient()) : msg;
+        }
+
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return needsCopy(buf) ? newDirectBuffer(buf) : buf;
+        }
+
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, SocketAddress> e = (AddressedEnvelope<Object, SocketAddress>) msg;
+            if (e.content() instanceof ByteBuf &&
+                (e.recipient() == null || e.recipient() instanceof InetSocketAddress)) {
+
+                ByteBuf content = (ByteBuf) e.content();
+                return needsCopy(content) ?
+                        new DefaultAddressedEnvelope<ByteBuf, InetSocketAddress>(
+                            newDirectBuffer(e, content), (InetSocketAddress) e.recipient()) : e;
+            }
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    private static boolean needsCopy(ByteBuf buf) {
+        // Datagrams are written with a single syscall, so they need to be in a single region of memory.
+        return !buf.hasMemoryAddress() || UnixChannelUtil.isBufferCopyNeededForWrite(buf);
+    }
+
+    private IOException translateForConnected(NativeIoException e) {
+        // We need to correctly translate connect errors to match NIO behaviour.
+        if (e.expectedErr() == Errors.ERROR_ECONNREFUSED_NEGATIVE) {
+            PortUnreachableException error = new PortUnreachableException(e.getMessage());
+            error.initCause(e);
+            return error;
+        }
+        return e;
+    }
+
+    private final class IOUringDatagramUnsafe extends AbstractIOUringUnsafe {
+
+        @Override
+        protected void flush0() {
+            // Flush only if the socket was writable the last time, as flush is called again once it is.
+            if (!isInFlight(POLL_OUT)) {
+                super.flush0();
+            }
+        }
+
+        @Override
+        void scheduleRead() {
+            if (id == 0 || !isOpen() || isInFlight(POLL_IN)) {
+                return;
+            }
+            pollIn();
+        }
+
+        @Override
+        void pollOutReady() {
+            super.pollOutReady();
+            flush0();
+        }
+
+        @Override
+        void pollInReady() {
+            final IOUringDatagramChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            allocHandle.reset(config);
+
+            Throwable exception = null;
+            try {
+                boolean connected = isConnected();
+                do {
+                    ByteBuf byteBuf = directReadBuffer(allocHandle.allocate(config.getAllocator()));
+                    boolean read = false;
+                    try {
+                        allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+                        DatagramSocketAddress remoteAddress;
+                        try {
+                            remoteAddress = socket.recvFromAddress(
+                                    byteBuf.memoryAddress(), byteBuf.writerIndex(), byteBuf.capacity());
+                        } catch (NativeIoException e) {
+                            throw connected ? translateForConnected(e) : e;
+                        }
+                        if (remoteAddress == null) {
+                            allocHandle.lastBytesRead(-1);
+                            break;
+                        }
+                        int bytesRead = remoteAddress.receivedAmount();
+                        allocHandle.lastBytesRead(bytesRead);
+                        allocHandle.incMessagesRead(1);
+                        byteBuf.writerIndex(byteBuf.writerIndex() + bytesRead);
+                        InetSocketAddress localAddress = remoteAddress.localAddress();
+                        if (localAddress == null) {
+                            localAddress = IOUringDatagramChannel.this.localAddress();
+                        }
+                        readPending = false;
+                        read = true;
+                        pipeline.fireChannelRead(new DatagramPacket(byteBuf, localAddress, remoteAddress));
+                    } finally {
+                        if (!read) {
+                            byteBuf.release();
+                        }
+                    }
+                } while (continueReading(allocHandle));
+            } catch (Throwable t) {
+                exception = t;
+            }
+
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+
+            if (exception != null) {
+                pipeline.fireExceptionCaught(exception);
+            }
+            if (readPending || config.isAutoRead()) {
+                scheduleRead();
+            }
+        }
+
+        private boolean continueReading(RecvByteBufAllocator.Handle allocHandle) {
+            if (allocHandle instanceof RecvByteBufAllocator.ExtendedHandle) {
+                // We use the TRUE_SUPPLIER as it is also ok to read less then what we did try to read (as long
+                // as we read anything).
+                return ((RecvByteBufAllocator.ExtendedHandle) allocHandle).continueReading(
+                        UncheckedBooleanSupplier.TRUE_SUPPLIER);
+            }
+            return allocHandle.continueReading();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoopTaskQueueFactory;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EventLoop} which uses io_uring under the covers. Only works on Linux!
+ * <p>
+ * All requests which are added during an iteration of the event loop are passed to the kernel with a single
+ * {@code io_uring_enter(...)} call, which also waits for the next completions.
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop implements CompletionQueue.CompletionCallback {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+    private static final int RING_SIZE = Math.max(64, SystemPropertyUtil.getInt("io.netty.iouring.ringSize", 4096));
+
+    static {
+        // Ensure JNI is initialized by the time this class is loaded by this time!
+        // We use unix-common methods in this class which are backed by JNI methods.
+        IOUring.ensureAvailability();
+        logger.debug("-Dio.netty.iouring.ringSize: {}", RING_SIZE);
+    }
+
+    // The user data of the requests of the event loop itself use this id.
+    private static final int EVENT_LOOP_ID = 0;
+    private static final int EVENTFD_READ = 1;
+
+    private final RingBuffer ringBuffer;
+    private final SubmissionQueue submissionQueue;
+    private final CompletionQueue completionQueue;
+    private final FileDescriptor eventFd;
+    // Holds the value read from the eventFd.
+    private final long eventFdReadBuffer;
+    private final IntObjectMap<AbstractIOUringChannel> channels = new IntObjectHashMap<AbstractIOUringChannel>(4096);
+    private int registeredChannels;
+    private int nextId = EVENT_LOOP_ID;
+
+    private static final long AWAKE = -1L;
+    private static final long NONE = Long.MAX_VALUE;
+
+    // nextWakeupNanos is:
+    //    AWAKE            when EL is awake
+    //    NONE             when EL is waiting with no wakeup scheduled
+    //    other value T    when EL is waiting with wakeup scheduled at time T
+    private final AtomicLong nextWakeupNanos = new AtomicLong(AWAKE);
+    private boolean pendingWakeup;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize,
+                     RejectedExecutionHandler rejectedExecutionHandler,
+                     EventLoopTaskQueueFactory taskQueueFactory, EventLoopTaskQueueFactory tailTaskQueueFactory) {
+        super(parent, executor, false, newTaskQueue(taskQueueFactory), newTaskQueue(tailTaskQueueFactory),
+                rejectedExecutionHandler);
+        boolean success = false;
+        RingBuffer ringBuffer = null;
+        FileDescriptor eventFd = null;
+        try {
+            this.ringBuffer = ringBuffer = Native.createRingBuffer(ringSize == 0 ? RING_SIZE : ringSize);
+            this.eventFd = eventFd = Native.newBlockingEventFd();
+            eventFdReadBuffer = PlatformDependent.allocateMemory(8);
+            success = true;
+        } finally {
+            if (!success) {
+                if (ringBuffer != null) {
+                    ringBuffer.close();
+                }
+                if (eventFd != null) {
+                    try {
+                        eventFd.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        submissionQueue = ringBuffer.submissionQueue();
+        completionQueue = ringBuffer.completionQueue();
+    }
+
+    private static Queue<Runnable> newTaskQueue(
+            EventLoopTaskQueueFactory queueFactory) {
+        if (queueFactory == null) {
+            return newTaskQueue0(DEFAULT_MAX_PENDING_TASKS);
+        }
+        return queueFactory.newTaskQueue(DEFAULT_MAX_PENDING_TASKS);
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        return newTaskQueue0(maxPendingTasks);
+    }
+
+    private static Queue<Runnable> newTaskQueue0(int maxPendingTasks) {
+        // This event loop never calls takeTask()
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscQueue()
+                : PlatformDependent.<Runnable>newMpscQueue(maxPendingTasks);
+    }
+
+    static long userData(int id, int op) {
+        return (long) id << 32 | op;
+    }
+
+    SubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
+            // write to the evfd which will then complete the read which is in flight, and so wake-up the event loop
+            Native.eventFdWrite(eventFd.intValue(), 1L);
+        }
+    }
+
+    @Override
+    protected boolean beforeScheduledTaskSubmitted(long deadlineNanos) {
+        // Note this is also correct for the nextWakeupNanos == -1 (AWAKE) case
+        return deadlineNanos < nextWakeupNanos.get();
+    }
+
+    @Override
+    protected boolean afterScheduledTaskSubmitted(long deadlineNanos) {
+        // Note this is also correct for the nextWakeupNanos == -1 (AWAKE) case
+        return deadlineNanos < nextWakeupNanos.get();
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop}, which assigns the id its requests are added with.
+     */
+    void add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int id;
+        do {
+            id = ++nextId;
+        } while (id == EVENT_LOOP_ID || channels.containsKey(id));
+        ch.id = id;
+        channels.put(id, ch);
+        registeredChannels++;
+    }
+
+    /**
+     * Deregister the given channel from this {@link EventLoop}. The channel is only forgotten once none of its
+     * requests is in flight anymore.
+     */
+    void remove(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        if (ch.id == EVENT_LOOP_ID) {
+            return;
+        }
+        registeredChannels--;
+        if (ch.ioState == 0) {
+            channels.remove(ch.id);
+        }
+        ch.id = EVENT_LOOP_ID;
+    }
+
+    @Override
+    public int registeredChannels() {
+        return registeredChannels;
+    }
+
+    private void submitEventFdRead() {
+        submissionQueue.addRead(eventFd.intValue(), eventFdReadBuffer, 8, userData(EVENT_LOOP_ID, EVENTFD_READ));
+    }
+
+    @Override
+    protected void run() {
+        submitEventFdRead();
+        for (;;) {
+            try {
+                if (hasTasks()) {
+                    submissionQueue.submit();
+                } else if (pendingWakeup) {
+                    // We are going to be immediately woken so no need to reset nextWakeupNanos.
+                    submissionQueue.submitAndWait(TimeUnit.SECONDS.toNanos(1));
+                    if (!completionQueue.hasCompletions()) {
+                        // We timed out so assume that we missed the write event due to an
+                        // abnormally failed syscall (the write itself or a prior io_uring_enter)
+                        logger.warn("Missed eventfd write (not seen after > 1 second)");
+                        pendingWakeup = false;
+                    }
+                } else {
+                    long curDeadlineNanos = nextScheduledTaskDeadlineNanos();
+                    if (curDeadlineNanos == -1L) {
+                        curDeadlineNanos = NONE; // nothing on the calendar
+                    }
+                    nextWakeupNanos.set(curDeadlineNanos);
+                    try {
+                        if (!hasTasks() && !completionQueue.hasCompletions()) {
+                            submissionQueue.submitAndWait(curDeadlineNanos == NONE ?
+                                    -1 : deadlineToDelayNanos(curDeadlineNanos));
+                        } else {
+                            submissionQueue.submit();
+                        }
+                    } finally {
+                        // Try get() first to avoid much more expensive CAS in the case we
+                        // were woken via the wakeup() method (submitted task)
+                        if (nextWakeupNanos.get() == AWAKE || nextWakeupNanos.getAndSet(AWAKE) == AWAKE) {
+                            pendingWakeup = true;
+                        }
+                    }
+                }
+
+                try {
+                    completionQueue.process(this);
+                } finally {
+                    // Ensure we always run tasks.
+                    runAllTasks();
+                }
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                handleLoopException(t);
+            } finally {
+                // Always handle shutdown even if the loop processing threw an exception.
+                try {
+                    if (isShuttingDown()) {
+                        closeAll();
+                        if (confirmShutdown()) {
+                            break;
+                        }
+                    }
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    handleLoopException(t);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void handle(int res, int flags, long userData) {
+        int id = (int) (userData >>> 32);
+        int op = (int) userData;
+        if (id == EVENT_LOOP_ID) {
+            if (op == EVENTFD_READ) {
+                pendingWakeup = false;
+                if (!isShutdown()) {
+                    submitEventFdRead();
+                }
+            }
+            return;
+        }
+        AbstractIOUringChannel ch = channels.get(id);
+        if (ch == null || op == AbstractIOUringChannel.CANCEL) {
+            return;
+        }
+        AbstractIOUringChannel.AbstractIOUringUnsafe unsafe =
+                (AbstractIOUringChannel.AbstractIOUringUnsafe) ch.unsafe();
+        if (ch.id == id && ch.eventLoop() == this) {
+            unsafe.handle(op, res, flags);
+        } else {
+            // The channel was deregistered, so only release the resources of the request.
+            unsafe.discard(op, flags);
+            if (ch.ioState == 0) {
+                channels.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Visible only for testing!
+     */
+    void handleLoopException(Throwable t) {
+        logger.warn("Unexpected exception in the io_uring loop.", t);
+
+        // Prevent possible consecutive immediate failures that lead to
+        // excessive CPU consumption.
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            // Ignore.
+        }
+    }
+
+    private void closeAll() {
+        // Using the intermediate collection to prevent ConcurrentModificationException.
+        // In the `close()` method, the channel is deleted from `channels` map.
+        AbstractIOUringChannel[] localChannels = channels.values().toArray(new AbstractIOUringChannel[0]);
+
+        for (AbstractIOUringChannel ch: localChannels) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            // Wait for the cancelled requests of the closed channels, so their buffers are released, and for any
+            // in-flight wakeup write, so it is performed prior to closing eventFd.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while ((!channels.isEmpty() || pendingWakeup) && System.nanoTime() - deadline < 0) {
+                submissionQueue.submitAndWait(TimeUnit.MILLISECONDS.toNanos(100));
+                completionQueue.process(this);
+            }
+        } finally {
+            ringBuffer.close();
+            try {
+                eventFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+            // The ring was closed, so the kernel does not access the buffer anymore.
+            PlatformDependent.freeMemory(eventFdReadBuffer);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Socket;
+import io.netty.util.internal.UnstableApi;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses io_uring.
+ * <p>
+ * Connections are accepted with a multishot {@code IORING_OP_ACCEPT}, which stays in flight and completes once for
+ * every accepted connection, if supported by the kernel and auto read is enabled.
+ */
+@UnstableApi
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    // Multishot accept is supported since Linux 5.19, older kernels fail the request with EINVAL.
+    private static volatile boolean multishotAcceptSupported = true;
+
+    private final IOUringServerSocketChannelConfig config;
+
+    public IOUringServerSocketChannel() {
+        super(null, Socket.newSocketStream(), false);
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        socket.listen(config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    private final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+        private boolean multishot;
+
+        @Override
+        void scheduleRead() {
+            if (id == 0 || !isOpen() || isInFlight(READ)) {
+                return;
+            }
+            // Accept only a single connection at a time if the user controls when to read.
+            multishot = multishotAcceptSupported && config.isAutoRead();
+            ioState |= READ;
+            submissionQueue().addAccept(socket.intValue(), multishot, userData(READ));
+        }
+
+        @Override
+        void handle(int op, int res, int flags) {
+            if (op != READ) {
+                super.handle(op, res, flags);
+                return;
+            }
+            boolean more = (flags & Native.IORING_CQE_F_MORE) != 0;
+            if (!more) {
+                ioState &= ~READ;
+            }
+            if (res >= 0) {
+                accepted(res);
+                if (more && !readPending && !config.isAutoRead()) {
+                    // Auto read was disabled while the multishot accept was in flight.
+                    submissionQueue().addCancel(userData(READ), userData(CANCEL));
+                }
+            } else if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            } else if (res == Native.ERRNO_EINVAL_NEGATIVE && multishot) {
+                multishotAcceptSupported = false;
+            } else if (isOpen()) {
+                pipeline().fireExceptionCaught(newIOException("accept", res));
+            }
+            if (!more && (readPending || config.isAutoRead())) {
+                scheduleRead();
+            }
+        }
+
+        private void accepted(int fd) {
+            Socket child = new Socket(fd);
+            if (!isOpen()) {
+                closeChild(child);
+                return;
+            }
+            ChannelPipeline pipeline = pipeline();
+            RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            allocHandle.reset(config);
+            allocHandle.incMessagesRead(1);
+            readPending = false;
+            IOUringSocketChannel ch;
+            try {
+                ch = new IOUringSocketChannel(IOUringServerSocketChannel.this, child);
+            } catch (Throwable t) {
+                closeChild(child);
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                pipeline.fireExceptionCaught(t);
+                return;
+            }
+            pipeline.fireChannelRead(ch);
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+        }
+
+        private void closeChild(Socket child) {
+            try {
+                child.close();
+            } catch (Exception ignore) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SocketChannel} implementation that uses io_uring.
+ * <p>
+ * Reads are done with {@code IORING_OP_RECV} requests, which complete once data was received, so no readiness
+ * notification is needed. Once a read returned data, the next one is submitted with {@code MSG_DONTWAIT} for as long
+ * as the {@link RecvByteBufAllocator.Handle} wants to continue reading. Writes are done with a single
+ * {@code IORING_OP_SEND}, or {@code IORING_OP_WRITEV} for multiple buffers, of which only one is in flight at a
+ * time.
+ */
+@UnstableApi
+public final class IOUringSocketChannel extends AbstractIOUringChannel implements SocketChannel {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringSocketChannel.class);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    private static final int MSG_DONTWAIT = 0x40;
+
+    private final IOUringSocketChannelConfig config;
+
+    // The buffer the read which is in flight reads into.
+    private ByteBuf readBuffer;
+    // The buffers of the write which is in flight, which are retained until it completed.
+    private final List<ByteBuf> writeBuffers = new ArrayList<ByteBuf>();
+    private IovArray iovArray;
+    // The cause of the last failed write, which is thrown by the next doWrite(...).
+    private IOException writeError;
+
+    public IOUringSocketChannel() {
+        super(null, Socket.newSocketStream(), false);
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    IOUringSocketChannel(Channel parent, Socket fd) {
+        super(parent, fd, true);
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    @Override
+    public IOUringSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ServerSocketChannel parent() {
+        return (ServerSocketChannel) super.parent();
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringStreamUnsafe();
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return socket.isOutputShutdown();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return socket.isInputShutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return socket.isShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+                }
+            });
+        }
+
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownInput0(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownInput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownInput0(final ChannelPromise promise) {
+        try {
+            socket.shutdown(true, false);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        ChannelFuture shutdownOutputFuture = shutdownOutput();
+        if (shutdownOutputFuture.isDone()) {
+            shutdownOutputDone(shutdownOutputFuture, promise);
+        } else {
+            shutdownOutputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(final ChannelFuture shutdownOutputFuture) throws Exception {
+                    shutdownOutputDone(shutdownOutputFuture, promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownOutputDone(final ChannelFuture shutdownOutputFuture, final ChannelPromise promise) {
+        ChannelFuture shutdownInputFuture = shutdownInput();
+        if (shutdownInputFuture.isDone()) {
+            shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+        } else {
+            shutdownInputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture shutdownInputFuture) throws Exception {
+                    shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+                }
+            });
+        }
+    }
+
+    private static void shutdownDone(ChannelFuture shutdownOutputFuture,
+                              ChannelFuture shutdownInputFuture,
+                              ChannelPromise promise) {
+        Throwable shutdownOutputCause = shutdownOutputFuture.cause();
+        Throwable shutdownInputCause = shutdownInputFuture.cause();
+        if (shutdownOutputCause != null) {
+            if (shutdownInputCause != null) {
+                logger.debug("Exception suppressed because a previous exception occurred.",
+                        shutdownInputCause);
+            }
+            promise.setFailure(shutdownOutputCause);
+        } else if (shutdownInputCause != null) {
+            promise.setFailure(shutdownInputCause);
+        } else {
+            promise.setSuccess();
+        }
+    }
+
+    @Override
+    protected void doShutdownOutput() throws Exception {
+        socket.shutdown(false, true);
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        super.doDeregister();
+        // The requests of the channel were submitted by now, so the kernel copied the iovecs of a WRITEV already.
+        if (!isOpen() && iovArray != null) {
+            iovArray.release();
+            iovArray = null;
+        }
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return UnixChannelUtil.isBufferCopyNeededForWrite(buf) ? newDirectBuffer(buf) : buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        IOException error = writeError;
+        if (error != null) {
+            writeError = null;
+            throw error;
+        }
+        if (id == 0 || isInFlight(WRITE)) {
+            // Not registered, or the write which is in flight calls flush again once it completed.
+            return;
+        }
+        // Drop empty buffers, which do not need to be passed to the kernel.
+        Object msg;
+        while ((msg = in.current()) instanceof ByteBuf && !((ByteBuf) msg).isReadable()) {
+            in.remove();
+        }
+        if (msg == null) {
+            return;
+        }
+
+        ByteBuf buf = (ByteBuf) msg;
+        if (in.size() == 1 && buf.hasMemoryAddress()) {
+            writeBuffers.add(buf.retain());
+            ioState |= WRITE;
+            submissionQueue().addSend(socket.intValue(), buf.memoryAddress() + buf.readerIndex(),
+                    buf.readableBytes(), Native.MSG_NOSIGNAL, userData(WRITE));
+            return;
+        }
+
+        IovArray array = iovArray;
+        if (array == null) {
+            iovArray = array = new IovArray();
+        }
+        array.clear();
+        in.forEachFlushedMessage(writeProcessor);
+        ioState |= WRITE;
+        submissionQueue().addWritev(socket.intValue(), array.memoryAddress(0), array.count(), userData(WRITE));
+    }
+
+    private final ChannelOutboundBuffer.MessageProcessor writeProcessor = new ChannelOutboundBuffer.MessageProcessor() {
+        @Override
+        public boolean processMessage(Object msg) throws Exception {
+            IovArray array = iovArray;
+            int count = array.count();
+            boolean added = array.processMessage(msg);
+            if (array.count() != count) {
+                // Parts of the buffer may have been added even if not all of them fit.
+                writeBuffers.add(((ByteBuf) msg).retain());
+            }
+            return added;
+        }
+    };
+
+    private void releaseWriteBuffers() {
+        for (int i = 0; i < writeBuffers.size(); i++) {
+            writeBuffers.get(i).release();
+        }
+        writeBuffers.clear();
+    }
+
+    private final class IOUringStreamUnsafe extends AbstractIOUringUnsafe {
+        // true if the read which is in flight was submitted with MSG_DONTWAIT.
+        private boolean readDontWait;
+
+        @Override
+        protected void flush0() {
+            // Flush only if no write or wait for writability is in flight, as its completion flushes again.
+            if (!isInFlight(WRITE) && !isInFlight(POLL_OUT)) {
+                super.flush0();
+            }
+        }
+
+        @Override
+        void pollOutReady() {
+            super.pollOutReady();
+            flush0();
+        }
+
+        @Override
+        void scheduleRead() {
+            if (id == 0 || !isActive() || isInFlight(READ) || isInFlight(POLL_IN) || shouldBreakReadReady(config)) {
+                // A read requested before the channel is connected is scheduled once the connect completed.
+                return;
+            }
+            recvBufAllocHandle().reset(config);
+            readInProgress = true;
+            submitRead(false);
+        }
+
+        private void submitRead(boolean dontWait) {
+            RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            ByteBuf byteBuf = directReadBuffer(allocHandle.allocate(alloc()));
+            allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+            readBuffer = byteBuf;
+            readDontWait = dontWait;
+            ioState |= READ;
+            submissionQueue().addRecv(socket.intValue(), byteBuf.memoryAddress() + byteBuf.writerIndex(),
+                    byteBuf.writableBytes(), dontWait ? MSG_DONTWAIT : 0, userData(READ));
+        }
+
+        @Override
+        void handle(int op, int res, int flags) {
+            switch (op) {
+                case READ:
+                    ioState &= ~READ;
+                    ByteBuf byteBuf = readBuffer;
+                    readBuffer = null;
+                    readComplete(res, byteBuf);
+                    break;
+                case WRITE:
+                    releaseWriteBuffers();
+                    writeComplete(res);
+                    break;
+                default:
+                    super.handle(op, res, flags);
+                    break;
+            }
+        }
+
+        @Override
+        void discard(int op, int flags) {
+            if (op == READ && readBuffer != null) {
+                readBuffer.release();
+                readBuffer = null;
+                readInProgress = false;
+            } else if (op == WRITE) {
+                releaseWriteBuffers();
+            }
+            super.discard(op, flags);
+        }
+
+        private void readComplete(int res, ByteBuf byteBuf) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE || !isOpen()) {
+                byteBuf.release();
+                readInProgress = false;
+                return;
+            }
+            final ChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            if (res > 0) {
+                byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                allocHandle.lastBytesRead(res);
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+                pipeline.fireChannelRead(byteBuf);
+                if (allocHandle.continueReading() && isOpen() && !shouldBreakReadReady(config)) {
+                    submitRead(true);
+                    return;
+                }
+                readFinished(allocHandle, pipeline);
+            } else if (res == 0) {
+                // EOF
+                byteBuf.release();
+                allocHandle.lastBytesRead(-1);
+                readPending = false;
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                // Only read again once the input shutdown was handled, so the peer closing the connection is not
+                // seen twice.
+                shutdownInput(false);
+                readInProgress = false;
+                scheduleReadIfNeeded();
+            } else if (res == Native.ERRNO_EAGAIN_NEGATIVE) {
+                byteBuf.release();
+                if (readDontWait) {
+                    // The socket was drained.
+                    readFinished(allocHandle, pipeline);
+                } else {
+                    // Older kernels do not wait for data if the socket is non-blocking, so wait until it is readable.
+                    readInProgress = false;
+                    pollIn();
+                }
+            } else {
+                handleReadException(pipeline, byteBuf, newIOException("recv", res), allocHandle);
+            }
+        }
+
+        private void readFinished(RecvByteBufAllocator.Handle allocHandle, ChannelPipeline pipeline) {
+            readInProgress = false;
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            scheduleReadIfNeeded();
+        }
+
+        private void scheduleReadIfNeeded() {
+            if (readPending || config.isAutoRead()) {
+                scheduleRead();
+            }
+        }
+
+        private void handleReadException(ChannelPipeline pipeline, ByteBuf byteBuf, Throwable cause,
+                                         RecvByteBufAllocator.Handle allocHandle) {
+            byteBuf.release();
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            pipeline.fireExceptionCaught(cause);
+            shutdownInput(false);
+            readInProgress = false;
+        }
+
+        private void writeComplete(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                ioState &= ~WRITE;
+                return;
+            }
+            if (res == Native.ERRNO_EAGAIN_NEGATIVE) {
+                // The socket buffer is full, flush again once the socket is writable.
+                ioState &= ~WRITE;
+                pollOut();
+                return;
+            }
+            if (res < 0) {
+                // Thrown by the next doWrite(...), so the flushed messages are failed as usual.
+                writeError = newIOException("send", res);
+            } else {
+                ChannelOutboundBuffer in = outboundBuffer();
+                if (in != null) {
+                    // Removing the written bytes may notify writability changes and so trigger a flush. The WRITE
+                    // must still be marked as in flight until all bytes were removed, as otherwise we would submit
+                    // the same bytes again.
+                    in.removeBytes(res);
+                }
+            }
+            ioState &= ~WRITE;
+            flush0();
+        }
+    }
+}
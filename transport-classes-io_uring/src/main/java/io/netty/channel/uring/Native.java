@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelException;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.Unix;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.Selector;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * Native helper methods and the parts of the io_uring ABI which are used by this transport.
+ * <p><strong>Internal usage only!</strong>
+ */
+final class Native {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Native.class);
+
+    static {
+        Selector selector = null;
+        try {
+            // We call Selector.open() as this will under the hood cause IOUtil to be loaded.
+            // This is a workaround for a possible classloader deadlock that could happen otherwise:
+            //
+            // See https://github.com/netty/netty/issues/10187
+            selector = Selector.open();
+        } catch (IOException ignore) {
+            // Just ignore
+        }
+
+        try {
+            // First, try calling a side-effect free JNI method to see if the library was already
+            // loaded by the application.
+            sqeSize();
+        } catch (UnsatisfiedLinkError ignore) {
+            // The library was not previously loaded, load it now.
+            loadNativeLibrary();
+        } finally {
+            try {
+                if (selector != null) {
+                    selector.close();
+                }
+            } catch (IOException ignore) {
+                // Just ignore
+            }
+        }
+        Unix.registerInternal(new Runnable() {
+            @Override
+            public void run() {
+                registerUnix();
+            }
+        });
+    }
+
+    // Opcodes, see https://github.com/torvalds/linux/blob/v5.19/include/uapi/linux/io_uring.h
+    static final byte IORING_OP_NOP = 0;
+    static final byte IORING_OP_WRITEV = 2;
+    static final byte IORING_OP_POLL_ADD = 6;
+    static final byte IORING_OP_ACCEPT = 13;
+    static final byte IORING_OP_ASYNC_CANCEL = 14;
+    static final byte IORING_OP_READ = 22;
+    static final byte IORING_OP_SEND = 26;
+    static final byte IORING_OP_RECV = 27;
+
+    // Flags of the io_uring_enter(...) syscall.
+    static final int IORING_ENTER_GETEVENTS = 1;
+
+    // Flags of io_uring_setup(...) which tell about the features of the kernel.
+    static final int IORING_FEAT_NODROP = 1 << 1;
+    static final int IORING_FEAT_EXT_ARG = 1 << 8;
+
+    // Set in the ioprio field of an accept request to keep accepting connections until it is cancelled.
+    static final short IORING_ACCEPT_MULTISHOT = 1;
+    // Set in the flags of a completion if more completions will follow for the same request.
+    static final int IORING_CQE_F_MORE = 1 << 1;
+
+    static final int POLLIN = 0x1;
+    static final int POLLOUT = 0x4;
+    static final int POLLERR = 0x8;
+    static final int POLLHUP = 0x10;
+
+    static final int MSG_NOSIGNAL = 0x4000;
+    static final int SOCK_NONBLOCK = 0x800;
+    static final int SOCK_CLOEXEC = 0x80000;
+
+    static final int ERRNO_EINTR_NEGATIVE = -4;
+    static final int ERRNO_EAGAIN_NEGATIVE = -11;
+    static final int ERRNO_EBUSY_NEGATIVE = -16;
+    static final int ERRNO_EINVAL_NEGATIVE = -22;
+    static final int ERRNO_ETIME_NEGATIVE = -62;
+    static final int ERRNO_ECANCELED_NEGATIVE = -125;
+
+    static final int SQE_SIZE = sqeSize();
+    static final int CQE_SIZE = cqeSize();
+
+    // IMPORTANT: These need to be consistent with the indices used in netty_io_uring_native.c
+    static final int RING_SQ_RING_ADDRESS = 0;
+    static final int RING_SQ_RING_SIZE = 1;
+    static final int RING_SQ_HEAD_ADDRESS = 2;
+    static final int RING_SQ_TAIL_ADDRESS = 3;
+    static final int RING_SQ_RING_MASK = 4;
+    static final int RING_SQ_RING_ENTRIES = 5;
+    static final int RING_SQ_ARRAY_ADDRESS = 6;
+    static final int RING_SQES_ADDRESS = 7;
+    static final int RING_SQES_SIZE = 8;
+    static final int RING_CQ_RING_ADDRESS = 9;
+    static final int RING_CQ_RING_SIZE = 10;
+    static final int RING_CQ_HEAD_ADDRESS = 11;
+    static final int RING_CQ_TAIL_ADDRESS = 12;
+    static final int RING_CQ_RING_MASK = 13;
+    static final int RING_CQ_RING_ENTRIES = 14;
+    static final int RING_CQES_ADDRESS = 15;
+    static final int RING_FEATURES = 16;
+    static final int RING_LENGTH = 17;
+
+    /**
+     * Creates a new io_uring instance with at least {@code entries} submission queue entries.
+     */
+    static RingBuffer createRingBuffer(int entries) {
+        long[] ring = new long[RING_LENGTH];
+        int ringFd = ioUringSetup(entries, ring);
+        if (ringFd < 0) {
+            throw new ChannelException(newIOException("io_uring_setup", ringFd));
+        }
+        int features = (int) ring[RING_FEATURES];
+        RingBuffer ringBuffer = new RingBuffer(ringFd, ring);
+        if ((features & IORING_FEAT_NODROP) == 0 || (features & IORING_FEAT_EXT_ARG) == 0) {
+            ringBuffer.close();
+            throw new ChannelException("io_uring is not supported by this kernel, at least Linux 5.11 is required");
+        }
+        return ringBuffer;
+    }
+
+    static FileDescriptor newBlockingEventFd() {
+        return new FileDescriptor(blockingEventFd());
+    }
+
+    static native int ioUringSetup(int entries, long[] ring);
+
+    /**
+     * Returns the number of submitted entries, or the negative errno.
+     *
+     * @param timeoutNanos how long to wait for {@code minComplete} completions if {@link #IORING_ENTER_GETEVENTS}
+     *                     is set, or {@code -1} to wait without a timeout.
+     */
+    static native int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags, long timeoutNanos);
+    static native void ioUringExit(long sqRingAddress, int sqRingSize, long cqRingAddress, int cqRingSize,
+                                   long sqesAddress, int sqesSize, int ringFd);
+    private static native int blockingEventFd();
+    static native void eventFdWrite(int fd, long value);
+    private static native int sqeSize();
+    private static native int cqeSize();
+    private static native int registerUnix();
+
+    private static void loadNativeLibrary() {
+        String name = PlatformDependent.normalizedOs();
+        if (!"linux".equals(name)) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        String staticLibName = "netty_transport_native_io_uring";
+        String sharedLibName = staticLibName + '_' + PlatformDependent.normalizedArch();
+        ClassLoader cl = PlatformDependent.getClassLoader(Native.class);
+        try {
+            NativeLibraryLoader.load(sharedLibName, cl);
+        } catch (UnsatisfiedLinkError e1) {
+            try {
+                NativeLibraryLoader.load(staticLibName, cl);
+                logger.debug("Failed to load {}", sharedLibName, e1);
+            } catch (UnsatisfiedLinkError e2) {
+                ThrowableUtil.addSuppressed(e1, e2);
+                throw e1;
+            }
+        }
+    }
+
+    private Native() {
+        // utility
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * An io_uring instance, which consists of the {@link SubmissionQueue} and the {@link CompletionQueue} that are
+ * shared with the kernel.
+ */
+final class RingBuffer {
+    private final int ringFd;
+    private final long[] ring;
+    private final SubmissionQueue submissionQueue;
+    private final CompletionQueue completionQueue;
+    private boolean closed;
+
+    RingBuffer(int ringFd, long[] ring) {
+        this.ringFd = ringFd;
+        this.ring = ring;
+        submissionQueue = new SubmissionQueue(ringFd, ring);
+        completionQueue = new CompletionQueue(ring);
+    }
+
+    int fd() {
+        return ringFd;
+    }
+
+    SubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    CompletionQueue completionQueue() {
+        return completionQueue;
+    }
+
+    /**
+     * Unmaps the queues and closes the io_uring instance. All requests which are still in flight are cancelled by
+     * the kernel.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Native.ioUringExit(ring[Native.RING_SQ_RING_ADDRESS], (int) ring[Native.RING_SQ_RING_SIZE],
+                ring[Native.RING_CQ_RING_ADDRESS], (int) ring[Native.RING_CQ_RING_SIZE],
+                ring[Native.RING_SQES_ADDRESS], (int) ring[Native.RING_SQES_SIZE], ringFd);
+    }
+}
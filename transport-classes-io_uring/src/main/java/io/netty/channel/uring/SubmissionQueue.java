@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelException;
+import io.netty.util.internal.PlatformDependent;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * The submission queue of a {@link RingBuffer}. Requests are only written into the shared memory when they are
+ * added, and are all passed to the kernel with a single {@code io_uring_enter(...)} call once {@link #submit()} or
+ * {@link #submitAndWait(long)} is called, which the event loop does once per iteration.
+ * <p>
+ * Must only be used from the event loop.
+ */
+final class SubmissionQueue {
+    // Offsets of the fields of struct io_uring_sqe.
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_IOPRIO_FIELD = 2;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_OP_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+
+    private final int ringFd;
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final int ringMask;
+    private final int ringEntries;
+    private final long sqesAddress;
+
+    // Our copy of the tail, which is published to the kernel after every added request.
+    private int tail;
+
+    SubmissionQueue(int ringFd, long[] ring) {
+        this.ringFd = ringFd;
+        kHeadAddress = ring[Native.RING_SQ_HEAD_ADDRESS];
+        kTailAddress = ring[Native.RING_SQ_TAIL_ADDRESS];
+        ringMask = (int) ring[Native.RING_SQ_RING_MASK];
+        ringEntries = (int) ring[Native.RING_SQ_RING_ENTRIES];
+        sqesAddress = ring[Native.RING_SQES_ADDRESS];
+        tail = PlatformDependent.getInt(kTailAddress);
+
+        // The array holds the indices of the submitted entries, use each entry for the slot with the same index so
+        // the array never needs to be written again.
+        long arrayAddress = ring[Native.RING_SQ_ARRAY_ADDRESS];
+        for (int i = 0; i < ringEntries; i++) {
+            PlatformDependent.putInt(arrayAddress + (long) i * 4, i);
+        }
+    }
+
+    /**
+     * Returns the number of requests which were added but not submitted yet.
+     */
+    int pending() {
+        return tail - PlatformDependent.getIntVolatile(kHeadAddress);
+    }
+
+    void addNop(long userData) {
+        enqueue(Native.IORING_OP_NOP, (short) 0, -1, 0, 0, 0, 0, userData);
+    }
+
+    void addRead(int fd, long address, int length, long userData) {
+        enqueue(Native.IORING_OP_READ, (short) 0, fd, 0, address, length, 0, userData);
+    }
+
+    void addRecv(int fd, long address, int length, int flags, long userData) {
+        enqueue(Native.IORING_OP_RECV, (short) 0, fd, 0, address, length, flags, userData);
+    }
+
+    void addSend(int fd, long address, int length, int flags, long userData) {
+        enqueue(Native.IORING_OP_SEND, (short) 0, fd, 0, address, length, flags, userData);
+    }
+
+    void addWritev(int fd, long iovAddress, int iovCount, long userData) {
+        enqueue(Native.IORING_OP_WRITEV, (short) 0, fd, 0, iovAddress, iovCount, 0, userData);
+    }
+
+    void addPoll(int fd, int pollMask, long userData) {
+        enqueue(Native.IORING_OP_POLL_ADD, (short) 0, fd, 0, 0, 0, pollMask, userData);
+    }
+
+    void addAccept(int fd, boolean multishot, long userData) {
+        enqueue(Native.IORING_OP_ACCEPT, multishot ? Native.IORING_ACCEPT_MULTISHOT : 0, fd, 0, 0, 0,
+                Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC, userData);
+    }
+
+    /**
+     * Cancels the request which was added with {@code targetUserData}.
+     */
+    void addCancel(long targetUserData, long userData) {
+        enqueue(Native.IORING_OP_ASYNC_CANCEL, (short) 0, -1, 0, targetUserData, 0, 0, userData);
+    }
+
+    private void enqueue(byte op, short ioprio, int fd, long offset, long address, int length, int opFlags,
+                         long userData) {
+        if (pending() == ringEntries) {
+            // The queue is full, pass the pending requests to the kernel to make room.
+            submit();
+            if (pending() == ringEntries) {
+                throw new ChannelException("io_uring submission queue is full");
+            }
+        }
+        long sqe = sqesAddress + (long) (tail & ringMask) * Native.SQE_SIZE;
+        PlatformDependent.setMemory(sqe, Native.SQE_SIZE, (byte) 0);
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putShort(sqe + SQE_IOPRIO_FIELD, ioprio);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, length);
+        PlatformDependent.putInt(sqe + SQE_OP_FLAGS_FIELD, opFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+        // Publish the entry to the kernel, the store of the tail must not be reordered with the stores above.
+        PlatformDependent.putIntOrdered(kTailAddress, ++tail);
+    }
+
+    /**
+     * Passes all pending requests to the kernel without waiting for completions.
+     */
+    int submit() {
+        int toSubmit = pending();
+        if (toSubmit == 0) {
+            return 0;
+        }
+        return enter(toSubmit, 0, 0, -1);
+    }
+
+    /**
+     * Passes all pending requests to the kernel and waits until there is at least one completion.
+     *
+     * @param timeoutNanos the maximal time to wait, or {@code -1} to wait without a timeout.
+     */
+    int submitAndWait(long timeoutNanos) {
+        return enter(pending(), 1, Native.IORING_ENTER_GETEVENTS, timeoutNanos);
+    }
+
+    private int enter(int toSubmit, int minComplete, int flags, long timeoutNanos) {
+        int res = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags, timeoutNanos);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == Native.ERRNO_EINTR_NEGATIVE || res == Native.ERRNO_ETIME_NEGATIVE ||
+                res == Native.ERRNO_EAGAIN_NEGATIVE || res == Native.ERRNO_EBUSY_NEGATIVE) {
+            // Interrupted, timed out, or the kernel is short on resources or completion queue space. In all cases
+            // the pending requests stay in the queue and are submitted once the completions were processed.
+            return 0;
+        }
+        throw new IllegalStateException(newIOException("io_uring_enter", res));
+    }
+}
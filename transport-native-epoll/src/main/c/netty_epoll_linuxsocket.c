@@ -21,13 +21,17 @@
  */
 #define _GNU_SOURCE
 
+#include <stdint.h>
 #include <stdlib.h>
 #include <string.h>
 #include <errno.h>
+#include <fcntl.h>
 #include <netinet/in.h>
 #include <netinet/udp.h> // SOL_UDP
 #include <sys/sendfile.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
+#include <linux/errqueue.h> // sock_extended_err
+#include <linux/filter.h> // sock_fprog, SKF_AD_CPU
 #include "netty_epoll_linuxsocket.h"
 #include "netty_unix_errors.h"
 #include "netty_unix_filedescriptor.h"
@@ -62,6 +66,58 @@
 #define UDP_GRO 104
 #endif
 
+// SO_ZEROCOPY and MSG_ZEROCOPY are defined in linux 4.14. We define these here so older kernels can compile.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+
+#ifndef SO_EE_ORIGIN_ZEROCOPY
+#define SO_EE_ORIGIN_ZEROCOPY 5
+#endif
+
+#ifndef SO_EE_CODE_ZEROCOPY_COPIED
+#define SO_EE_CODE_ZEROCOPY_COPIED 1
+#endif
+
+// Kernel TLS is supported since linux 4.13 (TLS_RX since 4.17). We define these here so older kernels can compile.
+#ifndef TCP_ULP
+#define TCP_ULP 31
+#endif
+
+#ifndef SOL_TLS
+#define SOL_TLS 282
+#endif
+
+#ifndef TLS_TX
+#define TLS_TX 1
+#endif
+
+#ifndef TLS_RX
+#define TLS_RX 2
+#endif
+
+// SO_ATTACH_REUSEPORT_CBPF is defined in linux 4.5 and SO_DETACH_REUSEPORT_BPF in linux 5.2. We define these here so
+// older kernels can compile.
+#ifndef SO_ATTACH_REUSEPORT_CBPF
+#define SO_ATTACH_REUSEPORT_CBPF 51
+#endif
+
+#ifndef SO_DETACH_REUSEPORT_BPF
+#define SO_DETACH_REUSEPORT_BPF 68
+#endif
+
+#ifndef SKF_AD_CPU
+#define SKF_AD_CPU 36
+#endif
+
+#define NETTY_TLS_1_2_VERSION 0x0303
+#define NETTY_TLS_CIPHER_AES_GCM_128 51
+#define NETTY_TLS_CIPHER_AES_GCM_256 52
+
 static jclass peerCredentialsClass = NULL;
 static jmethodID peerCredentialsMethodId = NULL;
 
@@ -627,6 +683,79 @@ static void netty_epoll_linuxsocket_setUdpGro(JNIEnv* env, jclass clazz, jint fd
     netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval));
 }
 
+static jint netty_epoll_linuxsocket_isSoZeroCopy(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static void netty_epoll_linuxsocket_setSoZeroCopy(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+}
+
+static jlong netty_epoll_linuxsocket_sendmsgZeroCopy(JNIEnv* env, jclass clazz, jint fd, jlong memoryAddress, jint cnt) {
+    struct msghdr m = { 0 };
+    m.msg_iov = (struct iovec*) (intptr_t) memoryAddress;
+    m.msg_iovlen = cnt;
+
+    ssize_t res;
+    int err;
+    do {
+        res = sendmsg(fd, &m, MSG_ZEROCOPY);
+    } while (res == -1 && ((err = errno) == EINTR));
+    if (res < 0) {
+        return -err;
+    }
+    return (jlong) res;
+}
+
+// Reads the next MSG_ZEROCOPY completion notification from the error queue of the socket and stores the first and last
+// id of the completed sends and whether the kernel copied the data into the given array.
+// Returns 1 if a notification was read or the negative errno, which is -EAGAIN once the error queue is empty.
+static jint netty_epoll_linuxsocket_recvZeroCopyNotification(JNIEnv* env, jclass clazz, jint fd, jintArray result) {
+    char control[CMSG_SPACE(sizeof(struct sock_extended_err)) + CMSG_SPACE(sizeof(struct sockaddr_in6))];
+    for (;;) {
+        struct msghdr m = { 0 };
+        m.msg_control = control;
+        m.msg_controllen = sizeof(control);
+
+        ssize_t res;
+        int err;
+        do {
+            res = recvmsg(fd, &m, MSG_ERRQUEUE);
+        } while (res == -1 && ((err = errno) == EINTR));
+        if (res < 0) {
+            return -err;
+        }
+
+        struct cmsghdr* cmsg = CMSG_FIRSTHDR(&m);
+        if (cmsg == NULL || !((cmsg->cmsg_level == SOL_IP && cmsg->cmsg_type == IP_RECVERR) ||
+                (cmsg->cmsg_level == SOL_IPV6 && cmsg->cmsg_type == IPV6_RECVERR))) {
+            continue;
+        }
+        struct sock_extended_err* serr = (struct sock_extended_err*) CMSG_DATA(cmsg);
+        if (serr->ee_errno != 0 || serr->ee_origin != SO_EE_ORIGIN_ZEROCOPY) {
+            // Not a completion notification, skip it.
+            continue;
+        }
+        jint values[3] = { (jint) serr->ee_info, (jint) serr->ee_data,
+                (serr->ee_code & SO_EE_CODE_ZEROCOPY_COPIED) != 0 ? 1 : 0 };
+        (*env)->SetIntArrayRegion(env, result, 0, 3, values);
+        return 1;
+    }
+}
+
+// Duplicates the file descriptor, so the socket stays open after the original one was closed.
+// Returns the new file descriptor or the negative errno.
+static jint netty_epoll_linuxsocket_dup(JNIEnv* env, jclass clazz, jint fd) {
+    int res = fcntl(fd, F_DUPFD_CLOEXEC, 0);
+    if (res < 0) {
+        return -errno;
+    }
+    return res;
+}
 
 static jlong netty_epoll_linuxsocket_sendFile(JNIEnv* env, jclass clazz, jint fd, jobject fileRegion, jlong base_off, jlong off, jlong len) {
     jobject fileChannel = (*env)->GetObjectField(env, fileRegion, fileChannelFieldId);
@@ -661,6 +790,52 @@ static jlong netty_epoll_linuxsocket_sendFile(JNIEnv* env, jclass clazz, jint fd
     return res;
 }
 
+static void netty_epoll_linuxsocket_setTcpUlpTls(JNIEnv* env, jclass clazz, jint fd) {
+    netty_unix_socket_setOption(env, fd, IPPROTO_TCP, TCP_ULP, "tls", sizeof("tls"));
+}
+
+static void netty_epoll_linuxsocket_setKernelTls(JNIEnv* env, jclass clazz, jint fd, jboolean transmit, jbyteArray key, jbyteArray salt, jlong recordSequence) {
+    // Same layout as struct tls12_crypto_info_aes_gcm_128 / tls12_crypto_info_aes_gcm_256, which only differ in the
+    // length of the key: version, cipher_type, iv[8], key[16 / 32], salt[4], rec_seq[8]
+    unsigned char info[4 + 8 + 32 + 4 + 8];
+    unsigned char seq[8];
+    jsize keyLen = (*env)->GetArrayLength(env, key);
+    uint16_t version = NETTY_TLS_1_2_VERSION;
+    uint16_t cipherType = keyLen == 16 ? NETTY_TLS_CIPHER_AES_GCM_128 : NETTY_TLS_CIPHER_AES_GCM_256;
+    int i;
+
+    // The record sequence number is in network byte order, it is also used as the initial explicit nonce.
+    for (i = 0; i < 8; i++) {
+        seq[i] = (unsigned char) (((uint64_t) recordSequence) >> (56 - 8 * i));
+    }
+    memcpy(info, &version, sizeof(version));
+    memcpy(info + 2, &cipherType, sizeof(cipherType));
+    memcpy(info + 4, seq, 8);
+    (*env)->GetByteArrayRegion(env, key, 0, keyLen, (jbyte*) info + 12);
+    (*env)->GetByteArrayRegion(env, salt, 0, 4, (jbyte*) info + 12 + keyLen);
+    memcpy(info + 16 + keyLen, seq, 8);
+
+    netty_unix_socket_setOption(env, fd, SOL_TLS, transmit == JNI_TRUE ? TLS_TX : TLS_RX, info, 24 + keyLen);
+    // Do not leave the key on the stack.
+    memset(info, 0, sizeof(info));
+}
+
+static void netty_epoll_linuxsocket_setReusePortCpuSteering(JNIEnv* env, jclass clazz, jint fd, jint steering) {
+    if (steering == 0) {
+        int unused = 0;
+        netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_DETACH_REUSEPORT_BPF, &unused, sizeof(unused));
+        return;
+    }
+    // Select the socket of the reuseport group whose index matches the CPU which received the packet. If the index is
+    // out of range the kernel falls back to the hash based selection.
+    struct sock_filter code[] = {
+        { BPF_LD | BPF_W | BPF_ABS, 0, 0, SKF_AD_OFF + SKF_AD_CPU },
+        { BPF_RET | BPF_A, 0, 0, 0 }
+    };
+    struct sock_fprog prog = { sizeof(code) / sizeof(code[0]), code };
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ATTACH_REUSEPORT_CBPF, &prog, sizeof(prog));
+}
+
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
@@ -703,7 +878,15 @@ static const JNINativeMethod fixed_method_table[] = {
   { "leaveGroup", "(IZ[B[BII)V", (void *) netty_epoll_linuxsocket_leaveGroup },
   { "leaveSsmGroup", "(IZ[B[BII[B)V", (void *) netty_epoll_linuxsocket_leaveSsmGroup },
   { "isUdpGro", "(I)I", (void *) netty_epoll_linuxsocket_isUdpGro },
-  { "setUdpGro", "(II)V", (void *) netty_epoll_linuxsocket_setUdpGro }
+  { "setUdpGro", "(II)V", (void *) netty_epoll_linuxsocket_setUdpGro },
+  { "isSoZeroCopy", "(I)I", (void *) netty_epoll_linuxsocket_isSoZeroCopy },
+  { "setSoZeroCopy", "(II)V", (void *) netty_epoll_linuxsocket_setSoZeroCopy },
+  { "sendmsgZeroCopy", "(IJI)J", (void *) netty_epoll_linuxsocket_sendmsgZeroCopy },
+  { "recvZeroCopyNotification", "(I[I)I", (void *) netty_epoll_linuxsocket_recvZeroCopyNotification },
+  { "dup", "(I)I", (void *) netty_epoll_linuxsocket_dup },
+  { "setTcpUlpTls", "(I)V", (void *) netty_epoll_linuxsocket_setTcpUlpTls },
+  { "setKernelTls", "(IZ[B[BJ)V", (void *) netty_epoll_linuxsocket_setKernelTls },
+  { "setReusePortCpuSteering", "(II)V", (void *) netty_epoll_linuxsocket_setReusePortCpuSteering }
 
   // "sendFile" has a dynamic signature
 };
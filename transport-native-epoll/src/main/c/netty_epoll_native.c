@@ -498,16 +498,10 @@ static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jbo
     struct sockaddr_storage addr[len];
     int addrSize = sizeof(addr);
     memset(addr, 0, addrSize);
-    int storageSize = sizeof(struct sockaddr_storage);
-    char* cntrlbuf = NULL;
-
-#ifdef IP_RECVORIGDSTADDR
-    int readLocalAddr = 0;
-    if (netty_unix_socket_getOption(env, fd, IPPROTO_IP, IP_RECVORIGDSTADDR,
-            &readLocalAddr, sizeof(readLocalAddr)) < 0) {
-        cntrlbuf = malloc(sizeof(char) * storageSize * len);
-    }
-#endif // IP_RECVORIGDSTADDR
+    // Enough space for GRO and IP_RECVORIGDSTADDR. We can not ask the kernel if UDP_GRO is enabled because of a
+    // kernel bug, so always provide the control message buffer.
+    int storageSize = CMSG_SPACE(sizeof(uint16_t)) + sizeof(struct sockaddr_storage);
+    char* cntrlbuf = malloc(sizeof(char) * storageSize * len);
 
     int i;
 
@@ -660,6 +654,14 @@ static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
     return TCP_MD5SIG_MAXKEYLEN;
 }
 
+static jint netty_epoll_native_errnoENOBUFS(JNIEnv* env, jclass clazz) {
+    return ENOBUFS;
+}
+
+static jint netty_epoll_native_errnoEIO(JNIEnv* env, jclass clazz) {
+    return EIO;
+}
+
 static jint netty_epoll_native_registerUnix(JNIEnv* env, jclass clazz) {
     register_unix_called = 1;
     return netty_unix_register(env, staticPackagePrefix);
@@ -678,6 +680,8 @@ static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "isSupportingSendmmsg", "()Z", (void *) netty_epoll_native_isSupportingSendmmsg },
   { "isSupportingRecvmmsg", "()Z", (void *) netty_epoll_native_isSupportingRecvmmsg },
   { "tcpFastopenMode", "()I", (void *) netty_epoll_native_tcpFastopenMode },
+  { "errnoENOBUFS", "()I", (void *) netty_epoll_native_errnoENOBUFS },
+  { "errnoEIO", "()I", (void *) netty_epoll_native_errnoEIO },
   { "kernelVersion", "()Ljava/lang/String;", (void *) netty_epoll_native_kernelVersion }
 };
 static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.unix.DatagramPacketBatch;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.NetUtil.LOCALHOST;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class EpollDatagramBatchTest {
+
+    private static final int DATAGRAMS = 64;
+    private static final int DATAGRAM_SIZE = 256;
+
+    private static EventLoopGroup group;
+
+    @BeforeAll
+    public static void setUp() {
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testBatch() {
+        final DatagramPacketBatch batch = new DatagramPacketBatch(Unpooled.buffer(), 1);
+        InetSocketAddress recipient = new InetSocketAddress(LOCALHOST, 1234);
+        batch.add(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 }), recipient)
+             .add(Unpooled.wrappedBuffer(new byte[] { 4, 5, 6, 7 }), 2, null);
+        assertEquals(2, batch.count());
+        assertEquals(0, batch.index(0));
+        assertEquals(3, batch.length(0));
+        assertEquals(0, batch.segmentSize(0));
+        assertEquals(recipient, batch.recipient(0));
+        assertNull(batch.sender(0));
+        assertEquals(Unpooled.wrappedBuffer(new byte[] { 4, 5, 6, 7 }), batch.content(1));
+        assertEquals(2, batch.segmentSize(1));
+        assertThrows(IndexOutOfBoundsException.class, new Executable() {
+            @Override
+            public void execute() {
+                batch.length(2);
+            }
+        });
+
+        // The copy must keep the indexes valid.
+        batch.content().skipBytes(3);
+        DatagramPacketBatch copy = batch.copy();
+        assertEquals(2, copy.count());
+        assertEquals(batch.content(0), copy.content(0));
+        assertEquals(batch.content(1), copy.content(1));
+        assertTrue(copy.release());
+        assertTrue(batch.release());
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testBatchReadWithRecvmmsg() throws Throwable {
+        testBatchRead(DATAGRAM_SIZE, false);
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testBatchReadWithRecvmsg() throws Throwable {
+        testBatchRead(0, false);
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testBatchReadSegmented() throws Throwable {
+        assumeTrue(EpollDatagramChannel.isSegmentedDatagramPacketSupported());
+        // Datagrams may be coalesced by UDP_GRO, so the slots need to be big enough.
+        testBatchRead(DATAGRAM_SIZE * DATAGRAMS, true);
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testBatchWriteContinuesAfterFailure() throws Throwable {
+        final BatchHandler handler = new BatchHandler(2);
+        Channel sc = new Bootstrap()
+                .group(group)
+                .channel(EpollDatagramChannel.class)
+                .option(EpollChannelOption.DATAGRAM_BATCH_READ, true)
+                .handler(handler)
+                .bind(LOCALHOST, 0).syncUninterruptibly().channel();
+        Channel cc = new Bootstrap()
+                .group(group)
+                .channel(EpollDatagramChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .bind(LOCALHOST, 0).syncUninterruptibly().channel();
+        try {
+            InetSocketAddress recipient = (InetSocketAddress) sc.localAddress();
+            DatagramPacketBatch batch = new DatagramPacketBatch(cc.alloc().directBuffer());
+            batch.add(Unpooled.wrappedBuffer(datagram(0)), recipient)
+                 // Empty datagrams are skipped.
+                 .add(Unpooled.EMPTY_BUFFER, recipient)
+                 // Sending to port 0 fails.
+                 .add(Unpooled.wrappedBuffer(datagram(1)), new InetSocketAddress(LOCALHOST, 0))
+                 .add(Unpooled.wrappedBuffer(datagram(2)), recipient);
+            ChannelFuture future = cc.writeAndFlush(batch).awaitUninterruptibly();
+            assertTrue(future.cause() instanceof IOException, String.valueOf(future.cause()));
+
+            handler.await();
+            List<byte[]> received = handler.received();
+            assertEquals(2, received.size());
+            assertTrue(Arrays.equals(datagram(0), received.get(0)));
+            assertTrue(Arrays.equals(datagram(2), received.get(1)));
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+        }
+    }
+
+    private static void testBatchRead(int maxDatagramPayloadSize, boolean segmented) throws Throwable {
+        final BatchHandler handler = new BatchHandler(DATAGRAMS);
+        Bootstrap sb = new Bootstrap()
+                .group(group)
+                .channel(EpollDatagramChannel.class)
+                .option(EpollChannelOption.DATAGRAM_BATCH_READ, true)
+                .option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maxDatagramPayloadSize)
+                .option(EpollChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(
+                        Math.max(maxDatagramPayloadSize, DATAGRAM_SIZE) * 16))
+                .handler(handler);
+        if (segmented) {
+            sb.option(EpollChannelOption.UDP_GRO, true);
+        }
+        Channel sc = sb.bind(LOCALHOST, 0).syncUninterruptibly().channel();
+        Channel cc = new Bootstrap()
+                .group(group)
+                .channel(EpollDatagramChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .bind(LOCALHOST, 0).syncUninterruptibly().channel();
+        try {
+            InetSocketAddress recipient = (InetSocketAddress) sc.localAddress();
+            DatagramPacketBatch batch = new DatagramPacketBatch(cc.alloc().directBuffer());
+            if (segmented) {
+                ByteBuf data = Unpooled.buffer();
+                for (int i = 0; i < DATAGRAMS; i++) {
+                    data.writeBytes(datagram(i));
+                }
+                batch.add(data, DATAGRAM_SIZE, recipient);
+                data.release();
+            } else {
+                for (int i = 0; i < DATAGRAMS; i++) {
+                    batch.add(Unpooled.wrappedBuffer(datagram(i)), recipient);
+                }
+            }
+            cc.writeAndFlush(batch).syncUninterruptibly();
+
+            handler.await();
+            List<byte[]> received = handler.received();
+            assertEquals(DATAGRAMS, received.size());
+            for (int i = 0; i < DATAGRAMS; i++) {
+                assertTrue(Arrays.equals(datagram(i), received.get(i)));
+            }
+            assertEquals(cc.localAddress(), handler.sender);
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+        }
+    }
+
+    private static byte[] datagram(int i) {
+        byte[] bytes = new byte[DATAGRAM_SIZE];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = (byte) (i + j);
+        }
+        return bytes;
+    }
+
+    private static final class BatchHandler extends ChannelInboundHandlerAdapter {
+        private final List<byte[]> received = new ArrayList<byte[]>();
+        private final int expected;
+        volatile InetSocketAddress sender;
+
+        BatchHandler(int expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            DatagramPacketBatch batch = (DatagramPacketBatch) msg;
+            try {
+                synchronized (this) {
+                    for (int i = 0; i < batch.count(); i++) {
+                        received.add(ByteBufUtil.getBytes(batch.content(i)));
+                        sender = batch.sender(i);
+                    }
+                    notifyAll();
+                }
+            } finally {
+                batch.release();
+            }
+        }
+
+        synchronized void await() throws InterruptedException {
+            while (received.size() < expected) {
+                wait();
+            }
+        }
+
+        synchronized List<byte[]> received() {
+            return new ArrayList<byte[]>(received);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class EpollReusePortServerBootstrapTest {
+
+    private static final int LOOPS = 4;
+    private static final int CONNECTIONS = 200;
+
+    private static EventLoopGroup group;
+
+    @BeforeAll
+    public static void setUp() {
+        group = new EpollEventLoopGroup(LOOPS);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testBindPerChildEventLoop() throws Throwable {
+        AcceptHandler handler = new AcceptHandler(CONNECTIONS);
+        ChannelGroup channels = newServerBootstrap(handler)
+                .bindPerChildEventLoop(new InetSocketAddress(NetUtil.LOCALHOST, 0))
+                .syncUninterruptibly().getNow();
+        try {
+            assertEquals(LOOPS, channels.size());
+            SocketAddress address = null;
+            List<Object> loops = new ArrayList<Object>();
+            for (Channel channel : channels) {
+                assertFalse(loops.contains(channel.eventLoop()));
+                loops.add(channel.eventLoop());
+                if (address == null) {
+                    address = channel.localAddress();
+                } else {
+                    assertEquals(address, channel.localAddress());
+                }
+            }
+
+            connect((InetSocketAddress) address, CONNECTIONS);
+            handler.await();
+            assertEquals(0, handler.mismatches.get());
+            // The kernel hashes the connections over all the listeners.
+            assertEquals(LOOPS, handler.accepted.size());
+        } finally {
+            channels.close().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testReusePortCpuSteering() throws Throwable {
+        AcceptHandler handler = new AcceptHandler(CONNECTIONS);
+        ChannelGroup channels = newServerBootstrap(handler)
+                .option(EpollChannelOption.REUSEPORT_CPU_STEERING, true)
+                .bindPerChildEventLoop(new InetSocketAddress(NetUtil.LOCALHOST, 0))
+                .syncUninterruptibly().getNow();
+        try {
+            // The channels are bound in the order of the EventLoops, which is their index in the SO_REUSEPORT group.
+            List<EventExecutor> loops = new ArrayList<EventExecutor>();
+            for (EventExecutor loop : group) {
+                loops.add(loop);
+            }
+            Channel first = null;
+            for (Channel channel : channels) {
+                assertTrue(channel.config().getOption(EpollChannelOption.REUSEPORT_CPU_STEERING));
+                if (channel.eventLoop() == loops.get(0)) {
+                    first = channel;
+                }
+            }
+            assertNotNull(first);
+
+            // On loopback the SYN is processed by the CPU which connects, which then selects the channel whose index
+            // matches this CPU. Only check the connections for which we know the CPU, as the thread may migrate.
+            Map<SocketAddress, Integer> cpus = new HashMap<SocketAddress, Integer>();
+            for (int i = 0; i < CONNECTIONS; i++) {
+                Socket socket = new Socket();
+                try {
+                    int cpu = currentCpu();
+                    assumeTrue(cpu >= 0, "CPU of the current thread unknown");
+                    socket.connect(first.localAddress());
+                    if (cpu < LOOPS && cpu == currentCpu()) {
+                        cpus.put(socket.getLocalSocketAddress(), cpu);
+                    }
+                } finally {
+                    socket.close();
+                }
+            }
+            handler.await();
+            assertEquals(0, handler.mismatches.get());
+            assumeTrue(!cpus.isEmpty(), "No connection with a known CPU");
+            for (Map.Entry<SocketAddress, Integer> entry : cpus.entrySet()) {
+                Channel listener = handler.listeners.get(entry.getKey());
+                assertNotNull(listener);
+                assertEquals((int) entry.getValue(), loops.indexOf(listener.eventLoop()));
+            }
+
+            // Detaching the program from the group falls back to the hash based selection.
+            ((EpollServerSocketChannelConfig) first.config()).setReusePortCpuSteering(false);
+            assertFalse(first.config().getOption(EpollChannelOption.REUSEPORT_CPU_STEERING));
+        } finally {
+            channels.close().syncUninterruptibly();
+        }
+    }
+
+    private static ServerBootstrap newServerBootstrap(ChannelHandler childHandler) {
+        return new ServerBootstrap()
+                .group(group)
+                .channel(EpollServerSocketChannel.class)
+                .option(EpollChannelOption.SO_REUSEPORT, true)
+                .childHandler(childHandler);
+    }
+
+    /**
+     * Returns the CPU the current thread is running on or {@code -1} if unknown.
+     */
+    private static int currentCpu() {
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader("/proc/thread-self/stat"));
+            try {
+                String stat = reader.readLine();
+                // The processor is the 39th field, and the fields after the command start with the 3rd one.
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                return Integer.parseInt(fields[39 - 3]);
+            } finally {
+                reader.close();
+            }
+        } catch (Exception ignore) {
+            return -1;
+        }
+    }
+
+    private static void connect(InetSocketAddress address, int connections) throws Exception {
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class AcceptHandler extends ChannelInboundHandlerAdapter {
+        final Map<Channel, Boolean> accepted = new ConcurrentHashMap<Channel, Boolean>();
+        // The channel which accepted the connection by the remote address of the connection.
+        final Map<SocketAddress, Channel> listeners = new ConcurrentHashMap<SocketAddress, Channel>();
+        final AtomicInteger mismatches = new AtomicInteger();
+        private final CountDownLatch latch;
+
+        AcceptHandler(int connections) {
+            latch = new CountDownLatch(connections);
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            Channel channel = ctx.channel();
+            accepted.put(channel.parent(), Boolean.TRUE);
+            listeners.put(channel.remoteAddress(), channel.parent());
+            if (channel.eventLoop() != channel.parent().eventLoop()) {
+                mismatches.incrementAndGet();
+            }
+            latch.countDown();
+            ctx.fireChannelActive();
+        }
+
+        void await() throws InterruptedException {
+            latch.await();
+        }
+    }
+}
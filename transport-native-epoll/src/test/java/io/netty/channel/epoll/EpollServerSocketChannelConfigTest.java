@@ -16,6 +16,7 @@
 package io.netty.channel.epoll;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelException;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
@@ -23,12 +24,14 @@ import io.netty.channel.EventLoopGroup;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
 
 import java.net.InetSocketAddress;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class EpollServerSocketChannelConfigTest {
@@ -81,6 +84,19 @@ public class EpollServerSocketChannelConfigTest {
         assertTrue(ch.config().isFreeBind());
     }
 
+    @Test
+    public void testReusePortCpuSteering() {
+        assertFalse(ch.config().isReusePortCpuSteering());
+        // The channel was bound without SO_REUSEPORT, so there is no group the program could be attached to.
+        assertThrows(ChannelException.class, new Executable() {
+            @Override
+            public void execute() {
+                ch.config().setReusePortCpuSteering(true);
+            }
+        });
+        assertFalse(ch.config().isReusePortCpuSteering());
+    }
+
     @Test
     public void getGetOptions() {
         Map<ChannelOption<?>, Object> map = ch.config().getOptions();
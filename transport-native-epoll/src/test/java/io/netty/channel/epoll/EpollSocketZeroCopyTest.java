@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.NetUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EpollSocketZeroCopyTest {
+
+    private static final int THRESHOLD = 16 * 1024;
+    private static final Random random = new Random();
+    private static final byte[] data = new byte[1024 * 1024];
+
+    static {
+        random.nextBytes(data);
+    }
+
+    private static EventLoopGroup group;
+
+    @BeforeAll
+    public static void setUp() {
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testConfig() throws Exception {
+        EpollSocketChannel ch = new EpollSocketChannel();
+        group.register(ch).syncUninterruptibly();
+        try {
+            EpollSocketChannelConfig config = ch.config();
+            assertFalse(config.isZeroCopy());
+            assertTrue(config.setOption(EpollChannelOption.SO_ZEROCOPY, true));
+            assertTrue(config.getOption(EpollChannelOption.SO_ZEROCOPY));
+            assertTrue(ch.socket.isSoZeroCopy());
+
+            assertTrue(config.setOption(EpollChannelOption.ZEROCOPY_THRESHOLD, THRESHOLD));
+            assertEquals(THRESHOLD, config.getOption(EpollChannelOption.ZEROCOPY_THRESHOLD));
+            assertEquals(THRESHOLD, config.zeroCopyThreshold());
+
+            config.setZeroCopy(false);
+            assertFalse(ch.socket.isSoZeroCopy());
+            assertEquals(-1, config.zeroCopyThreshold());
+        } finally {
+            ch.close().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testZeroCopyEdgeTriggered() throws Throwable {
+        testZeroCopy(EpollMode.EDGE_TRIGGERED);
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testZeroCopyLevelTriggered() throws Throwable {
+        testZeroCopy(EpollMode.LEVEL_TRIGGERED);
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testCloseWithPendingZeroCopySends() throws Throwable {
+        final ReceiveHandler handler = new ReceiveHandler();
+        Channel sc = new ServerBootstrap()
+                .group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(handler)
+                .bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+        final EpollSocketChannel cc = (EpollSocketChannel) new Bootstrap()
+                .group(group)
+                .channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .option(EpollChannelOption.ZEROCOPY_THRESHOLD, THRESHOLD)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        final ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(data.length).writeBytes(data);
+        try {
+            // Close before the EventLoop had a chance to process the completion notifications.
+            cc.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    cc.writeAndFlush(buf.retain());
+                    // The close does not wait for the kernel to be done with the buffer, which stays retained.
+                    assertTrue(cc.close().isDone());
+                    assertFalse(cc.isOpen());
+                    assertEquals(2, buf.refCnt());
+                }
+            }).syncUninterruptibly();
+
+            // The buffer is released once the kernel is done with it, and all the data was sent.
+            handler.await(data.length);
+            assertArrayEquals(data, handler.received());
+            while (buf.refCnt() != 1) {
+                Thread.sleep(10);
+            }
+            assertEquals(data.length, cc.zeroCopiedBytes() + cc.copiedBytes());
+        } finally {
+            buf.release();
+            sc.close().syncUninterruptibly();
+            handler.release();
+        }
+    }
+
+    private static void testZeroCopy(EpollMode mode) throws Throwable {
+        final ReceiveHandler handler = new ReceiveHandler();
+        Channel sc = new ServerBootstrap()
+                .group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(handler)
+                .bind(NetUtil.LOCALHOST, 0).syncUninterruptibly().channel();
+        EpollSocketChannel cc = (EpollSocketChannel) new Bootstrap()
+                .group(group)
+                .channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.EPOLL_MODE, mode)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .option(EpollChannelOption.ZEROCOPY_THRESHOLD, THRESHOLD)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(sc.localAddress()).syncUninterruptibly().channel();
+        try {
+            List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+            for (int i = 0; i < data.length;) {
+                // Mix writes below and above the threshold.
+                int length = Math.min(data.length - i, random.nextInt(THRESHOLD * 4) + 1);
+                ByteBuf buf = Unpooled.directBuffer(length).writeBytes(data, i, length);
+                buffers.add(buf);
+                cc.write(buf.retain());
+                if (random.nextBoolean()) {
+                    cc.flush();
+                }
+                i += length;
+            }
+            cc.writeAndFlush(Unpooled.EMPTY_BUFFER).syncUninterruptibly();
+
+            handler.await(data.length);
+            assertArrayEquals(data, handler.received());
+
+            // All completion notifications must be received eventually and the kernel reports loopback sends as
+            // copied.
+            while (cc.zeroCopiedBytes() + cc.copiedBytes() != data.length) {
+                Thread.sleep(10);
+            }
+            for (ByteBuf buf: buffers) {
+                assertEquals(1, buf.refCnt());
+                buf.release();
+            }
+        } finally {
+            cc.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+            handler.release();
+        }
+    }
+
+    private static final class ReceiveHandler extends ChannelInboundHandlerAdapter {
+        private final ByteBuf received = Unpooled.buffer(data.length);
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            synchronized (this) {
+                received.writeBytes(buf);
+                notifyAll();
+            }
+            buf.release();
+        }
+
+        synchronized void await(int length) throws InterruptedException {
+            while (received.readableBytes() < length) {
+                wait();
+            }
+        }
+
+        synchronized byte[] received() {
+            byte[] bytes = new byte[received.readableBytes()];
+            received.getBytes(received.readerIndex(), bytes);
+            return bytes;
+        }
+
+        synchronized void release() {
+            received.release();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#define _GNU_SOURCE
+#include <jni.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <string.h>
+#include <errno.h>
+#include <sys/eventfd.h>
+#include <sys/mman.h>
+#include <sys/types.h>
+#include <unistd.h>
+// Needed to be able to use syscalls directly and so not depend on newer GLIBC versions
+#include <sys/syscall.h>
+
+#include "netty_unix_buffer.h"
+#include "netty_unix_errors.h"
+#include "netty_unix_filedescriptor.h"
+#include "netty_unix_jni.h"
+#include "netty_unix_limits.h"
+#include "netty_unix_socket.h"
+#include "netty_unix_util.h"
+#include "netty_unix.h"
+
+// Add define if NETTY_BUILD_STATIC is defined so it is picked up in netty_jni_util.c
+#ifdef NETTY_BUILD_STATIC
+#define NETTY_JNI_UTIL_BUILD_STATIC
+#endif
+
+#define NATIVE_CLASSNAME "io/netty/channel/uring/Native"
+
+// All linux syscall numbers are stable and io_uring uses the same numbers on all architectures, so this is safe.
+// See https://github.com/torvalds/linux/blob/v5.1/include/uapi/asm-generic/unistd.h
+#ifndef SYS_io_uring_setup
+#define SYS_io_uring_setup 425
+#endif
+#ifndef SYS_io_uring_enter
+#define SYS_io_uring_enter 426
+#endif
+
+// The io_uring ABI is defined here so we can compile on systems with older kernel headers.
+// See https://github.com/torvalds/linux/blob/v5.19/include/uapi/linux/io_uring.h
+#define NETTY_IORING_OFF_SQ_RING 0ULL
+#define NETTY_IORING_OFF_CQ_RING 0x8000000ULL
+#define NETTY_IORING_OFF_SQES 0x10000000ULL
+
+#define NETTY_IORING_SETUP_SUBMIT_ALL (1U << 7)
+#define NETTY_IORING_SETUP_COOP_TASKRUN (1U << 8)
+
+#define NETTY_IORING_ENTER_GETEVENTS (1U << 0)
+#define NETTY_IORING_ENTER_EXT_ARG (1U << 3)
+
+struct netty_io_sqring_offsets {
+    uint32_t head;
+    uint32_t tail;
+    uint32_t ring_mask;
+    uint32_t ring_entries;
+    uint32_t flags;
+    uint32_t dropped;
+    uint32_t array;
+    uint32_t resv1;
+    uint64_t resv2;
+};
+
+struct netty_io_cqring_offsets {
+    uint32_t head;
+    uint32_t tail;
+    uint32_t ring_mask;
+    uint32_t ring_entries;
+    uint32_t overflow;
+    uint32_t cqes;
+    uint32_t flags;
+    uint32_t resv1;
+    uint64_t resv2;
+};
+
+struct netty_io_uring_params {
+    uint32_t sq_entries;
+    uint32_t cq_entries;
+    uint32_t flags;
+    uint32_t sq_thread_cpu;
+    uint32_t sq_thread_idle;
+    uint32_t features;
+    uint32_t wq_fd;
+    uint32_t resv[3];
+    struct netty_io_sqring_offsets sq_off;
+    struct netty_io_cqring_offsets cq_off;
+};
+
+struct netty_kernel_timespec {
+    int64_t tv_sec;
+    long long tv_nsec;
+};
+
+struct netty_io_uring_getevents_arg {
+    uint64_t sigmask;
+    uint32_t sigmask_sz;
+    uint32_t pad;
+    uint64_t ts;
+};
+
+// The size of a submission queue entry and a completion queue entry.
+#define NETTY_IO_URING_SQE_SIZE 64
+#define NETTY_IO_URING_CQE_SIZE 16
+
+// IMPORTANT: This needs to be consistent with the indices used in RingBuffer.java
+#define RING_SQ_RING_ADDRESS 0
+#define RING_SQ_RING_SIZE 1
+#define RING_SQ_HEAD_ADDRESS 2
+#define RING_SQ_TAIL_ADDRESS 3
+#define RING_SQ_RING_MASK 4
+#define RING_SQ_RING_ENTRIES 5
+#define RING_SQ_ARRAY_ADDRESS 6
+#define RING_SQES_ADDRESS 7
+#define RING_SQES_SIZE 8
+#define RING_CQ_RING_ADDRESS 9
+#define RING_CQ_RING_SIZE 10
+#define RING_CQ_HEAD_ADDRESS 11
+#define RING_CQ_TAIL_ADDRESS 12
+#define RING_CQ_RING_MASK 13
+#define RING_CQ_RING_ENTRIES 14
+#define RING_CQES_ADDRESS 15
+#define RING_FEATURES 16
+#define RING_LENGTH 17
+
+static const char* staticPackagePrefix = NULL;
+static int register_unix_called = 0;
+
+static int sys_io_uring_setup(uint32_t entries, struct netty_io_uring_params* params) {
+    return (int) syscall(SYS_io_uring_setup, entries, params);
+}
+
+static int sys_io_uring_enter(int fd, unsigned int to_submit, unsigned int min_complete, unsigned int flags,
+                              const void* arg, size_t argsz) {
+    return (int) syscall(SYS_io_uring_enter, fd, to_submit, min_complete, flags, arg, argsz);
+}
+
+// JNI Registered Methods Begin
+static jint netty_io_uring_native_ioUringSetup(JNIEnv* env, jclass clazz, jint entries, jlongArray ringArray) {
+    struct netty_io_uring_params params;
+    memset(&params, 0, sizeof(params));
+    // Submit all entries even if one of them fails and reduce the number of interrupts used to run completions,
+    // both are only hints which are not supported by older kernels.
+    params.flags = NETTY_IORING_SETUP_SUBMIT_ALL | NETTY_IORING_SETUP_COOP_TASKRUN;
+    int ringFd = sys_io_uring_setup((uint32_t) entries, &params);
+    if (ringFd < 0 && errno == EINVAL) {
+        memset(&params, 0, sizeof(params));
+        ringFd = sys_io_uring_setup((uint32_t) entries, &params);
+    }
+    if (ringFd < 0) {
+        return -errno;
+    }
+
+    size_t sqRingSize = params.sq_off.array + params.sq_entries * sizeof(uint32_t);
+    size_t cqRingSize = params.cq_off.cqes + params.cq_entries * NETTY_IO_URING_CQE_SIZE;
+    size_t sqesSize = params.sq_entries * NETTY_IO_URING_SQE_SIZE;
+
+    void* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd,
+                        NETTY_IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(ringFd);
+        return -err;
+    }
+    void* cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd,
+                        NETTY_IORING_OFF_CQ_RING);
+    if (cqRing == MAP_FAILED) {
+        int err = errno;
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        return -err;
+    }
+    void* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd,
+                      NETTY_IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        munmap(cqRing, cqRingSize);
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        return -err;
+    }
+
+    jlong ring[RING_LENGTH];
+    ring[RING_SQ_RING_ADDRESS] = (jlong) sqRing;
+    ring[RING_SQ_RING_SIZE] = (jlong) sqRingSize;
+    ring[RING_SQ_HEAD_ADDRESS] = (jlong) ((char*) sqRing + params.sq_off.head);
+    ring[RING_SQ_TAIL_ADDRESS] = (jlong) ((char*) sqRing + params.sq_off.tail);
+    ring[RING_SQ_RING_MASK] = (jlong) *((uint32_t*) ((char*) sqRing + params.sq_off.ring_mask));
+    ring[RING_SQ_RING_ENTRIES] = (jlong) *((uint32_t*) ((char*) sqRing + params.sq_off.ring_entries));
+    ring[RING_SQ_ARRAY_ADDRESS] = (jlong) ((char*) sqRing + params.sq_off.array);
+    ring[RING_SQES_ADDRESS] = (jlong) sqes;
+    ring[RING_SQES_SIZE] = (jlong) sqesSize;
+    ring[RING_CQ_RING_ADDRESS] = (jlong) cqRing;
+    ring[RING_CQ_RING_SIZE] = (jlong) cqRingSize;
+    ring[RING_CQ_HEAD_ADDRESS] = (jlong) ((char*) cqRing + params.cq_off.head);
+    ring[RING_CQ_TAIL_ADDRESS] = (jlong) ((char*) cqRing + params.cq_off.tail);
+    ring[RING_CQ_RING_MASK] = (jlong) *((uint32_t*) ((char*) cqRing + params.cq_off.ring_mask));
+    ring[RING_CQ_RING_ENTRIES] = (jlong) *((uint32_t*) ((char*) cqRing + params.cq_off.ring_entries));
+    ring[RING_CQES_ADDRESS] = (jlong) ((char*) cqRing + params.cq_off.cqes);
+    ring[RING_FEATURES] = (jlong) params.features;
+    (*env)->SetLongArrayRegion(env, ringArray, 0, RING_LENGTH, ring);
+    return ringFd;
+}
+
+static jint netty_io_uring_native_ioUringEnter(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit,
+                                               jint minComplete, jint flags, jlong timeoutNanos) {
+    int res;
+    if (timeoutNanos >= 0 && (flags & NETTY_IORING_ENTER_GETEVENTS) != 0) {
+        struct netty_kernel_timespec ts;
+        struct netty_io_uring_getevents_arg arg;
+        ts.tv_sec = timeoutNanos / 1000000000;
+        ts.tv_nsec = timeoutNanos % 1000000000;
+        memset(&arg, 0, sizeof(arg));
+        arg.ts = (uint64_t) (uintptr_t) &ts;
+        res = sys_io_uring_enter(ringFd, (unsigned int) toSubmit, (unsigned int) minComplete,
+                                 (unsigned int) flags | NETTY_IORING_ENTER_EXT_ARG, &arg, sizeof(arg));
+    } else {
+        res = sys_io_uring_enter(ringFd, (unsigned int) toSubmit, (unsigned int) minComplete,
+                                 (unsigned int) flags, NULL, 0);
+    }
+    if (res < 0) {
+        return -errno;
+    }
+    return res;
+}
+
+static void netty_io_uring_native_ioUringExit(JNIEnv* env, jclass clazz, jlong sqRingAddress, jint sqRingSize,
+                                              jlong cqRingAddress, jint cqRingSize, jlong sqesAddress,
+                                              jint sqesSize, jint ringFd) {
+    munmap((void*) sqesAddress, (size_t) sqesSize);
+    munmap((void*) cqRingAddress, (size_t) cqRingSize);
+    munmap((void*) sqRingAddress, (size_t) sqRingSize);
+    close(ringFd);
+}
+
+static jint netty_io_uring_native_blockingEventFd(JNIEnv* env, jclass clazz) {
+    // The eventfd is only read through the ring, which waits for it without blocking the thread.
+    jint eventFD = eventfd(0, EFD_CLOEXEC);
+
+    if (eventFD < 0) {
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd() failed: ", errno);
+    }
+    return eventFD;
+}
+
+static void netty_io_uring_native_eventFdWrite(JNIEnv* env, jclass clazz, jint fd, jlong value) {
+    for (;;) {
+        jint ret = eventfd_write(fd, (eventfd_t) value);
+        if (ret == 0) {
+            return;
+        }
+        if (errno != EINTR) {
+            netty_unix_errors_throwChannelExceptionErrorNo(env, "eventfd_write() failed: ", errno);
+            return;
+        }
+    }
+}
+
+static jint netty_io_uring_native_sqeSize(JNIEnv* env, jclass clazz) {
+    return NETTY_IO_URING_SQE_SIZE;
+}
+
+static jint netty_io_uring_native_cqeSize(JNIEnv* env, jclass clazz) {
+    return NETTY_IO_URING_CQE_SIZE;
+}
+
+static jint netty_io_uring_native_registerUnix(JNIEnv* env, jclass clazz) {
+    register_unix_called = 1;
+    return netty_unix_register(env, staticPackagePrefix);
+}
+
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod method_table[] = {
+  { "ioUringSetup", "(I[J)I", (void *) netty_io_uring_native_ioUringSetup },
+  { "ioUringEnter", "(IIIIJ)I", (void *) netty_io_uring_native_ioUringEnter },
+  { "ioUringExit", "(JIJIJII)V", (void *) netty_io_uring_native_ioUringExit },
+  { "blockingEventFd", "()I", (void *) netty_io_uring_native_blockingEventFd },
+  { "eventFdWrite", "(IJ)V", (void *) netty_io_uring_native_eventFdWrite },
+  { "sqeSize", "()I", (void *) netty_io_uring_native_sqeSize },
+  { "cqeSize", "()I", (void *) netty_io_uring_native_cqeSize },
+  { "registerUnix", "()I", (void *) netty_io_uring_native_registerUnix }
+};
+static const jint method_table_size = sizeof(method_table) / sizeof(method_table[0]);
+// JNI Method Registration Table End
+
+static jint netty_io_uring_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    if (netty_jni_util_register_natives(env,
+            packagePrefix,
+            NATIVE_CLASSNAME,
+            method_table,
+            method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    staticPackagePrefix = packagePrefix;
+    return NETTY_JNI_UTIL_JNI_VERSION;
+}
+
+static void netty_io_uring_native_JNI_OnUnload(JNIEnv* env) {
+    if (register_unix_called == 1) {
+        register_unix_called = 0;
+        netty_unix_unregister(env, staticPackagePrefix);
+    }
+
+    netty_jni_util_unregister_natives(env, staticPackagePrefix, NATIVE_CLASSNAME);
+
+    if (staticPackagePrefix != NULL) {
+        free((void *) staticPackagePrefix);
+        staticPackagePrefix = NULL;
+    }
+}
+
+// We build with -fvisibility=hidden so ensure we mark everything that needs to be visible with JNIEXPORT
+// https://mail.openjdk.java.net/pipermail/core-libs-dev/2013-February/014549.html
+
+// Invoked by the JVM when statically linked
+JNIEXPORT jint JNI_OnLoad_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    return netty_jni_util_JNI_OnLoad(vm, reserved, "netty_transport_native_io_uring",
+                                     netty_io_uring_native_JNI_OnLoad);
+}
+
+// Invoked by the JVM when statically linked
+JNIEXPORT void JNI_OnUnload_netty_transport_native_io_uring(JavaVM* vm, void* reserved) {
+    netty_jni_util_JNI_OnUnload(vm, reserved, netty_io_uring_native_JNI_OnUnload);
+}
+
+#ifndef NETTY_BUILD_STATIC
+JNIEXPORT jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    return netty_jni_util_JNI_OnLoad(vm, reserved, "netty_transport_native_io_uring",
+                                     netty_io_uring_native_JNI_OnLoad);
+}
+
+JNIEXPORT void JNI_OnUnload(JavaVM* vm, void* reserved) {
+    netty_jni_util_JNI_OnUnload(vm, reserved, netty_io_uring_native_JNI_OnUnload);
+}
+#endif /* NETTY_BUILD_STATIC */
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IOUringTest {
+
+    @Test
+    public void testIsAvailable() {
+        assertTrue(IOUring.isAvailable());
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testNopsAreSubmittedInOneBatch() {
+        RingBuffer ringBuffer = Native.createRingBuffer(8);
+        try {
+            SubmissionQueue submissionQueue = ringBuffer.submissionQueue();
+            CompletionQueue completionQueue = ringBuffer.completionQueue();
+            for (int i = 0; i < 3; i++) {
+                submissionQueue.addNop(i);
+            }
+            assertEquals(3, submissionQueue.pending());
+            assertFalse(completionQueue.hasCompletions());
+
+            assertEquals(3, submissionQueue.submit());
+            assertEquals(0, submissionQueue.pending());
+
+            final List<Long> userData = new ArrayList<Long>();
+            while (userData.size() < 3) {
+                submissionQueue.submitAndWait(-1);
+                completionQueue.process(new CompletionQueue.CompletionCallback() {
+                    @Override
+                    public void handle(int res, int flags, long data) {
+                        assertEquals(0, res);
+                        userData.add(data);
+                    }
+                });
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i, (long) userData.get(i));
+            }
+            assertFalse(completionQueue.hasCompletions());
+        } finally {
+            ringBuffer.close();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testFullSubmissionQueueIsSubmitted() {
+        RingBuffer ringBuffer = Native.createRingBuffer(8);
+        try {
+            SubmissionQueue submissionQueue = ringBuffer.submissionQueue();
+            CompletionQueue completionQueue = ringBuffer.completionQueue();
+            // Adding more requests than the queue can hold submits the ones which were added before.
+            for (int i = 0; i < 12; i++) {
+                submissionQueue.addNop(i);
+            }
+            assertEquals(4, submissionQueue.pending());
+            submissionQueue.submit();
+
+            final int[] completions = new int[1];
+            while (completions[0] < 12) {
+                submissionQueue.submitAndWait(-1);
+                completionQueue.process(new CompletionQueue.CompletionCallback() {
+                    @Override
+                    public void handle(int res, int flags, long data) {
+                        assertEquals(completions[0]++, data);
+                    }
+                });
+            }
+        } finally {
+            ringBuffer.close();
+        }
+    }
+}
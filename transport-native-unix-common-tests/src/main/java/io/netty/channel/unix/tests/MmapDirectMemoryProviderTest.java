@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix.tests;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.unix.MmapDirectMemoryProvider;
+import io.netty.channel.unix.MmapDirectMemoryProvider.HugePageMode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public abstract class MmapDirectMemoryProviderTest {
+
+    @Test
+    public void testAllocate() {
+        testAllocate(HugePageMode.NONE);
+    }
+
+    @Test
+    public void testAllocateTransparentHugePages() {
+        testAllocate(HugePageMode.TRANSPARENT);
+    }
+
+    @Test
+    public void testAllocateHugeTlb() {
+        // Falls back to the default allocation if no huge pages were reserved.
+        testAllocate(HugePageMode.HUGETLB);
+    }
+
+    private static void testAllocate(HugePageMode mode) {
+        MmapDirectMemoryProvider provider = new MmapDirectMemoryProvider(mode);
+        // Neither a multiple of the page nor of the huge page size.
+        int capacity = 3 * 1024 * 1024 + 7;
+        ByteBuffer buffer = provider.allocate(capacity);
+        if (buffer != null) {
+            assertTrue(buffer.isDirect());
+            assertEquals(capacity, buffer.capacity());
+            buffer.putLong(0, 42);
+            buffer.putLong(capacity - 8, 42);
+            assertEquals(42, buffer.getLong(0));
+            assertEquals(42, buffer.getLong(capacity - 8));
+            // Only whole pages are discarded, which read as zeros afterwards.
+            provider.discard(buffer, 0, capacity);
+            assertEquals(0, buffer.getLong(0));
+            provider.free(buffer);
+        }
+
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 9, 0, 0, false, 0, provider);
+        int chunkSize = allocator.metric().chunkSize();
+        ByteBuf pooled = allocator.directBuffer(64 * 1024);
+        // Huge buffers are not pooled, so their size is not aligned to any page size and they are freed directly.
+        ByteBuf huge = allocator.directBuffer(chunkSize + 7);
+        try {
+            pooled.writeLong(1);
+            huge.writerIndex(chunkSize - 1).writeLong(2);
+            assertEquals(1, pooled.readLong());
+            assertEquals(2, huge.getLong(chunkSize - 1));
+        } finally {
+            assertTrue(pooled.release());
+            assertTrue(huge.release());
+        }
+    }
+}
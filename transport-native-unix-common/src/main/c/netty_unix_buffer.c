@@ -13,6 +13,11 @@
  * License for the specific language governing permissions and limitations
  * under the License.
  */
+#include <errno.h>
+#include <stdint.h>
+#include <sys/mman.h>
+#include <unistd.h>
+
 #include "netty_unix_jni.h"
 #include "netty_unix_util.h"
 #include "netty_unix_buffer.h"
@@ -29,12 +34,67 @@ static jint netty_unix_buffer_addressSize0(JNIEnv* env, jclass clazz) {
    return (jint) sizeof(int*);
 }
 
+static jint netty_unix_buffer_pageSize0(JNIEnv* env, jclass clazz) {
+    return (jint) sysconf(_SC_PAGESIZE);
+}
+
+static jlong netty_unix_buffer_mmap0(JNIEnv* env, jclass clazz, jlong size, jboolean hugeTlb) {
+    int flags = MAP_PRIVATE | MAP_ANONYMOUS;
+    if (hugeTlb == JNI_TRUE) {
+#ifdef MAP_HUGETLB
+        flags |= MAP_HUGETLB;
+#else
+        return -ENOSYS;
+#endif // MAP_HUGETLB
+    }
+    void* addr = mmap(NULL, (size_t) size, PROT_READ | PROT_WRITE, flags, -1, 0);
+    if (addr == MAP_FAILED) {
+        return -errno;
+    }
+    return (jlong) (intptr_t) addr;
+}
+
+static jint netty_unix_buffer_munmap0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+    if (munmap((void*) (intptr_t) address, (size_t) size) == -1) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jint netty_unix_buffer_madviseHugePage0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+#ifdef MADV_HUGEPAGE
+    if (madvise((void*) (intptr_t) address, (size_t) size, MADV_HUGEPAGE) == -1) {
+        return -errno;
+    }
+    return 0;
+#else
+    return -ENOSYS;
+#endif // MADV_HUGEPAGE
+}
+
+static jint netty_unix_buffer_madviseDontNeed0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+    if (madvise((void*) (intptr_t) address, (size_t) size, MADV_DONTNEED) == -1) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jobject netty_unix_buffer_wrapMemory0(JNIEnv* env, jclass clazz, jlong address, jint capacity) {
+    return (*env)->NewDirectByteBuffer(env, (void*) (intptr_t) address, (jlong) capacity);
+}
+
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
 static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "memoryAddress0", "(Ljava/nio/ByteBuffer;)J", (void *) netty_unix_buffer_memoryAddress0 },
-  { "addressSize0", "()I", (void *) netty_unix_buffer_addressSize0 }
+  { "addressSize0", "()I", (void *) netty_unix_buffer_addressSize0 },
+  { "pageSize0", "()I", (void *) netty_unix_buffer_pageSize0 },
+  { "mmap0", "(JZ)J", (void *) netty_unix_buffer_mmap0 },
+  { "munmap0", "(JJ)I", (void *) netty_unix_buffer_munmap0 },
+  { "madviseHugePage0", "(JJ)I", (void *) netty_unix_buffer_madviseHugePage0 },
+  { "madviseDontNeed0", "(JJ)I", (void *) netty_unix_buffer_madviseDontNeed0 },
+  { "wrapMemory0", "(JI)Ljava/nio/ByteBuffer;", (void *) netty_unix_buffer_wrapMemory0 }
 };
 static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
 // JNI Method Registration Table End
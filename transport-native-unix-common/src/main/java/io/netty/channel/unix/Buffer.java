@@ -63,6 +63,46 @@ public final class Buffer {
     }
 
     // If Unsafe can not be used we will need to do JNI calls.
-    private static native int addressSize0();
+    static native int addressSize0();
     private static native long memoryAddress0(ByteBuffer buffer);
+
+    /**
+     * Returns the size of a page of the system.
+     */
+    static native int pageSize0();
+
+    /**
+     * Map {@code size} bytes of anonymous, private memory. If {@code hugeTlb} is {@code true} the mapping is backed
+     * by pre-allocated huge pages ({@code MAP_HUGETLB}).
+     *
+     * @return the address of the mapping, or the negative {@code errno} if it failed.
+     */
+    static native long mmap0(long size, boolean hugeTlb);
+
+    /**
+     * Unmap memory that was mapped by {@link #mmap0(long, boolean)}.
+     *
+     * @return {@code 0} on success, or the negative {@code errno} if it failed.
+     */
+    static native int munmap0(long address, long size);
+
+    /**
+     * Advise the kernel to back the given range with transparent huge pages ({@code MADV_HUGEPAGE}).
+     *
+     * @return {@code 0} on success, or the negative {@code errno} if it failed or is not supported.
+     */
+    static native int madviseHugePage0(long address, long size);
+
+    /**
+     * Advise the kernel that the content of the given range is not needed anymore ({@code MADV_DONTNEED}), so the
+     * backing pages can be returned to the system while the range itself stays mapped.
+     *
+     * @return {@code 0} on success, or the negative {@code errno} if it failed.
+     */
+    static native int madviseDontNeed0(long address, long size);
+
+    /**
+     * Returns a direct {@link ByteBuffer} for the given memory, which will not be freed when the buffer is collected.
+     */
+    static native ByteBuffer wrapMemory0(long address, int capacity);
 }
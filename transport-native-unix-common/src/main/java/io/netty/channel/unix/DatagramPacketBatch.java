@@ -0,0 +1,277 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Multiple datagrams which share one {@link ByteBuf}, so they can be received with one {@code recvmmsg} respectively
+ * sent with one {@code sendmmsg} call and only one message needs to pass the {@link io.netty.channel.ChannelPipeline}.
+ * <p>
+ * Each datagram is a region of {@link #content()}, which is identified by its absolute index and length. The
+ * datagrams do not need to be adjacent and the reader index of {@link #content()} is ignored, but datagrams which are
+ * written must be located before its writer index, as the content may need to be copied to a direct buffer.
+ * <p>
+ * A datagram which is written can have a segment size, in which case it is sent as multiple datagrams of that size
+ * (the last one can be smaller) via {@code UDP_SEGMENT}, the same way a {@link SegmentedDatagramPacket} is. Received
+ * datagrams never have a segment size.
+ */
+@UnstableApi
+public final class DatagramPacketBatch extends DefaultByteBufHolder {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private int[] indexes;
+    private int[] lengths;
+    private int[] segmentSizes;
+    private InetSocketAddress[] recipients;
+    private InetSocketAddress[] senders;
+    private int count;
+
+    /**
+     * Create a new empty instance.
+     *
+     * @param content   the {@link ByteBuf} which holds the content of all the datagrams.
+     */
+    public DatagramPacketBatch(ByteBuf content) {
+        this(content, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a new empty instance.
+     *
+     * @param content           the {@link ByteBuf} which holds the content of all the datagrams.
+     * @param initialCapacity   the number of datagrams which can be added before the internal arrays need to grow.
+     */
+    public DatagramPacketBatch(ByteBuf content, int initialCapacity) {
+        super(content);
+        checkPositive(initialCapacity, "initialCapacity");
+        indexes = new int[initialCapacity];
+        lengths = new int[initialCapacity];
+        segmentSizes = new int[initialCapacity];
+        recipients = new InetSocketAddress[initialCapacity];
+        senders = new InetSocketAddress[initialCapacity];
+    }
+
+    private DatagramPacketBatch(ByteBuf content, DatagramPacketBatch batch) {
+        super(content);
+        int count = batch.count;
+        indexes = Arrays.copyOf(batch.indexes, Math.max(count, 1));
+        lengths = Arrays.copyOf(batch.lengths, indexes.length);
+        segmentSizes = Arrays.copyOf(batch.segmentSizes, indexes.length);
+        recipients = Arrays.copyOf(batch.recipients, indexes.length);
+        senders = Arrays.copyOf(batch.senders, indexes.length);
+        this.count = count;
+    }
+
+    /**
+     * Copies the readable bytes of the given {@link ByteBuf} to the end of {@link #content()} and adds these as a
+     * datagram which is sent to the given recipient. The given {@link ByteBuf} is not released.
+     *
+     * @param data          the content of the datagram.
+     * @param recipient     the recipient or {@code null} if the channel is connected.
+     * @return              itself.
+     */
+    public DatagramPacketBatch add(ByteBuf data, InetSocketAddress recipient) {
+        return add(data, 0, recipient);
+    }
+
+    /**
+     * Copies the readable bytes of the given {@link ByteBuf} to the end of {@link #content()} and adds these as
+     * datagrams of the given segment size which are sent to the given recipient. The given {@link ByteBuf} is not
+     * released.
+     *
+     * @param data          the content of the datagrams.
+     * @param segmentSize   the size of each datagram (the last one can be smaller) or {@code 0} if all the data
+     *                      should be sent as one datagram.
+     * @param recipient     the recipient or {@code null} if the channel is connected.
+     * @return              itself.
+     */
+    public DatagramPacketBatch add(ByteBuf data, int segmentSize, InetSocketAddress recipient) {
+        ByteBuf content = content();
+        int index = content.writerIndex();
+        int length = data.readableBytes();
+        content.writeBytes(data, data.readerIndex(), length);
+        return add(index, length, segmentSize, recipient, null);
+    }
+
+    /**
+     * Adds the region of {@link #content()} as a datagram.
+     *
+     * @param index         the absolute index of the datagram in {@link #content()}.
+     * @param length        the length of the datagram.
+     * @param segmentSize   the size of each segment (the last one can be smaller) or {@code 0} if the datagram is not
+     *                      segmented.
+     * @param recipient     the recipient or {@code null}.
+     * @param sender        the sender or {@code null}.
+     * @return              itself.
+     */
+    public DatagramPacketBatch add(int index, int length, int segmentSize,
+                                   InetSocketAddress recipient, InetSocketAddress sender) {
+        checkPositiveOrZero(index, "index");
+        checkPositiveOrZero(length, "length");
+        checkPositiveOrZero(segmentSize, "segmentSize");
+        if (index + length > content().capacity()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length
+                    + " (expected: range(0, " + content().capacity() + "))");
+        }
+        if (count == indexes.length) {
+            int newCapacity = count << 1;
+            indexes = Arrays.copyOf(indexes, newCapacity);
+            lengths = Arrays.copyOf(lengths, newCapacity);
+            segmentSizes = Arrays.copyOf(segmentSizes, newCapacity);
+            recipients = Arrays.copyOf(recipients, newCapacity);
+            senders = Arrays.copyOf(senders, newCapacity);
+        }
+        indexes[count] = index;
+        lengths[count] = length;
+        segmentSizes[count] = segmentSize;
+        recipients[count] = recipient;
+        senders[count] = sender;
+        count++;
+        return this;
+    }
+
+    /**
+     * Returns the number of datagrams.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the absolute index of the datagram in {@link #content()}.
+     */
+    public int index(int i) {
+        return indexes[checkIndex(i)];
+    }
+
+    /**
+     * Returns the length of the datagram.
+     */
+    public int length(int i) {
+        return lengths[checkIndex(i)];
+    }
+
+    /**
+     * Returns the segment size of the datagram or {@code 0} if it is not segmented.
+     */
+    public int segmentSize(int i) {
+        return segmentSizes[checkIndex(i)];
+    }
+
+    /**
+     * Returns the recipient of the datagram, which may be {@code null}.
+     */
+    public InetSocketAddress recipient(int i) {
+        return recipients[checkIndex(i)];
+    }
+
+    /**
+     * Returns the sender of the datagram, which may be {@code null}.
+     */
+    public InetSocketAddress sender(int i) {
+        return senders[checkIndex(i)];
+    }
+
+    /**
+     * Returns a slice of {@link #content()} which holds the datagram. The reference count is not increased.
+     */
+    public ByteBuf content(int i) {
+        checkIndex(i);
+        return content().slice(indexes[i], lengths[i]);
+    }
+
+    /**
+     * Returns a new {@link DatagramPacket} which holds a retained slice of the datagram, so it needs to be released
+     * independently of this batch.
+     */
+    public DatagramPacket retainedPacket(int i) {
+        checkIndex(i);
+        ByteBuf slice = content().retainedSlice(indexes[i], lengths[i]);
+        return segmentSizes[i] > 0 ?
+                new SegmentedDatagramPacket(slice, segmentSizes[i], recipients[i], senders[i]) :
+                new DatagramPacket(slice, recipients[i], senders[i]);
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("i: " + i + " (expected: 0 <= i < " + count + ')');
+        }
+        return i;
+    }
+
+    @Override
+    public DatagramPacketBatch copy() {
+        ByteBuf content = content();
+        // Keep the absolute indexes of the datagrams valid.
+        return replace(content.copy(0, content.writerIndex()));
+    }
+
+    @Override
+    public DatagramPacketBatch duplicate() {
+        return replace(content().duplicate());
+    }
+
+    @Override
+    public DatagramPacketBatch retainedDuplicate() {
+        return replace(content().retainedDuplicate());
+    }
+
+    @Override
+    public DatagramPacketBatch replace(ByteBuf content) {
+        return new DatagramPacketBatch(ObjectUtil.checkNotNull(content, "content"), this);
+    }
+
+    @Override
+    public DatagramPacketBatch retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public DatagramPacketBatch retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public DatagramPacketBatch touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public DatagramPacketBatch touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "DatagramPacketBatch(count: " + count + ", content: " + content() + ')';
+    }
+}
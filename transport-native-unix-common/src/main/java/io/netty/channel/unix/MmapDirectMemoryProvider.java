@@ -0,0 +1,220 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.buffer.DirectMemoryProvider;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link DirectMemoryProvider} which backs the chunks of a {@link PooledByteBufAllocator} with anonymous
+ * memory-mapped regions, optionally using huge pages to reduce the pressure on the TLB.
+ * <p>
+ * The native library of a transport (like {@code netty-transport-native-epoll}) must be loaded before an instance
+ * can be created. If a region can not be mapped, {@link #allocate(int)} returns {@code null} so that the allocator
+ * falls back to its default way of allocating direct memory.
+ */
+@UnstableApi
+public final class MmapDirectMemoryProvider implements DirectMemoryProvider {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MmapDirectMemoryProvider.class);
+    private static final long DEFAULT_HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+
+    /**
+     * How huge pages are used for the mapped regions.
+     */
+    public enum HugePageMode {
+        /**
+         * Use the default page size.
+         */
+        NONE,
+        /**
+         * Advise the kernel to back the regions with transparent huge pages ({@code madvise(MADV_HUGEPAGE)}).
+         */
+        TRANSPARENT,
+        /**
+         * Back the regions with pre-allocated huge pages ({@code MAP_HUGETLB}). The size of the chunks should be a
+         * multiple of the huge page size of the system, as every region is rounded up to it. This also applies to
+         * huge buffers which are not pooled, so these may use up to one huge page more than requested.
+         */
+        HUGETLB
+    }
+
+    private final HugePageMode hugePageMode;
+    // The size of the pages which back the regions. Mappings and discarded ranges need to be aligned to it.
+    private final long pageSize;
+    private volatile boolean loggedFailure;
+
+    /**
+     * Create a new instance that uses the default page size.
+     */
+    public MmapDirectMemoryProvider() {
+        this(HugePageMode.NONE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param hugePageMode how huge pages are used for the mapped regions.
+     */
+    public MmapDirectMemoryProvider(HugePageMode hugePageMode) {
+        this.hugePageMode = ObjectUtil.checkNotNull(hugePageMode, "hugePageMode");
+        ensureAvailability();
+        pageSize = hugePageMode == HugePageMode.HUGETLB ? hugePageSize() : Buffer.pageSize0();
+    }
+
+    /**
+     * Returns {@code true} if the native library that is needed to map memory was loaded.
+     */
+    public static boolean isAvailable() {
+        return unavailabilityCause() == null;
+    }
+
+    /**
+     * Ensure that the native library that is needed to map memory was loaded.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        Throwable cause = unavailabilityCause();
+        if (cause != null) {
+            throw (Error) new UnsatisfiedLinkError(
+                    "failed to use the native library for mapping memory").initCause(cause);
+        }
+    }
+
+    private static Throwable unavailabilityCause() {
+        try {
+            Buffer.addressSize0();
+            return null;
+        } catch (Throwable cause) {
+            return cause;
+        }
+    }
+
+    private static long hugePageSize() {
+        File file = new File("/proc/meminfo");
+        if (file.canRead()) {
+            BufferedReader in = null;
+            try {
+                in = new BufferedReader(new FileReader(file));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    // Hugepagesize:       2048 kB
+                    if (line.startsWith("Hugepagesize:")) {
+                        String[] parts = line.substring("Hugepagesize:".length()).trim().split("\\s+");
+                        if (parts.length == 2 && "kB".equals(parts[1])) {
+                            return Long.parseLong(parts[0]) * 1024;
+                        }
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                logger.debug("Failed to get the huge page size from {}", file, e);
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException ignore) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        return DEFAULT_HUGE_PAGE_SIZE;
+    }
+
+    /**
+     * Returns the size of the region which is mapped for a buffer of the given capacity. {@code munmap} fails for
+     * {@code MAP_HUGETLB} regions whose length is not aligned to the huge page size, so always use the aligned length.
+     */
+    private long mappingSize(int capacity) {
+        return (capacity + pageSize - 1) & -pageSize;
+    }
+
+    @Override
+    public ByteBuffer allocate(int capacity) {
+        long address = Buffer.mmap0(mappingSize(capacity), hugePageMode == HugePageMode.HUGETLB);
+        if (address < 0) {
+            logFailure("mmap", (int) address);
+            return null;
+        }
+        if (hugePageMode == HugePageMode.TRANSPARENT) {
+            // This is only a hint, so just keep going with regular pages if it is not supported.
+            int res = Buffer.madviseHugePage0(address, capacity);
+            if (res < 0) {
+                logFailure("madvise", res);
+            }
+        }
+        return wrap(address, capacity);
+    }
+
+    @Override
+    public void free(ByteBuffer buffer) {
+        int res = Buffer.munmap0(Buffer.memoryAddress(buffer), mappingSize(buffer.capacity()));
+        if (res < 0) {
+            throw new IllegalStateException(Errors.newIOException("munmap", res));
+        }
+    }
+
+    /**
+     * Return the pages which back the given range of a buffer that was returned by {@link #allocate(int)} to the
+     * system, without unmapping them. The content of the range is zeroed once it is accessed again.
+     * <p>
+     * Only whole pages inside the range are released, which are huge pages if {@link HugePageMode#HUGETLB} is used.
+     */
+    public void discard(ByteBuffer buffer, int index, int length) {
+        ObjectUtil.checkNotNull(buffer, "buffer");
+        if (index < 0 || length < 0 || index > buffer.capacity() - length) {
+            throw new IndexOutOfBoundsException(
+                    "index: " + index + ", length: " + length + " (expected: range(0, " + buffer.capacity() + "))");
+        }
+        long start = Buffer.memoryAddress(buffer) + index;
+        long alignedStart = (start + pageSize - 1) & -pageSize;
+        long alignedEnd = (start + length) & -pageSize;
+        if (alignedEnd > alignedStart) {
+            int res = Buffer.madviseDontNeed0(alignedStart, alignedEnd - alignedStart);
+            if (res < 0) {
+                throw new IllegalStateException(Errors.newIOException("madvise", res));
+            }
+        }
+    }
+
+    private static ByteBuffer wrap(long address, int capacity) {
+        if (PlatformDependent.hasDirectBufferNoCleanerConstructor()) {
+            return PlatformDependent.directBuffer(address, capacity);
+        }
+        return Buffer.wrapMemory0(address, capacity);
+    }
+
+    private void logFailure(String method, int err) {
+        // Only log once as otherwise every chunk allocation would log the same failure.
+        if (!loggedFailure) {
+            loggedFailure = true;
+            logger.info("Could not use {} for pooled direct memory (mode: {}), falling back.",
+                    method, hugePageMode, Errors.newIOException(method, err));
+        }
+    }
+}
@@ -25,14 +25,28 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelGroupFuture;
+import io.netty.channel.group.ChannelGroupFutureListener;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
@@ -172,6 +186,93 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         return this;
     }
 
+    /**
+     * Create and bind one {@link ServerChannel} per {@link EventLoop} of the child {@link EventLoopGroup}, using the
+     * configured local address.
+     *
+     * @see #bindPerChildEventLoop(SocketAddress)
+     */
+    public Future<ChannelGroup> bindPerChildEventLoop() {
+        validate();
+        SocketAddress localAddress = localAddress();
+        if (localAddress == null) {
+            throw new IllegalStateException("localAddress not set");
+        }
+        return bindPerChildEventLoop0(localAddress);
+    }
+
+    /**
+     * Create and bind one {@link ServerChannel} per {@link EventLoop} of the child {@link EventLoopGroup}.
+     *
+     * @see #bindPerChildEventLoop(SocketAddress)
+     */
+    public Future<ChannelGroup> bindPerChildEventLoop(int inetPort) {
+        return bindPerChildEventLoop(new InetSocketAddress(inetPort));
+    }
+
+    /**
+     * Create and bind one {@link ServerChannel} per {@link EventLoop} of the child {@link EventLoopGroup}. Each of
+     * these is registered with its {@link EventLoop} and also uses it for all the {@link Channel}s it accepts, so
+     * a connection is accepted and served by the same thread and the parent {@link EventLoopGroup} is not used.
+     * <p>
+     * This only works if the transport allows to bind multiple {@link ServerChannel}s to the same address, so the
+     * {@code SO_REUSEPORT} option of the transport needs to be set (for example
+     * {@code EpollChannelOption.SO_REUSEPORT}) and the kernel then distributes the connections between the
+     * {@link ServerChannel}s. These are bound one after the other in the order of the {@link EventLoop}s and if the
+     * given address uses port {@code 0} all of them are bound to the port chosen for the first one. The
+     * {@link #handler(ChannelHandler)} is added to each of them, so it must be {@link ChannelHandler.Sharable}.
+     * <p>
+     * The returned {@link Future} is notified with all the {@link ServerChannel}s once these are bound. If one of
+     * them can not be bound the ones which were bound already are closed and the {@link Future} is failed.
+     */
+    public Future<ChannelGroup> bindPerChildEventLoop(SocketAddress localAddress) {
+        validate();
+        return bindPerChildEventLoop0(ObjectUtil.checkNotNull(localAddress, "localAddress"));
+    }
+
+    private Future<ChannelGroup> bindPerChildEventLoop0(SocketAddress localAddress) {
+        List<EventLoop> loops = new ArrayList<EventLoop>();
+        for (EventExecutor executor : childGroup) {
+            if (!(executor instanceof EventLoop)) {
+                throw new IllegalStateException("childGroup must only contain EventLoops: " + executor);
+            }
+            loops.add((EventLoop) executor);
+        }
+        Promise<ChannelGroup> promise = GlobalEventExecutor.INSTANCE.newPromise();
+        bindNext(loops.iterator(), localAddress, new DefaultChannelGroup(GlobalEventExecutor.INSTANCE), promise);
+        return promise;
+    }
+
+    private void bindNext(final Iterator<EventLoop> loops, final SocketAddress localAddress,
+                          final ChannelGroup channels, final Promise<ChannelGroup> promise) {
+        if (!loops.hasNext()) {
+            promise.setSuccess(channels);
+            return;
+        }
+        EventLoop loop = loops.next();
+        ServerBootstrap bootstrap = new ServerBootstrap(this);
+        bootstrap.group = loop;
+        bootstrap.childGroup = loop;
+        bootstrap.bind(localAddress).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(final ChannelFuture future) {
+                if (future.isSuccess()) {
+                    channels.add(future.channel());
+                    // Use the address of the first channel, so an ephemeral port is shared by all of them.
+                    bindNext(loops, channels.size() == 1 ? future.channel().localAddress() : localAddress,
+                            channels, promise);
+                } else {
+                    channels.close().addListener(new ChannelGroupFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelGroupFuture f) {
+                            promise.setFailure(future.cause());
+                        }
+                    });
+                }
+            }
+        });
+    }
+
     private static class ServerBootstrapAcceptor extends ChannelInboundHandlerAdapter {
 
         private final EventLoopGroup childGroup;
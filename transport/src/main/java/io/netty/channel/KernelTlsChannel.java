@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+
+/**
+ * {@link Channel} which can offload the record protection of an established TLS connection to the kernel. See
+ * <a href="https://www.kernel.org/doc/html/latest/networking/tls.html">Kernel TLS</a> for more details.
+ * <p>
+ * Once the keys of a direction are installed, the kernel encrypts everything that is written to the {@link Channel}
+ * respectively decrypts everything that is read from it, which includes data that is transferred via
+ * {@code sendfile} or {@code splice}.
+ */
+@UnstableApi
+public interface KernelTlsChannel extends Channel {
+
+    /**
+     * Install the keys of a TLS 1.2 connection which uses AES-GCM for the given direction. Must be called from the
+     * {@link EventLoop} once all the records which were protected by the previous keys were
+     * written respectively read.
+     *
+     * @param transmit {@code true} to install the keys for the records which are written, {@code false} for the
+     *                 ones which are read.
+     * @param key the write key of the sending peer, whose length of {@code 16} or {@code 32} bytes selects AES-128 or
+     *            AES-256.
+     * @param salt the implicit part of the nonce, which is the {@code 4} bytes write IV of the sending peer.
+     * @param recordSequence the sequence number of the next record.
+     * @throws IOException if the kernel does not support TLS or the keys could not be installed.
+     */
+    void setKernelTls(boolean transmit, byte[] key, byte[] salt, long recordSequence) throws IOException;
+}
@@ -23,12 +23,15 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalEventLoopGroup;
 import io.netty.channel.local.LocalServerChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
@@ -39,6 +42,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -179,4 +183,75 @@ public class ServerBootstrapTest {
         group.shutdownGracefully();
         assertTrue(requestServed.get());
     }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testBindPerChildEventLoop() throws Exception {
+        EventLoopGroup parentGroup = new DefaultEventLoopGroup(1);
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        final EventLoop loop = group.next();
+        final AtomicReference<EventLoop> childLoop = new AtomicReference<EventLoop>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        LocalAddress addr = new LocalAddress(UUID.randomUUID().toString());
+        try {
+            ChannelGroup channels = new ServerBootstrap()
+                    .group(parentGroup, group)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelActive(ChannelHandlerContext ctx) {
+                            childLoop.set(ctx.channel().eventLoop());
+                            latch.countDown();
+                        }
+                    })
+                    .bindPerChildEventLoop(addr).syncUninterruptibly().getNow();
+            assertEquals(1, channels.size());
+            Channel serverChannel = channels.iterator().next();
+            assertEquals(loop, serverChannel.eventLoop());
+
+            Channel clientChannel = new Bootstrap()
+                    .group(group)
+                    .channel(LocalChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(addr).syncUninterruptibly().channel();
+            latch.await();
+            assertEquals(loop, childLoop.get());
+            clientChannel.close().syncUninterruptibly();
+            channels.close().syncUninterruptibly();
+        } finally {
+            parentGroup.shutdownGracefully();
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    @Timeout(value = 5000, unit = TimeUnit.MILLISECONDS)
+    public void testBindPerChildEventLoopFailureClosesBoundChannels() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        final AtomicReference<Channel> bound = new AtomicReference<Channel>();
+        try {
+            // The local transport does not allow to share an address, so the second bind fails.
+            Future<ChannelGroup> future = new ServerBootstrap()
+                    .group(group)
+                    .channel(LocalServerChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelActive(ChannelHandlerContext ctx) {
+                            bound.set(ctx.channel());
+                            ctx.fireChannelActive();
+                        }
+
+                        @Override
+                        public boolean isSharable() {
+                            return true;
+                        }
+                    })
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bindPerChildEventLoop(new LocalAddress(UUID.randomUUID().toString())).await();
+            assertFalse(future.isSuccess());
+            assertFalse(bound.get().isOpen());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
 }